@@ -0,0 +1,77 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Address;
+import ch.rabanti.picoxlsx4j.Cell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the resolution of cell addresses (Cell.resolveCellAddress and Cell.resolveCellCoordinate)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AddressBenchmark {
+
+    /**
+     * Column number of the address (0 = A, 701 = ZZ, 16383 = XFD)
+     */
+    @Param({"0", "701", "16383"})
+    public int column;
+
+    /**
+     * Row number of the address
+     */
+    @Param({"0", "1048575"})
+    public int row;
+
+    private String address;
+
+    /**
+     * Prepares the address string
+     */
+    @Setup
+    public void setup() {
+        this.address = Cell.resolveCellAddress(this.column, this.row);
+    }
+
+    /**
+     * Resolves the column and row number into an address string
+     * @return Address string
+     */
+    @Benchmark
+    public String resolveCellAddress() {
+        return Cell.resolveCellAddress(this.column, this.row);
+    }
+
+    /**
+     * Resolves the address string into an address object
+     * @return Address object
+     */
+    @Benchmark
+    public Address resolveCellCoordinate() {
+        return Cell.resolveCellCoordinate(this.address);
+    }
+
+}
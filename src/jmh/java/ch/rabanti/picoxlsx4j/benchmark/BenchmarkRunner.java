@@ -0,0 +1,42 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point to run all benchmarks of PicoXLSX4j with the GC profiler (allocation rate per operation).<br>
+ * The first (optional) argument is a regular expression to select benchmarks, e.g. "SaveBenchmark". The results are written as JSON into jmh-result.json
+ * @author Raphael Stoeckli
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Main method
+     * @param args Optional regular expression to select benchmarks
+     * @throws RunnerException Thrown in case of an error while running the benchmarks
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = "ch\\.rabanti\\.picoxlsx4j\\..*Benchmark.*";
+        if (args.length > 0) {
+            include = args[0];
+        }
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+
+}
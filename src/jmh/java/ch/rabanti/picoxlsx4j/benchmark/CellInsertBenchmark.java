@@ -0,0 +1,113 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the insertion of cells by value type (Worksheet.addNextCell and Worksheet.addCell). One operation is the insertion of one cell
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellInsertBenchmark {
+
+    /**
+     * Number of cells inserted per invocation (into a fresh worksheet)
+     */
+    static final int CELLS = 10000;
+    private static final int COLUMNS = 10;
+
+    /**
+     * Type of the inserted values
+     */
+    @Param({"STRING", "NUMBER", "DATE", "TIME", "BOOL"})
+    public String valueType;
+
+    private Object[] values;
+
+    /**
+     * Prepares the values to insert, so that the creation of the values is not measured
+     */
+    @Setup
+    public void setup() {
+        this.values = new Object[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            switch (this.valueType) {
+                case "STRING":
+                    this.values[i] = "Value " + (i % 1000);
+                    break;
+                case "NUMBER":
+                    this.values[i] = i * 1.5d;
+                    break;
+                case "DATE":
+                    this.values[i] = new Date(1577836800000L + i * 60000L);
+                    break;
+                case "TIME":
+                    this.values[i] = LocalTime.ofSecondOfDay(i % 86400);
+                    break;
+                default:
+                    this.values[i] = i % 2 == 0;
+            }
+        }
+    }
+
+    /**
+     * Inserts the values with addNextCell (row by row)
+     * @return Worksheet to avoid dead code elimination
+     */
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public Worksheet addNextCell() {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int i = 0; i < CELLS; i++) {
+            worksheet.addNextCell(this.values[i]);
+            if (i % COLUMNS == COLUMNS - 1) {
+                worksheet.goToNextRow();
+            }
+        }
+        return worksheet;
+    }
+
+    /**
+     * Inserts the values with addCell (explicit address)
+     * @return Worksheet to avoid dead code elimination
+     */
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public Worksheet addCell() {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int i = 0; i < CELLS; i++) {
+            worksheet.addCell(this.values[i], i % COLUMNS, i / COLUMNS);
+        }
+        return worksheet;
+    }
+
+}
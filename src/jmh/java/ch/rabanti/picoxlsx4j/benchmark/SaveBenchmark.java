@@ -0,0 +1,95 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the whole save process (Workbook.saveAsStream) into a null sink. The workbook is built once per trial, so only the serialization and packing is measured
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SaveBenchmark {
+
+    private static final int COLUMNS = 10;
+
+    /**
+     * Number of rows of the workbook
+     */
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    /**
+     * If true, every second column is styled
+     */
+    @Param({"false", "true"})
+    public boolean styled;
+
+    private Workbook workbook;
+
+    /**
+     * Builds the workbook with a mix of strings, numbers and dates
+     */
+    @Setup
+    public void setup() {
+        this.workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        Worksheet worksheet = this.workbook.getCurrentWorksheet();
+        Date date = new Date(1577836800000L);
+        for (int r = 0; r < this.rows; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                Object value;
+                switch (c % 3) {
+                    case 0:
+                        value = "Text " + (r % 500);
+                        break;
+                    case 1:
+                        value = r * 0.25d + c;
+                        break;
+                    default:
+                        value = date;
+                }
+                if (this.styled && c % 2 == 0) {
+                    worksheet.addCell(value, c, r, BasicStyles.Bold());
+                } else {
+                    worksheet.addCell(value, c, r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the workbook into a sink that discards all bytes
+     * @throws Exception Thrown in case of an error while saving
+     */
+    @Benchmark
+    public void saveAsStream() throws Exception {
+        this.workbook.saveAsStream(OutputStream.nullOutputStream());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the registration of styles (Workbook.addStyle) and the assignment of styles to cells (Cell.setStyle)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StyleBenchmark {
+
+    private static final int CELLS = 10000;
+
+    /**
+     * Number of distinct styles
+     */
+    @Param({"1", "10", "100"})
+    public int styleCount;
+
+    private Style[] styles;
+
+    /**
+     * Prepares distinct styles (different font sizes)
+     */
+    @Setup
+    public void setup() {
+        this.styles = new Style[this.styleCount];
+        for (int i = 0; i < this.styleCount; i++) {
+            Style style = new Style();
+            style.getFont().setSize(8 + i % 60);
+            style.getFont().setBold(i % 2 == 0);
+            style.getFont().setItalic(i % 3 == 0);
+            style.getFont().setUnderline(i % 5 == 0);
+            this.styles[i] = style;
+        }
+    }
+
+    /**
+     * Registers the styles in a fresh workbook
+     * @return Workbook to avoid dead code elimination
+     */
+    @Benchmark
+    public Workbook addStyle() {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        for (Style style : this.styles) {
+            workbook.addStyle(style.copyStyle());
+        }
+        return workbook;
+    }
+
+    /**
+     * Assigns the styles round-robin to cells. One operation is one cell
+     * @return Worksheet to avoid dead code elimination
+     */
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public Worksheet setStyle() {
+        Workbook workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        Cell cell;
+        for (int i = 0; i < CELLS; i++) {
+            cell = new Cell(i, Cell.CellType.NUMBER, i % 10, i / 10, worksheet);
+            cell.setStyle(this.styles[i % this.styleCount]);
+            worksheet.getCells().put(cell.getCellAddress(), cell);
+        }
+        return worksheet;
+    }
+
+}
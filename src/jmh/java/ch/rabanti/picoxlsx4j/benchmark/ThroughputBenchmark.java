@@ -0,0 +1,162 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.benchmark;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.lowLevel.GenerationContext;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput benchmark for the generation of many small workbooks (workbooks per second), like in a web server. Each operation builds a new workbook and saves it into a null sink.<br>
+ * The platform thread variant runs one benchmark thread per processor. The virtual thread variant saves a batch of workbooks on virtual threads
+ * (Java 21 or newer; a cached thread pool is used on older versions)
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThroughputBenchmark {
+
+    private static final int COLUMNS = 10;
+    private static final int BATCH = 256;
+
+    /**
+     * Number of cells per workbook
+     */
+    @Param({"1000", "5000"})
+    public int cells;
+
+    /**
+     * Generation context: none (default save), the context of the current thread or a context of a pool
+     */
+    @Param({"NONE", "THREAD", "POOL"})
+    public String context;
+
+    private BlockingQueue<GenerationContext> pool;
+    private ExecutorService virtualThreads;
+
+    /**
+     * Creates the context pool (one context per processor) and the executor of the virtual threads
+     * @throws Exception Thrown if the executor could not be created
+     */
+    @Setup
+    public void setup() throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.pool = new ArrayBlockingQueue<>(processors);
+        for (int i = 0; i < processors; i++) {
+            this.pool.add(new GenerationContext());
+        }
+        try {
+            // Reflective call, because the library is built with Java 11
+            this.virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            this.virtualThreads = Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Shuts the executor of the virtual threads down
+     */
+    @TearDown
+    public void tearDown() {
+        this.virtualThreads.shutdownNow();
+    }
+
+    /**
+     * Builds and saves one workbook per operation on platform threads (one per processor)
+     * @throws Exception Thrown in case of an error while saving
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void platformThreads() throws Exception {
+        this.generate();
+    }
+
+    /**
+     * Builds and saves a batch of workbooks concurrently on virtual threads
+     * @throws Exception Thrown in case of an error while saving
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void virtualThreads() throws Exception {
+        List<Future<Void>> futures = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            futures.add(this.virtualThreads.submit(() -> {
+                this.generate();
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Builds a workbook with strings, numbers and a styled column and saves it into a sink that discards all bytes
+     * @throws Exception Thrown in case of an error while saving
+     */
+    private void generate() throws Exception {
+        Workbook workbook = new Workbook("throughput.xlsx", "Sheet1");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        int rows = this.cells / COLUMNS;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (c % 2 == 0) {
+                    worksheet.addCell("Item " + (r % 100), c, r);
+                } else if (c == 1) {
+                    worksheet.addCell(r * 1.5d, c, r, BasicStyles.Bold());
+                } else {
+                    worksheet.addCell(r + c, c, r);
+                }
+            }
+        }
+        switch (this.context) {
+            case "THREAD":
+                workbook.saveAsStream(OutputStream.nullOutputStream(), GenerationContext.current());
+                break;
+            case "POOL":
+                GenerationContext generationContext = this.pool.take();
+                try {
+                    workbook.saveAsStream(OutputStream.nullOutputStream(), generationContext);
+                } finally {
+                    this.pool.put(generationContext);
+                }
+                break;
+            default:
+                workbook.saveAsStream(OutputStream.nullOutputStream());
+        }
+    }
+
+}
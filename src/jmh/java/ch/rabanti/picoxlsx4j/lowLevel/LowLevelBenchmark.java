@@ -0,0 +1,110 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.SharedFormula;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the package-private hot paths of the XML generation (LowLevel.escapeXMLChars and LowLevel.createRowString).
+ * The class is located in the package of LowLevel to access these methods
+ * @author Raphael Stoeckli
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LowLevelBenchmark {
+
+    /**
+     * Kind of the text to escape: plain (nothing to escape), markup (many &lt; &gt; &amp;) or control (illegal control characters)
+     */
+    @Param({"plain", "markup", "control"})
+    public String textKind;
+
+    /**
+     * Number of cells of the row
+     */
+    @Param({"10", "100"})
+    public int columns;
+
+    private LowLevel lowLevel;
+    private List<Cell> row;
+    private Map<SharedFormula, Integer> sharedFormulas;
+    private String text;
+    private Worksheet worksheet;
+
+    /**
+     * Prepares the text and a row with mixed cell types
+     */
+    @Setup
+    public void setup() {
+        switch (this.textKind) {
+            case "plain":
+                this.text = "The quick brown fox jumps over the lazy dog 0123456789";
+                break;
+            case "markup":
+                this.text = "<a href=\"x\">Tom & Jerry</a> <b>1 < 2 > 0</b> & more";
+                break;
+            default:
+                this.text = "Line\u0001one\u0002two\u0003three\u0004four\u0005five\u0006six\u0007";
+        }
+        Workbook workbook = new Workbook("benchmark.xlsx", "Sheet1");
+        this.worksheet = workbook.getCurrentWorksheet();
+        for (int c = 0; c < this.columns; c++) {
+            if (c % 2 == 0) {
+                this.worksheet.addCell(this.text, c, 0);
+            } else {
+                this.worksheet.addCell(c * 1.5d, c, 0);
+            }
+        }
+        this.row = new ArrayList<>(this.worksheet.getCells().values());
+        this.row.sort(null);
+        this.lowLevel = new LowLevel(workbook);
+        this.sharedFormulas = new IdentityHashMap<>();
+    }
+
+    /**
+     * Escapes the text
+     * @return Escaped text
+     */
+    @Benchmark
+    public String escapeXMLChars() {
+        return LowLevel.escapeXMLChars(this.text);
+    }
+
+    /**
+     * Creates the XML string of one row
+     * @return Row string
+     */
+    @Benchmark
+    public String createRowString() {
+        return this.lowLevel.createRowString(0, this.row, this.worksheet, this.sharedFormulas);
+    }
+
+}
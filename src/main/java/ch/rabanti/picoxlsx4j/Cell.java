@@ -16,6 +16,7 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -94,6 +95,7 @@ public class Cell implements Comparable<Cell>{
     private int columnNumber;
     private CellType dataType;
     private int rowNumber;
+    private SharedFormula sharedFormula;
     private Object value;
     private Worksheet worksheetReference;
     
@@ -117,6 +119,7 @@ public class Cell implements Comparable<Cell>{
         Address temp = Cell.resolveCellCoordinate(address);
         this.columnNumber = temp.Column;
         this.rowNumber = temp.Row;
+        this.markModified();
     }
     /**
      * Gets the combined cell address as class
@@ -163,6 +166,7 @@ public class Cell implements Comparable<Cell>{
             throw new RangeException("OutOfRangeException","The passed number (" + columnNumber + ")is out of range. Range is from " + Worksheet.MIN_COLUMN_NUMBER + " to " + Worksheet.MAX_COLUMN_NUMBER + " (" + ((Worksheet.MAX_COLUMN_NUMBER + 1)) + " rows).");
         }        
         this.columnNumber = columnNumber;
+        this.markModified();
     }
 
     /**
@@ -179,6 +183,7 @@ public class Cell implements Comparable<Cell>{
      */
     public void setDataType(CellType dataType) {
         this.dataType = dataType;
+        this.markModified();
     }
     /**
      * Gets the number of the row (zero-based)
@@ -197,6 +202,27 @@ public class Cell implements Comparable<Cell>{
             throw new RangeException("OutOfRangeException","The passed number (" + rowNumber + ")is out of range. Range is from " + Worksheet.MIN_ROW_NUMBER + " to " + Worksheet.MAX_ROW_NUMBER + " (" + ((Worksheet.MAX_ROW_NUMBER + 1)) + " rows).");
         }
         this.rowNumber = rowNumber;
+        this.markModified();
+    }
+    /**
+     * Gets the shared formula of the cell, if the cell is part of a formula range
+     * @return Shared formula or null if the cell has an independent value or formula
+     */
+    public SharedFormula getSharedFormula() {
+        return this.sharedFormula;
+    }
+    /**
+     * Sets the shared formula of the cell. The value of the cell is set to the formula template and the type to FORMULA
+     * @param sharedFormula Shared formula or null to detach the cell from the formula range
+     */
+    public void setSharedFormula(SharedFormula sharedFormula) {
+        this.sharedFormula = sharedFormula;
+        if (sharedFormula != null)
+        {
+            this.value = sharedFormula.getFormula();
+            this.dataType = CellType.FORMULA;
+        }
+        this.markModified();
     }
     /**
      * Gets the value of the cell (generic object type)
@@ -211,6 +237,8 @@ public class Cell implements Comparable<Cell>{
      */
     public void setValue(Object value) {
         this.value = value;
+        this.sharedFormula = null;
+        this.markModified();
     } 
     
     /**
@@ -298,6 +326,41 @@ public class Cell implements Comparable<Cell>{
     
 // ### M E T H O D S ###
     
+    /**
+     * Creates a copy of the cell for a worksheet snapshot. The value and the shared formula are not copied but referenced
+     * @param reference Worksheet of the copy
+     * @param styleMapping Mapping of the original styles to the styles of the snapshot
+     * @return Copy of the cell
+     */
+    Cell copy(Worksheet reference, Map<Style, Style> styleMapping)
+    {
+        Cell copy = new Cell(this.value, this.dataType, this.columnNumber, this.rowNumber, reference);
+        if (this.cellStyle != null)
+        {
+            Style style = styleMapping.get(this.cellStyle);
+            copy.cellStyle = style == null ? this.cellStyle : style;
+        }
+        copy.sharedFormula = this.sharedFormula;
+        return copy;
+    }
+
+    /**
+     * Restores a cell of a mapped cell store (see {@link MappedCellStore}), without resolving the type and without marking the worksheet as modified
+     * @param value Value of the cell
+     * @param type Type of the cell
+     * @param column Column number of the cell (zero-based)
+     * @param row Row number of the cell (zero-based)
+     * @param style Style of the cell or null
+     * @param reference Worksheet reference
+     * @return Restored cell
+     */
+    static Cell restore(Object value, CellType type, int column, int row, Style style, Worksheet reference)
+    {
+        Cell cell = new Cell(value, type, column, row, reference);
+        cell.cellStyle = style;
+        return cell;
+    }
+
     /**
      * Implemented compareTo method
      * @param o Object to compare
@@ -334,6 +397,7 @@ public class Cell implements Comparable<Cell>{
             String styleName = this.cellStyle.getName();
             this.cellStyle = null;
             this.worksheetReference.getWorkbookReference().removeStyle(styleName, true);
+            this.markModified();
         }
     }
     
@@ -344,7 +408,7 @@ public class Cell implements Comparable<Cell>{
      {
          if(this.value == null)
          {
-             this.setDataType(CellType.EMPTY);
+             this.dataType = CellType.EMPTY; // Not tracked as modification, since the type is only derived (e.g. while saving)
            this.value = "";
              return;
          } // the following section is intended to be as similar as possible to PicoXLSX for C#
@@ -412,8 +476,20 @@ public class Cell implements Comparable<Cell>{
        }
        Style s = this.worksheetReference.getWorkbookReference().addStyle(style);
        this.cellStyle = s;
+       this.markModified();
        return s;
     }
+
+    /**
+     * Increases the modification count of the referenced worksheet (if defined). The cell is written back if the worksheet uses a mapped cell store
+     */
+    private void markModified()
+    {
+        if (this.worksheetReference != null)
+        {
+            this.worksheetReference.markModified(this);
+        }
+    }
     
 // ### S T A T I C   M E T H O D S ###
     
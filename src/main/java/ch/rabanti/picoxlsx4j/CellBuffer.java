@@ -0,0 +1,413 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Class representing a compact buffer of cell values, written by a RowWriter. The values are held in primitive arrays (one entry per value) instead of Cell objects.
+ * Numbers and booleans are stored as raw bits, strings, dates and times as references to the passed objects.<br>
+ * The buffer is materialized into Cell objects as soon as the cells of the worksheet are accessed. When saving a worksheet that only contains buffered values, the low level API reads the buffer directly.<br>
+ * This class is only for internal use. Use the class RowWriter to write buffered values
+ * @author Raphael Stoeckli
+ */
+public class CellBuffer
+{
+// ### C O N S T A N T S ###
+    /**
+     * Type of an empty cell (null value)
+     */
+    public static final byte TYPE_EMPTY = 0;
+    /**
+     * Type of a floating point number. The value holds the raw bits of the double
+     */
+    public static final byte TYPE_DOUBLE = 1;
+    /**
+     * Type of an integer number. The value holds the long
+     */
+    public static final byte TYPE_LONG = 2;
+    /**
+     * Type of a boolean. The value is 1 for true and 0 for false
+     */
+    public static final byte TYPE_BOOL = 3;
+    /**
+     * Type of a string. The object holds the string
+     */
+    public static final byte TYPE_STRING = 4;
+    /**
+     * Type of a date. The object holds the date
+     */
+    public static final byte TYPE_DATE = 5;
+    /**
+     * Type of a time. The object holds the local time
+     */
+    public static final byte TYPE_TIME = 6;
+    /**
+     * Type of another number (e.g. Float or BigDecimal), written with its toString method. The object holds the number
+     */
+    public static final byte TYPE_NUMBER = 7;
+    /**
+     * Type of a formula. The object holds the formula. Only used by the mapped cell store
+     */
+    public static final byte TYPE_FORMULA = 8;
+    /**
+     * Subtype of an integer number stored as Long (default)
+     */
+    public static final byte SUBTYPE_LONG = 0;
+    /**
+     * Subtype of an integer number stored as Integer
+     */
+    public static final byte SUBTYPE_INTEGER = 1;
+    /**
+     * Subtype of an integer number stored as Short
+     */
+    public static final byte SUBTYPE_SHORT = 2;
+    /**
+     * Subtype of an integer number stored as Byte
+     */
+    public static final byte SUBTYPE_BYTE = 3;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+// ### P R I V A T E  F I E L D S ###
+    private int[] columns;
+    private long modificationCount;
+    private Object[] objects;
+    private int[] rows;
+    private int size;
+    private Style[] styles;
+    private byte[] subtypes;
+    private byte[] types;
+    private long[] values;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public CellBuffer()
+    {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Gets the number of buffered values
+     * @return Number of values (including overwritten values of the same address)
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets the column number of the passed entry
+     * @param index Index of the entry
+     * @return Column number (zero-based)
+     */
+    public int getColumn(int index)
+    {
+        return this.columns[index];
+    }
+
+    /**
+     * Gets the row number of the passed entry
+     * @param index Index of the entry
+     * @return Row number (zero-based)
+     */
+    public int getRow(int index)
+    {
+        return this.rows[index];
+    }
+
+    /**
+     * Gets the type of the passed entry
+     * @param index Index of the entry
+     * @return One of the TYPE constants
+     */
+    public byte getType(int index)
+    {
+        return this.types[index];
+    }
+
+    /**
+     * Gets the subtype of the passed entry (TYPE_LONG), which defines the boxed type of the number
+     * @param index Index of the entry
+     * @return One of the SUBTYPE constants
+     */
+    public byte getSubtype(int index)
+    {
+        return this.subtypes[index];
+    }
+
+    /**
+     * Gets the primitive value of the passed entry (TYPE_LONG and TYPE_BOOL)
+     * @param index Index of the entry
+     * @return Value as long
+     */
+    public long getLong(int index)
+    {
+        return this.values[index];
+    }
+
+    /**
+     * Gets the primitive value of the passed entry (TYPE_DOUBLE)
+     * @param index Index of the entry
+     * @return Value as double
+     */
+    public double getDouble(int index)
+    {
+        return Double.longBitsToDouble(this.values[index]);
+    }
+
+    /**
+     * Gets the object of the passed entry (TYPE_STRING, TYPE_DATE, TYPE_TIME and TYPE_NUMBER)
+     * @param index Index of the entry
+     * @return Value as object
+     */
+    public Object getObject(int index)
+    {
+        return this.objects[index];
+    }
+
+    /**
+     * Gets the style of the passed entry. The style is already managed by the style manager of the workbook
+     * @param index Index of the entry
+     * @return Style or null if the entry has no own style
+     */
+    public Style getStyle(int index)
+    {
+        return this.styles[index];
+    }
+
+    /**
+     * Gets the value of the passed entry as object, like it is stored in a Cell object (Double, Long, Integer, Short, Byte, Boolean, String, Date, LocalTime, another Number or null)
+     * @param index Index of the entry
+     * @return Boxed value
+     */
+    public Object getValue(int index)
+    {
+        switch (this.types[index])
+        {
+            case TYPE_DOUBLE:
+                return this.getDouble(index);
+            case TYPE_LONG:
+                return box(this.values[index], this.subtypes[index]);
+            case TYPE_BOOL:
+                return this.values[index] != 0;
+            case TYPE_EMPTY:
+                return null;
+            default:
+                return this.objects[index];
+        }
+    }
+
+    /**
+     * Gets the indices of the entries, ordered by row and column. If several entries have the same address, only the last written one is returned.
+     * If the entries were written in order (e.g. row by row from left to right), no sorting is necessary
+     * @return Ordered indices
+     */
+    public int[] getOrderedIndices()
+    {
+        int[] indices = new int[this.size];
+        boolean ordered = true;
+        for (int i = 0; i < this.size; i++)
+        {
+            indices[i] = i;
+            if (ordered && i > 0 && compareAddress(i - 1, i) >= 0)
+            {
+                ordered = false;
+            }
+        }
+        if (ordered)
+        {
+            return indices;
+        }
+        // Row (20 bits), column (14 bits) and index (29 bits) in one key. The index keeps the write order of equal addresses
+        long[] keys = new long[this.size];
+        for (int i = 0; i < this.size; i++)
+        {
+            keys[i] = ((long)this.rows[i] << 43) | ((long)this.columns[i] << 29) | i;
+        }
+        Arrays.sort(keys);
+        int count = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (i + 1 < keys.length && (keys[i] >>> 29) == (keys[i + 1] >>> 29))
+            {
+                continue; // Overwritten by a later entry of the same address
+            }
+            indices[count] = (int)(keys[i] & 0x1FFFFFFF);
+            count++;
+        }
+        return count == indices.length ? indices : Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Gets the modification count of the buffer. The count is increased by every change and never decreased, so an unchanged count means unchanged values
+     * @return Modification count
+     */
+    public long getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Creates an independent copy of the buffer. The styles are replaced by the styles of the passed mapping (if mapped)
+     * @param styleMapping Mapping of the original styles to the styles of the copy. Can be empty
+     * @return Copy of the buffer
+     */
+    public CellBuffer copy(Map<Style, Style> styleMapping)
+    {
+        CellBuffer copy = new CellBuffer();
+        copy.columns = this.columns.clone();
+        copy.objects = this.objects.clone();
+        copy.rows = this.rows.clone();
+        copy.size = this.size;
+        copy.styles = this.styles.clone();
+        copy.subtypes = this.subtypes.clone();
+        copy.types = this.types.clone();
+        copy.values = this.values.clone();
+        Style style;
+        for (int i = 0; i < copy.size; i++)
+        {
+            style = copy.styles[i] == null ? null : styleMapping.get(copy.styles[i]);
+            if (style != null)
+            {
+                copy.styles[i] = style;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Adds an entry
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @param type One of the TYPE constants
+     * @param subtype One of the SUBTYPE constants (TYPE_LONG)
+     * @param value Primitive value (TYPE_DOUBLE, TYPE_LONG and TYPE_BOOL)
+     * @param object Object value (TYPE_STRING, TYPE_DATE, TYPE_TIME and TYPE_NUMBER)
+     * @param style Managed style or null
+     */
+    void add(int column, int row, byte type, byte subtype, long value, Object object, Style style)
+    {
+        this.modificationCount++;
+        if (this.size == this.types.length)
+        {
+            this.grow();
+        }
+        int i = this.size;
+        this.columns[i] = column;
+        this.rows[i] = row;
+        this.types[i] = type;
+        this.subtypes[i] = subtype;
+        this.values[i] = value;
+        this.objects[i] = object;
+        this.styles[i] = style;
+        this.size++;
+    }
+
+    /**
+     * Removes all entries and releases the arrays
+     */
+    void clear()
+    {
+        this.modificationCount++;
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Gets the subtype of an integer number
+     * @param value Long, Integer, Short or Byte
+     * @return One of the SUBTYPE constants
+     */
+    static byte getSubtype(Number value)
+    {
+        if (value instanceof Integer)
+        {
+            return SUBTYPE_INTEGER;
+        }
+        else if (value instanceof Short)
+        {
+            return SUBTYPE_SHORT;
+        }
+        else if (value instanceof Byte)
+        {
+            return SUBTYPE_BYTE;
+        }
+        return SUBTYPE_LONG;
+    }
+
+    /**
+     * Boxes an integer number into the type of the passed subtype
+     * @param value Number as long
+     * @param subtype One of the SUBTYPE constants
+     * @return Long, Integer, Short or Byte
+     */
+    static Object box(long value, byte subtype)
+    {
+        switch (subtype)
+        {
+            case SUBTYPE_INTEGER:
+                return (int)value;
+            case SUBTYPE_SHORT:
+                return (short)value;
+            case SUBTYPE_BYTE:
+                return (byte)value;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Compares the addresses of two entries (row first)
+     * @param a Index of the first entry
+     * @param b Index of the second entry
+     * @return Negative, zero or positive value
+     */
+    private int compareAddress(int a, int b)
+    {
+        int result = Integer.compare(this.rows[a], this.rows[b]);
+        return result != 0 ? result : Integer.compare(this.columns[a], this.columns[b]);
+    }
+
+    /**
+     * Allocates empty arrays
+     * @param capacity Capacity of the arrays
+     */
+    private void allocate(int capacity)
+    {
+        this.columns = new int[capacity];
+        this.objects = new Object[capacity];
+        this.rows = new int[capacity];
+        this.styles = new Style[capacity];
+        this.subtypes = new byte[capacity];
+        this.types = new byte[capacity];
+        this.values = new long[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Doubles the capacity of the arrays
+     */
+    private void grow()
+    {
+        int capacity = this.types.length * 2;
+        this.columns = Arrays.copyOf(this.columns, capacity);
+        this.objects = Arrays.copyOf(this.objects, capacity);
+        this.rows = Arrays.copyOf(this.rows, capacity);
+        this.styles = Arrays.copyOf(this.styles, capacity);
+        this.subtypes = Arrays.copyOf(this.subtypes, capacity);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.values = Arrays.copyOf(this.values, capacity);
+    }
+
+}
@@ -7,7 +7,8 @@
 package ch.rabanti.picoxlsx4j;
 
 /**
- * Class representing a column of a worksheet
+ * Class representing a column of a worksheet<br>
+ * Columns returned by Worksheet.getColumns are bound to the worksheet. Changes of the width, hidden state or auto filter of such a column are applied to the worksheet
  * @author Raphael Stoeckli
  */
 public class Column {
@@ -17,6 +18,7 @@ public class Column {
     private String columnAddress;
     private boolean hidden;
     private int number;
+    private ColumnAttributeStore store;
     private float width;
     
 // ### G E T T E R S  &  S E T T E R S ###    
@@ -25,6 +27,9 @@ public class Column {
      * @param hasAutoFilter If true, the column has auto filter applied, otherwise not
      */
     public void setAutoFilter(boolean hasAutoFilter) {
+        if (this.store != null) {
+            this.store.setAutoFilter(this.number, hasAutoFilter);
+        }
         this.autoFilter = hasAutoFilter;
     }
 
@@ -65,6 +70,9 @@ public class Column {
      * @return Width of the column
      */
     public float getWidth() {
+        if (this.store != null) {
+            return this.store.getWidth(this.number);
+        }
         return this.width;
     }
 
@@ -73,6 +81,9 @@ public class Column {
      * @param width Width of the column
      */
     public void setWidth(float width) {
+        if (this.store != null) {
+            this.store.setWidth(this.number, width);
+        }
         this.width = width;
     }
     /**
@@ -80,6 +91,9 @@ public class Column {
      * @return If true, the column has auto filter applied, otherwise not
      */
     public boolean hasAutoFilter() {
+        if (this.store != null) {
+            return this.store.hasAutoFilter(this.number);
+        }
         return this.autoFilter;
     }
 
@@ -88,6 +102,9 @@ public class Column {
      * @return If true, the column is hidden, otherwise visible
      */
     public boolean isHidden() {
+        if (this.store != null) {
+            return this.store.isHidden(this.number);
+        }
         return this.hidden;
     }
 
@@ -96,6 +113,9 @@ public class Column {
      * @param isHidden If true, the column is hidden, otherwise visible
      */
     public void setHidden(boolean isHidden) {
+        if (this.store != null) {
+            this.store.setHidden(this.number, isHidden);
+        }
         this.hidden = isHidden;
     }    
     
@@ -122,6 +142,15 @@ public class Column {
         this.setNumber(number);
         this.width = Worksheet.DEFAULT_COLUMN_WIDTH;
     }
+    /**
+     * Constructor of a column that is bound to the column attributes of a worksheet
+     * @param number Column number (zero-based, 0 to 16383)
+     * @param store Column attributes of the worksheet
+     */
+    Column(int number, ColumnAttributeStore store) {
+        this(number);
+        this.store = store;
+    }
     
 
     
@@ -0,0 +1,541 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class representing a compact store of column attributes (width, hidden state, auto filter and default style), indexed by the zero-based column number<br>
+ * Since a worksheet has at most 16384 columns, the attributes are held in dense primitive arrays that grow up to the highest defined column. Iterating the store returns the columns in ascending order.
+ * Spans of columns can be defined at once and are written as one &lt;col&gt; element if adjacent columns are equal.<br>
+ * This class is only for internal use. Use the methods of the class Worksheet to define column widths or hidden columns
+ * @author Raphael Stoeckli
+ */
+public class ColumnAttributeStore
+{
+// ### C O N S T A N T S ###
+    /**
+     * Flag indicating that the column is defined (has an entry in the store)
+     */
+    public static final byte FLAG_DEFINED = 0x01;
+    /**
+     * Flag indicating that the column is hidden
+     */
+    public static final byte FLAG_HIDDEN = 0x02;
+    /**
+     * Flag indicating that the column has an auto filter applied
+     */
+    public static final byte FLAG_AUTO_FILTER = 0x04;
+    /**
+     * Flag indicating that a default style was defined for the column
+     */
+    public static final byte FLAG_STYLE = 0x08;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+// ### P R I V A T E  F I E L D S ###
+    private byte[] flags;
+    private int length;
+    private long modificationCount;
+    private int size;
+    private Style[] styles;
+    private float[] widths;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public ColumnAttributeStore()
+    {
+        this.flags = new byte[INITIAL_CAPACITY];
+        this.widths = new float[INITIAL_CAPACITY];
+        this.styles = new Style[INITIAL_CAPACITY];
+        this.length = 0;
+        this.size = 0;
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Creates an independent copy of the store. The column styles are replaced by the styles of the passed mapping (if mapped)
+     * @param styleMapping Mapping of the original styles to the styles of the copy. Can be empty
+     * @return Copy of the store
+     */
+    public ColumnAttributeStore copy(Map<Style, Style> styleMapping)
+    {
+        ColumnAttributeStore copy = new ColumnAttributeStore();
+        copy.flags = this.flags.clone();
+        copy.widths = this.widths.clone();
+        copy.styles = this.styles.clone();
+        copy.length = this.length;
+        copy.size = this.size;
+        Style style;
+        for (int i = 0; i < copy.length; i++)
+        {
+            style = copy.styles[i] == null ? null : styleMapping.get(copy.styles[i]);
+            if (style != null)
+            {
+                copy.styles[i] = style;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Gets whether the passed column is defined
+     * @param columnNumber Column number (zero-based)
+     * @return True if the column has an entry
+     */
+    public boolean contains(int columnNumber)
+    {
+        return columnNumber < this.length && this.flags[columnNumber] != 0;
+    }
+
+    /**
+     * Gets the flags of the passed column
+     * @param columnNumber Column number (zero-based)
+     * @return Combination of FLAG_DEFINED, FLAG_HIDDEN, FLAG_AUTO_FILTER and FLAG_STYLE. 0 if the column is not defined
+     */
+    public byte getFlags(int columnNumber)
+    {
+        if (columnNumber >= this.length)
+        {
+            return 0;
+        }
+        return this.flags[columnNumber];
+    }
+
+    /**
+     * Gets the exclusive upper bound of the defined column numbers. Used to iterate the store in ascending order
+     * @return Highest defined column number + 1
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * Gets the default style of the passed column
+     * @param columnNumber Column number (zero-based)
+     * @return Style of the column or null if not defined
+     */
+    public Style getStyle(int columnNumber)
+    {
+        if (columnNumber >= this.length)
+        {
+            return null;
+        }
+        return this.styles[columnNumber];
+    }
+
+    /**
+     * Gets whether the style with the passed name is used as default style of a column
+     * @param styleName Name of the style
+     * @return True if the style is used
+     */
+    public boolean hasStyle(String styleName)
+    {
+        for (int i = 0; i < this.length; i++)
+        {
+            if (this.styles[i] != null && this.styles[i].getName().equals(styleName))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the width of the passed column
+     * @param columnNumber Column number (zero-based)
+     * @return Width of the column or the default column width if not defined
+     */
+    public float getWidth(int columnNumber)
+    {
+        if (!this.contains(columnNumber))
+        {
+            return Worksheet.DEFAULT_COLUMN_WIDTH;
+        }
+        return this.widths[columnNumber];
+    }
+
+    /**
+     * Gets whether the passed column is hidden
+     * @param columnNumber Column number (zero-based)
+     * @return True if hidden
+     */
+    public boolean isHidden(int columnNumber)
+    {
+        return (this.getFlags(columnNumber) & FLAG_HIDDEN) != 0;
+    }
+
+    /**
+     * Gets whether the passed column has an auto filter applied
+     * @param columnNumber Column number (zero-based)
+     * @return True if an auto filter is applied
+     */
+    public boolean hasAutoFilter(int columnNumber)
+    {
+        return (this.getFlags(columnNumber) & FLAG_AUTO_FILTER) != 0;
+    }
+
+    /**
+     * Gets the modification count of the store. The count is increased by every change and never decreased, so an unchanged count means unchanged columns
+     * @return Modification count
+     */
+    public long getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Removes the passed column from the store
+     * @param columnNumber Column number (zero-based)
+     */
+    public void remove(int columnNumber)
+    {
+        if (!this.contains(columnNumber))
+        {
+            return;
+        }
+        this.modificationCount++;
+        this.flags[columnNumber] = 0;
+        this.widths[columnNumber] = 0f;
+        this.styles[columnNumber] = null;
+        this.size--;
+        while (this.length > 0 && this.flags[this.length - 1] == 0)
+        {
+            this.length--;
+        }
+    }
+
+    /**
+     * Sets whether the passed column has an auto filter applied. The column will be defined if not existing
+     * @param columnNumber Column number (zero-based)
+     * @param autoFilter If true, an auto filter is applied
+     */
+    public void setAutoFilter(int columnNumber, boolean autoFilter)
+    {
+        this.modificationCount++;
+        this.define(columnNumber);
+        this.setFlag(columnNumber, FLAG_AUTO_FILTER, autoFilter);
+    }
+
+    /**
+     * Sets whether the passed column is hidden. The column will be defined if not existing
+     * @param columnNumber Column number (zero-based)
+     * @param hidden If true, the column is hidden
+     */
+    public void setHidden(int columnNumber, boolean hidden)
+    {
+        this.modificationCount++;
+        this.define(columnNumber);
+        this.setFlag(columnNumber, FLAG_HIDDEN, hidden);
+    }
+
+    /**
+     * Sets the width of the passed column. The column will be defined if not existing
+     * @param columnNumber Column number (zero-based)
+     * @param width Width of the column
+     */
+    public void setWidth(int columnNumber, float width)
+    {
+        this.modificationCount++;
+        this.define(columnNumber);
+        this.widths[columnNumber] = width;
+    }
+
+    /**
+     * Sets the hidden state of a span of columns. The columns will be defined if not existing
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based, inclusive)
+     * @param hidden If true, the columns are hidden
+     */
+    public void setHidden(int startColumn, int endColumn, boolean hidden)
+    {
+        this.modificationCount++;
+        this.define(startColumn, endColumn);
+        for (int i = startColumn; i <= endColumn; i++)
+        {
+            this.setFlag(i, FLAG_HIDDEN, hidden);
+        }
+    }
+
+    /**
+     * Sets or removes the default style of a span of columns. The columns will be defined if not existing
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based, inclusive)
+     * @param style Style to set. If null, the style is removed
+     */
+    public void setStyle(int startColumn, int endColumn, Style style)
+    {
+        this.modificationCount++;
+        this.define(startColumn, endColumn);
+        Arrays.fill(this.styles, startColumn, endColumn + 1, style);
+        for (int i = startColumn; i <= endColumn; i++)
+        {
+            this.setFlag(i, FLAG_STYLE, style != null);
+        }
+    }
+
+    /**
+     * Sets the width of a span of columns. The columns will be defined if not existing
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based, inclusive)
+     * @param width Width of the columns
+     */
+    public void setWidth(int startColumn, int endColumn, float width)
+    {
+        this.modificationCount++;
+        this.define(startColumn, endColumn);
+        Arrays.fill(this.widths, startColumn, endColumn + 1, width);
+    }
+
+    /**
+     * Gets whether two defined columns have the same width, hidden state and style and can be written as one span
+     * @param columnNumber1 First column number (zero-based)
+     * @param columnNumber2 Second column number (zero-based)
+     * @return True if both columns are defined and equal
+     */
+    public boolean isEqual(int columnNumber1, int columnNumber2)
+    {
+        if (!this.contains(columnNumber1) || !this.contains(columnNumber2))
+        {
+            return false;
+        }
+        return this.widths[columnNumber1] == this.widths[columnNumber2]
+                && (this.flags[columnNumber1] & FLAG_HIDDEN) == (this.flags[columnNumber2] & FLAG_HIDDEN)
+                && this.styles[columnNumber1] == this.styles[columnNumber2];
+    }
+
+    /**
+     * Gets the number of defined columns
+     * @return Number of columns
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets all defined columns as live map view in ascending order. The Column objects of the view are bound to the store, so changes on them are applied to the store.
+     * Put and remove operations of the view define or remove columns and return the previous column as unbound object
+     * @return Map with the zero-based column number as key and the column as value
+     */
+    public Map<Integer, Column> asColumnMap()
+    {
+        return new ColumnMap();
+    }
+
+    /**
+     * Creates an entry for the passed column with the default width if not existing
+     * @param columnNumber Column number (zero-based)
+     */
+    private void define(int columnNumber)
+    {
+        this.define(columnNumber, columnNumber);
+    }
+
+    /**
+     * Creates entries for a span of columns with the default width if not existing
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based, inclusive)
+     */
+    private void define(int startColumn, int endColumn)
+    {
+        if (endColumn >= this.flags.length)
+        {
+            int capacity = Math.min(Math.max(this.flags.length << 1, endColumn + 1), Worksheet.MAX_COLUMN_NUMBER + 1);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.widths = Arrays.copyOf(this.widths, capacity);
+            this.styles = Arrays.copyOf(this.styles, capacity);
+        }
+        for (int i = startColumn; i <= endColumn; i++)
+        {
+            if (this.flags[i] == 0)
+            {
+                this.flags[i] = FLAG_DEFINED;
+                this.widths[i] = Worksheet.DEFAULT_COLUMN_WIDTH;
+                this.size++;
+            }
+        }
+        if (endColumn >= this.length)
+        {
+            this.length = endColumn + 1;
+        }
+    }
+
+    /**
+     * Sets or clears a flag of a defined column
+     * @param columnNumber Column number (zero-based)
+     * @param flag Flag to set or clear
+     * @param state If true, the flag is set, otherwise cleared
+     */
+    private void setFlag(int columnNumber, byte flag, boolean state)
+    {
+        if (state)
+        {
+            this.flags[columnNumber] |= flag;
+        }
+        else
+        {
+            this.flags[columnNumber] &= ~flag;
+        }
+    }
+
+// ### S U B - C L A S S E S ###
+
+    /**
+     * Class representing a live map view of the defined columns
+     */
+    private class ColumnMap extends AbstractMap<Integer, Column>
+    {
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return key instanceof Integer && (Integer) key >= 0 && contains((Integer) key);
+        }
+
+        @Override
+        public Column get(Object key)
+        {
+            if (!this.containsKey(key))
+            {
+                return null;
+            }
+            return new Column((Integer) key, ColumnAttributeStore.this);
+        }
+
+        @Override
+        public Column put(Integer key, Column value)
+        {
+            Column previous = this.detach(key);
+            setWidth(key, value.getWidth());
+            setHidden(key, value.isHidden());
+            setAutoFilter(key, value.hasAutoFilter());
+            return previous;
+        }
+
+        @Override
+        public Column remove(Object key)
+        {
+            Column previous = this.detach(key);
+            if (previous != null)
+            {
+                ColumnAttributeStore.this.remove((Integer) key);
+            }
+            return previous;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Creates a column that is not bound to the store, with the current attributes of a defined column
+         * @param key Column number (zero-based)
+         * @return Column or null if not defined
+         */
+        private Column detach(Object key)
+        {
+            if (!this.containsKey(key))
+            {
+                return null;
+            }
+            int columnNumber = (Integer) key;
+            Column column = new Column(columnNumber);
+            column.setWidth(getWidth(columnNumber));
+            column.setHidden(isHidden(columnNumber));
+            column.setAutoFilter(hasAutoFilter(columnNumber));
+            return column;
+        }
+
+        @Override
+        public Set<Entry<Integer, Column>> entrySet()
+        {
+            return new AbstractSet<Entry<Integer, Column>>()
+            {
+                @Override
+                public Iterator<Entry<Integer, Column>> iterator()
+                {
+                    return new ColumnIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+    }
+
+    /**
+     * Class representing an iterator over the defined columns in ascending order
+     */
+    private class ColumnIterator implements Iterator<Map.Entry<Integer, Column>>
+    {
+        private int current = -1;
+        private int next = this.find(0);
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next < length;
+        }
+
+        @Override
+        public Map.Entry<Integer, Column> next()
+        {
+            if (!this.hasNext())
+            {
+                throw new NoSuchElementException("No further column is defined");
+            }
+            this.current = this.next;
+            this.next = this.find(this.current + 1);
+            Column column = new Column(this.current, ColumnAttributeStore.this);
+            return new AbstractMap.SimpleImmutableEntry<>(this.current, column);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.current < 0)
+            {
+                throw new IllegalStateException("No column to remove");
+            }
+            ColumnAttributeStore.this.remove(this.current);
+            this.current = -1;
+        }
+
+        /**
+         * Finds the next defined column
+         * @param start Column number to start with (zero-based)
+         * @return Column number of the next defined column or the length of the store if none is left
+         */
+        private int find(int start)
+        {
+            int i = start;
+            while (i < length && flags[i] == 0)
+            {
+                i++;
+            }
+            return i;
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to override the column of a mapped property when records or beans are written with a RowMapper.<br>
+ * The annotation can be placed on the field, the record component or the accessor method (getter) of a property
+ * @author Raphael Stoeckli
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface ColumnMapping
+{
+    /**
+     * Header of the column. If empty, the name of the property is used
+     * @return Header
+     */
+    String header() default "";
+
+    /**
+     * Order of the column. Columns are sorted ascending by this value. Columns with the same order (default) keep the declaration order of the properties
+     * @return Order
+     */
+    int order() default Integer.MAX_VALUE;
+
+    /**
+     * Width of the column. If smaller than 0 (default), the width of the worksheet column is not changed
+     * @return Column width
+     */
+    float width() default -1f;
+
+    /**
+     * Custom number format code of the column (e.g. "0.000" or "dd.mm.yyyy hh:mm"). If empty, the default style of the property type is used
+     * @return Number format code
+     */
+    String numberFormat() default "";
+
+    /**
+     * If true, the property is not written
+     * @return True if the property is ignored
+     */
+    boolean ignore() default false;
+}
@@ -78,6 +78,39 @@ public class Helper {
         }
     }
 
+    /**
+     * Method to convert an OA date (OLE automation) into a date. This is the inverse of getOADateTimeString; the time component is rounded to seconds
+     * @param oaDate Date or date and time as number
+     * @exception FormatException Throws a FormatException if the passed number is not in the valid range of OA dates
+     * @return Date (local time zone)
+     */
+    public static Date getDateFromOA(double oaDate)
+    {
+        if (oaDate < MIN_OADATE_VALUE || oaDate > MAX_OADATE_VALUE)
+        {
+            throw new FormatException("FormatException","The number " + oaDate + " is not in a valid range of OA dates.");
+        }
+        double days = Math.floor(oaDate);
+        long seconds = Math.round((oaDate - days) * 86400d);
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(1899, Calendar.DECEMBER, 30, 0, 0, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, (int)days);
+        calendar.add(Calendar.SECOND, (int)seconds);
+        return calendar.getTime();
+    }
+
+    /**
+     * Method to convert the internal Excel time format (OAdate without days) into a time. This is the inverse of getOATimeString; the days are ignored
+     * @param oaTime Time as number
+     * @return Time, rounded to seconds
+     */
+    public static LocalTime getTimeFromOA(double oaTime)
+    {
+        long seconds = Math.round((oaTime - Math.floor(oaTime)) * 86400d) % 86400;
+        return LocalTime.ofSecondOfDay(seconds);
+    }
+
     /**
      * Method of a string to check whether its reference is null or the content is empty
      * @param value value / reference to check
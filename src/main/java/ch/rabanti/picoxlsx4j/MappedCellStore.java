@@ -0,0 +1,938 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class representing a disk-backed store of the cells of a worksheet, for worksheets that are larger than the heap (see {@link Worksheet#useMappedCellStore()}).
+ * The cells are held in memory-mapped temporary files instead of Cell objects:<br>
+ * The rows are split into blocks of 256 rows. Each block is a grid of fixed-width slots (type, style and a 64 bit value) with one slot per row and column, up to the widest column of the block.
+ * Strings, formulas and decimal numbers are stored in a second mapped file and referenced by their offset. Only the block directory and the used styles are held on the heap.<br>
+ * The store implements the map of the cells, so that the methods to add, get and remove cells work as before. Cells returned by the store are detached copies: changes on them are written back
+ * to the store, as long as the cell exists. Cells are iterated in row order. Shared formulas are stored as resolved formulas of each cell.<br>
+ * The temporary files are deleted when the store is closed. This class is only for internal use. Use the method useMappedCellStore of the class Worksheet to select the store
+ * @author Raphael Stoeckli
+ */
+public class MappedCellStore extends AbstractMap<String, Cell> implements AutoCloseable
+{
+// ### C O N S T A N T S ###
+    /**
+     * Number of rows per block
+     */
+    public static final int ROWS_PER_BLOCK = 256;
+
+    private static final int BLOCK_COUNT = (Worksheet.MAX_ROW_NUMBER + 1) / ROWS_PER_BLOCK;
+    private static final int MIN_COLUMNS = 16;
+    private static final int SLOT_SIZE = 16;
+    private static final int SEGMENT_BITS = 26; // 64 MB; the largest block (256 rows x 16384 columns) fits into one segment
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final String FILE_PREFIX = "picoxlsx4j-";
+
+    private static final byte SUBTYPE_BYTE = 1;
+    private static final byte SUBTYPE_SHORT = 2;
+    private static final byte SUBTYPE_INTEGER = 3;
+    private static final byte SUBTYPE_LONG = 4;
+    private static final byte SUBTYPE_FLOAT = 5;
+
+// ### P R I V A T E  F I E L D S ###
+    private final long[] blockOffsets;
+    private final int[] blockColumns;
+    private final MappedFile cellFile;
+    private boolean closed;
+    private Set<Map.Entry<String, Cell>> entrySet;
+    private int size;
+    private final Map<Style, Integer> styleIndices;
+    private final List<Style> styles;
+    private final MappedFile stringFile;
+    private final Worksheet worksheet;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with the worksheet of the cells and the directory of the temporary files
+     * @param worksheet Worksheet of the cells (reference of the returned cells)
+     * @param directory Directory of the temporary files. If null, the default temporary directory is used
+     * @throws java.io.IOException Thrown if the temporary files could not be created
+     */
+    MappedCellStore(Worksheet worksheet, Path directory) throws java.io.IOException
+    {
+        this.worksheet = worksheet;
+        this.blockOffsets = new long[BLOCK_COUNT];
+        Arrays.fill(this.blockOffsets, -1L);
+        this.blockColumns = new int[BLOCK_COUNT];
+        this.styles = new ArrayList<>();
+        this.styleIndices = new IdentityHashMap<>();
+        this.cellFile = new MappedFile(directory, "cells");
+        try
+        {
+            this.stringFile = new MappedFile(directory, "strings");
+        }
+        catch (java.io.IOException e)
+        {
+            this.cellFile.close();
+            throw e;
+        }
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Gets the number of cells
+     * @return Number of cells
+     */
+    @Override
+    public synchronized int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets whether a cell exists at the passed address
+     * @param key Cell address as string (e.g. 'B12')
+     * @return True if the cell exists
+     */
+    @Override
+    public synchronized boolean containsKey(Object key)
+    {
+        Address address = this.parseKey(key);
+        return address != null && this.getType(address.Column, address.Row) >= 0;
+    }
+
+    /**
+     * Gets a detached copy of the cell at the passed address
+     * @param key Cell address as string (e.g. 'B12')
+     * @return Cell or null if no cell exists at the address
+     */
+    @Override
+    public synchronized Cell get(Object key)
+    {
+        Address address = this.parseKey(key);
+        return address == null ? null : this.readCell(this.findSlot(address.Column, address.Row), address.Column, address.Row);
+    }
+
+    /**
+     * Stores a cell at its address. The passed key is ignored, since the key of a cell is always its address
+     * @param key Cell address as string (not used)
+     * @param cell Cell to store
+     * @return Previous cell at the address or null
+     * @throws UncheckedIOException Thrown if the temporary files could not be extended
+     */
+    @Override
+    public synchronized Cell put(String key, Cell cell)
+    {
+        int column = cell.getColumnNumber();
+        int row = cell.getRowNumber();
+        long slot = this.allocateSlot(column, row);
+        Cell previous = this.readCell(slot, column, row);
+        this.writeCell(slot, cell);
+        if (previous == null)
+        {
+            this.size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the cell at the passed address
+     * @param key Cell address as string (e.g. 'B12')
+     * @return Removed cell or null if no cell existed at the address
+     */
+    @Override
+    public synchronized Cell remove(Object key)
+    {
+        Address address = this.parseKey(key);
+        if (address == null)
+        {
+            return null;
+        }
+        long slot = this.findSlot(address.Column, address.Row);
+        Cell previous = this.readCell(slot, address.Column, address.Row);
+        if (previous != null)
+        {
+            this.cellFile.segment(slot).put(MappedFile.position(slot), (byte)0);
+            this.size--;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes all cells. The temporary files are truncated
+     * @throws UncheckedIOException Thrown if the temporary files could not be truncated
+     */
+    @Override
+    public synchronized void clear()
+    {
+        Arrays.fill(this.blockOffsets, -1L);
+        Arrays.fill(this.blockColumns, 0);
+        this.styles.clear();
+        this.styleIndices.clear();
+        this.size = 0;
+        try
+        {
+            this.cellFile.reset();
+            this.stringFile.reset();
+        }
+        catch (java.io.IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the cells as set of map entries, ordered by row and column. The entries contain detached copies of the cells.<br>
+     * The iteration is not synchronized; the store must not be changed concurrently while iterating, except by the remove method of the iterator
+     * @return Set of the cells
+     */
+    @Override
+    public Set<Map.Entry<String, Cell>> entrySet()
+    {
+        if (this.entrySet == null)
+        {
+            this.entrySet = new AbstractSet<Map.Entry<String, Cell>>()
+            {
+                @Override
+                public Iterator<Map.Entry<String, Cell>> iterator()
+                {
+                    return new CellIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return MappedCellStore.this.size();
+                }
+
+                @Override
+                public void clear()
+                {
+                    MappedCellStore.this.clear();
+                }
+            };
+        }
+        return this.entrySet;
+    }
+
+    /**
+     * Writes a changed copy of a cell back to the store, if a cell exists at its address. Called by the setters of cells that were returned by the store
+     * @param cell Changed cell
+     */
+    synchronized void update(Cell cell)
+    {
+        if (this.closed)
+        {
+            return;
+        }
+        long slot = this.findSlot(cell.getColumnNumber(), cell.getRowNumber());
+        if (slot >= 0 && this.readType(slot) >= 0)
+        {
+            this.writeCell(slot, cell);
+        }
+    }
+
+    /**
+     * Closes the store and deletes the temporary files. The store is empty afterwards
+     */
+    @Override
+    public synchronized void close()
+    {
+        if (this.closed)
+        {
+            return;
+        }
+        this.closed = true;
+        Arrays.fill(this.blockOffsets, -1L);
+        this.size = 0;
+        try
+        {
+            this.cellFile.close();
+        }
+        catch (java.io.IOException e)
+        {
+            // Ignore
+        }
+        try
+        {
+            this.stringFile.close();
+        }
+        catch (java.io.IOException e)
+        {
+            // Ignore
+        }
+    }
+
+    /**
+     * Gets whether the store is closed
+     * @return True if the store is closed
+     */
+    public synchronized boolean isClosed()
+    {
+        return this.closed;
+    }
+
+// ### M E T H O D S  -  B L O C K S ###
+
+    /**
+     * Gets the indices of the blocks that were allocated, in ascending order. Block i contains the rows from i * ROWS_PER_BLOCK to (i + 1) * ROWS_PER_BLOCK - 1. This method is used by the low level API
+     * @return Block indices
+     */
+    public synchronized int[] getBlocks()
+    {
+        int count = 0;
+        for (long offset : this.blockOffsets)
+        {
+            if (offset >= 0)
+            {
+                count++;
+            }
+        }
+        int[] blocks = new int[count];
+        count = 0;
+        for (int i = 0; i < BLOCK_COUNT; i++)
+        {
+            if (this.blockOffsets[i] >= 0)
+            {
+                blocks[count++] = i;
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Gets the number of columns of a block. Columns beyond this number contain no cells
+     * @param block Index of the block
+     * @return Number of columns or 0 if the block was not allocated
+     */
+    public synchronized int getColumnCount(int block)
+    {
+        return this.blockColumns[block];
+    }
+
+    /**
+     * Gets the type of a slot
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Type (one of the TYPE constants of the class CellBuffer) or -1 if the slot contains no cell
+     */
+    public synchronized byte getType(int column, int row)
+    {
+        long slot = this.findSlot(column, row);
+        return slot < 0 ? -1 : this.readType(slot);
+    }
+
+    /**
+     * Gets the raw 64 bit value of a slot (e.g. the raw bits of a double, the long of an integer number or 1 / 0 for a boolean)
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Value
+     */
+    public synchronized long getLong(int column, int row)
+    {
+        long slot = this.findSlot(column, row);
+        return this.cellFile.segment(slot).getLong(MappedFile.position(slot) + 8);
+    }
+
+    /**
+     * Gets the object of a slot of the type STRING, FORMULA, NUMBER (Float or BigDecimal), DATE or TIME
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return String, formula, Float, BigDecimal, Date or LocalTime
+     */
+    public synchronized Object getObject(int column, int row)
+    {
+        long slot = this.findSlot(column, row);
+        return this.readObject(slot, this.readType(slot));
+    }
+
+    /**
+     * Gets the style of a slot
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Style or null if the cell has no style
+     */
+    public synchronized Style getStyle(int column, int row)
+    {
+        long slot = this.findSlot(column, row);
+        int index = this.cellFile.segment(slot).getInt(MappedFile.position(slot) + 4);
+        return index == 0 ? null : this.styles.get(index - 1);
+    }
+
+// ### P R I V A T E  M E T H O D S ###
+
+    /**
+     * Resolves a key of the map into an address
+     * @param key Cell address as string
+     * @return Address or null if the key is not a valid address
+     */
+    private Address parseKey(Object key)
+    {
+        if (!(key instanceof String))
+        {
+            return null;
+        }
+        try
+        {
+            return Cell.resolveCellCoordinate((String)key);
+        }
+        catch (RuntimeException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the position of the slot of an address
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Position in the cell file or -1 if the slot was not allocated
+     */
+    private long findSlot(int column, int row)
+    {
+        if (column < 0 || row < 0 || row > Worksheet.MAX_ROW_NUMBER)
+        {
+            return -1;
+        }
+        int block = row / ROWS_PER_BLOCK;
+        if (this.blockOffsets[block] < 0 || column >= this.blockColumns[block])
+        {
+            return -1;
+        }
+        return this.blockOffsets[block] + ((long)(row % ROWS_PER_BLOCK) * this.blockColumns[block] + column) * SLOT_SIZE;
+    }
+
+    /**
+     * Gets the position of the slot of an address. The block is allocated or widened if necessary
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Position in the cell file
+     * @throws UncheckedIOException Thrown if the cell file could not be extended
+     */
+    private long allocateSlot(int column, int row)
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("The cell store of the worksheet is closed");
+        }
+        int block = row / ROWS_PER_BLOCK;
+        if (column >= this.blockColumns[block])
+        {
+            int columns = Math.max(MIN_COLUMNS, Integer.highestOneBit(column) << 1);
+            columns = Math.min(columns, Worksheet.MAX_COLUMN_NUMBER + 1);
+            try
+            {
+                long offset = this.cellFile.allocate((long)ROWS_PER_BLOCK * columns * SLOT_SIZE);
+                if (this.blockOffsets[block] >= 0)
+                {
+                    this.copyBlock(this.blockOffsets[block], this.blockColumns[block], offset, columns); // The space of the old block is not reused
+                }
+                this.blockOffsets[block] = offset;
+                this.blockColumns[block] = columns;
+            }
+            catch (java.io.IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this.findSlot(column, row);
+    }
+
+    /**
+     * Copies the rows of a block into a wider block
+     * @param source Position of the block
+     * @param sourceColumns Number of columns of the block
+     * @param target Position of the wider block
+     * @param targetColumns Number of columns of the wider block
+     */
+    private void copyBlock(long source, int sourceColumns, long target, int targetColumns)
+    {
+        ByteBuffer sourceBuffer = this.cellFile.segment(source).duplicate();
+        ByteBuffer targetBuffer = this.cellFile.segment(target).duplicate();
+        int sourcePosition = MappedFile.position(source);
+        int targetPosition = MappedFile.position(target);
+        int rowSize = sourceColumns * SLOT_SIZE;
+        for (int i = 0; i < ROWS_PER_BLOCK; i++)
+        {
+            sourceBuffer.limit(sourcePosition + (i + 1) * rowSize).position(sourcePosition + i * rowSize);
+            targetBuffer.position(targetPosition + i * targetColumns * SLOT_SIZE);
+            targetBuffer.put(sourceBuffer);
+        }
+    }
+
+    /**
+     * Reads the type of a slot
+     * @param slot Position of the slot
+     * @return Type or -1 if the slot contains no cell
+     */
+    private byte readType(long slot)
+    {
+        return (byte)(this.cellFile.segment(slot).get(MappedFile.position(slot)) - 1);
+    }
+
+    /**
+     * Reads the object of a slot
+     * @param slot Position of the slot
+     * @param type Type of the slot
+     * @return String, formula, Float, BigDecimal, Date or LocalTime
+     */
+    private Object readObject(long slot, byte type)
+    {
+        long value = this.cellFile.segment(slot).getLong(MappedFile.position(slot) + 8);
+        switch (type)
+        {
+            case CellBuffer.TYPE_STRING:
+            case CellBuffer.TYPE_FORMULA:
+                return this.readString(value);
+            case CellBuffer.TYPE_NUMBER:
+                if (this.cellFile.segment(slot).get(MappedFile.position(slot) + 1) == SUBTYPE_FLOAT)
+                {
+                    return Float.intBitsToFloat((int)value);
+                }
+                return new BigDecimal(this.readString(value));
+            case CellBuffer.TYPE_DATE:
+                return new Date(value);
+            case CellBuffer.TYPE_TIME:
+                return LocalTime.ofNanoOfDay(value);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads a slot as detached cell
+     * @param slot Position of the slot or -1
+     * @param column Column number (zero-based)
+     * @param row Row number (zero-based)
+     * @return Cell or null if the slot contains no cell
+     */
+    private Cell readCell(long slot, int column, int row)
+    {
+        byte type = slot < 0 ? -1 : this.readType(slot);
+        if (type < 0)
+        {
+            return null;
+        }
+        ByteBuffer segment = this.cellFile.segment(slot);
+        int position = MappedFile.position(slot);
+        byte subtype = segment.get(position + 1);
+        int styleIndex = segment.getInt(position + 4);
+        long value = segment.getLong(position + 8);
+        Style style = styleIndex == 0 ? null : this.styles.get(styleIndex - 1);
+        switch (type)
+        {
+            case CellBuffer.TYPE_LONG:
+                Object number;
+                if (subtype == SUBTYPE_BYTE)
+                {
+                    number = (byte)value;
+                }
+                else if (subtype == SUBTYPE_SHORT)
+                {
+                    number = (short)value;
+                }
+                else if (subtype == SUBTYPE_INTEGER)
+                {
+                    number = (int)value;
+                }
+                else
+                {
+                    number = value;
+                }
+                return Cell.restore(number, Cell.CellType.NUMBER, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_DOUBLE:
+                return Cell.restore(Double.longBitsToDouble(value), Cell.CellType.NUMBER, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_NUMBER:
+                return Cell.restore(this.readObject(slot, type), Cell.CellType.NUMBER, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_BOOL:
+                return Cell.restore(value != 0, Cell.CellType.BOOL, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_STRING:
+                return Cell.restore(this.readObject(slot, type), Cell.CellType.STRING, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_FORMULA:
+                return Cell.restore(this.readObject(slot, type), Cell.CellType.FORMULA, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_DATE:
+                return Cell.restore(this.readObject(slot, type), Cell.CellType.DATE, column, row, style, this.worksheet);
+            case CellBuffer.TYPE_TIME:
+                return Cell.restore(this.readObject(slot, type), Cell.CellType.TIME, column, row, style, this.worksheet);
+            default:
+                return Cell.restore("", Cell.CellType.EMPTY, column, row, style, this.worksheet);
+        }
+    }
+
+    /**
+     * Writes a cell into a slot. The type is resolved from the value, like when saving cells on the heap (see Cell.resolveCellType), but without changing the cell.
+     * A shared formula is stored as the resolved formula of the cell. An empty cell that got a value afterwards (e.g. by setValue) is stored with the type of the value
+     * @param slot Position of the slot
+     * @param cell Cell to write
+     * @throws UncheckedIOException Thrown if the string file could not be extended
+     */
+    private void writeCell(long slot, Cell cell)
+    {
+        Object value = cell.getValue();
+        byte type;
+        byte subtype = 0;
+        long bits;
+        if (cell.getSharedFormula() != null)
+        {
+            type = CellBuffer.TYPE_FORMULA;
+            bits = this.writeString(cell.getSharedFormula().getFormula(cell.getColumnNumber(), cell.getRowNumber()));
+        }
+        else if (value == null || (cell.getDataType() == Cell.CellType.EMPTY && "".equals(value)))
+        {
+            type = CellBuffer.TYPE_EMPTY;
+            bits = 0;
+        }
+        else
+        {
+            switch (resolveType(cell.getDataType(), value))
+            {
+                case NUMBER:
+                    if (value instanceof Double)
+                    {
+                        type = CellBuffer.TYPE_DOUBLE;
+                        bits = Double.doubleToRawLongBits((Double)value);
+                    }
+                    else if (value instanceof Float)
+                    {
+                        type = CellBuffer.TYPE_NUMBER; // Written with its toString method, like in a CellBuffer
+                        subtype = SUBTYPE_FLOAT;
+                        bits = Float.floatToRawIntBits((Float)value);
+                    }
+                    else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+                    {
+                        type = CellBuffer.TYPE_LONG;
+                        subtype = value instanceof Long ? SUBTYPE_LONG : value instanceof Integer ? SUBTYPE_INTEGER : value instanceof Short ? SUBTYPE_SHORT : SUBTYPE_BYTE;
+                        bits = ((Number)value).longValue();
+                    }
+                    else
+                    {
+                        type = CellBuffer.TYPE_NUMBER;
+                        bits = this.writeString(value.toString());
+                    }
+                    break;
+                case BOOL:
+                    type = CellBuffer.TYPE_BOOL;
+                    bits = (Boolean)value ? 1 : 0;
+                    break;
+                case DATE:
+                    type = CellBuffer.TYPE_DATE;
+                    bits = ((Date)value).getTime();
+                    break;
+                case TIME:
+                    type = CellBuffer.TYPE_TIME;
+                    bits = ((LocalTime)value).toNanoOfDay();
+                    break;
+                case FORMULA:
+                    type = CellBuffer.TYPE_FORMULA;
+                    bits = this.writeString(value.toString());
+                    break;
+                default:
+                    type = CellBuffer.TYPE_STRING;
+                    bits = this.writeString(value.toString());
+            }
+        }
+        ByteBuffer segment = this.cellFile.segment(slot);
+        int position = MappedFile.position(slot);
+        segment.put(position, (byte)(type + 1));
+        segment.put(position + 1, subtype);
+        segment.putInt(position + 4, this.getStyleIndex(cell.getCellStyle()));
+        segment.putLong(position + 8, bits);
+    }
+
+    /**
+     * Resolves the type of a cell value
+     * @param type Type of the cell
+     * @param value Value of the cell (not null)
+     * @return FORMULA if defined as type of the cell, otherwise the type of the value
+     */
+    private static Cell.CellType resolveType(Cell.CellType type, Object value)
+    {
+        if (type == Cell.CellType.FORMULA)
+        {
+            return type;
+        }
+        if (value instanceof Boolean)
+        {
+            return Cell.CellType.BOOL;
+        }
+        if (value instanceof Byte || value instanceof BigDecimal || value instanceof Double || value instanceof Float || value instanceof Integer
+                || value instanceof Long || value instanceof Short)
+        {
+            return Cell.CellType.NUMBER;
+        }
+        if (value instanceof Date)
+        {
+            return Cell.CellType.DATE;
+        }
+        if (value instanceof LocalTime)
+        {
+            return Cell.CellType.TIME;
+        }
+        return Cell.CellType.STRING;
+    }
+
+    /**
+     * Gets the index of a style in the style list of the store. The style is added if necessary
+     * @param style Style or null
+     * @return Index (one-based) or 0 if the style is null
+     */
+    private int getStyleIndex(Style style)
+    {
+        if (style == null)
+        {
+            return 0;
+        }
+        Integer index = this.styleIndices.get(style);
+        if (index == null)
+        {
+            this.styles.add(style);
+            index = this.styles.size();
+            this.styleIndices.put(style, index);
+        }
+        return index;
+    }
+
+    /**
+     * Writes a string into the string file (length and UTF-8 bytes)
+     * @param value String to write
+     * @return Position of the string in the string file
+     * @throws UncheckedIOException Thrown if the string file could not be extended
+     */
+    private long writeString(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length + 4 > SEGMENT_SIZE)
+        {
+            throw new UncheckedIOException(new java.io.IOException("The string of " + bytes.length + " bytes is too large for the cell store"));
+        }
+        long offset;
+        try
+        {
+            offset = this.stringFile.allocate(bytes.length + 4);
+        }
+        catch (java.io.IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer segment = this.stringFile.segment(offset).duplicate();
+        segment.position(MappedFile.position(offset));
+        segment.putInt(bytes.length);
+        segment.put(bytes);
+        return offset;
+    }
+
+    /**
+     * Reads a string of the string file
+     * @param offset Position of the string in the string file
+     * @return String
+     */
+    private String readString(long offset)
+    {
+        ByteBuffer segment = this.stringFile.segment(offset).duplicate();
+        segment.position(MappedFile.position(offset));
+        byte[] bytes = new byte[segment.getInt()];
+        segment.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+// ### S U B  C L A S S E S ###
+
+    /**
+     * Iterator over the cells in row order. The slots of the allocated blocks are scanned row by row
+     */
+    private class CellIterator implements Iterator<Map.Entry<String, Cell>>
+    {
+        private int block = -1;
+        private int column;
+        private Cell last;
+        private Cell next;
+        private int row;
+
+        @Override
+        public boolean hasNext()
+        {
+            if (this.next == null)
+            {
+                this.next = this.findNext();
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public Map.Entry<String, Cell> next()
+        {
+            if (!this.hasNext())
+            {
+                throw new NoSuchElementException("No further cell exists");
+            }
+            this.last = this.next;
+            this.next = null;
+            return new AbstractMap.SimpleImmutableEntry<>(this.last.getCellAddress(), this.last);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.last == null)
+            {
+                throw new IllegalStateException("No cell to remove");
+            }
+            MappedCellStore.this.remove(this.last.getCellAddress());
+            this.last = null;
+        }
+
+        /**
+         * Scans the slots for the next cell
+         * @return Next cell or null if no further cell exists
+         */
+        private Cell findNext()
+        {
+            synchronized (MappedCellStore.this)
+            {
+                int columns;
+                long slot;
+                Cell cell;
+                while (true)
+                {
+                    if (this.block < 0 || this.row >= ROWS_PER_BLOCK)
+                    {
+                        do
+                        {
+                            this.block++;
+                        }
+                        while (this.block < BLOCK_COUNT && blockOffsets[this.block] < 0);
+                        if (this.block >= BLOCK_COUNT)
+                        {
+                            return null;
+                        }
+                        this.row = 0;
+                        this.column = 0;
+                    }
+                    columns = blockColumns[this.block];
+                    while (this.column < columns)
+                    {
+                        slot = blockOffsets[this.block] + ((long)this.row * columns + this.column) * SLOT_SIZE;
+                        cell = readCell(slot, this.column, this.block * ROWS_PER_BLOCK + this.row);
+                        this.column++;
+                        if (cell != null)
+                        {
+                            return cell;
+                        }
+                    }
+                    this.row++;
+                    this.column = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Class representing a temporary file that is mapped into memory in segments of 64 MB. The file is extended by segments as needed (sparse, initially zero) and deleted when closed
+     */
+    private static class MappedFile
+    {
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> segments;
+        private long size;
+
+        /**
+         * Constructor with the directory and the suffix of the temporary file
+         * @param directory Directory of the file or null for the default temporary directory
+         * @param suffix Suffix of the file name
+         * @throws java.io.IOException Thrown if the file could not be created
+         */
+        MappedFile(Path directory, String suffix) throws java.io.IOException
+        {
+            Path path = directory == null ? Files.createTempFile(FILE_PREFIX, "." + suffix) : Files.createTempFile(directory, FILE_PREFIX, "." + suffix);
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            this.segments = new ArrayList<>();
+        }
+
+        /**
+         * Allocates a range of the file. A range never spans two segments
+         * @param length Length of the range (at most one segment)
+         * @return Position of the range
+         * @throws java.io.IOException Thrown if the file could not be extended
+         */
+        long allocate(long length) throws java.io.IOException
+        {
+            long offset = this.size;
+            if ((offset & SEGMENT_MASK) + length > SEGMENT_SIZE)
+            {
+                offset = (offset | SEGMENT_MASK) + 1; // Start of the next segment
+            }
+            int segment = (int)(offset >>> SEGMENT_BITS);
+            while (this.segments.size() <= segment)
+            {
+                this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, (long)this.segments.size() << SEGMENT_BITS, SEGMENT_SIZE));
+            }
+            this.size = offset + length;
+            return offset;
+        }
+
+        /**
+         * Gets the mapped segment of a position
+         * @param offset Position in the file
+         * @return Segment
+         */
+        ByteBuffer segment(long offset)
+        {
+            return this.segments.get((int)(offset >>> SEGMENT_BITS));
+        }
+
+        /**
+         * Gets the position within its segment
+         * @param offset Position in the file
+         * @return Position in the segment
+         */
+        static int position(long offset)
+        {
+            return (int)(offset & SEGMENT_MASK);
+        }
+
+        /**
+         * Releases all segments and truncates the file
+         * @throws java.io.IOException Thrown if the file could not be truncated
+         */
+        void reset() throws java.io.IOException
+        {
+            this.segments.clear();
+            this.size = 0;
+            this.channel.truncate(0);
+        }
+
+        /**
+         * Releases all segments and closes (deletes) the file. The mapped memory is released by the garbage collector
+         * @throws java.io.IOException Thrown if the file could not be closed
+         */
+        void close() throws java.io.IOException
+        {
+            this.segments.clear();
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,658 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class representing a compact store of row attributes (custom height, hidden state and default style), keyed by the zero-based row number<br>
+ * The store uses open addressing with linear probing on primitive arrays. All attributes of a row are held in one slot, so a lookup while saving costs one probe sequence and no allocation.<br>
+ * This class is only for internal use. Use the methods of the class Worksheet to define row heights or hidden rows
+ * @author Raphael Stoeckli
+ */
+public class RowAttributeStore
+{
+// ### C O N S T A N T S ###
+    /**
+     * Flag indicating that a custom height was defined for the row
+     */
+    public static final byte FLAG_CUSTOM_HEIGHT = 0x01;
+    /**
+     * Flag indicating that the row is hidden
+     */
+    public static final byte FLAG_HIDDEN = 0x02;
+    /**
+     * Flag indicating that a default style was defined for the row
+     */
+    public static final byte FLAG_STYLE = 0x04;
+
+    private static final int EMPTY_KEY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+// ### P R I V A T E  F I E L D S ###
+    private byte[] flags;
+    private float[] heights;
+    private int[] keys;
+    private int mask;
+    private long modificationCount;
+    private int size;
+    private Style[] styles;
+    private int threshold;
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Default constructor
+     */
+    public RowAttributeStore()
+    {
+        this.allocate(INITIAL_CAPACITY);
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Creates an independent copy of the store. The row styles are replaced by the styles of the passed mapping (if mapped)
+     * @param styleMapping Mapping of the original styles to the styles of the copy. Can be empty
+     * @return Copy of the store
+     */
+    public RowAttributeStore copy(Map<Style, Style> styleMapping)
+    {
+        RowAttributeStore copy = new RowAttributeStore();
+        copy.flags = this.flags.clone();
+        copy.heights = this.heights.clone();
+        copy.keys = this.keys.clone();
+        copy.styles = this.styles.clone();
+        copy.mask = this.mask;
+        copy.size = this.size;
+        copy.threshold = this.threshold;
+        Style style;
+        for (int i = 0; i < copy.styles.length; i++)
+        {
+            style = copy.styles[i] == null ? null : styleMapping.get(copy.styles[i]);
+            if (style != null)
+            {
+                copy.styles[i] = style;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the slot index of the passed row number
+     * @param rowNumber Row number (zero-based)
+     * @return Slot index of the row or -1 if no attribute is defined for the row
+     */
+    public int indexOf(int rowNumber)
+    {
+        int[] k = this.keys;
+        int i = hash(rowNumber) & this.mask;
+        while (k[i] != EMPTY_KEY)
+        {
+            if (k[i] == rowNumber)
+            {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the flags of the passed slot
+     * @param slot Slot index, determined by {@link #indexOf(int)}
+     * @return Combination of FLAG_CUSTOM_HEIGHT and FLAG_HIDDEN
+     */
+    public byte getFlagsAt(int slot)
+    {
+        return this.flags[slot];
+    }
+
+    /**
+     * Gets the height of the passed slot
+     * @param slot Slot index, determined by {@link #indexOf(int)}
+     * @return Height of the row. The value is only meaningful if FLAG_CUSTOM_HEIGHT is set
+     */
+    public float getHeightAt(int slot)
+    {
+        return this.heights[slot];
+    }
+
+    /**
+     * Gets the default style of the passed slot
+     * @param slot Slot index, determined by {@link #indexOf(int)}
+     * @return Style of the row or null if not defined
+     */
+    public Style getStyleAt(int slot)
+    {
+        return this.styles[slot];
+    }
+
+    /**
+     * Gets the default style of the passed row
+     * @param rowNumber Row number (zero-based)
+     * @return Style of the row or null if not defined
+     */
+    public Style getStyle(int rowNumber)
+    {
+        int slot = this.indexOf(rowNumber);
+        return slot < 0 ? null : this.styles[slot];
+    }
+
+    /**
+     * Gets all row numbers with the passed flag, in ascending order
+     * @param flag Flag to check (e.g. FLAG_STYLE)
+     * @return Sorted array of zero-based row numbers
+     */
+    public int[] getRows(byte flag)
+    {
+        int[] rows = new int[this.size];
+        int count = 0;
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.keys[i] != EMPTY_KEY && (this.flags[i] & flag) != 0)
+            {
+                rows[count] = this.keys[i];
+                count++;
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Gets whether the style with the passed name is used as default style of a row
+     * @param styleName Name of the style
+     * @return True if the style is used
+     */
+    public boolean hasStyle(String styleName)
+    {
+        for (int i = 0; i < this.keys.length; i++)
+        {
+            if (this.styles[i] != null && this.styles[i].getName().equals(styleName))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets whether a custom height is defined for the passed row
+     * @param rowNumber Row number (zero-based)
+     * @return True if a height was defined
+     */
+    public boolean hasHeight(int rowNumber)
+    {
+        int slot = this.indexOf(rowNumber);
+        return slot >= 0 && (this.flags[slot] & FLAG_CUSTOM_HEIGHT) != 0;
+    }
+
+    /**
+     * Gets whether the passed row is hidden
+     * @param rowNumber Row number (zero-based)
+     * @return True if the row is hidden
+     */
+    public boolean isHidden(int rowNumber)
+    {
+        int slot = this.indexOf(rowNumber);
+        return slot >= 0 && (this.flags[slot] & FLAG_HIDDEN) != 0;
+    }
+
+    /**
+     * Gets the modification count of the store. The count is increased by every change and never decreased, so an unchanged count means unchanged rows
+     * @return Modification count
+     */
+    public long getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Sets the custom height of a row
+     * @param rowNumber Row number (zero-based)
+     * @param height Height of the row
+     */
+    public void setHeight(int rowNumber, float height)
+    {
+        this.modificationCount++;
+        int slot = this.insert(rowNumber);
+        this.heights[slot] = height;
+        this.flags[slot] |= FLAG_CUSTOM_HEIGHT;
+    }
+
+    /**
+     * Sets or removes the hidden state of a row. A slot without remaining attributes is released
+     * @param rowNumber Row number (zero-based)
+     * @param hidden If true, the row is hidden, otherwise visible
+     */
+    public void setHidden(int rowNumber, boolean hidden)
+    {
+        this.modificationCount++;
+        if (hidden)
+        {
+            int slot = this.insert(rowNumber);
+            this.flags[slot] |= FLAG_HIDDEN;
+            return;
+        }
+        int slot = this.indexOf(rowNumber);
+        if (slot < 0)
+        {
+            return;
+        }
+        this.flags[slot] &= ~FLAG_HIDDEN;
+        if (this.flags[slot] == 0)
+        {
+            this.removeAt(slot);
+        }
+    }
+
+    /**
+     * Sets or removes the default style of a row. A slot without remaining attributes is released
+     * @param rowNumber Row number (zero-based)
+     * @param style Style to set. If null, the style is removed
+     */
+    public void setStyle(int rowNumber, Style style)
+    {
+        this.modificationCount++;
+        if (style != null)
+        {
+            int slot = this.insert(rowNumber);
+            this.styles[slot] = style;
+            this.flags[slot] |= FLAG_STYLE;
+            return;
+        }
+        int slot = this.indexOf(rowNumber);
+        if (slot < 0)
+        {
+            return;
+        }
+        this.styles[slot] = null;
+        this.flags[slot] &= ~FLAG_STYLE;
+        if (this.flags[slot] == 0)
+        {
+            this.removeAt(slot);
+        }
+    }
+
+    /**
+     * Gets the number of rows with at least one defined attribute
+     * @return Number of rows
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Gets all rows with a custom height as live map view in ascending order. Put and remove operations of the view set or remove the custom height of a row
+     * @return Map with the zero-based row number as key and the height as value
+     */
+    public Map<Integer, Float> asHeightMap()
+    {
+        return new RowMap<Float>(FLAG_CUSTOM_HEIGHT)
+        {
+            @Override
+            Float valueAt(int slot)
+            {
+                return heights[slot];
+            }
+
+            @Override
+            void setValue(int rowNumber, Float value)
+            {
+                setHeight(rowNumber, value);
+            }
+        };
+    }
+
+    /**
+     * Gets all hidden rows as live map view in ascending order. Putting false or removing a row makes the row visible
+     * @return Map with the zero-based row number as key and true as value
+     */
+    public Map<Integer, Boolean> asHiddenMap()
+    {
+        return new RowMap<Boolean>(FLAG_HIDDEN)
+        {
+            @Override
+            Boolean valueAt(int slot)
+            {
+                return true;
+            }
+
+            @Override
+            void setValue(int rowNumber, Boolean value)
+            {
+                setHidden(rowNumber, value);
+            }
+        };
+    }
+
+    /**
+     * Clears a flag of a row. A slot without remaining attributes is released
+     * @param rowNumber Row number (zero-based)
+     * @param flag Flag to clear
+     */
+    private void clearFlag(int rowNumber, byte flag)
+    {
+        int slot = this.indexOf(rowNumber);
+        if (slot < 0 || (this.flags[slot] & flag) == 0)
+        {
+            return;
+        }
+        this.modificationCount++;
+        this.flags[slot] &= ~flag;
+        if ((flag & FLAG_CUSTOM_HEIGHT) != 0)
+        {
+            this.heights[slot] = 0f;
+        }
+        if ((flag & FLAG_STYLE) != 0)
+        {
+            this.styles[slot] = null;
+        }
+        if (this.flags[slot] == 0)
+        {
+            this.removeAt(slot);
+        }
+    }
+
+    /**
+     * Allocates the internal arrays
+     * @param capacity Capacity (power of two)
+     */
+    private void allocate(int capacity)
+    {
+        this.keys = new int[capacity];
+        Arrays.fill(this.keys, EMPTY_KEY);
+        this.heights = new float[capacity];
+        this.flags = new byte[capacity];
+        this.styles = new Style[capacity];
+        this.mask = capacity - 1;
+        this.threshold = (capacity * 3) / 4;
+    }
+
+    /**
+     * Gets or creates the slot of the passed row number
+     * @param rowNumber Row number (zero-based)
+     * @return Slot index
+     */
+    private int insert(int rowNumber)
+    {
+        int i = hash(rowNumber) & this.mask;
+        while (this.keys[i] != EMPTY_KEY)
+        {
+            if (this.keys[i] == rowNumber)
+            {
+                return i;
+            }
+            i = (i + 1) & this.mask;
+        }
+        if (this.size >= this.threshold)
+        {
+            this.rehash(this.keys.length << 1);
+            return this.insert(rowNumber);
+        }
+        this.keys[i] = rowNumber;
+        this.size++;
+        return i;
+    }
+
+    /**
+     * Grows the store and re-inserts all slots
+     * @param capacity New capacity (power of two)
+     */
+    private void rehash(int capacity)
+    {
+        int[] oldKeys = this.keys;
+        float[] oldHeights = this.heights;
+        byte[] oldFlags = this.flags;
+        Style[] oldStyles = this.styles;
+        this.allocate(capacity);
+        int i;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldKeys[j] == EMPTY_KEY)
+            {
+                continue;
+            }
+            i = hash(oldKeys[j]) & this.mask;
+            while (this.keys[i] != EMPTY_KEY)
+            {
+                i = (i + 1) & this.mask;
+            }
+            this.keys[i] = oldKeys[j];
+            this.heights[i] = oldHeights[j];
+            this.flags[i] = oldFlags[j];
+            this.styles[i] = oldStyles[j];
+        }
+    }
+
+    /**
+     * Removes a slot and shifts the following entries of the probe sequence back (no tombstones)
+     * @param slot Slot index to remove
+     */
+    private void removeAt(int slot)
+    {
+        int i = slot;
+        int j = slot;
+        int home;
+        while (true)
+        {
+            j = (j + 1) & this.mask;
+            if (this.keys[j] == EMPTY_KEY)
+            {
+                break;
+            }
+            home = hash(this.keys[j]) & this.mask;
+            // Move the entry if its home slot is not cyclically located in (i, j]
+            if ((i <= j) ? (i >= home || home > j) : (i >= home && home > j))
+            {
+                this.keys[i] = this.keys[j];
+                this.heights[i] = this.heights[j];
+                this.flags[i] = this.flags[j];
+                this.styles[i] = this.styles[j];
+                i = j;
+            }
+        }
+        this.keys[i] = EMPTY_KEY;
+        this.heights[i] = 0f;
+        this.flags[i] = 0;
+        this.styles[i] = null;
+        this.size--;
+    }
+
+    /**
+     * Spreads the bits of a row number (Fibonacci hashing), since row numbers are mostly sequential
+     * @param rowNumber Row number
+     * @return Hash value
+     */
+    private static int hash(int rowNumber)
+    {
+        int h = rowNumber * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+// ### S U B - C L A S S E S ###
+
+    /**
+     * Class representing a live map view of the rows with one attribute (flag). The rows are iterated in ascending order, based on the row numbers at the start of the iteration
+     * @param <V> Type of the attribute value
+     */
+    private abstract class RowMap<V> extends AbstractMap<Integer, V>
+    {
+        private final byte flag;
+
+        /**
+         * Constructor with the flag of the attribute
+         * @param flag Flag of the attribute
+         */
+        RowMap(byte flag)
+        {
+            this.flag = flag;
+        }
+
+        /**
+         * Gets the attribute value of a slot
+         * @param slot Slot index
+         * @return Attribute value
+         */
+        abstract V valueAt(int slot);
+
+        /**
+         * Sets the attribute value of a row
+         * @param rowNumber Row number (zero-based)
+         * @param value Attribute value
+         */
+        abstract void setValue(int rowNumber, V value);
+
+        @Override
+        public boolean containsKey(Object key)
+        {
+            return this.get(key) != null;
+        }
+
+        @Override
+        public V get(Object key)
+        {
+            if (!(key instanceof Integer))
+            {
+                return null;
+            }
+            int slot = indexOf((Integer) key);
+            if (slot < 0 || (flags[slot] & this.flag) == 0)
+            {
+                return null;
+            }
+            return this.valueAt(slot);
+        }
+
+        @Override
+        public V put(Integer key, V value)
+        {
+            V previous = this.get(key);
+            this.setValue(key, value);
+            return previous;
+        }
+
+        @Override
+        public V remove(Object key)
+        {
+            V previous = this.get(key);
+            if (previous != null)
+            {
+                clearFlag((Integer) key, this.flag);
+            }
+            return previous;
+        }
+
+        @Override
+        public int size()
+        {
+            return getRows(this.flag).length;
+        }
+
+        @Override
+        public Set<Entry<Integer, V>> entrySet()
+        {
+            return new AbstractSet<Entry<Integer, V>>()
+            {
+                @Override
+                public Iterator<Entry<Integer, V>> iterator()
+                {
+                    return new RowIterator<>(RowMap.this, getRows(RowMap.this.flag));
+                }
+
+                @Override
+                public int size()
+                {
+                    return RowMap.this.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Class representing an iterator over the rows of a live map view. Rows that were removed during the iteration are skipped
+     * @param <V> Type of the attribute value
+     */
+    private static class RowIterator<V> implements Iterator<Map.Entry<Integer, V>>
+    {
+        private final RowMap<V> map;
+        private final int[] rows;
+        private int index;
+        private Map.Entry<Integer, V> current;
+        private Map.Entry<Integer, V> next;
+
+        /**
+         * Constructor with the view and the row numbers to iterate
+         * @param map Live map view
+         * @param rows Sorted row numbers
+         */
+        RowIterator(RowMap<V> map, int[] rows)
+        {
+            this.map = map;
+            this.rows = rows;
+            this.advance();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next != null;
+        }
+
+        @Override
+        public Map.Entry<Integer, V> next()
+        {
+            if (this.next == null)
+            {
+                throw new NoSuchElementException("No further row is defined");
+            }
+            this.current = this.next;
+            this.advance();
+            return this.current;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (this.current == null)
+            {
+                throw new IllegalStateException("No row to remove");
+            }
+            this.map.remove(this.current.getKey());
+            this.current = null;
+        }
+
+        /**
+         * Moves to the next row that still has the attribute
+         */
+        private void advance()
+        {
+            this.next = null;
+            V value;
+            while (this.index < this.rows.length && this.next == null)
+            {
+                value = this.map.get(this.rows[this.index]);
+                if (value != null)
+                {
+                    this.next = new AbstractMap.SimpleImmutableEntry<>(this.rows[this.index], value);
+                }
+                this.index++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,620 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.NumberFormat;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class to write Java records or beans as rows into a worksheet. Each property is written into one column.<br>
+ * The class is inspected only once (see of): the accessors of the properties are resolved as method handles, so that no reflection is used per row.
+ * Primitive properties are written without boxing. The headers are the property names, the styles are derived from the property types (BigDecimal: #,##0.00, LocalDateTime: m/d/yyyy h:mm,
+ * Date and LocalDate: m/d/yyyy, LocalTime: default time style). Header, order, width and number format of a column can be overridden with the annotation ColumnMapping.<br>
+ * Records are the components in declaration order. Beans are all public getters (getX or isX for booleans) in the declaration order of the corresponding fields.
+ * LocalDate and LocalDateTime are converted into Date with the default time zone. The rows are written with a RowWriter. A mapper is immutable and can be used by several threads
+ * @param <T> Type of the records or beans
+ * @author Raphael Stoeckli
+ */
+public class RowMapper<T>
+{
+
+// ### C O N S T A N T S ###
+    private static final byte KIND_DOUBLE = 0;
+    private static final byte KIND_LONG = 1;
+    private static final byte KIND_BOOL = 2;
+    private static final byte KIND_OBJECT = 3;
+    private static final byte KIND_LOCAL_DATE = 4;
+    private static final byte KIND_LOCAL_DATE_TIME = 5;
+
+    private static final ClassValue<RowMapper<?>> MAPPERS = new ClassValue<RowMapper<?>>()
+    {
+        @Override
+        protected RowMapper<?> computeValue(Class<?> type)
+        {
+            return new RowMapper<>(type);
+        }
+    };
+
+    // Record support is resolved reflectively, since records are not available before Java 16
+    private static final Method IS_RECORD;
+    private static final Method GET_RECORD_COMPONENTS;
+    private static final Method GET_COMPONENT_NAME;
+    private static final Method GET_COMPONENT_ACCESSOR;
+
+    static
+    {
+        Method isRecord = null, getRecordComponents = null, getName = null, getAccessor = null;
+        try
+        {
+            Class<?> component = Class.forName("java.lang.reflect.RecordComponent");
+            isRecord = Class.class.getMethod("isRecord");
+            getRecordComponents = Class.class.getMethod("getRecordComponents");
+            getName = component.getMethod("getName");
+            getAccessor = component.getMethod("getAccessor");
+        }
+        catch (ClassNotFoundException | NoSuchMethodException e)
+        {
+            isRecord = null; // No record support
+        }
+        IS_RECORD = isRecord;
+        GET_RECORD_COMPONENTS = getRecordComponents;
+        GET_COMPONENT_NAME = getName;
+        GET_COMPONENT_ACCESSOR = getAccessor;
+    }
+
+// ### P R I V A T E  F I E L D S ###
+    private final MappedColumn[] columns;
+    private final List<String> headers;
+    private final Class<T> type;
+
+// ### G E T T E R S ###
+
+    /**
+     * Gets the headers of the columns in column order
+     * @return Unmodifiable list of headers
+     */
+    public List<String> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Gets the mapped class
+     * @return Class of the records or beans
+     */
+    public Class<T> getType() {
+        return this.type;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the class to map. Use the static method of to get a mapper
+     * @param type Class of the records or beans
+     * @throws WorksheetException Thrown if the class has no readable properties or an accessor cannot be resolved
+     */
+    private RowMapper(Class<T> type)
+    {
+        List<MappedColumn> list = new ArrayList<>();
+        if (isRecord(type))
+        {
+            collectRecordComponents(type, list);
+        }
+        else
+        {
+            collectBeanProperties(type, list);
+        }
+        if (list.isEmpty())
+        {
+            throw new WorksheetException("MappingException", "The class " + type.getName() + " has no readable properties.");
+        }
+        list.sort(Comparator.comparingInt((MappedColumn c) -> c.order).thenComparingInt(c -> c.index));
+        this.columns = list.toArray(new MappedColumn[0]);
+        String[] names = new String[this.columns.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = this.columns[i].header;
+        }
+        this.headers = Collections.unmodifiableList(Arrays.asList(names));
+        this.type = type;
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Gets the mapper of the passed class. The class is inspected on the first call, the mapper is cached afterwards
+     * @param type Class of the records or beans
+     * @param <T> Type of the records or beans
+     * @return Mapper of the class
+     * @throws WorksheetException Thrown if the class has no readable properties or an accessor cannot be resolved
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> of(Class<T> type)
+    {
+        return (RowMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * Writes the header row and all rows at the current cell position of the worksheet. The header is written without style
+     * @param worksheet Worksheet to write into
+     * @param rows Records or beans to write
+     * @throws RangeException Thrown if a cell position is out of range
+     * @throws WorksheetException Thrown if an accessor throws a checked exception
+     */
+    public void write(Worksheet worksheet, Iterable<? extends T> rows)
+    {
+        this.write(worksheet, rows, null);
+    }
+
+    /**
+     * Writes the header row and all rows at the current cell position of the worksheet
+     * @param worksheet Worksheet to write into
+     * @param rows Records or beans to write
+     * @param headerStyle Style of the header cells (e.g. BasicStyles.Bold()). Can be null
+     * @throws RangeException Thrown if a cell position is out of range
+     * @throws WorksheetException Thrown if an accessor throws a checked exception
+     */
+    public void write(Worksheet worksheet, Iterable<? extends T> rows, Style headerStyle)
+    {
+        this.writeHeader(worksheet, headerStyle);
+        this.writeRows(worksheet, rows);
+    }
+
+    /**
+     * Writes the header row at the current cell position of the worksheet and moves to the start column of the next row. The defined column widths are applied
+     * @param worksheet Worksheet to write into
+     * @param headerStyle Style of the header cells (e.g. BasicStyles.Bold()). Can be null
+     * @throws RangeException Thrown if a cell position is out of range
+     */
+    public void writeHeader(Worksheet worksheet, Style headerStyle)
+    {
+        int startColumn = worksheet.getCurrentColumnNumber();
+        Worksheet.CellDirection direction = worksheet.getCurrentCellDirection();
+        worksheet.setCurrentCellDirection(Worksheet.CellDirection.ColumnToColumn);
+        try
+        {
+            this.applyColumnWidths(worksheet, startColumn);
+            RowWriter writer = worksheet.rowWriter();
+            for (MappedColumn column : this.columns)
+            {
+                writer.style(headerStyle).text(column.header);
+            }
+            writer.endRow();
+            worksheet.setCurrentColumnNumber(startColumn);
+        }
+        finally
+        {
+            worksheet.setCurrentCellDirection(direction);
+        }
+    }
+
+    /**
+     * Writes the rows at the current cell position of the worksheet, one row per record or bean. After each row, the start column of the next row is selected. The defined column widths are applied.<br>
+     * Null values are written as empty cells, a null record or bean as empty row
+     * @param worksheet Worksheet to write into
+     * @param rows Records or beans to write
+     * @throws RangeException Thrown if a cell position is out of range
+     * @throws WorksheetException Thrown if an accessor throws a checked exception
+     */
+    public void writeRows(Worksheet worksheet, Iterable<? extends T> rows)
+    {
+        int startColumn = worksheet.getCurrentColumnNumber();
+        Worksheet.CellDirection direction = worksheet.getCurrentCellDirection();
+        worksheet.setCurrentCellDirection(Worksheet.CellDirection.ColumnToColumn);
+        try
+        {
+            this.applyColumnWidths(worksheet, startColumn);
+            RowWriter writer = worksheet.rowWriter();
+            for (T row : rows)
+            {
+                if (row != null)
+                {
+                    for (MappedColumn column : this.columns)
+                    {
+                        column.write(writer, row);
+                    }
+                }
+                writer.endRow();
+                worksheet.setCurrentColumnNumber(startColumn);
+            }
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw mappingException("An accessor of the class " + this.type.getName() + " threw an exception: " + t.getMessage(), t);
+        }
+        finally
+        {
+            worksheet.setCurrentCellDirection(direction);
+        }
+    }
+
+    /**
+     * Applies the column widths defined by the annotation ColumnMapping
+     * @param worksheet Worksheet to apply the widths
+     * @param startColumn Column number of the first mapped column
+     * @throws RangeException Thrown if a column number or width is out of range
+     */
+    private void applyColumnWidths(Worksheet worksheet, int startColumn)
+    {
+        for (int i = 0; i < this.columns.length; i++)
+        {
+            if (this.columns[i].width >= 0)
+            {
+                worksheet.setColumnWidth(startColumn + i, this.columns[i].width);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the passed class is a record
+     * @param type Class to check
+     * @return True if the class is a record, false if not or if records are not supported by the runtime
+     */
+    private static boolean isRecord(Class<?> type)
+    {
+        if (IS_RECORD == null)
+        {
+            return false;
+        }
+        try
+        {
+            return (Boolean) IS_RECORD.invoke(type);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Collects the components of a record
+     * @param type Record class
+     * @param columns List to add the columns
+     * @throws WorksheetException Thrown if an accessor cannot be resolved
+     */
+    private static void collectRecordComponents(Class<?> type, List<MappedColumn> columns)
+    {
+        try
+        {
+            Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+            for (int i = 0; i < components.length; i++)
+            {
+                String name = (String) GET_COMPONENT_NAME.invoke(components[i]);
+                Method accessor = (Method) GET_COMPONENT_ACCESSOR.invoke(components[i]);
+                addColumn(columns, name, accessor, findField(type, name), i);
+            }
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw mappingException("The components of the record " + type.getName() + " could not be resolved: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Collects the public getters of a bean. The getters are ordered by the declaration of the corresponding fields (fields of super classes first). Getters without field follow in alphabetical order
+     * @param type Bean class
+     * @param columns List to add the columns
+     * @throws WorksheetException Thrown if an accessor cannot be resolved
+     */
+    private static void collectBeanProperties(Class<?> type, List<MappedColumn> columns)
+    {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            hierarchy.add(0, current);
+        }
+        Map<String, Integer> fieldOrder = new HashMap<>();
+        for (Class<?> current : hierarchy)
+        {
+            for (Field field : current.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()))
+                {
+                    fieldOrder.putIfAbsent(field.getName(), fieldOrder.size());
+                }
+            }
+        }
+        Method[] methods = type.getMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        String name;
+        Integer index;
+        int unordered = fieldOrder.size();
+        for (Method method : methods)
+        {
+            name = getPropertyName(method);
+            if (name == null)
+            {
+                continue;
+            }
+            index = fieldOrder.get(name);
+            addColumn(columns, name, method, findField(type, name), index == null ? unordered++ : index);
+        }
+    }
+
+    /**
+     * Gets the property name of a getter
+     * @param method Method to check
+     * @return Property name or null if the method is not a getter
+     */
+    private static String getPropertyName(Method method)
+    {
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0 || method.getDeclaringClass() == Object.class)
+        {
+            return null;
+        }
+        String name = method.getName();
+        Class<?> returnType = method.getReturnType();
+        String property;
+        if (name.startsWith("get") && name.length() > 3 && returnType != void.class)
+        {
+            property = name.substring(3);
+        }
+        else if (name.startsWith("is") && name.length() > 2 && (returnType == boolean.class || returnType == Boolean.class))
+        {
+            property = name.substring(2);
+        }
+        else
+        {
+            return null;
+        }
+        if (property.length() > 1 && Character.isUpperCase(property.charAt(0)) && Character.isUpperCase(property.charAt(1)))
+        {
+            return property; // e.g. getURL -> URL
+        }
+        return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+    }
+
+    /**
+     * Finds a declared field of the class or its super classes
+     * @param type Class to search
+     * @param name Name of the field
+     * @return Field or null if not found
+     */
+    private static Field findField(Class<?> type, String name)
+    {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass())
+        {
+            try
+            {
+                return current.getDeclaredField(name);
+            }
+            catch (NoSuchFieldException e)
+            {
+                // Continue with super class
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a column for the passed accessor, unless the property is ignored by the annotation ColumnMapping (defined on the accessor or the field)
+     * @param columns List to add the column
+     * @param name Name of the property
+     * @param accessor Accessor method
+     * @param field Corresponding field or null
+     * @param index Declaration index of the property
+     * @throws WorksheetException Thrown if the accessor cannot be resolved
+     */
+    private static void addColumn(List<MappedColumn> columns, String name, Method accessor, Field field, int index)
+    {
+        ColumnMapping mapping = accessor.getAnnotation(ColumnMapping.class);
+        if (mapping == null && field != null)
+        {
+            mapping = field.getAnnotation(ColumnMapping.class);
+        }
+        if (mapping != null && mapping.ignore())
+        {
+            return;
+        }
+        columns.add(new MappedColumn(name, accessor, mapping, index));
+    }
+
+    /**
+     * Resolves the accessor as method handle. Accessors of non-public classes (e.g. nested records) are made accessible if possible
+     * @param accessor Accessor method
+     * @return Method handle
+     * @throws WorksheetException Thrown if the accessor is not accessible
+     */
+    private static MethodHandle unreflect(Method accessor)
+    {
+        try
+        {
+            accessor.setAccessible(true);
+        }
+        catch (RuntimeException e)
+        {
+            // Not possible (e.g. module restrictions); public accessors of public classes are resolved anyway
+        }
+        try
+        {
+            return MethodHandles.lookup().unreflect(accessor);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw mappingException("The accessor " + accessor.getName() + " of the class " + accessor.getDeclaringClass().getName() + " is not accessible: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the default style of a property type
+     * @param type Type of the property
+     * @param mapping Annotation of the property or null
+     * @return Style or null if the style of the written value is applied (e.g. default time style)
+     */
+    private static Style createStyle(Class<?> type, ColumnMapping mapping)
+    {
+        Style style;
+        if (mapping != null && !mapping.numberFormat().isEmpty())
+        {
+            style = new Style();
+            style.getNumberFormat().setNumber(NumberFormat.FormatNumber.custom);
+            style.getNumberFormat().setCustomFormatCode(mapping.numberFormat());
+        }
+        else if (type == BigDecimal.class)
+        {
+            style = new Style();
+            style.getNumberFormat().setNumber(NumberFormat.FormatNumber.format_4);
+        }
+        else if (type == LocalDateTime.class)
+        {
+            style = new Style();
+            style.getNumberFormat().setNumber(NumberFormat.FormatNumber.format_22);
+        }
+        else if (type == LocalDate.class || type == Date.class)
+        {
+            style = new Style();
+            style.getNumberFormat().setNumber(NumberFormat.FormatNumber.format_14);
+        }
+        else
+        {
+            style = null;
+        }
+        return style;
+    }
+
+    /**
+     * Creates a WorksheetException with a cause
+     * @param message Message of the exception
+     * @param cause Cause of the exception
+     * @return Exception
+     */
+    private static WorksheetException mappingException(String message, Throwable cause)
+    {
+        WorksheetException exception = new WorksheetException("MappingException", message);
+        exception.initCause(cause);
+        return exception;
+    }
+
+// ### S U B  C L A S S E S ###
+
+    /**
+     * Class representing one mapped property
+     */
+    private static class MappedColumn
+    {
+        private final MethodHandle accessor;
+        private final String header;
+        private final int index;
+        private final byte kind;
+        private final int order;
+        private final Style style;
+        private final float width;
+
+        /**
+         * Constructor with the accessor and its annotation
+         * @param name Name of the property
+         * @param method Accessor method
+         * @param mapping Annotation of the property or null
+         * @param index Declaration index of the property
+         * @throws WorksheetException Thrown if the accessor cannot be resolved
+         */
+        MappedColumn(String name, Method method, ColumnMapping mapping, int index)
+        {
+            Class<?> type = method.getReturnType();
+            MethodHandle handle = unreflect(method);
+            if (type == double.class)
+            {
+                this.kind = KIND_DOUBLE;
+                handle = handle.asType(MethodType.methodType(double.class, Object.class));
+            }
+            else if (type == long.class || type == int.class || type == short.class || type == byte.class)
+            {
+                this.kind = KIND_LONG;
+                handle = handle.asType(MethodType.methodType(long.class, Object.class));
+            }
+            else if (type == boolean.class)
+            {
+                this.kind = KIND_BOOL;
+                handle = handle.asType(MethodType.methodType(boolean.class, Object.class));
+            }
+            else
+            {
+                // Float is boxed, since it is written with toString like in addCell
+                if (type == LocalDate.class)
+                {
+                    this.kind = KIND_LOCAL_DATE;
+                }
+                else if (type == LocalDateTime.class)
+                {
+                    this.kind = KIND_LOCAL_DATE_TIME;
+                }
+                else
+                {
+                    this.kind = KIND_OBJECT;
+                }
+                handle = handle.asType(MethodType.methodType(Object.class, Object.class));
+            }
+            this.accessor = handle;
+            this.header = mapping == null || mapping.header().isEmpty() ? name : mapping.header();
+            this.index = index;
+            this.order = mapping == null ? Integer.MAX_VALUE : mapping.order();
+            this.style = createStyle(type, mapping);
+            this.width = mapping == null ? -1f : mapping.width();
+        }
+
+        /**
+         * Writes the property of the passed record or bean
+         * @param writer Writer of the worksheet
+         * @param item Record or bean
+         * @throws Throwable Thrown if the accessor throws an exception
+         */
+        void write(RowWriter writer, Object item) throws Throwable
+        {
+            if (this.style != null)
+            {
+                writer.style(this.style);
+            }
+            switch (this.kind)
+            {
+                case KIND_DOUBLE:
+                    writer.number((double) this.accessor.invokeExact(item));
+                    break;
+                case KIND_LONG:
+                    writer.number((long) this.accessor.invokeExact(item));
+                    break;
+                case KIND_BOOL:
+                    writer.bool((boolean) this.accessor.invokeExact(item));
+                    break;
+                case KIND_LOCAL_DATE:
+                    LocalDate date = (LocalDate) (Object) this.accessor.invokeExact(item);
+                    writer.date(date == null ? null : Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+                    break;
+                case KIND_LOCAL_DATE_TIME:
+                    LocalDateTime dateTime = (LocalDateTime) (Object) this.accessor.invokeExact(item);
+                    writer.date(dateTime == null ? null : Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant()));
+                    break;
+                default:
+                    writer.value((Object) this.accessor.invokeExact(item));
+            }
+        }
+    }
+
+}
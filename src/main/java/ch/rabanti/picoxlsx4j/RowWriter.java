@@ -0,0 +1,329 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Class to write values fluently at the current cell position of a worksheet, e.g. w.number(1.5).text("x").date(d).endRow()<br>
+ * As long as the worksheet contains no Cell objects, the values are written into a compact buffer without creating Cell, Address or address String objects.
+ * Otherwise (or as soon as the cells of the worksheet are accessed), the values are stored as Cell objects like with addNextCell.<br>
+ * The cell direction, the active style and the default date and time styles of the worksheet are applied. A style should not be changed after it was passed to the writer.
+ * The writer is not thread-safe
+ * @author Raphael Stoeckli
+ */
+public class RowWriter
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private Style dateStyle;
+    private final Map<Style, Style> managedStyles;
+    private Style nextStyle;
+    private Style timeStyle;
+    private final Worksheet worksheet;
+
+// ### G E T T E R S ###
+
+    /**
+     * Gets the worksheet of the writer
+     * @return Worksheet
+     */
+    public Worksheet getWorksheet() {
+        return this.worksheet;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with worksheet. Use Worksheet.rowWriter to create a writer
+     * @param worksheet Worksheet to write into
+     */
+    RowWriter(Worksheet worksheet)
+    {
+        this.worksheet = worksheet;
+        this.managedStyles = new IdentityHashMap<>();
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Defines the style of the next written value. Without style, the active style of the worksheet (if defined) or the default date / time style is applied
+     * @param style Style of the next value
+     * @return This writer
+     */
+    public RowWriter style(Style style)
+    {
+        this.nextStyle = style;
+        return this;
+    }
+
+    /**
+     * Writes a floating point number and moves to the next cell
+     * @param value Number to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter number(double value)
+    {
+        return this.write(CellBuffer.TYPE_DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    /**
+     * Writes an integer number and moves to the next cell
+     * @param value Number to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter number(long value)
+    {
+        return this.write(CellBuffer.TYPE_LONG, value, null);
+    }
+
+    /**
+     * Writes a boolean and moves to the next cell
+     * @param value Boolean to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter bool(boolean value)
+    {
+        return this.write(CellBuffer.TYPE_BOOL, value ? 1 : 0, null);
+    }
+
+    /**
+     * Writes a string and moves to the next cell. A null value is written as empty cell
+     * @param value String to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter text(String value)
+    {
+        return this.write(value == null ? CellBuffer.TYPE_EMPTY : CellBuffer.TYPE_STRING, 0, value);
+    }
+
+    /**
+     * Writes a date and moves to the next cell. Without style, the default date style is applied. A null value is written as empty cell
+     * @param value Date to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter date(Date value)
+    {
+        return this.write(value == null ? CellBuffer.TYPE_EMPTY : CellBuffer.TYPE_DATE, 0, value);
+    }
+
+    /**
+     * Writes a time and moves to the next cell. Without style, the default time style is applied. A null value is written as empty cell
+     * @param value Time to write
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter time(LocalTime value)
+    {
+        return this.write(value == null ? CellBuffer.TYPE_EMPTY : CellBuffer.TYPE_TIME, 0, value);
+    }
+
+    /**
+     * Writes a value of an unspecified type and moves to the next cell. The type is resolved like in addCell (numbers, booleans, dates, times; all other types are written as String)
+     * @param value Value to write. A null value is written as empty cell
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    public RowWriter value(Object value)
+    {
+        if (value == null)
+        {
+            return this.write(CellBuffer.TYPE_EMPTY, 0, null);
+        }
+        else if (value instanceof Double)
+        {
+            return this.number((double)(Double)value);
+        }
+        else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+        {
+            return this.write(CellBuffer.TYPE_LONG, CellBuffer.getSubtype((Number)value), ((Number)value).longValue(), null); // The boxed type is kept, like in addCell
+        }
+        else if (value instanceof Float || value instanceof BigDecimal)
+        {
+            return this.write(CellBuffer.TYPE_NUMBER, 0, value); // Written with toString, like in addCell
+        }
+        else if (value instanceof Boolean)
+        {
+            return this.bool((Boolean)value);
+        }
+        else if (value instanceof Date)
+        {
+            return this.date((Date)value);
+        }
+        else if (value instanceof LocalTime)
+        {
+            return this.time((LocalTime)value);
+        }
+        return this.text(value.toString());
+    }
+
+    /**
+     * Moves to the next cell without writing a value
+     * @return This writer
+     */
+    public RowWriter skip()
+    {
+        this.nextStyle = null;
+        this.advance();
+        return this;
+    }
+
+    /**
+     * Ends the current row and moves to the start of the next one. With the cell direction RowToRow, the next column is started (like goToNextColumn), otherwise the next row (like goToNextRow)
+     * @return This writer
+     */
+    public RowWriter endRow()
+    {
+        if (this.worksheet.getCurrentCellDirection() == Worksheet.CellDirection.RowToRow)
+        {
+            this.worksheet.goToNextColumn();
+        }
+        else
+        {
+            this.worksheet.goToNextRow();
+        }
+        return this;
+    }
+
+    /**
+     * Writes a value at the current cell position and moves to the next cell
+     * @param type Type of the value (CellBuffer constant)
+     * @param value Primitive value
+     * @param object Object value
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    private RowWriter write(byte type, long value, Object object)
+    {
+        return this.write(type, CellBuffer.SUBTYPE_LONG, value, object);
+    }
+
+    /**
+     * Writes a value at the current cell position and moves to the next cell
+     * @param type Type of the value (CellBuffer constant)
+     * @param subtype Subtype of an integer number (CellBuffer constant), which defines the boxed type of the value
+     * @param value Primitive value
+     * @param object Object value
+     * @return This writer
+     * @throws RangeException Thrown if the current cell position is out of range
+     */
+    private RowWriter write(byte type, byte subtype, long value, Object object)
+    {
+        int column = this.worksheet.getCurrentColumnNumber();
+        int row = this.worksheet.getCurrentRowNumber();
+        if (column > Worksheet.MAX_COLUMN_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The column number (" + column + ") is out of range. Range is from " + Worksheet.MIN_COLUMN_NUMBER + " to " + Worksheet.MAX_COLUMN_NUMBER + " (" + (Worksheet.MAX_COLUMN_NUMBER + 1) + " columns).");
+        }
+        if (row > Worksheet.MAX_ROW_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The row number (" + row + ") is out of range. Range is from " + Worksheet.MIN_ROW_NUMBER + " to " + Worksheet.MAX_ROW_NUMBER + " (" + (Worksheet.MAX_ROW_NUMBER + 1) + " rows).");
+        }
+        Style style = this.nextStyle;
+        this.nextStyle = null;
+        CellBuffer buffer = this.worksheet.getWritableCellBuffer();
+        if (buffer == null)
+        {
+            Object boxed;
+            switch (type)
+            {
+                case CellBuffer.TYPE_DOUBLE:
+                    boxed = Double.longBitsToDouble(value);
+                    break;
+                case CellBuffer.TYPE_LONG:
+                    boxed = CellBuffer.box(value, subtype);
+                    break;
+                case CellBuffer.TYPE_BOOL:
+                    boxed = value != 0;
+                    break;
+                default:
+                    boxed = object;
+            }
+            this.worksheet.storeCell(boxed, column, row, style);
+        }
+        else
+        {
+            buffer.add(column, row, type, subtype, value, object, this.resolveStyle(style, type));
+        }
+        this.advance();
+        return this;
+    }
+
+    /**
+     * Moves the current cell position according to the cell direction of the worksheet
+     */
+    private void advance()
+    {
+        this.worksheet.moveToNextCell();
+    }
+
+    /**
+     * Resolves the managed style of a buffered value, with the same precedence as in addNextCell: passed style, active style, default date or time style.
+     * The managed styles are cached by reference, so that repeated styles (e.g. alternating column styles) are not registered again
+     * @param style Passed style or null
+     * @param type Type of the value
+     * @return Managed style or null
+     */
+    private Style resolveStyle(Style style, byte type)
+    {
+        if (style == null)
+        {
+            style = this.worksheet.getAppliedActiveStyle();
+        }
+        if (style == null)
+        {
+            if (type == CellBuffer.TYPE_DATE)
+            {
+                if (this.dateStyle == null)
+                {
+                    this.dateStyle = this.register(BasicStyles.DateFormat());
+                }
+                return this.dateStyle;
+            }
+            else if (type == CellBuffer.TYPE_TIME)
+            {
+                if (this.timeStyle == null)
+                {
+                    this.timeStyle = this.register(BasicStyles.TimeFormat());
+                }
+                return this.timeStyle;
+            }
+            return null;
+        }
+        Style managed = this.managedStyles.get(style);
+        if (managed == null)
+        {
+            managed = this.register(style);
+            this.managedStyles.put(style, managed);
+        }
+        return managed;
+    }
+
+    /**
+     * Registers a style in the workbook of the worksheet
+     * @param style Style to register
+     * @return Managed style
+     */
+    private Style register(Style style)
+    {
+        return this.worksheet.getWorkbookReference().addStyle(style);
+    }
+
+}
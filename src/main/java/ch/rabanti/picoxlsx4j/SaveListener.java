@@ -0,0 +1,22 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+/**
+ * Listener interface to receive the metrics of a save process (timings per phase and part, sizes and counts).<br>
+ * Listeners are registered with Workbook.addSaveListener. The metrics are only collected if at least one listener is registered or a flight recording with the PicoXLSX4j events is running
+ * @author Raphael Stoeckli
+ */
+@FunctionalInterface
+public interface SaveListener
+{
+    /**
+     * Method called after the workbook was written successfully into the stream or file
+     * @param metrics Metrics of the save process
+     */
+    void saveCompleted(SaveMetrics metrics);
+}
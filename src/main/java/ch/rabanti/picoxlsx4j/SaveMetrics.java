@@ -0,0 +1,294 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class holding the metrics of one save process. All timings are in nanoseconds
+ * @author Raphael Stoeckli
+ */
+public class SaveMetrics
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private final long cellCount;
+    private final long evaluateNanos;
+    private final long packNanos;
+    private final List<PartMetrics> parts;
+    private final long prepareNanos;
+    private final long rowCount;
+    private final int sharedStringCount;
+    private final int styleCount;
+    private final long totalNanos;
+    private final int uniqueSharedStringCount;
+    private final int worksheetCount;
+
+// ### G E T T E R S ###
+
+    /**
+     * Gets the number of written cells
+     * @return Number of cells
+     */
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Gets the time of the formula evaluation (0 if the evaluation is disabled)
+     * @return Time in nanoseconds
+     */
+    public long getEvaluateNanos() {
+        return evaluateNanos;
+    }
+
+    /**
+     * Gets the time to pack all parts into the ZIP container, including the creation of the content types and relationship parts
+     * @return Time in nanoseconds
+     */
+    public long getPackNanos() {
+        return packNanos;
+    }
+
+    /**
+     * Gets the metrics of all parts (XML files) of the workbook in the order of their creation
+     * @return Unmodifiable list of part metrics
+     */
+    public List<PartMetrics> getParts() {
+        return parts;
+    }
+
+    /**
+     * Gets the time of the preparation (resolution of merged cells)
+     * @return Time in nanoseconds
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * Gets the number of written rows
+     * @return Number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of references to shared strings (one per string cell)
+     * @return Number of shared string references
+     */
+    public int getSharedStringCount() {
+        return sharedStringCount;
+    }
+
+    /**
+     * Gets the hit rate of the shared string table. This is the share of string cells that could reuse an already existing string
+     * @return Hit rate between 0.0 and 1.0
+     */
+    public double getSharedStringHitRate() {
+        if (sharedStringCount == 0)
+        {
+            return 0d;
+        }
+        return (double)(sharedStringCount - uniqueSharedStringCount) / sharedStringCount;
+    }
+
+    /**
+     * Gets the number of styles of the workbook
+     * @return Number of styles
+     */
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * Gets the time of the whole save process
+     * @return Time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Gets the number of distinct shared strings
+     * @return Number of entries in the shared string table
+     */
+    public int getUniqueSharedStringCount() {
+        return uniqueSharedStringCount;
+    }
+
+    /**
+     * Gets the number of worksheets
+     * @return Number of worksheets
+     */
+    public int getWorksheetCount() {
+        return worksheetCount;
+    }
+
+    /**
+     * Gets the sum of the uncompressed sizes of all parts
+     * @return Size in bytes
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (PartMetrics part : parts)
+        {
+            bytes += part.getBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the sum of the compressed sizes of all parts (without the headers of the ZIP container)
+     * @return Size in bytes
+     */
+    public long getCompressedBytes() {
+        long bytes = 0;
+        for (PartMetrics part : parts)
+        {
+            bytes += part.getCompressedBytes();
+        }
+        return bytes;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with all values. The metrics are created by the low level API during saving
+     * @param parts Metrics of the parts
+     * @param prepareNanos Time of the preparation
+     * @param evaluateNanos Time of the formula evaluation
+     * @param packNanos Time to pack the parts
+     * @param totalNanos Time of the whole save process
+     * @param worksheetCount Number of worksheets
+     * @param rowCount Number of written rows
+     * @param cellCount Number of written cells
+     * @param sharedStringCount Number of shared string references
+     * @param uniqueSharedStringCount Number of distinct shared strings
+     * @param styleCount Number of styles
+     */
+    public SaveMetrics(List<PartMetrics> parts, long prepareNanos, long evaluateNanos, long packNanos, long totalNanos, int worksheetCount, long rowCount, long cellCount, int sharedStringCount, int uniqueSharedStringCount, int styleCount)
+    {
+        this.parts = Collections.unmodifiableList(parts);
+        this.prepareNanos = prepareNanos;
+        this.evaluateNanos = evaluateNanos;
+        this.packNanos = packNanos;
+        this.totalNanos = totalNanos;
+        this.worksheetCount = worksheetCount;
+        this.rowCount = rowCount;
+        this.cellCount = cellCount;
+        this.sharedStringCount = sharedStringCount;
+        this.uniqueSharedStringCount = uniqueSharedStringCount;
+        this.styleCount = styleCount;
+    }
+
+// ### S U B  C L A S S E S ###
+
+    /**
+     * Class holding the metrics of one part (XML file in the XLSX container)
+     */
+    public static class PartMetrics
+    {
+        private final long bytes;
+        private final long compressedBytes;
+        private final long compressNanos;
+        private final long generateNanos;
+        private final String name;
+        private final long parseNanos;
+        private final long serializeNanos;
+
+        /**
+         * Gets the uncompressed size of the part
+         * @return Size in bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Gets the compressed size of the part
+         * @return Size in bytes
+         */
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+
+        /**
+         * Gets the time to compress and write the part into the ZIP container
+         * @return Time in nanoseconds
+         */
+        public long getCompressNanos() {
+            return compressNanos;
+        }
+
+        /**
+         * Gets the time to generate the raw XML string of the part (e.g. createWorksheetPart without the parsing)
+         * @return Time in nanoseconds
+         */
+        public long getGenerateNanos() {
+            return generateNanos;
+        }
+
+        /**
+         * Gets the path of the part in the XLSX container (e.g. xl/worksheets/sheet1.xml)
+         * @return Path of the part
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the time to parse the raw XML string into a document (createXMLDocument)
+         * @return Time in nanoseconds
+         */
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        /**
+         * Gets the time to serialize the document into bytes (createBytesFromDocument)
+         * @return Time in nanoseconds
+         */
+        public long getSerializeNanos() {
+            return serializeNanos;
+        }
+
+        /**
+         * Constructor with all values
+         * @param name Path of the part
+         * @param generateNanos Time to generate the raw XML string
+         * @param parseNanos Time to parse the XML string
+         * @param serializeNanos Time to serialize the document
+         * @param compressNanos Time to compress the part
+         * @param bytes Uncompressed size
+         * @param compressedBytes Compressed size
+         */
+        public PartMetrics(String name, long generateNanos, long parseNanos, long serializeNanos, long compressNanos, long bytes, long compressedBytes)
+        {
+            this.name = name;
+            this.generateNanos = generateNanos;
+            this.parseNanos = parseNanos;
+            this.serializeNanos = serializeNanos;
+            this.compressNanos = compressNanos;
+            this.bytes = bytes;
+            this.compressedBytes = compressedBytes;
+        }
+
+        /**
+         * Gets a readable description of the part metrics
+         * @return Description
+         */
+        @Override
+        public String toString()
+        {
+            return name + ": generate=" + generateNanos / 1000 + "us, parse=" + parseNanos / 1000 + "us, serialize=" + serializeNanos / 1000 + "us, compress=" + compressNanos / 1000 + "us, bytes=" + bytes + ", compressed=" + compressedBytes;
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+
+/**
+ * Class representing the options to save a workbook into a file (Path), a channel or a stream
+ * @author Raphael Stoeckli
+ */
+public class SaveOptions {
+
+// ### C O N S T A N T S ###
+    /**
+     * Default size of the direct write buffer in bytes (1 MB)
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    /**
+     * Minimum size of the direct write buffer in bytes
+     */
+    public static final int MIN_BUFFER_SIZE = 4096;
+    /**
+     * Maximum size of the direct write buffer in bytes (64 MB)
+     */
+    public static final int MAX_BUFFER_SIZE = 64 * 1024 * 1024;
+    /**
+     * Maximum number of threads to serialize and compress a workbook
+     */
+    public static final int MAX_PARALLELISM = 256;
+    /**
+     * Maximum number of chunks (64 KB) per queue of the save pipeline
+     */
+    public static final int MAX_PIPELINE_DEPTH = 1024;
+    /**
+     * Default number of rows per block, if the rows of a worksheet are serialized in parallel or in a pipeline
+     */
+    public static final int DEFAULT_ROW_BLOCK_SIZE = 8192;
+    /**
+     * Default size of the direct memory for off-heap shared strings in bytes (256 MB). Further strings are spilled to a temporary file
+     */
+    public static final long DEFAULT_SHARED_STRING_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+// ### E N U M S ###
+    /**
+     * Enum to define whether the written file is forced to the storage device before it is closed
+     */
+    public enum SyncPolicy
+    {
+        /**
+         * The file is not forced. The operating system decides when the data is written to the device (default)
+         */
+        NONE,
+        /**
+         * The content of the file is forced to the device, but not necessarily its meta data (e.g. modification date)
+         */
+        DATA,
+        /**
+         * The content and the meta data of the file are forced to the device
+         */
+        ALL
+    }
+
+// ### P R I V A T E  F I E L D S ###
+    private int bufferSize;
+    private boolean offHeapSharedStrings;
+    private int parallelism;
+    private int pipelineDepth;
+    private long preallocationSize;
+    private int rowBlockSize;
+    private long sharedStringMemoryLimit;
+    private SyncPolicy syncPolicy;
+
+// ### G E T T E R S  &  S E T T E R S ###
+
+    /**
+     * Gets the size of the direct buffer, used to collect the compressed data before it is written to the channel
+     * @return Buffer size in bytes
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * Sets the size of the direct buffer, used to collect the compressed data before it is written to the channel. Larger buffers lead to fewer system calls
+     * @param bufferSize Buffer size in bytes
+     * @throws RangeException Thrown if the size is out of range
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE || bufferSize > MAX_BUFFER_SIZE)
+        {
+            throw new RangeException("OutOfRangeException", "The buffer size (" + bufferSize + ") is out of range. Range is from " + MIN_BUFFER_SIZE + " to " + MAX_BUFFER_SIZE + " bytes.");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gets whether the shared strings are collected outside of the heap
+     * @return True if the shared strings are held in direct memory or a temporary file
+     */
+    public boolean isOffHeapSharedStrings() {
+        return this.offHeapSharedStrings;
+    }
+
+    /**
+     * Sets whether the shared strings are collected outside of the heap. The strings are held as UTF-8 bytes in direct memory up to the shared string memory limit and in a temporary file beyond,
+     * so that the garbage collector is not affected by the number of unique strings. The option has no effect if the workbook is saved incrementally
+     * @param offHeapSharedStrings If true, the shared strings are held outside of the heap. If false (default), a hash map is used
+     */
+    public void setOffHeapSharedStrings(boolean offHeapSharedStrings) {
+        this.offHeapSharedStrings = offHeapSharedStrings;
+    }
+
+    /**
+     * Gets the number of threads to serialize and compress the workbook. 1 means that the workbook is saved sequentially in the calling thread
+     * @return Number of threads
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of threads to serialize and compress the workbook. If greater than 1, the rows of each worksheet are split into blocks (see setRowBlockSize) that are serialized concurrently
+     * and concatenated in row order. The worksheet parts are written directly as bytes (without XML document) and large parts are compressed in concurrent blocks.<br>
+     * A worksheet that contains shared formulas is serialized sequentially. The threads are only used during the save process
+     * @param parallelism Number of threads. 1 (default) means sequential saving
+     * @throws RangeException Thrown if the number is out of range
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1 || parallelism > MAX_PARALLELISM)
+        {
+            throw new RangeException("OutOfRangeException", "The parallelism (" + parallelism + ") is out of range. Range is from 1 to " + MAX_PARALLELISM + ".");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of chunks that can be queued between the stages of the save pipeline. 0 means that no pipeline is used
+     * @return Queue depth
+     */
+    public int getPipelineDepth() {
+        return this.pipelineDepth;
+    }
+
+    /**
+     * Sets the number of chunks (64 KB each) that can be queued between the stages of the save pipeline. If greater than 0, the workbook is saved in three overlapping stages:
+     * the parts are generated in the calling thread (worksheets block by block, see setRowBlockSize), compressed in a second thread and written in a third thread.
+     * The worksheet parts are never held in memory as a whole, the memory of the pipeline is limited to about 2 * depth chunks.<br>
+     * The pipeline takes precedence over the parallelism. Worksheet parts are written directly as bytes (without XML document)
+     * @param pipelineDepth Queue depth. 0 (default) means that no pipeline is used
+     * @throws RangeException Thrown if the depth is out of range
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        if (pipelineDepth < 0 || pipelineDepth > MAX_PIPELINE_DEPTH)
+        {
+            throw new RangeException("OutOfRangeException", "The pipeline depth (" + pipelineDepth + ") is out of range. Range is from 0 to " + MAX_PIPELINE_DEPTH + ".");
+        }
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Gets the expected size of the file, used to extend the file before writing. 0 means no preallocation
+     * @return Expected size in bytes
+     */
+    public long getPreallocationSize() {
+        return this.preallocationSize;
+    }
+
+    /**
+     * Sets the expected size of the file, used to extend the file before writing. The file is truncated to its actual size after writing.<br>
+     * The file is extended by writing its last byte. Whether the storage is actually reserved depends on the file system (sparse files only change the file size). 0 means no preallocation
+     * @param preallocationSize Expected size in bytes
+     * @throws RangeException Thrown if the size is negative
+     */
+    public void setPreallocationSize(long preallocationSize) {
+        if (preallocationSize < 0)
+        {
+            throw new RangeException("OutOfRangeException", "The preallocation size (" + preallocationSize + ") must not be negative.");
+        }
+        this.preallocationSize = preallocationSize;
+    }
+
+    /**
+     * Gets the number of rows per block, if the rows of a worksheet are serialized in parallel or in a pipeline
+     * @return Number of rows
+     */
+    public int getRowBlockSize() {
+        return this.rowBlockSize;
+    }
+
+    /**
+     * Sets the number of rows per block, if the rows of a worksheet are serialized in parallel or in a pipeline. Smaller blocks distribute the work more evenly, larger blocks have less overhead.
+     * The value has no effect if the parallelism is 1 and no pipeline is used
+     * @param rowBlockSize Number of rows
+     * @throws RangeException Thrown if the number is smaller than 1
+     */
+    public void setRowBlockSize(int rowBlockSize) {
+        if (rowBlockSize < 1)
+        {
+            throw new RangeException("OutOfRangeException", "The row block size (" + rowBlockSize + ") must be at least 1.");
+        }
+        this.rowBlockSize = rowBlockSize;
+    }
+
+    /**
+     * Gets the maximum size of the direct memory for off-heap shared strings
+     * @return Size in bytes
+     */
+    public long getSharedStringMemoryLimit() {
+        return this.sharedStringMemoryLimit;
+    }
+
+    /**
+     * Sets the maximum size of the direct memory for off-heap shared strings (strings and hash index). Further strings are spilled to a temporary file that is deleted after saving.
+     * The memory is allocated in segments of 4 MB. The value has no effect if off-heap shared strings are disabled
+     * @param sharedStringMemoryLimit Size in bytes. 0 means that all strings are spilled to the temporary file
+     * @throws RangeException Thrown if the size is negative
+     */
+    public void setSharedStringMemoryLimit(long sharedStringMemoryLimit) {
+        if (sharedStringMemoryLimit < 0)
+        {
+            throw new RangeException("OutOfRangeException", "The shared string memory limit (" + sharedStringMemoryLimit + ") must not be negative.");
+        }
+        this.sharedStringMemoryLimit = sharedStringMemoryLimit;
+    }
+
+    /**
+     * Gets the policy whether the file is forced to the storage device before it is closed
+     * @return Sync policy
+     */
+    public SyncPolicy getSyncPolicy() {
+        return this.syncPolicy;
+    }
+
+    /**
+     * Sets the policy whether the file is forced to the storage device before it is closed. The policy has no effect if the workbook is saved into a channel that is not a file channel
+     * @param syncPolicy Sync policy
+     */
+    public void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy == null ? SyncPolicy.NONE : syncPolicy;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Default constructor with a buffer size of 1 MB, no preallocation, no forced sync, sequential saving, no pipeline and shared strings on the heap
+     */
+    public SaveOptions()
+    {
+        this.bufferSize = DEFAULT_BUFFER_SIZE;
+        this.offHeapSharedStrings = false;
+        this.parallelism = 1;
+        this.pipelineDepth = 0;
+        this.preallocationSize = 0;
+        this.rowBlockSize = DEFAULT_ROW_BLOCK_SIZE;
+        this.sharedStringMemoryLimit = DEFAULT_SHARED_STRING_MEMORY_LIMIT;
+        this.syncPolicy = SyncPolicy.NONE;
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+/**
+ * Class representing a shared formula (a formula filled over a range of cells)<br>
+ * The formula is stored once and relative to the top left cell of the range. All cells of the range reference the same template. The formula of a particular cell is determined by shifting the relative (not $-fixed) references of the template
+ * @author Raphael Stoeckli
+ */
+public class SharedFormula
+{
+// ### P R I V A T E  F I E L D S ###
+    private final String formula;
+    private final Range range;
+
+// ### G E T T E R S  &  S E T T E R S ###
+    /**
+     * Gets the formula template (formula of the top left cell of the range)
+     * @return Formula template
+     */
+    public String getFormula()
+    {
+        return this.formula;
+    }
+
+    /**
+     * Gets the range of the shared formula. The start address is the top left cell
+     * @return Range of the shared formula
+     */
+    public Range getRange()
+    {
+        return this.range;
+    }
+
+// ### C O N S T R U C T O R S ###
+    /**
+     * Constructor with formula and range
+     * @param formula Formula template, relative to the top left cell of the range
+     * @param range Range where the formula is filled in
+     */
+    public SharedFormula(String formula, Range range)
+    {
+        this.formula = formula;
+        int startColumn = Math.min(range.StartAddress.Column, range.EndAddress.Column);
+        int endColumn = Math.max(range.StartAddress.Column, range.EndAddress.Column);
+        int startRow = Math.min(range.StartAddress.Row, range.EndAddress.Row);
+        int endRow = Math.max(range.StartAddress.Row, range.EndAddress.Row);
+        this.range = new Range(new Address(startColumn, startRow), new Address(endColumn, endRow));
+    }
+
+// ### M E T H O D S ###
+    /**
+     * Gets the formula of a particular cell of the range
+     * @param column Column number of the cell (zero-based)
+     * @param row Row number of the cell (zero-based)
+     * @return Formula with shifted relative references
+     */
+    public String getFormula(int column, int row)
+    {
+        int columnOffset = column - this.range.StartAddress.Column;
+        int rowOffset = row - this.range.StartAddress.Row;
+        if (columnOffset == 0 && rowOffset == 0)
+        {
+            return this.formula;
+        }
+        return shiftFormula(this.formula, columnOffset, rowOffset);
+    }
+
+    /**
+     * Shifts the relative references (e.g. A1, $A1 or A$1) of a formula by the passed offsets, like Excel does when filling a formula. Fixed parts ($) are not changed. References that are shifted out of the worksheet are replaced by #REF!
+     * @param formula Formula to shift
+     * @param columnOffset Number of columns to shift
+     * @param rowOffset Number of rows to shift
+     * @return Shifted formula
+     */
+    public static String shiftFormula(String formula, int columnOffset, int rowOffset)
+    {
+        int len = formula.length();
+        StringBuilder sb = new StringBuilder(len + 8);
+        int i = 0;
+        char c;
+        while (i < len)
+        {
+            c = formula.charAt(i);
+            if (c == '"' || c == '\'')
+            {
+                // String literal or quoted worksheet name, copied as it is (a doubled quote is an escaped quote)
+                int end = i + 1;
+                while (end < len)
+                {
+                    if (formula.charAt(end) == c)
+                    {
+                        if (end + 1 < len && formula.charAt(end + 1) == c)
+                        {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, len);
+                sb.append(formula, i, end);
+                i = end;
+            }
+            else if ((c == '$' || isLetter(c)) && (i == 0 || !isNamePart(formula.charAt(i - 1))))
+            {
+                i = shiftReference(formula, i, columnOffset, rowOffset, sb);
+            }
+            else
+            {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Tries to shift a cell reference at the passed position. If no reference is found, the token is copied as it is
+     * @param formula Formula
+     * @param start Start position of the token
+     * @param columnOffset Number of columns to shift
+     * @param rowOffset Number of rows to shift
+     * @param sb StringBuilder to append the result
+     * @return Position after the processed token
+     */
+    private static int shiftReference(String formula, int start, int columnOffset, int rowOffset, StringBuilder sb)
+    {
+        int len = formula.length();
+        int i = start;
+        boolean fixedColumn = false;
+        boolean fixedRow = false;
+        if (formula.charAt(i) == '$')
+        {
+            fixedColumn = true;
+            i++;
+        }
+        int columnStart = i;
+        while (i < len && isLetter(formula.charAt(i)) && i - columnStart < 3)
+        {
+            i++;
+        }
+        int columnEnd = i;
+        if (i < len && formula.charAt(i) == '$')
+        {
+            fixedRow = true;
+            i++;
+        }
+        int rowStart = i;
+        while (i < len && Character.isDigit(formula.charAt(i)) && i - rowStart < 7)
+        {
+            i++;
+        }
+        int rowEnd = i;
+        boolean isReference = columnEnd > columnStart && rowEnd > rowStart && (i >= len || !(isNamePart(formula.charAt(i)) || formula.charAt(i) == '('));
+        if (!isReference)
+        {
+            // Copy the whole name (e.g. function or defined name) to avoid matching a reference within it
+            int end = start + 1;
+            while (end < len && (isNamePart(formula.charAt(end)) || formula.charAt(end) == '$'))
+            {
+                end++;
+            }
+            sb.append(formula, start, end);
+            return end;
+        }
+        int column = Cell.resolveColumn(formula.substring(columnStart, columnEnd).toUpperCase());
+        int row = Integer.parseInt(formula.substring(rowStart, rowEnd)) - 1;
+        if (!fixedColumn)
+        {
+            column += columnOffset;
+        }
+        if (!fixedRow)
+        {
+            row += rowOffset;
+        }
+        if (column < Worksheet.MIN_COLUMN_NUMBER || column > Worksheet.MAX_COLUMN_NUMBER || row < Worksheet.MIN_ROW_NUMBER || row > Worksheet.MAX_ROW_NUMBER)
+        {
+            sb.append("#REF!");
+            return i;
+        }
+        if (fixedColumn)
+        {
+            sb.append('$');
+        }
+        sb.append(Cell.resolveColumnAddress(column));
+        if (fixedRow)
+        {
+            sb.append('$');
+        }
+        sb.append(row + 1);
+        return i;
+    }
+
+    /**
+     * Checks whether the passed character is a letter (A-Z or a-z)
+     * @param c Character to check
+     * @return True if a letter
+     */
+    private static boolean isLetter(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * Checks whether the passed character can be part of a name (function, defined name or reference)
+     * @param c Character to check
+     * @return True if part of a name
+     */
+    private static boolean isNamePart(char c)
+    {
+        return isLetter(c) || Character.isDigit(c) || c == '_' || c == '.';
+    }
+
+}
@@ -7,14 +7,26 @@
 package ch.rabanti.picoxlsx4j;
 
 import ch.rabanti.picoxlsx4j.exception.*;
+import ch.rabanti.picoxlsx4j.lowLevel.GenerationContext;
 import ch.rabanti.picoxlsx4j.lowLevel.LowLevel;
+import ch.rabanti.picoxlsx4j.lowLevel.PartCache;
+import ch.rabanti.picoxlsx4j.lowLevel.WorkbookTemplate;
 import ch.rabanti.picoxlsx4j.style.*;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Class representing a workbook
@@ -23,10 +35,14 @@ import java.util.Map;
 public class Workbook {
     
 // ### P R I V A T E  F I E L D S ###    
+    private boolean concurrentPopulation;
     private Worksheet currentWorksheet;
+    private boolean evaluateFormulas;
     private String filename;
     private boolean lockStructureIfProtected;
     private boolean lockWindowsIfProtected;
+    private PartCache partCache;
+    private List<SaveListener> saveListeners;
     private int selectedWorksheet;
     private StyleManager styleManager;
     private boolean useWorkbookProtection;
@@ -49,6 +65,79 @@ public class Workbook {
     }
     
     
+    /**
+     * Gets whether the workbook is in the concurrent population mode
+     * @return True if the worksheets can be populated by several threads
+     */
+    public boolean isConcurrentPopulation() {
+        return this.concurrentPopulation;
+    }
+
+    /**
+     * Sets the concurrent population mode. In this mode, several threads can add cells to different worksheets or to disjoint cell ranges of one worksheet, using an own WorksheetWriter per thread
+     * (see Worksheet.createWriter). The cells are stored in concurrent maps and styles can be registered concurrently.<br>
+     * Not thread-safe are still the cursor of the worksheets (addNextCell, Shortener WS), the creation of worksheets, row and column attributes (heights, widths, styles), merged cells and saving.
+     * Create the worksheets before the producer threads are started and save the workbook after all producers are finished
+     * @param concurrentPopulation If true, the concurrent population mode is enabled
+     */
+    public void setConcurrentPopulation(boolean concurrentPopulation) {
+        this.concurrentPopulation = concurrentPopulation;
+        for (Worksheet worksheet : this.worksheets)
+        {
+            worksheet.setConcurrentPopulation(concurrentPopulation);
+        }
+    }
+
+    /**
+     * Gets whether the formulas are evaluated when saving the workbook
+     * @return True if the formula results are written as cached values
+     */
+    public boolean isEvaluateFormulas() {
+        return this.evaluateFormulas;
+    }
+
+    /**
+     * Sets whether the formulas are evaluated when saving the workbook. The results are written as cached values, so that the file can be read without recalculation (e.g. by parsers or in protected view)<br>
+     * Supported are arithmetic operators, comparisons, concatenation, cell and range references (also on other worksheets) and the functions of BasicFormulas (SUM, AVERAGE, MIN, MAX, MEDIAN, ROUND, ROUNDUP, ROUNDDOWN, VLOOKUP).
+     * Formulas with other functions, circular references and formulas depending on them are written without cached value
+     * @param evaluateFormulas If true, the formulas are evaluated
+     */
+    public void setEvaluateFormulas(boolean evaluateFormulas) {
+        this.evaluateFormulas = evaluateFormulas;
+    }
+
+    /**
+     * Gets whether the workbook is saved incrementally
+     * @return True if unchanged worksheets and static parts are reused from the last save process
+     */
+    public boolean isIncrementalSave() {
+        return this.partCache != null;
+    }
+
+    /**
+     * Sets whether the workbook is saved incrementally. In this mode, the compressed worksheets and static parts of a save process are kept in a part cache. A repeated save
+     * only generates the worksheets that were modified since (by methods of the worksheet or its cells) and reuses the compressed bytes of the others.
+     * The shared strings are kept across the save processes, so that the indices in unchanged worksheets stay valid.<br>
+     * The cache is used by sequential saves (parallelism 1, no pipeline) without formula evaluation. Direct modifications of the collections returned by worksheet getters
+     * (e.g. getCells) and of registered style objects are not tracked; use PartCache.clear in this case
+     * @param incrementalSave If true, the part cache is created; if false, the cache is released
+     */
+    public void setIncrementalSave(boolean incrementalSave) {
+        if (!incrementalSave) {
+            this.partCache = null;
+        } else if (this.partCache == null) {
+            this.partCache = new PartCache();
+        }
+    }
+
+    /**
+     * Gets the part cache of the incremental save
+     * @return Part cache or null if the workbook is not saved incrementally
+     */
+    public PartCache getPartCache() {
+        return this.partCache;
+    }
+
     /**
      * Gets the filename of the workbook
      * @return Filename of the workbook
@@ -64,6 +153,14 @@ public class Workbook {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+    /**
+     * Gets the registered save listeners
+     * @return List of save listeners
+     */
+    public List<SaveListener> getSaveListeners() {
+        return this.saveListeners;
+    }
+
     /**
      * Gets the selected worksheet. The selected worksheet is not the current worksheet while design time but the selected sheet in the output file
      * @return Zero-based worksheet index
@@ -231,6 +328,15 @@ public class Workbook {
     
 // ### M E T H O D S ###
 
+    /**
+     * Adds a listener that receives the metrics (timings per phase and part, sizes and counts) of each save process.<br>
+     * The metrics are only collected if at least one listener is registered (or a flight recording with the PicoXLSX4j events is running)
+     * @param listener Listener to add
+     */
+    public void addSaveListener(SaveListener listener)
+    {
+        this.saveListeners.add(listener);
+    }
 
     /**
      * Adds a style to the style manager
@@ -290,6 +396,7 @@ public class Workbook {
         }
         int number = this.worksheets.size() + 1;
         Worksheet newWs = new Worksheet(name, number, this);
+        newWs.setConcurrentPopulation(this.concurrentPopulation);
         this.currentWorksheet = newWs;
         this.worksheets.add(newWs);
         this.WS.setCurrentWorksheet(this.currentWorksheet);
@@ -332,6 +439,7 @@ public class Workbook {
         int number = this.worksheets.size() + 1;
         worksheet.setSheetID(number);
         worksheet.setWorkbookReference(this);
+        worksheet.setConcurrentPopulation(this.concurrentPopulation);
         this.currentWorksheet = worksheet;
         this.worksheets.add(worksheet);
     }    
@@ -342,6 +450,7 @@ public class Workbook {
     private void init()
     {
         this.worksheets = new ArrayList<>();
+        this.saveListeners = new ArrayList<>();
         this.styleManager = new StyleManager();
         this.styleManager.addStyle(new Style("default", 0, true));
         Style borderStyle = new Style("default_border_style", 1, true);
@@ -353,6 +462,15 @@ public class Workbook {
     }
         
     
+    /**
+     * Removes a save listener
+     * @param listener Listener to remove
+     */
+    public void removeSaveListener(SaveListener listener)
+    {
+        this.saveListeners.remove(listener);
+    }
+
     /**
     * Removes the passed style from the style sheet
     * @param style Style to remove
@@ -391,7 +509,7 @@ public class Workbook {
     /**
      * Removes the defined style from the style manager of the workbook
      * @param styleName Name of the style to remove
-     * @param onlyIfUnused If true, the style will only be removed if not used in any cell
+     * @param onlyIfUnused If true, the style will only be removed if not used in any cell, row or column
      */
     public void removeStyle(String styleName, boolean onlyIfUnused)
     {
@@ -403,10 +521,12 @@ public class Workbook {
         if (onlyIfUnused)
         {
                 boolean styleInUse = false;
-                Cell cell;
             for (Worksheet worksheet : this.worksheets) {
-                for (Object item : worksheet.getCells().entrySet()) {
-                    cell = (Cell) item;
+                if (worksheet.getColumnAttributes().hasStyle(styleName) || worksheet.getRowAttributes().hasStyle(styleName)) {
+                    styleInUse = true;
+                    break;
+                }
+                for (Cell cell : worksheet.getCells().values()) {
                     if (cell.getCellStyle() == null) {
                         continue;
                     }
@@ -496,6 +616,9 @@ public class Workbook {
         Map.Entry<String, Range> range;
         for (Worksheet worksheet : this.worksheets) {
             sheet = worksheet;
+            if (this.partCache != null && sheet.isMergedCellsResolved()) {
+                continue; // Unchanged since the last save; resolving would mark the cells as modified
+            }
             itr = sheet.getMergedCells().entrySet().iterator();
             while (itr.hasNext()) {
                 range = itr.next();
@@ -519,6 +642,9 @@ public class Workbook {
                     pos++;
                 }
             }
+            if (this.partCache != null) {
+                sheet.setMergedCellsResolved();
+            }
         }
     }    
 
@@ -546,6 +672,50 @@ public class Workbook {
         this.filename = backup;
     }
     
+    /**
+     * Saves the workbook into a file, using a file channel with the default save options (1 MB direct buffer, no preallocation, no forced sync)
+     * @param path Path of the file. The file is created or overwritten
+     * @throws IOException Thrown in case of an error
+     */
+    public void save(Path path) throws IOException
+    {
+        this.save(path, new SaveOptions());
+    }
+
+    /**
+     * Saves the workbook into a file, using a file channel. The channel is closed in any case, also if an error occurs
+     * @param path Path of the file. The file is created or overwritten
+     * @param options Options of the buffer size, preallocation, sync policy and parallelism
+     * @throws IOException Thrown in case of an error
+     */
+    public void save(Path path, SaveOptions options) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.save(path, options);
+    }
+
+    /**
+     * Saves the workbook into a (blocking) channel with the default save options. The channel is not closed
+     * @param channel Channel to write into
+     * @throws IOException Thrown in case of an error
+     */
+    public void saveTo(WritableByteChannel channel) throws IOException
+    {
+        this.saveTo(channel, new SaveOptions());
+    }
+
+    /**
+     * Saves the workbook into a (blocking) channel. The channel is not closed. If the channel is a file channel, the sync policy of the options is applied
+     * @param channel Channel to write into
+     * @param options Options of the buffer size, sync policy and parallelism
+     * @throws IOException Thrown in case of an error
+     */
+    public void saveTo(WritableByteChannel channel, SaveOptions options) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.saveTo(channel, options);
+    }
+
     /**
      * Save the workbook to a output stream
      * @param stream Output Stream
@@ -556,6 +726,201 @@ public class Workbook {
         LowLevel l = new LowLevel(this);
         l.saveAsStream(stream);
     }
+
+    /**
+     * Save the workbook to a output stream. The parallelism and the row block size of the options are applied
+     * @param stream Output Stream
+     * @param options Options of the parallelism and row block size. The buffer size, preallocation and sync policy are ignored
+     * @throws IOException Thrown in case of an error
+     */
+    public void saveAsStream(OutputStream stream, SaveOptions options) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.saveAsStream(stream, options);
+    }
+
+    /**
+     * Save the workbook to a output stream, using a reusable generation context. This is recommended if many small workbooks are generated (e.g. in a web server), because
+     * the XML parser, transformer, deflater, buffers and the serialized static parts of the context are reused
+     * @param stream Output Stream
+     * @param context Generation context, e.g. GenerationContext.current() or a context of a pool. The context can only be used by one save process at a time
+     * @throws IOException Thrown in case of an error or if the context is already used by another save process
+     */
+    public void saveAsStream(OutputStream stream, GenerationContext context) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.saveAsStream(stream, context);
+    }
+
+    /**
+     * Save the workbook to a output stream, using a compiled template. The static parts (styles, workbook, content types, relationships and app properties)
+     * are copied as pre-compressed data from the template, as long as they are equal to the parts of this workbook. Only the other parts are generated and compressed
+     * @param stream Output Stream
+     * @param template Compiled template, usually the template that created this workbook (WorkbookTemplate.newWorkbook)
+     * @throws IOException Thrown in case of an error
+     */
+    public void saveAsStream(OutputStream stream, WorkbookTemplate template) throws IOException
+    {
+        this.saveAsStream(stream, template, null);
+    }
+
+    /**
+     * Save the workbook to a output stream, using a compiled template and a reusable generation context
+     * @param stream Output Stream
+     * @param template Compiled template, usually the template that created this workbook (WorkbookTemplate.newWorkbook)
+     * @param context Generation context or null. The context can only be used by one save process at a time
+     * @throws IOException Thrown in case of an error or if the context is already used by another save process
+     */
+    public void saveAsStream(OutputStream stream, WorkbookTemplate template, GenerationContext context) throws IOException
+    {
+        LowLevel l = new LowLevel(this);
+        l.saveAsStream(stream, template, context);
+    }
+
+    /**
+     * Saves the workbook asynchronously with the defined filename. A snapshot of the workbook is taken on the calling thread, so the workbook can be modified
+     * (or discarded) as soon as this method returns. The serialization and compression is executed on the common fork join pool
+     * @return Future that is completed when the file was written. In case of an error, the future completes exceptionally with an IOException as cause
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    public CompletableFuture<Void> saveAsync()
+    {
+        return this.saveAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Saves the workbook asynchronously with the defined filename. A snapshot of the workbook is taken on the calling thread, so the workbook can be modified
+     * (or discarded) as soon as this method returns
+     * @param executor Executor to run the serialization and compression
+     * @return Future that is completed when the file was written. In case of an error, the future completes exceptionally with an IOException as cause
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    public CompletableFuture<Void> saveAsync(Executor executor)
+    {
+        Workbook snapshot = this.createSnapshot();
+        return CompletableFuture.runAsync(() -> {
+            try
+            {
+                new LowLevel(snapshot).save();
+            }
+            catch (IOException e)
+            {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Saves the workbook asynchronously to an output stream. A snapshot of the workbook is taken on the calling thread, so the workbook can be modified
+     * (or discarded) as soon as this method returns. The serialization and compression is executed on the common fork join pool
+     * @param stream Output stream. The stream is closed after the workbook was written
+     * @return Future that is completed when the workbook was written. In case of an error, the future completes exceptionally with an IOException as cause
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    public CompletableFuture<Void> saveAsStreamAsync(OutputStream stream)
+    {
+        return this.saveAsStreamAsync(stream, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Saves the workbook asynchronously to an output stream. A snapshot of the workbook is taken on the calling thread, so the workbook can be modified
+     * (or discarded) as soon as this method returns
+     * @param stream Output stream. The stream is closed after the workbook was written
+     * @param executor Executor to run the serialization and compression
+     * @return Future that is completed when the workbook was written. In case of an error, the future completes exceptionally with an IOException as cause
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    public CompletableFuture<Void> saveAsStreamAsync(OutputStream stream, Executor executor)
+    {
+        Workbook snapshot = this.createSnapshot();
+        return CompletableFuture.runAsync(() -> {
+            try
+            {
+                new LowLevel(snapshot).saveAsStream(stream);
+            }
+            catch (IOException e)
+            {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Saves the workbook as publisher of byte buffer chunks with a size of 64 KB, e.g. to serve the file on a non-blocking HTTP server. The workbook is generated and compressed on the common fork join pool
+     * @return Publisher of the XLSX data
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     * @see #saveAsPublisher(Executor, int)
+     */
+    public Flow.Publisher<ByteBuffer> saveAsPublisher()
+    {
+        return this.saveAsPublisher(ForkJoinPool.commonPool(), 65536);
+    }
+
+    /**
+     * Saves the workbook as publisher of byte buffer chunks, e.g. to serve the file on a non-blocking HTTP server. A snapshot of the workbook is taken on the calling thread, so the workbook can be modified
+     * (or discarded) as soon as this method returns.<br>
+     * The data is pulled by the subscriber: the ZIP container is only compressed as far as chunks are requested. A slow consumer does not occupy a thread while no chunks are requested.
+     * Each subscriber receives the whole file, generated from its own copy of the snapshot, so several subscribers can be served concurrently. Save listeners are not called in this mode
+     * @param executor Executor to generate and compress the workbook
+     * @param chunkSize Size of the chunks in bytes (the last chunk may be smaller)
+     * @return Publisher of the XLSX data
+     * @throws RangeException Thrown if the chunk size is out of range (see SaveOptions.MIN_BUFFER_SIZE and SaveOptions.MAX_BUFFER_SIZE)
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    public Flow.Publisher<ByteBuffer> saveAsPublisher(Executor executor, int chunkSize)
+    {
+        if (chunkSize < SaveOptions.MIN_BUFFER_SIZE || chunkSize > SaveOptions.MAX_BUFFER_SIZE)
+        {
+            throw new RangeException("OutOfRangeException", "The chunk size (" + chunkSize + ") is out of range. Range is from " + SaveOptions.MIN_BUFFER_SIZE + " to " + SaveOptions.MAX_BUFFER_SIZE + " bytes.");
+        }
+        Workbook snapshot = this.createSnapshot();
+        return new LowLevel(snapshot).createPublisher(executor, chunkSize);
+    }
+
+    /**
+     * Creates an independent copy of the workbook. Worksheets, cells, row and column attributes, styles and meta data are copied, so the copy can be modified
+     * without affecting this workbook. Cell values, ranges and shared formulas are referenced
+     * @return Copy of the workbook
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied
+     */
+    public Workbook copy()
+    {
+        return this.createSnapshot();
+    }
+
+    /**
+     * Creates an independent snapshot of the workbook, used for asynchronous saving. Worksheets, cells, row and column attributes, styles and meta data are copied.
+     * Cell values (immutable in most cases), ranges and shared formulas are referenced. The costs are linear to the number of cells but far below the costs of the serialization
+     * @return Snapshot of the workbook
+     * @throws WorksheetException Thrown if a worksheet uses a mapped cell store, which cannot be copied into a snapshot
+     */
+    private Workbook createSnapshot()
+    {
+        Workbook copy = new Workbook(false);
+        Map<Style, Style> styleMapping = new IdentityHashMap<>();
+        copy.styleManager = this.styleManager.copy(styleMapping);
+        copy.evaluateFormulas = this.evaluateFormulas;
+        copy.filename = this.filename;
+        copy.lockStructureIfProtected = this.lockStructureIfProtected;
+        copy.lockWindowsIfProtected = this.lockWindowsIfProtected;
+        copy.saveListeners.addAll(this.saveListeners);
+        copy.selectedWorksheet = this.selectedWorksheet;
+        copy.useWorkbookProtection = this.useWorkbookProtection;
+        copy.workbookMetadata = this.workbookMetadata == null ? null : this.workbookMetadata.copy();
+        copy.workbookProtectionPassword = this.workbookProtectionPassword;
+        Worksheet worksheetCopy;
+        for (Worksheet worksheet : this.worksheets)
+        {
+            worksheetCopy = worksheet.copy(copy, styleMapping);
+            copy.worksheets.add(worksheetCopy);
+            if (worksheet == this.currentWorksheet)
+            {
+                copy.currentWorksheet = worksheetCopy;
+                copy.WS.setCurrentWorksheet(worksheetCopy);
+            }
+        }
+        return copy;
+    }
     
     /**
      * Sets the current worksheet
@@ -7,13 +7,17 @@
 package ch.rabanti.picoxlsx4j;
 
 import ch.rabanti.picoxlsx4j.exception.FormatException;
+import ch.rabanti.picoxlsx4j.exception.IOException;
 import ch.rabanti.picoxlsx4j.exception.RangeException;
 import ch.rabanti.picoxlsx4j.exception.StyleException;
 import ch.rabanti.picoxlsx4j.exception.WorksheetException;
 import ch.rabanti.picoxlsx4j.style.BasicStyles;
 import ch.rabanti.picoxlsx4j.style.Style;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -156,16 +160,20 @@ public class Worksheet {
 // ### P R I V A T E  F I E L D S ###    
     private Style activeStyle;
     private Range autoFilterRange;
+    private CellBuffer cellBuffer;
     private Map<String, Cell> cells;
-    private Map<Integer, Column> columns;
+    private ColumnAttributeStore columnAttributes;
+    private volatile LongAdder concurrentModificationCount;
     private CellDirection currentCellDirection;
     private int currentColumnNumber;
     private int currentRowNumber;
     private float defaultColumnWidth;
     private float defaultRowHeight;
-    private Map<Integer, Boolean> hiddenRows;
+    private MappedCellStore mappedCellStore;
     private Map<String, Range> mergedCells;
-    private Map<Integer, Float> rowHeights;
+    private long mergedCellsResolvedCount = -1;
+    private long modificationCount;
+    private RowAttributeStore rowAttributes;
     private Range selectedCells;
     private int sheetID;
     private String sheetName;
@@ -187,6 +195,7 @@ public class Worksheet {
     public void setAutoFilterRange(String range)
     {
         this.autoFilterRange = Cell.resolveCellRange(range);
+        this.modificationCount++;
         this.recalculateAutoFilter();
         this.recalculateColumns();
     }
@@ -202,14 +211,41 @@ public class Worksheet {
      * @return List of Cell objects
      */
     public Map<String, Cell> getCells() {
+        this.materializeCellBuffer();
         return this.cells;
     }
+
+    /**
+     * Gets the buffer of the values written by a RowWriter, which are not yet materialized as Cell objects. This method is used by the low level API.<br>
+     * If the buffer contains values, the cell map of the worksheet is empty. Any access to the cells of the worksheet materializes the buffer
+     * @return Cell buffer or null if no values are buffered
+     */
+    public CellBuffer getCellBuffer() {
+        return this.cellBuffer;
+    }
+
     /**
-     * Gets all columns with non-standard properties, like auto filter applied or a special width as map with the zero-based column index as key and the column object as value
+     * Gets the memory-mapped cell store of the worksheet. This method is used by the low level API
+     * @return Cell store or null if the cells are held on the heap (default)
+     */
+    public MappedCellStore getMappedCellStore() {
+        return this.mappedCellStore;
+    }
+    /**
+     * Gets all columns with non-standard properties, like auto filter applied or a special width as map with the zero-based column index as key and the column object as value<br>
+     * The map is a live view in ascending order. Changes on the returned column objects (width, hidden state, auto filter) and put or remove operations on the map are applied to the worksheet
      * @return map of columns
      */
     public Map<Integer, Column> getColumns() {
-        return this.columns;
+        return this.columnAttributes.asColumnMap();
+    }
+
+    /**
+     * Gets the store of the column attributes (width, hidden state, auto filter). This is an internal method. It must be public to require access from the LowLevel class
+     * @return Column attribute store
+     */
+    public ColumnAttributeStore getColumnAttributes() {
+        return this.columnAttributes;
     }
     
     /**
@@ -289,6 +325,7 @@ public class Worksheet {
             throw new RangeException("OutOfRangeException","The passed default row height is out of range (" + MIN_COLUMN_WIDTH + " to " + MAX_COLUMN_WIDTH + ")");
         }
         this.defaultColumnWidth = defaultColumnWidth;
+        this.modificationCount++;
     }    
     /*
     * Gets the default Row height
@@ -308,13 +345,15 @@ public class Worksheet {
             throw new RangeException("OutOfRangeException","The passed default row height is out of range (" + MIN_ROW_HEIGHT + " to " + MAX_ROW_HEIGHT + ")");
         }
         this.defaultRowHeight = defaultRowHeight;
+        this.modificationCount++;
     }
     /**
-     * Gets the hidden rows as map with the zero-based row number as key and a boolean as value. True indicates hidden, false visible. Entries with the value false are not affecting the worksheet. These entries can be removed<br>
+     * Gets the hidden rows as map with the zero-based row number as key and a boolean as value. True indicates hidden<br>
+     * The map is a live view in ascending order. Put and remove operations are applied to the worksheet. Putting false or removing a row makes the row visible
      * @return Map with hidden rows
      */
     public Map<Integer, Boolean> getHiddenRows() {
-        return this.hiddenRows;
+        return this.rowAttributes.asHiddenMap();
     }
     /**
      * Gets the merged cells (only references) as map with the cell address as key and the range object as value
@@ -325,11 +364,32 @@ public class Worksheet {
     }
 
     /**
-     * Gets defined row heights as map with the zero-based row number as key and the height (float from 0 to 409.5) as value
+     * Gets the modification count of the worksheet. The count is increased by every change of cells (also by setters of stored cells), column and row attributes,
+     * merged cells, selection, auto filter and protection, and never decreased. It is used to reuse the serialized worksheet of the last save if the count is unchanged.<br>
+     * Note: Direct modifications of the collections returned by getters (e.g. getCells or getMergedCells) are not tracked
+     * @return Modification count
+     */
+    public long getModificationCount() {
+        LongAdder adder = this.concurrentModificationCount;
+        return this.modificationCount + (adder == null ? 0 : adder.sum()) + this.columnAttributes.getModificationCount() + this.rowAttributes.getModificationCount()
+                + (this.cellBuffer == null ? 0 : this.cellBuffer.getModificationCount());
+    }
+
+    /**
+     * Gets defined row heights as map with the zero-based row number as key and the height (float from 0 to 409.5) as value<br>
+     * The map is a live view in ascending order. Put and remove operations are applied to the worksheet. Values put into the map are not validated, unlike setRowHeight
      * @return Map of row heights
      */
     public Map<Integer, Float> getRowHeights() {
-        return this.rowHeights;
+        return this.rowAttributes.asHeightMap();
+    }
+
+    /**
+     * Gets the store of the row attributes (height, hidden state). This is an internal method. It must be public to require access from the LowLevel class
+     * @return Row attribute store
+     */
+    public RowAttributeStore getRowAttributes() {
+        return this.rowAttributes;
     }
     /**
      * Gets the range of selected cells of this worksheet. Null if no cells are selected
@@ -347,6 +407,7 @@ public class Worksheet {
     public void setSelectedCells(String range)
     {
         this.selectedCells = Cell.resolveCellRange(range);
+        this.modificationCount++;
     }
     /**
      * Sets the selected cells on this worksheet
@@ -355,6 +416,7 @@ public class Worksheet {
     public void setSelectedCells(Range range)
     {
         this.selectedCells = range;
+        this.modificationCount++;
     }
     /**
      * Gets the internal ID of the worksheet
@@ -369,6 +431,7 @@ public class Worksheet {
      */
     public void setSheetID(int sheetID) {
         this.sheetID = sheetID;
+        this.modificationCount++;
     }
     /**
      * Gets the name of the sheet
@@ -391,6 +454,7 @@ public class Worksheet {
      */
     public void setUseSheetProtection(boolean useSheetProtection) {
         this.useSheetProtection = useSheetProtection;
+        this.modificationCount++;
     }
     
     /**
@@ -409,11 +473,13 @@ public class Worksheet {
         if (Helper.isNullOrEmpty(password))
         {
             this.sheetProtectionPassword = null;
+            this.modificationCount++;
         }
         else
         {
             this.sheetProtectionPassword = password;
             this.useSheetProtection = true;
+            this.modificationCount++;
         }
     }
     /**
@@ -473,6 +539,48 @@ public class Worksheet {
     }    
     
 // ### M E T H O D S ###
+
+    /**
+     * Creates an independent copy of the worksheet (snapshot) for the passed workbook. Cells, row and column attributes, merged cells and protection values are copied,
+     * cell values, ranges and shared formulas are referenced. A worksheet with a mapped cell store cannot be copied, since its cells would be copied onto the heap
+     * @param workbook Workbook of the copy
+     * @param styleMapping Mapping of the original styles to the styles of the copied workbook
+     * @return Copy of the worksheet
+     * @throws WorksheetException Thrown if the worksheet uses a mapped cell store
+     */
+    Worksheet copy(Workbook workbook, Map<Style, Style> styleMapping)
+    {
+        if (this.mappedCellStore != null)
+        {
+            throw new WorksheetException("StoreException", "The worksheet " + this.sheetName + " uses a mapped cell store and cannot be copied. Please save the workbook synchronously.");
+        }
+        Worksheet copy = new Worksheet();
+        copy.activeStyle = this.activeStyle;
+        copy.autoFilterRange = this.autoFilterRange;
+        copy.cellBuffer = this.cellBuffer == null ? null : this.cellBuffer.copy(styleMapping);
+        copy.cells = new HashMap<>(Math.max(16, (int)(this.cells.size() / 0.75f) + 1));
+        for (Map.Entry<String, Cell> entry : this.cells.entrySet())
+        {
+            copy.cells.put(entry.getKey(), entry.getValue().copy(copy, styleMapping));
+        }
+        copy.columnAttributes = this.columnAttributes.copy(styleMapping);
+        copy.currentCellDirection = this.currentCellDirection;
+        copy.currentColumnNumber = this.currentColumnNumber;
+        copy.currentRowNumber = this.currentRowNumber;
+        copy.defaultColumnWidth = this.defaultColumnWidth;
+        copy.defaultRowHeight = this.defaultRowHeight;
+        copy.mergedCells = new HashMap<>(this.mergedCells);
+        copy.rowAttributes = this.rowAttributes.copy(styleMapping);
+        copy.selectedCells = this.selectedCells;
+        copy.sheetID = this.sheetID;
+        copy.sheetName = this.sheetName;
+        copy.sheetProtectionPassword = this.sheetProtectionPassword;
+        copy.sheetProtectionValues = new ArrayList<>(this.sheetProtectionValues);
+        copy.useActiveStyle = this.useActiveStyle;
+        copy.useSheetProtection = this.useSheetProtection;
+        copy.workbookReference = workbook;
+        return copy;
+    }
        
 // ### M E T H O D S  -  A D D N E X T C E L L ###
     
@@ -510,6 +618,52 @@ public class Worksheet {
      */
     private void addNextCell(Cell cell, boolean incremental, Style style)
     {
+        this.storeCell(cell, style);
+        if (incremental)
+        {
+            this.moveToNextCell();
+        }
+        else
+        {
+            if (this.getCurrentCellDirection() == CellDirection.ColumnToColumn)
+            {
+                this.currentColumnNumber = cell.getColumnNumber() + 1;
+                this.currentRowNumber = cell.getRowNumber();
+            }
+            else if (this.getCurrentCellDirection() == CellDirection.RowToRow)
+            {
+                this.currentColumnNumber = cell.getColumnNumber();
+                this.currentRowNumber = cell.getRowNumber() + 1;
+            }
+            // else = disabled
+        }
+    }
+    
+    /**
+     * Moves the current cell position to the next cell, according to the cell direction
+     */
+    void moveToNextCell()
+    {
+        if (this.getCurrentCellDirection() == CellDirection.ColumnToColumn)
+        {
+            this.currentColumnNumber++;
+        }
+        else if (this.getCurrentCellDirection() == CellDirection.RowToRow)
+        {
+            this.currentRowNumber++;
+        }
+        // else = disabled
+    }
+
+    /**
+     * Applies the style (passed, active or date / time style) to the cell and stores it in the worksheet without changing the current cell position.<br>
+     * This method is used by the cursor based methods as well as by the writers of the concurrent population mode
+     * @param cell Cell to store
+     * @param style Style to apply. Can be null
+     */
+    void storeCell(Cell cell, Style style)
+    {
+        this.materializeCellBuffer();
         cell.setWorksheetReference(this);
         if (this.activeStyle != null && this.useActiveStyle && style == null)
         {
@@ -529,34 +683,216 @@ public class Worksheet {
         }
         String address = cell.getCellAddress();
         this.cells.put(address, cell);
-        if (incremental)
+        this.countModification();
+    }
+
+    /**
+     * Stores a value at the defined address without changing the current cell position (used by WorksheetWriter)
+     * @param value Unspecified value to insert
+     * @param columnAddress Column number (zero based)
+     * @param rowAddress Row number (zero based)
+     * @param style Style to apply on the cell. Can be null
+     */
+    void storeCell(Object value, int columnAddress, int rowAddress, Style style)
+    {
+        this.storeCell(this.castValue(value, columnAddress, rowAddress), style);
+    }
+
+    /**
+     * Creates a writer with an own cursor, starting at the defined position. Writers of the same worksheet can be used by different threads if the workbook is in the concurrent population mode
+     * and the threads write into disjoint cell ranges (e.g. row blocks)
+     * @param startColumn Column number of the first cell and of each new row (zero based)
+     * @param startRow Row number of the first cell (zero based)
+     * @return Writer
+     */
+    public WorksheetWriter createWriter(int startColumn, int startRow)
+    {
+        return new WorksheetWriter(this, startColumn, startRow);
+    }
+
+    /**
+     * Creates a row writer, using the current cell position and cell direction of the worksheet. The values are written into a compact buffer instead of Cell objects,
+     * as long as the worksheet contains no other cells
+     * @return Row writer
+     */
+    public RowWriter rowWriter()
+    {
+        return new RowWriter(this);
+    }
+
+    /**
+     * Moves the cells of the worksheet into a memory-mapped cell store in the default temporary directory (see {@link #useMappedCellStore(Path)})
+     * @return Cell store of the worksheet
+     * @throws IOException Thrown if the temporary files of the store could not be created
+     */
+    public MappedCellStore useMappedCellStore() throws IOException
+    {
+        return this.useMappedCellStore(null);
+    }
+
+    /**
+     * Moves the cells of the worksheet into a memory-mapped cell store, for worksheets that are larger than the heap. The cells are held in temporary files instead of Cell objects.
+     * Existing cells are transferred. The methods to add, get and remove cells are not changed, but getCell and getCells return detached copies, which are written back if they are changed.<br>
+     * Shared formulas are stored as formulas of the single cells and the results of formulas are not cached when saving. The workbook cannot be copied (e.g. by saveAsync, saveAsStreamAsync
+     * or saveAsPublisher, which save a snapshot) while a worksheet uses a mapped cell store. The temporary files are deleted when the store is closed, e.g. after saving the workbook.
+     * If the store was already selected, the existing store is returned
+     * @param directory Directory of the temporary files. If null, the default temporary directory is used
+     * @return Cell store of the worksheet
+     * @throws IOException Thrown if the temporary files of the store could not be created
+     */
+    public MappedCellStore useMappedCellStore(Path directory) throws IOException
+    {
+        if (this.mappedCellStore != null)
         {
-            if (this.getCurrentCellDirection() == CellDirection.ColumnToColumn)
+            return this.mappedCellStore;
+        }
+        this.materializeCellBuffer();
+        MappedCellStore store = null;
+        try
+        {
+            store = new MappedCellStore(this, directory);
+            store.putAll(this.cells);
+        }
+        catch (java.io.IOException | RuntimeException e)
+        {
+            if (store != null)
             {
-                this.currentColumnNumber++;
+                store.close();
             }
-            else if (this.getCurrentCellDirection() == CellDirection.RowToRow)
+            throw new IOException("StoreException", "The cell store of the worksheet " + this.sheetName + " could not be created. Please see the inner exception:" + e.getMessage(), e);
+        }
+        this.mappedCellStore = store;
+        this.cells = store;
+        this.modificationCount++;
+        return store;
+    }
+
+    /**
+     * Gets the active style, if it is applied to new cells
+     * @return Active style or null if no active style is used
+     */
+    Style getAppliedActiveStyle()
+    {
+        return this.useActiveStyle ? this.activeStyle : null;
+    }
+
+    /**
+     * Gets the buffer for the values of a row writer. Values can only be buffered as long as the worksheet contains no cell objects
+     * @return Cell buffer or null if the worksheet already contains cell objects
+     */
+    CellBuffer getWritableCellBuffer()
+    {
+        if (this.mappedCellStore != null || !this.cells.isEmpty())
+        {
+            return null;
+        }
+        if (this.cellBuffer == null)
+        {
+            this.cellBuffer = new CellBuffer();
+        }
+        return this.cellBuffer;
+    }
+
+    /**
+     * Increases the modification count (called by the setters of stored cells). If the worksheet uses a mapped cell store, the changed cell is written back to the store
+     * @param cell Changed cell
+     */
+    void markModified(Cell cell)
+    {
+        this.countModification();
+        if (this.mappedCellStore != null)
+        {
+            this.mappedCellStore.update(cell);
+        }
+    }
+
+    /**
+     * Gets whether the merged cells were resolved after the last modification (see Workbook.resolveMergedCells)
+     * @return True if the merged cells are resolved and the worksheet is unchanged since
+     */
+    boolean isMergedCellsResolved()
+    {
+        return this.mergedCellsResolvedCount == this.getModificationCount();
+    }
+
+    /**
+     * Marks the merged cells as resolved at the current modification count
+     */
+    void setMergedCellsResolved()
+    {
+        this.mergedCellsResolvedCount = this.getModificationCount();
+    }
+
+    /**
+     * Converts the buffered values of row writers into Cell objects (in the order of writing) and releases the buffer
+     */
+    private void materializeCellBuffer()
+    {
+        if (this.cellBuffer == null)
+        {
+            return;
+        }
+        CellBuffer buffer = this.cellBuffer;
+        this.cellBuffer = null;
+        this.modificationCount += buffer.getModificationCount() + 1; // Keeps the count of the released buffer
+        Cell cell;
+        for (int i = 0; i < buffer.size(); i++)
+        {
+            cell = new Cell(buffer.getValue(i), Cell.CellType.DEFAULT, buffer.getColumn(i), buffer.getRow(i), this);
+            if (buffer.getStyle(i) != null)
             {
-                this.currentRowNumber++;
+                cell.setStyle(buffer.getStyle(i));
             }
-            // else = disabled
+            this.cells.put(cell.getCellAddress(), cell);
+        }
+    }
+
+    /**
+     * Increases the modification count by a stored or changed cell. In concurrent population mode, several writers may call this method at once,
+     * so the modifications are counted by a thread-safe adder until the mode is switched off
+     */
+    private void countModification()
+    {
+        LongAdder adder = this.concurrentModificationCount;
+        if (adder != null)
+        {
+            adder.increment();
         }
         else
         {
-            if (this.getCurrentCellDirection() == CellDirection.ColumnToColumn)
-            {
-                this.currentColumnNumber = cell.getColumnNumber() + 1;
-                this.currentRowNumber = cell.getRowNumber();
-            }
-            else if (this.getCurrentCellDirection() == CellDirection.RowToRow)
-            {
-                this.currentColumnNumber = cell.getColumnNumber();
-                this.currentRowNumber = cell.getRowNumber() + 1;
-            }
-            // else = disabled
+            this.modificationCount++;
         }
     }
-    
+
+    /**
+     * Switches the cell storage between a concurrent map (concurrent population mode) and a plain hash map. Existing cells are transferred
+     * @param concurrent If true, a concurrent map is used
+     */
+    void setConcurrentPopulation(boolean concurrent)
+    {
+        if (concurrent && this.concurrentModificationCount == null)
+        {
+            this.concurrentModificationCount = new LongAdder();
+        }
+        else if (!concurrent && this.concurrentModificationCount != null)
+        {
+            this.modificationCount += this.concurrentModificationCount.sum();
+            this.concurrentModificationCount = null;
+        }
+        if (this.mappedCellStore != null)
+        {
+            return; // The mapped cell store is synchronized
+        }
+        if (concurrent && !(this.cells instanceof ConcurrentHashMap))
+        {
+            this.cells = new ConcurrentHashMap<>(this.cells);
+        }
+        else if (!concurrent && this.cells instanceof ConcurrentHashMap)
+        {
+            this.cells = new HashMap<>(this.cells);
+        }
+    }
+
 // ### M E T H O D S  -  A D D C E L L ###
    
     /**
@@ -707,7 +1043,61 @@ public class Worksheet {
         this.addNextCell(c, true, style);
     }   
     
-    
+
+    /**
+     * Fills a formula into a range of cells (fill-down or fill-right). The formula is stored once and written as shared formula<br>
+     * The formula is defined for the top left cell of the range. The relative references are shifted for all other cells, like in Excel (e.g. '=A1*2' in B1 results in '=A2*2' in B2)
+     * @param templateFormula Formula of the top left cell of the range
+     * @param target Range of the cells to fill
+     * @return Shared formula object, referenced by all cells of the range
+     * @throws StyleException Thrown if the default style was malformed
+     * @throws RangeException Thrown if the range is out of the valid range
+     */
+    public SharedFormula addFormulaRange(String templateFormula, Range target)
+    {
+        return this.addFormulaRange(templateFormula, target, null);
+    }
+
+    /**
+     * Fills a formula into a range of cells (fill-down or fill-right). The formula is stored once and written as shared formula<br>
+     * The formula is defined for the top left cell of the range. The relative references are shifted for all other cells, like in Excel (e.g. '=A1*2' in B1 results in '=A2*2' in B2)
+     * @param templateFormula Formula of the top left cell of the range
+     * @param target Range of the cells to fill
+     * @param style Style to apply on all cells of the range
+     * @return Shared formula object, referenced by all cells of the range
+     * @throws StyleException Thrown if the passed style was malformed
+     * @throws RangeException Thrown if the range is out of the valid range
+     */
+    public SharedFormula addFormulaRange(String templateFormula, Range target, Style style)
+    {
+        SharedFormula sharedFormula = new SharedFormula(templateFormula, target);
+        Range range = sharedFormula.getRange();
+        Cell c;
+        for(int row = range.StartAddress.Row; row <= range.EndAddress.Row; row++)
+        {
+            for(int column = range.StartAddress.Column; column <= range.EndAddress.Column; column++)
+            {
+                c = new Cell(null, Cell.CellType.FORMULA, column, row, this);
+                c.setSharedFormula(sharedFormula);
+                this.addNextCell(c, false, style);
+            }
+        }
+        return sharedFormula;
+    }
+
+    /**
+     * Fills a formula into a range of cells (fill-down or fill-right). The formula is stored once and written as shared formula
+     * @param templateFormula Formula of the top left cell of the range
+     * @param target Range of the cells to fill as string (e.g. 'B1:B500')
+     * @return Shared formula object, referenced by all cells of the range
+     * @throws FormatException Thrown if the passed range is malformed
+     * @throws RangeException Thrown if the range is out of the valid range
+     */
+    public SharedFormula addFormulaRange(String templateFormula, String target)
+    {
+        return this.addFormulaRange(templateFormula, new Range(target), null);
+    }
+
 // ### M E T H O D S  -  A D D C E L L R A N G E ###
 
     /**
@@ -810,9 +1200,11 @@ public class Worksheet {
     public boolean removeCell(int columnAddress, int rowAddress)
     {
         String address = Cell.resolveCellAddress(columnAddress, rowAddress);
+        this.materializeCellBuffer();
         if (this.cells.containsKey(address))
         {
             this.cells.remove(address);
+            this.modificationCount++;
             return true;
         }
         else
@@ -849,6 +1241,7 @@ public class Worksheet {
                 this.sheetProtectionValues.add(SheetProtectionValue.selectUnlockedCells);
             }
             this.sheetProtectionValues.add(typeOfProtection);
+            this.modificationCount++;
             this.setUseSheetProtection(true);
         }
     }  
@@ -872,6 +1265,28 @@ public class Worksheet {
         int columnNumber = Cell.resolveColumn(columnAddress);
         this.setColumnHiddenState(columnNumber, true);
     }
+    /**
+     * Sets a span of columns as hidden
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based)
+     * @throws RangeException Thrown if one of the passed column numbers was out of range
+     */
+    public void addHiddenColumn(int startColumn, int endColumn)
+    {
+        this.setColumnHiddenState(startColumn, endColumn, true);
+    }
+    /**
+     * Sets a span of columns as hidden
+     * @param startColumnAddress Column address of the first column of the span (e.g. 'A')
+     * @param endColumnAddress Column address of the last column of the span (e.g. 'ZZ')
+     * @throws RangeException Thrown if one of the passed column addresses was out of range
+     */
+    public void addHiddenColumn(String startColumnAddress, String endColumnAddress)
+    {
+        int startColumn = Cell.resolveColumn(startColumnAddress);
+        int endColumn = Cell.resolveColumn(endColumnAddress);
+        this.setColumnHiddenState(startColumn, endColumn, true);
+    }
     /**
      * Sets the defined row as hidden
      * @param rowNumber Row number to hide on the worksheet
@@ -921,6 +1336,7 @@ public class Worksheet {
      */
     public Cell getCell(Address address)
     {
+        this.materializeCellBuffer();
         if (!this.cells.containsKey(address.getAddress()))
         {
             throw new WorksheetException("CellNotFoundException", "The cell with the address " + address.getAddress() + " does not exist in this worksheet");
@@ -947,6 +1363,7 @@ public class Worksheet {
      */
     public boolean hasCell(Address address)
     {
+        this.materializeCellBuffer();
         return this.cells.containsKey(address.getAddress());
     }
 
@@ -988,6 +1405,7 @@ public class Worksheet {
     {
         int max = -1;
         int number;
+        this.materializeCellBuffer();
         for(Map.Entry<String, Cell> cell : this.cells.entrySet())
         {
             if (column)
@@ -1017,6 +1435,20 @@ public class Worksheet {
         int columnNumber = Cell.resolveColumn(columnAddress);
         this.setColumnWidth(columnNumber, width);
     } 
+
+    /**
+     * Sets the width of a span of columns
+     * @param startColumnAddress Column address of the first column of the span (e.g. 'A')
+     * @param endColumnAddress Column address of the last column of the span (e.g. 'ZZ')
+     * @param width Width from 0 to 255.0
+     * @throws RangeException Thrown if one of the addresses or the width is out of the valid range
+     */
+    public void setColumnWidth(String startColumnAddress, String endColumnAddress, float width)
+    {
+        int startColumn = Cell.resolveColumn(startColumnAddress);
+        int endColumn = Cell.resolveColumn(endColumnAddress);
+        this.setColumnWidth(startColumn, endColumn, width);
+    }
     
     /**
      * Set the current cell address
@@ -1052,6 +1484,7 @@ public class Worksheet {
             throw new FormatException("FormatException","The sheet name must must not contain the characters [  ]  * ? / \\ ");
         }
         this.sheetName = sheetName;
+        this.modificationCount++;
     }
     
     /**
@@ -1068,6 +1501,7 @@ public class Worksheet {
        }
        this.sheetName = ""; // Empty name (temporary) to prevent conflicts during sanitizing
        this.sheetName =  Worksheet.sanitizeWorksheetName(sheetName, this.workbookReference);         
+       this.modificationCount++;
     }
     
     /**
@@ -1123,13 +1557,12 @@ public class Worksheet {
         this.currentColumnNumber = 0;
         this.defaultColumnWidth = DEFAULT_COLUMN_WIDTH;
         this.defaultRowHeight = DEFAULT_ROW_HEIGHT;
-        this.rowHeights = new HashMap<>();
+        this.rowAttributes = new RowAttributeStore();
         this.activeStyle = null;
         this.workbookReference = null;
         this.mergedCells = new HashMap<>();    
         this.sheetProtectionValues = new ArrayList<>();
-        this.hiddenRows = new HashMap<>();
-        this.columns = new HashMap<>();
+        this.columnAttributes = new ColumnAttributeStore();
     }
     
     /**
@@ -1167,6 +1600,7 @@ public class Worksheet {
         if (!this.mergedCells.containsKey(key))
         {
             this.mergedCells.put(key, value);
+            this.modificationCount++;
         }
         return key;
     }    
@@ -1184,39 +1618,26 @@ public class Worksheet {
             if (item.getValue().getColumnNumber() < start || item.getValue().getColumnNumber() > end) { continue; }
             if (item.getValue().getRowNumber() > endRow) {endRow = item.getValue().getRowNumber();}
         }
-        Column c;
         for(int i = start; i <= end; i++)
         {
-            if (!this.columns.containsKey(i))
-            {
-                c = new Column(i);
-                c.setAutoFilter(true);
-                this.columns.put(i, c);
-            }
-            else
-            {
-                this.getColumns().get(i).setAutoFilter(true);
-            }
+            this.columnAttributes.setAutoFilter(i, true);
         }
         this.autoFilterRange = new Range(new Address(start, 0), new Address(end, endRow));
+        this.modificationCount++;
     }
     /**
      * Method to recalculate the collection of columns of this worksheet. This is an internal method. There is no need to use it. It must be public to require access from the LowLevel class
      */
     public void recalculateColumns()
     {
-        ArrayList<Integer> columnsToDelete = new ArrayList<>();
-        for(Map.Entry<Integer, Column> col  : this.getColumns().entrySet())
+        int len = this.columnAttributes.getLength();
+        for(int i = len - 1; i >= 0; i--)
         {
-            if (!col.getValue().hasAutoFilter() && !col.getValue().isHidden() && col.getValue().getWidth() == Worksheet.DEFAULT_COLUMN_WIDTH)
+            if (this.columnAttributes.getFlags(i) == ColumnAttributeStore.FLAG_DEFINED && this.columnAttributes.getWidth(i) == Worksheet.DEFAULT_COLUMN_WIDTH)
             {
-                columnsToDelete.add(col.getKey());
+                this.columnAttributes.remove(i);
             }
         }
-        for(Iterator<Integer> index = columnsToDelete.iterator(); index.hasNext(); )
-        {
-            this.columns.remove(index.next());
-        }
     }
     /**
      * Removes auto filters from the worksheet
@@ -1224,6 +1645,7 @@ public class Worksheet {
     public void removeAutoFilter()
     {
         this.autoFilterRange = null;
+        this.modificationCount++;
     }
     
     /**
@@ -1272,6 +1694,7 @@ public class Worksheet {
         {
             List<Address> addresses = Cell.getCellRange(range);
             Cell cell;
+            this.materializeCellBuffer();
             //foreach(Address address in addresses)
             for(int i = 0; i < addresses.size(); i++)
             {
@@ -1286,6 +1709,7 @@ public class Worksheet {
                 }
             }
             this.mergedCells.remove(range);
+            this.modificationCount++;
         }
     }
     /**
@@ -1294,6 +1718,7 @@ public class Worksheet {
     public void removeSelectedCells()
     {
         this.selectedCells = null;
+        this.modificationCount++;
     }
     /**
      * Sets the active style of the worksheet. This style will be assigned to all later added cells
@@ -1337,17 +1762,84 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The column number (" + columnNumber + ") is out of range. Range is from 0 to "+ MAX_COLUMN_NUMBER +" ("+ (MAX_COLUMN_NUMBER + 1) +" columns).");
         }
-        if (this.columns.containsKey(columnNumber) && state)
+        if (state || this.columnAttributes.contains(columnNumber))
         {
-            this.columns.get(columnNumber).setHidden(state);
+            this.columnAttributes.setHidden(columnNumber, state);
         }
-        else if (state)
+    } 
+    /**
+     * Sets a span of columns as hidden or visible
+     * @param startColumn First column number of the span (zero-based)
+     * @param endColumn Last column number of the span (zero-based)
+     * @param state If true, the columns will be hidden, otherwise be visible
+     * @throws RangeException Thrown if one of the passed column numbers was out of range
+     */
+    private void setColumnHiddenState(int startColumn, int endColumn, boolean state)
+    {
+        validateColumnSpan(startColumn, endColumn);
+        int start = Math.min(startColumn, endColumn);
+        int end = Math.max(startColumn, endColumn);
+        if (state)
         {
-            Column c = new Column(columnNumber);
-            c.setHidden(state);
-            this.columns.put(columnNumber, c);
+            this.columnAttributes.setHidden(start, end, true);
         }
-    } 
+        else
+        {
+            for(int i = start; i <= end; i++)
+            {
+                this.setColumnHiddenState(i, false);
+            }
+        }
+    }
+    /**
+     * Gets the default style of the passed column
+     * @param columnNumber Column number (zero-based)
+     * @return Style of the column or null if not defined
+     */
+    public Style getColumnStyle(int columnNumber)
+    {
+        return this.columnAttributes.getStyle(columnNumber);
+    }
+
+    /**
+     * Sets the default style of the passed column. The style applies to all cells of the column without an own style, and to empty cells of the column in Excel
+     * @param columnNumber Column number (zero-based, from 0 to 16383)
+     * @param style Style to apply. If null, the column style is removed
+     * @throws RangeException Thrown if the column number is out of the valid range. Range is from 0 to 16383 (16384 columns)
+     * @throws StyleException Thrown if the worksheet has no workbook referenced
+     */
+    public void setColumnStyle(int columnNumber, Style style)
+    {
+        this.setColumnStyle(columnNumber, columnNumber, style);
+    }
+
+    /**
+     * Sets the default style of the passed column. The style applies to all cells of the column without an own style, and to empty cells of the column in Excel
+     * @param columnAddress Column address (e.g. 'A')
+     * @param style Style to apply. If null, the column style is removed
+     * @throws RangeException Thrown if the column address is out of the valid range
+     * @throws StyleException Thrown if the worksheet has no workbook referenced
+     */
+    public void setColumnStyle(String columnAddress, Style style)
+    {
+        int columnNumber = Cell.resolveColumn(columnAddress);
+        this.setColumnStyle(columnNumber, columnNumber, style);
+    }
+
+    /**
+     * Sets the default style of a span of columns. The style applies to all cells of the columns without an own style, and to empty cells of the columns in Excel
+     * @param startColumn First column number of the span (zero-based, from 0 to 16383)
+     * @param endColumn Last column number of the span (zero-based, from 0 to 16383)
+     * @param style Style to apply. If null, the column style is removed
+     * @throws RangeException Thrown if one of the column numbers is out of the valid range
+     * @throws StyleException Thrown if the worksheet has no workbook referenced
+     */
+    public void setColumnStyle(int startColumn, int endColumn, Style style)
+    {
+        validateColumnSpan(startColumn, endColumn);
+        this.columnAttributes.setStyle(Math.min(startColumn, endColumn), Math.max(startColumn, endColumn), this.registerStyle(style));
+    }
+
     /**
      * Sets the width of the passed column number (zero-based)
      * @param columnNumber Column number (zero-based, from 0 to 16383)
@@ -1364,17 +1856,24 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The column width (" + width + ") is out of range. Range is from "+ MIN_COLUMN_WIDTH + " to "+ MAX_COLUMN_WIDTH + " (chars).");
         }
-        if (this.columns.containsKey(columnNumber))
-        {
-            this.columns.get(columnNumber).setWidth(width);
-        }
-        else
+        this.columnAttributes.setWidth(columnNumber, width);
+    }
+    /**
+     * Sets the width of a span of columns. The span is stored at once and written as one column definition
+     * @param startColumn First column number of the span (zero-based, from 0 to 16383)
+     * @param endColumn Last column number of the span (zero-based, from 0 to 16383)
+     * @param width Width from 0 to 255.0
+     * @throws RangeException Thrown if one of the column numbers or the width is out of the valid range
+     */
+    public void setColumnWidth(int startColumn, int endColumn, float width)
+    {
+        validateColumnSpan(startColumn, endColumn);
+        if (width < MIN_COLUMN_WIDTH || width > MAX_COLUMN_WIDTH)
         {
-            Column c = new Column(columnNumber);
-            c.setWidth(width);
-            this.columns.put(columnNumber, c);
+            throw new RangeException("OutOfRangeException","The column width (" + width + ") is out of range. Range is from "+ MIN_COLUMN_WIDTH + " to "+ MAX_COLUMN_WIDTH + " (chars).");
         }
-    }    
+        this.columnAttributes.setWidth(Math.min(startColumn, endColumn), Math.max(startColumn, endColumn), width);
+    }
     /**
      * Set the current cell address
      * @param columnAddress Column number (zero based)
@@ -1402,7 +1901,7 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The row height (" + height + ") is out of range. Range is from 0 to 409.5 (equals 546px).");
         }
-        this.rowHeights.put(rowNumber, height);
+        this.rowAttributes.setHeight(rowNumber, height);
     }
     /**
      * Sets the defined row as hidden or visible
@@ -1416,21 +1915,34 @@ public class Worksheet {
         {
             throw new RangeException("OutOfRangeException","The row number (" + rowNumber + ") is out of range. Range is from "+ MIN_ROW_NUMBER +" to "+ MAX_ROW_NUMBER +" ("+ (MAX_ROW_NUMBER + 1) +" rows).");
         }
-        if (this.hiddenRows.containsKey(rowNumber))
-        {
-            if (state)
-            {
-                this.hiddenRows.put(rowNumber, state);
-            }
-            else
-            {
-                this.hiddenRows.remove(rowNumber);
-            }
-        }
-        else if (state)
+        this.rowAttributes.setHidden(rowNumber, state);
+    }
+
+    /**
+     * Gets the default style of the passed row
+     * @param rowNumber Row number (zero-based)
+     * @return Style of the row or null if not defined
+     */
+    public Style getRowStyle(int rowNumber)
+    {
+        return this.rowAttributes.getStyle(rowNumber);
+    }
+
+    /**
+     * Sets the default style of the passed row. The style applies to all cells of the row without an own style, and to empty cells of the row in Excel<br>
+     * The row style has precedence over a column style
+     * @param rowNumber Row number (zero-based, 0 to 1048575)
+     * @param style Style to apply. If null, the row style is removed
+     * @throws RangeException Thrown if the row number is out of the valid range. Range is from 0 to 1048575 (1048576 rows)
+     * @throws StyleException Thrown if the worksheet has no workbook referenced
+     */
+    public void setRowStyle(int rowNumber, Style style)
+    {
+        if (rowNumber > MAX_ROW_NUMBER || rowNumber < MIN_ROW_NUMBER)
         {
-            this.hiddenRows.put(rowNumber, state);
+            throw new RangeException("OutOfRangeException","The row number (" + rowNumber + ") is out of range. Range is from "+ MIN_ROW_NUMBER +" to "+ MAX_ROW_NUMBER +" ("+ (MAX_ROW_NUMBER + 1) +" rows).");
         }
+        this.rowAttributes.setStyle(rowNumber, this.registerStyle(style));
     }
     
     /**
@@ -1441,6 +1953,7 @@ public class Worksheet {
     public void setSelectedCells(Address startAddress, Address endAddress)
     {
        this.selectedCells = new Range(startAddress, endAddress); 
+       this.modificationCount++;
     }
  
     //### S T A T I C   M E T H O D S
@@ -1487,6 +2000,39 @@ public class Worksheet {
         }
         return name;
     }
+    /**
+     * Adds the passed style to the style manager of the referenced workbook
+     * @param style Style to register. Can be null
+     * @return Managed style or null if the passed style was null
+     * @throws StyleException Thrown if the worksheet has no workbook referenced
+     */
+    private Style registerStyle(Style style)
+    {
+        if (style == null)
+        {
+            return null;
+        }
+        if (this.workbookReference == null)
+        {
+            throw new StyleException("MissingReferenceException","No workbook reference was defined while trying to set a row or column style");
+        }
+        return this.workbookReference.addStyle(style);
+    }
+
+    /**
+     * Validates the column numbers of a span
+     * @param startColumn First column number of the span
+     * @param endColumn Last column number of the span
+     * @throws RangeException Thrown if one of the column numbers is out of the valid range
+     */
+    private static void validateColumnSpan(int startColumn, int endColumn)
+    {
+        if (startColumn > MAX_COLUMN_NUMBER || startColumn < MIN_COLUMN_NUMBER || endColumn > MAX_COLUMN_NUMBER || endColumn < MIN_COLUMN_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException","The column span (" + startColumn + " to " + endColumn + ") is out of range. Range is from "+ MIN_COLUMN_NUMBER + " to "+ MAX_COLUMN_NUMBER +" ("+ (MAX_COLUMN_NUMBER + 1) +" columns).");
+        }
+    }
+
     /**
      * Checks whether a worksheet with the given name exists
      * @param name Name to check
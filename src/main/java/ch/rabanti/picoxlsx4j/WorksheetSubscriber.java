@@ -0,0 +1,196 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Class to write rows of a reactive stream into a worksheet. Each received list is written as one row, the cell types are resolved like in addCell.<br>
+ * The rows are requested in batches: the next batch is only requested when the current batch is written, so the producer is throttled by the writer.
+ * When the stream completes, the workbook is saved. The result of the subscription can be observed with getResult()
+ * @author Raphael Stoeckli
+ */
+public class WorksheetSubscriber implements Flow.Subscriber<List<?>>
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private final int batchSize;
+    private boolean done;
+    private final Path path;
+    private int received;
+    private final CompletableFuture<Void> result;
+    private long rowCount;
+    private Flow.Subscription subscription;
+    private final WorksheetWriter writer;
+
+// ### G E T T E R S ###
+
+    /**
+     * Gets the number of rows that are requested at once
+     * @return Batch size
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Gets the future of the subscription. It completes when all rows are written and the workbook is saved, or exceptionally if the stream failed, a row could not be written or the workbook could not be saved
+     * @return Future of the subscription
+     */
+    public CompletableFuture<Void> getResult() {
+        return this.result;
+    }
+
+    /**
+     * Gets the number of rows written so far
+     * @return Number of rows
+     */
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the worksheet and start position. The workbook is saved with its defined filename when the stream completes
+     * @param worksheet Worksheet to write into
+     * @param startColumn Column number of the first cell of each row (zero based)
+     * @param startRow Row number of the first row (zero based)
+     * @param batchSize Number of rows that are requested at once
+     * @throws RangeException Thrown if the start position or the batch size is out of range
+     */
+    public WorksheetSubscriber(Worksheet worksheet, int startColumn, int startRow, int batchSize)
+    {
+        this(worksheet, startColumn, startRow, batchSize, null);
+    }
+
+    /**
+     * Constructor with the worksheet, start position and target file. The workbook is saved into the file when the stream completes
+     * @param worksheet Worksheet to write into
+     * @param startColumn Column number of the first cell of each row (zero based)
+     * @param startRow Row number of the first row (zero based)
+     * @param batchSize Number of rows that are requested at once
+     * @param path Path of the file to save the workbook into. If null, the defined filename of the workbook is used
+     * @throws RangeException Thrown if the start position or the batch size is out of range
+     */
+    public WorksheetSubscriber(Worksheet worksheet, int startColumn, int startRow, int batchSize, Path path)
+    {
+        if (batchSize < 1)
+        {
+            throw new RangeException("OutOfRangeException", "The batch size (" + batchSize + ") must be at least 1.");
+        }
+        this.writer = worksheet.createWriter(startColumn, startRow);
+        this.batchSize = batchSize;
+        this.path = path;
+        this.result = new CompletableFuture<>();
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Receives the subscription and requests the first batch of rows. A second subscription is cancelled
+     * @param subscription Subscription of the publisher
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        if (this.subscription != null)
+        {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(this.batchSize);
+    }
+
+    /**
+     * Writes one row. If the batch is complete, the next batch is requested. If the row cannot be written (e.g. out of range), the subscription is cancelled and the result completes exceptionally
+     * @param row Values of the row. Null values are written as empty cells
+     */
+    @Override
+    public void onNext(List<?> row)
+    {
+        if (this.done)
+        {
+            return;
+        }
+        try
+        {
+            for (Object value : row)
+            {
+                this.writer.value(value);
+            }
+            this.writer.down();
+        }
+        catch (RuntimeException e)
+        {
+            this.done = true;
+            this.subscription.cancel();
+            this.result.completeExceptionally(e);
+            return;
+        }
+        this.rowCount++;
+        this.received++;
+        if (this.received == this.batchSize)
+        {
+            this.received = 0;
+            this.subscription.request(this.batchSize);
+        }
+    }
+
+    /**
+     * Completes the result exceptionally. The workbook is not saved
+     * @param throwable Error of the publisher
+     */
+    @Override
+    public void onError(Throwable throwable)
+    {
+        if (this.done)
+        {
+            return;
+        }
+        this.done = true;
+        this.result.completeExceptionally(throwable);
+    }
+
+    /**
+     * Saves the workbook and completes the result
+     */
+    @Override
+    public void onComplete()
+    {
+        if (this.done)
+        {
+            return;
+        }
+        this.done = true;
+        try
+        {
+            Workbook workbook = this.writer.getWorksheet().getWorkbookReference();
+            if (this.path == null)
+            {
+                workbook.save();
+            }
+            else
+            {
+                workbook.save(this.path);
+            }
+            this.result.complete(null);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            this.result.completeExceptionally(e);
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+/**
+ * Class to write cells into a worksheet with an own cursor. In contrast to the cursor of the worksheet (and the Shortener WS), a writer is not shared.<br>
+ * If the workbook is in the concurrent population mode (Workbook.setConcurrentPopulation), each producer thread can use its own writer, as long as the threads write into disjoint cell ranges.
+ * The cells are always written column by column; down() moves to the start column of the next row
+ * @author Raphael Stoeckli
+ */
+public class WorksheetWriter
+{
+
+// ### P R I V A T E  F I E L D S ###
+    private int columnNumber;
+    private int rowNumber;
+    private final int startColumn;
+    private final Worksheet worksheet;
+
+// ### G E T T E R S ###
+
+    /**
+     * Gets the column number of the next cell
+     * @return Column number (zero based)
+     */
+    public int getColumnNumber() {
+        return this.columnNumber;
+    }
+
+    /**
+     * Gets the row number of the next cell
+     * @return Row number (zero based)
+     */
+    public int getRowNumber() {
+        return this.rowNumber;
+    }
+
+    /**
+     * Gets the worksheet of the writer
+     * @return Worksheet
+     */
+    public Worksheet getWorksheet() {
+        return this.worksheet;
+    }
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with worksheet and start position. Use Worksheet.createWriter to create a writer
+     * @param worksheet Worksheet to write into
+     * @param startColumn Column number of the first cell and of each new row (zero based)
+     * @param startRow Row number of the first cell (zero based)
+     * @throws RangeException Thrown if the start position is out of range
+     */
+    WorksheetWriter(Worksheet worksheet, int startColumn, int startRow)
+    {
+        if (startColumn < Worksheet.MIN_COLUMN_NUMBER || startColumn > Worksheet.MAX_COLUMN_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The column number (" + startColumn + ") is out of range. Range is from " + Worksheet.MIN_COLUMN_NUMBER + " to " + Worksheet.MAX_COLUMN_NUMBER + " (" + (Worksheet.MAX_COLUMN_NUMBER + 1) + " columns).");
+        }
+        if (startRow < Worksheet.MIN_ROW_NUMBER || startRow > Worksheet.MAX_ROW_NUMBER)
+        {
+            throw new RangeException("OutOfRangeException", "The row number (" + startRow + ") is out of range. Range is from " + Worksheet.MIN_ROW_NUMBER + " to " + Worksheet.MAX_ROW_NUMBER + " (" + (Worksheet.MAX_ROW_NUMBER + 1) + " rows).");
+        }
+        this.worksheet = worksheet;
+        this.startColumn = startColumn;
+        this.columnNumber = startColumn;
+        this.rowNumber = startRow;
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Sets a value into the current cell and moves the cursor to the next column
+     * @param value Value to set
+     * @throws RangeException Thrown if the cell is out of range
+     */
+    public void value(Object value)
+    {
+        this.worksheet.storeCell(value, this.columnNumber, this.rowNumber, null);
+        this.columnNumber++;
+    }
+
+    /**
+     * Sets a value with style into the current cell and moves the cursor to the next column
+     * @param value Value to set
+     * @param style Style to set
+     * @throws RangeException Thrown if the cell is out of range
+     */
+    public void value(Object value, Style style)
+    {
+        this.worksheet.storeCell(value, this.columnNumber, this.rowNumber, style);
+        this.columnNumber++;
+    }
+
+    /**
+     * Sets a formula into the current cell and moves the cursor to the next column
+     * @param formula Formula to set
+     * @throws RangeException Thrown if the cell is out of range
+     */
+    public void formula(String formula)
+    {
+        this.formula(formula, null);
+    }
+
+    /**
+     * Sets a formula with style into the current cell and moves the cursor to the next column
+     * @param formula Formula to set
+     * @param style Style to set
+     * @throws RangeException Thrown if the cell is out of range
+     */
+    public void formula(String formula, Style style)
+    {
+        Cell cell = new Cell(formula, Cell.CellType.FORMULA, this.columnNumber, this.rowNumber, this.worksheet);
+        this.worksheet.storeCell(cell, style);
+        this.columnNumber++;
+    }
+
+    /**
+     * Moves the cursor to the start column of the next row
+     */
+    public void down()
+    {
+        this.down(1);
+    }
+
+    /**
+     * Moves the cursor the number of defined rows down, to the start column
+     * @param numberOfRows Number of rows to move
+     */
+    public void down(int numberOfRows)
+    {
+        this.rowNumber += numberOfRows;
+        this.columnNumber = this.startColumn;
+    }
+
+    /**
+     * Moves the cursor one column to the right
+     */
+    public void right()
+    {
+        this.columnNumber++;
+    }
+
+    /**
+     * Moves the cursor the number of defined columns to the right
+     * @param numberOfColumns Number of columns to move
+     */
+    public void right(int numberOfColumns)
+    {
+        this.columnNumber += numberOfColumns;
+    }
+
+}
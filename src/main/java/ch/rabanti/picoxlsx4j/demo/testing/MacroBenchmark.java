@@ -0,0 +1,406 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.demo.testing;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * End-to-end benchmark that generates a workbook from a {@link WorkloadProfile} and saves it. For each phase (populate, save) the wall time, CPU time, peak heap,
+ * allocated bytes, GC pauses and output size is reported. The results can be stored as baseline (properties file) and compared with later runs.<br>
+ * Usage: MacroBenchmark [profile name or profile properties file] [-out file.xlsx] [-baseline file.properties] [-writeBaseline file.properties]<br>
+ * Run with a fixed heap (e.g. -Xmx1g) to check whether a workload fits into a container.
+ */
+public class MacroBenchmark {
+
+    /**
+     * Class holding the measured values of one phase
+     */
+    public static class PhaseResult {
+
+        // ### P R I V A T E  F I E L D S ###
+        private final String name;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+        private long peakHeapBytes;
+        private long gcCount;
+        private long gcMillis;
+        private long outputBytes;
+
+        // ### G E T T E R S ###
+
+        /**
+         * Gets the name of the phase
+         * @return Name of the phase
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the wall time of the phase in nanoseconds
+         * @return Wall time
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Gets the CPU time of the benchmark thread in nanoseconds (-1 if not supported by the JVM)
+         * @return CPU time
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * Gets the bytes allocated by the benchmark thread (-1 if not supported by the JVM)
+         * @return Allocated bytes
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Gets the peak heap usage during the phase in bytes. This is the sum of the peaks of all heap pools, thus an upper bound
+         * @return Peak heap
+         */
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        /**
+         * Gets the number of garbage collections during the phase
+         * @return Number of garbage collections
+         */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /**
+         * Gets the accumulated (approximated) time of garbage collections during the phase in milliseconds
+         * @return GC time
+         */
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        /**
+         * Gets the number of written bytes (0 if the phase does not write)
+         * @return Output size
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * Constructor with the name of the phase
+         * @param name Name of the phase
+         */
+        PhaseResult(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Stores the values into properties, with the prefix 'phase.[name].'
+         * @param properties Target properties
+         */
+        void store(Properties properties) {
+            String prefix = "phase." + name + ".";
+            properties.setProperty(prefix + "wallNanos", Long.toString(wallNanos));
+            properties.setProperty(prefix + "cpuNanos", Long.toString(cpuNanos));
+            properties.setProperty(prefix + "allocatedBytes", Long.toString(allocatedBytes));
+            properties.setProperty(prefix + "peakHeapBytes", Long.toString(peakHeapBytes));
+            properties.setProperty(prefix + "gcCount", Long.toString(gcCount));
+            properties.setProperty(prefix + "gcMillis", Long.toString(gcMillis));
+            properties.setProperty(prefix + "outputBytes", Long.toString(outputBytes));
+        }
+    }
+
+    /**
+     * Task of a measured phase
+     */
+    @FunctionalInterface
+    private interface PhaseTask {
+        /**
+         * Executes the phase
+         * @return Number of written bytes, or 0 if the phase does not write
+         * @throws Exception Thrown in case of an error while writing
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * Output stream that counts the written bytes and forwards them to an optional target
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream target;
+        private long count;
+
+        CountingOutputStream(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count++;
+            if (target != null) {
+                target.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+            if (target != null) {
+                target.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (target != null) {
+                target.close();
+            }
+        }
+    }
+
+    // ### P R I V A T E  F I E L D S ###
+    private final WorkloadProfile profile;
+    private final String outputFile;
+    private final List<PhaseResult> results = new ArrayList<>();
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with profile and output file
+     * @param profile Workload profile
+     * @param outputFile Path of the output file. If null, the workbook is only written into a counting sink
+     */
+    public MacroBenchmark(WorkloadProfile profile, String outputFile) {
+        this.profile = profile;
+        this.outputFile = outputFile;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Gets the results of the last run
+     * @return List of phase results
+     */
+    public List<PhaseResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Runs the benchmark (populate and save phase)
+     * @return List of phase results
+     * @throws Exception Thrown in case of an error while saving
+     */
+    public List<PhaseResult> run() throws Exception {
+        results.clear();
+        Workbook[] holder = new Workbook[1];
+        results.add(measure("populate", () -> {
+            holder[0] = profile.createWorkbook(outputFile == null ? "benchmark.xlsx" : outputFile);
+            return 0;
+        }));
+        results.add(measure("save", () -> {
+            try (CountingOutputStream stream = new CountingOutputStream(outputFile == null ? null : new FileOutputStream(outputFile))) {
+                holder[0].saveAsStream(stream);
+                return stream.count;
+            }
+        }));
+        return results;
+    }
+
+    /**
+     * Stores the profile and the results as properties
+     * @return Properties (profile.* and phase.*)
+     */
+    public Properties toProperties() {
+        Properties properties = profile.toProperties();
+        properties.setProperty("java.version", System.getProperty("java.version"));
+        properties.setProperty("maxHeapBytes", Long.toString(Runtime.getRuntime().maxMemory()));
+        for (PhaseResult result : results) {
+            result.store(properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Prints the results to the console. If a baseline is passed, the relative difference of each value is printed as well
+     * @param baseline Properties of a former run. Can be null
+     */
+    public void printResults(Properties baseline) {
+        System.out.println("Profile: " + profile);
+        if (baseline != null && !profile.getName().equals(baseline.getProperty("profile.name"))) {
+            System.out.println("Warning: the baseline was recorded with the profile '" + baseline.getProperty("profile.name") + "'");
+        }
+        for (PhaseResult result : results) {
+            String prefix = "phase." + result.getName() + ".";
+            System.out.println("Phase: " + result.getName());
+            printValue("  wall time [ms]     ", result.getWallNanos() / 1000000d, baseline, prefix + "wallNanos", 1000000d);
+            printValue("  CPU time [ms]      ", result.getCpuNanos() / 1000000d, baseline, prefix + "cpuNanos", 1000000d);
+            printValue("  allocated [MB]     ", result.getAllocatedBytes() / 1048576d, baseline, prefix + "allocatedBytes", 1048576d);
+            printValue("  peak heap [MB]     ", result.getPeakHeapBytes() / 1048576d, baseline, prefix + "peakHeapBytes", 1048576d);
+            printValue("  GC count           ", result.getGcCount(), baseline, prefix + "gcCount", 1d);
+            printValue("  GC time [ms]       ", result.getGcMillis(), baseline, prefix + "gcMillis", 1d);
+            if (result.getOutputBytes() > 0) {
+                printValue("  output size [KB]   ", result.getOutputBytes() / 1024d, baseline, prefix + "outputBytes", 1024d);
+            }
+        }
+    }
+
+    /**
+     * Prints one value with the optional difference to the baseline
+     * @param label Label of the value
+     * @param value Value (already scaled)
+     * @param baseline Baseline or null
+     * @param key Property key of the value in the baseline
+     * @param scale Divisor to scale the raw baseline value
+     */
+    private static void printValue(String label, double value, Properties baseline, String key, double scale) {
+        StringBuilder sb = new StringBuilder(label);
+        sb.append(String.format("%12.1f", value));
+        if (baseline != null && baseline.getProperty(key) != null) {
+            double base = Long.parseLong(baseline.getProperty(key)) / scale;
+            sb.append(String.format("   baseline %12.1f", base));
+            if (base != 0) {
+                sb.append(String.format("   %+7.1f%%", (value - base) / base * 100d));
+            }
+        }
+        System.out.println(sb.toString());
+    }
+
+    /**
+     * Measures one phase
+     * @param name Name of the phase
+     * @param task Task of the phase
+     * @return Result of the phase
+     * @throws Exception Thrown in case of an error in the task
+     */
+    private static PhaseResult measure(String name, PhaseTask task) throws Exception {
+        PhaseResult result = new PhaseResult(name);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocationBean = null;
+        if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        }
+        boolean cpuSupported = threadBean.isCurrentThreadCpuTimeSupported();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        System.gc();
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+        }
+        long threadId = Thread.currentThread().getId();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        long allocated = allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(threadId);
+        long cpu = cpuSupported ? threadBean.getCurrentThreadCpuTime() : 0;
+        long wall = System.nanoTime();
+
+        result.outputBytes = task.run();
+
+        result.wallNanos = System.nanoTime() - wall;
+        result.cpuNanos = cpuSupported ? threadBean.getCurrentThreadCpuTime() - cpu : -1;
+        result.allocatedBytes = allocationBean == null ? -1 : allocationBean.getThreadAllocatedBytes(threadId) - allocated;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result.gcCount += Math.max(0, gc.getCollectionCount());
+            result.gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        result.gcCount -= gcCount;
+        result.gcMillis -= gcMillis;
+        for (MemoryPoolMXBean pool : heapPools) {
+            result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    /**
+     * Loads properties from a file
+     * @param fileName Path of the file
+     * @return Loaded properties
+     * @throws IOException Thrown if the file could not be read
+     */
+    private static Properties loadProperties(String fileName) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(fileName)) {
+            properties.load(stream);
+        }
+        return properties;
+    }
+
+    /**
+     * Main method to run the benchmark from the command line
+     * @param args Arguments: [profile name or properties file] [-out file.xlsx] [-baseline file.properties] [-writeBaseline file.properties]
+     * @throws Exception Thrown in case of an error while reading or writing files
+     */
+    public static void main(String[] args) throws Exception {
+        WorkloadProfile profile = WorkloadProfile.small();
+        String outputFile = null;
+        String baselineFile = null;
+        String writeBaselineFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-out":
+                    outputFile = args[++i];
+                    break;
+                case "-baseline":
+                    baselineFile = args[++i];
+                    break;
+                case "-writeBaseline":
+                    writeBaselineFile = args[++i];
+                    break;
+                default:
+                    if (args[i].endsWith(".properties")) {
+                        profile = WorkloadProfile.fromProperties(loadProperties(args[i]));
+                    } else {
+                        profile = WorkloadProfile.byName(args[i]);
+                    }
+            }
+        }
+        MacroBenchmark benchmark = new MacroBenchmark(profile, outputFile);
+        benchmark.run();
+        benchmark.printResults(baselineFile == null ? null : loadProperties(baselineFile));
+        if (writeBaselineFile != null) {
+            try (OutputStream stream = new FileOutputStream(writeBaselineFile)) {
+                benchmark.toProperties().store(stream, "PicoXLSX4j macro benchmark baseline");
+            }
+        }
+    }
+
+}
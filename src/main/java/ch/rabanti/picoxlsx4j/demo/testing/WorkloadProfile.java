@@ -0,0 +1,411 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.demo.testing;
+
+import ch.rabanti.picoxlsx4j.Address;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Class describing a reproducible synthetic workload for the macro benchmark. The same profile (including the seed) always generates the same workbook
+ */
+public class WorkloadProfile {
+
+    // ### P R I V A T E  F I E L D S ###
+    private String name;
+    private int sheets;
+    private int rows;
+    private int columns;
+    private double numericShare;
+    private double stringShare;
+    private double dateShare;
+    private int stringCardinality;
+    private int styleCount;
+    private int mergedRanges;
+    private long seed;
+
+    // ### G E T T E R S  &  S E T T E R S ###
+
+    /**
+     * Gets the name of the profile
+     * @return Name of the profile
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the profile
+     * @param name Name of the profile
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the number of worksheets
+     * @return Number of worksheets
+     */
+    public int getSheets() {
+        return sheets;
+    }
+
+    /**
+     * Sets the number of worksheets
+     * @param sheets Number of worksheets
+     */
+    public void setSheets(int sheets) {
+        this.sheets = sheets;
+    }
+
+    /**
+     * Gets the number of rows per worksheet
+     * @return Number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the number of rows per worksheet
+     * @param rows Number of rows
+     */
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Gets the number of columns per worksheet
+     * @return Number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Sets the number of columns per worksheet
+     * @param columns Number of columns
+     */
+    public void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Gets the share of numeric cells (0.0 to 1.0)
+     * @return Share of numeric cells
+     */
+    public double getNumericShare() {
+        return numericShare;
+    }
+
+    /**
+     * Sets the share of numeric cells (0.0 to 1.0)
+     * @param numericShare Share of numeric cells
+     */
+    public void setNumericShare(double numericShare) {
+        this.numericShare = numericShare;
+    }
+
+    /**
+     * Gets the share of string cells (0.0 to 1.0)
+     * @return Share of string cells
+     */
+    public double getStringShare() {
+        return stringShare;
+    }
+
+    /**
+     * Sets the share of string cells (0.0 to 1.0)
+     * @param stringShare Share of string cells
+     */
+    public void setStringShare(double stringShare) {
+        this.stringShare = stringShare;
+    }
+
+    /**
+     * Gets the share of date cells (0.0 to 1.0). The remaining cells (if any) are boolean cells
+     * @return Share of date cells
+     */
+    public double getDateShare() {
+        return dateShare;
+    }
+
+    /**
+     * Sets the share of date cells (0.0 to 1.0). The remaining cells (if any) are boolean cells
+     * @param dateShare Share of date cells
+     */
+    public void setDateShare(double dateShare) {
+        this.dateShare = dateShare;
+    }
+
+    /**
+     * Gets the number of distinct string values (size of the shared string table)
+     * @return Number of distinct strings
+     */
+    public int getStringCardinality() {
+        return stringCardinality;
+    }
+
+    /**
+     * Sets the number of distinct string values (size of the shared string table)
+     * @param stringCardinality Number of distinct strings
+     */
+    public void setStringCardinality(int stringCardinality) {
+        this.stringCardinality = stringCardinality;
+    }
+
+    /**
+     * Gets the number of distinct styles. If 0, no cell is styled
+     * @return Number of distinct styles
+     */
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * Sets the number of distinct styles. If 0, no cell is styled
+     * @param styleCount Number of distinct styles
+     */
+    public void setStyleCount(int styleCount) {
+        this.styleCount = styleCount;
+    }
+
+    /**
+     * Gets the number of merged ranges per worksheet
+     * @return Number of merged ranges
+     */
+    public int getMergedRanges() {
+        return mergedRanges;
+    }
+
+    /**
+     * Sets the number of merged ranges per worksheet
+     * @param mergedRanges Number of merged ranges
+     */
+    public void setMergedRanges(int mergedRanges) {
+        this.mergedRanges = mergedRanges;
+    }
+
+    /**
+     * Gets the seed of the random generator
+     * @return Seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random generator
+     * @param seed Seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with all parameters. The seed is set to 42
+     * @param name Name of the profile
+     * @param sheets Number of worksheets
+     * @param rows Number of rows per worksheet
+     * @param columns Number of columns per worksheet
+     * @param numericShare Share of numeric cells
+     * @param stringShare Share of string cells
+     * @param dateShare Share of date cells
+     * @param stringCardinality Number of distinct strings
+     * @param styleCount Number of distinct styles
+     * @param mergedRanges Number of merged ranges per worksheet
+     */
+    public WorkloadProfile(String name, int sheets, int rows, int columns, double numericShare, double stringShare, double dateShare, int stringCardinality, int styleCount, int mergedRanges) {
+        this.name = name;
+        this.sheets = sheets;
+        this.rows = rows;
+        this.columns = columns;
+        this.numericShare = numericShare;
+        this.stringShare = stringShare;
+        this.dateShare = dateShare;
+        this.stringCardinality = stringCardinality;
+        this.styleCount = styleCount;
+        this.mergedRanges = mergedRanges;
+        this.seed = 42;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Generates the workbook of this profile. The output values are distributed per column, so that each column has a stable type
+     * @param fileName File name of the workbook
+     * @return Populated workbook
+     */
+    public Workbook createWorkbook(String fileName) {
+        Random random = new Random(seed);
+        Workbook workbook = new Workbook(fileName, "Sheet1");
+        Style[] styles = new Style[styleCount];
+        for (int i = 0; i < styleCount; i++) {
+            styles[i] = BasicStyles.colorizedBackground(String.format("FF%06X", (i * 2654435761L) & 0xFFFFFF));
+        }
+        String[] strings = new String[Math.max(1, stringCardinality)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = "Value " + Long.toString(random.nextLong() & 0xFFFFFFFFFFL, 36) + " " + i;
+        }
+        char[] types = new char[columns];
+        for (int c = 0; c < columns; c++) {
+            double fraction = (c + 0.5d) / columns;
+            if (fraction < numericShare) {
+                types[c] = 'n';
+            } else if (fraction < numericShare + stringShare) {
+                types[c] = 's';
+            } else if (fraction < numericShare + stringShare + dateShare) {
+                types[c] = 'd';
+            } else {
+                types[c] = 'b';
+            }
+        }
+        long baseDate = 1577836800000L;
+        Worksheet worksheet;
+        Object value;
+        for (int s = 0; s < sheets; s++) {
+            if (s > 0) {
+                workbook.addWorksheet("Sheet" + (s + 1));
+            }
+            worksheet = workbook.getCurrentWorksheet();
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < columns; c++) {
+                    switch (types[c]) {
+                        case 'n':
+                            value = random.nextInt(1000000) / 100d;
+                            break;
+                        case 's':
+                            value = strings[random.nextInt(strings.length)];
+                            break;
+                        case 'd':
+                            value = new Date(baseDate + random.nextInt(3650) * 86400000L);
+                            break;
+                        default:
+                            value = random.nextBoolean();
+                    }
+                    if (styleCount > 0 && types[c] != 'd') {
+                        worksheet.addCell(value, c, r, styles[random.nextInt(styleCount)]);
+                    } else {
+                        worksheet.addCell(value, c, r);
+                    }
+                }
+            }
+            if (columns > 1 && rows > 0) {
+                int mergeCount = Math.min(mergedRanges, rows);
+                int step = rows / Math.max(1, mergeCount);
+                for (int m = 0; m < mergeCount; m++) {
+                    worksheet.mergeCells(new Address(0, m * step), new Address(1, m * step));
+                }
+            }
+        }
+        return workbook;
+    }
+
+    /**
+     * Gets the properties of this profile (e.g. to store them into a baseline file)
+     * @return Properties of this profile with the prefix 'profile.'
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("profile.name", name);
+        properties.setProperty("profile.sheets", Integer.toString(sheets));
+        properties.setProperty("profile.rows", Integer.toString(rows));
+        properties.setProperty("profile.columns", Integer.toString(columns));
+        properties.setProperty("profile.numericShare", Double.toString(numericShare));
+        properties.setProperty("profile.stringShare", Double.toString(stringShare));
+        properties.setProperty("profile.dateShare", Double.toString(dateShare));
+        properties.setProperty("profile.stringCardinality", Integer.toString(stringCardinality));
+        properties.setProperty("profile.styleCount", Integer.toString(styleCount));
+        properties.setProperty("profile.mergedRanges", Integer.toString(mergedRanges));
+        properties.setProperty("profile.seed", Long.toString(seed));
+        return properties;
+    }
+
+    /**
+     * Gets the description of the profile
+     * @return Description
+     */
+    @Override
+    public String toString() {
+        return name + " (" + sheets + " sheet(s) x " + rows + " rows x " + columns + " columns, strings: " + stringCardinality + ", styles: " + styleCount + ", merged: " + mergedRanges + ")";
+    }
+
+    // ### S T A T I C   M E T H O D S ###
+
+    /**
+     * Creates a small profile for quick runs (10'000 rows, 10 columns)
+     * @return Profile
+     */
+    public static WorkloadProfile small() {
+        return new WorkloadProfile("small", 1, 10000, 10, 0.5d, 0.3d, 0.2d, 1000, 10, 10);
+    }
+
+    /**
+     * Creates a medium profile (3 worksheets with 200'000 rows and 20 columns each)
+     * @return Profile
+     */
+    public static WorkloadProfile medium() {
+        return new WorkloadProfile("medium", 3, 200000, 20, 0.5d, 0.3d, 0.2d, 50000, 50, 100);
+    }
+
+    /**
+     * Creates the profile of a large report (2'000'000 rows, 30 columns)
+     * @return Profile
+     */
+    public static WorkloadProfile report() {
+        return new WorkloadProfile("report", 1, 2000000, 30, 0.6d, 0.3d, 0.1d, 100000, 20, 0);
+    }
+
+    /**
+     * Resolves a profile by its name (small, medium or report)
+     * @param name Name of the profile
+     * @return Profile
+     * @throws IllegalArgumentException Thrown if the name is unknown
+     */
+    public static WorkloadProfile byName(String name) {
+        switch (name) {
+            case "small":
+                return small();
+            case "medium":
+                return medium();
+            case "report":
+                return report();
+            default:
+                throw new IllegalArgumentException("The profile '" + name + "' is unknown");
+        }
+    }
+
+    /**
+     * Creates a profile from properties. Missing properties are taken from the small profile
+     * @param properties Properties with the prefix 'profile.'
+     * @return Profile
+     */
+    public static WorkloadProfile fromProperties(Properties properties) {
+        WorkloadProfile profile = small();
+        profile.setName(properties.getProperty("profile.name", profile.getName()));
+        profile.setSheets(Integer.parseInt(properties.getProperty("profile.sheets", Integer.toString(profile.getSheets()))));
+        profile.setRows(Integer.parseInt(properties.getProperty("profile.rows", Integer.toString(profile.getRows()))));
+        profile.setColumns(Integer.parseInt(properties.getProperty("profile.columns", Integer.toString(profile.getColumns()))));
+        profile.setNumericShare(Double.parseDouble(properties.getProperty("profile.numericShare", Double.toString(profile.getNumericShare()))));
+        profile.setStringShare(Double.parseDouble(properties.getProperty("profile.stringShare", Double.toString(profile.getStringShare()))));
+        profile.setDateShare(Double.parseDouble(properties.getProperty("profile.dateShare", Double.toString(profile.getDateShare()))));
+        profile.setStringCardinality(Integer.parseInt(properties.getProperty("profile.stringCardinality", Integer.toString(profile.getStringCardinality()))));
+        profile.setStyleCount(Integer.parseInt(properties.getProperty("profile.styleCount", Integer.toString(profile.getStyleCount()))));
+        profile.setMergedRanges(Integer.parseInt(properties.getProperty("profile.mergedRanges", Integer.toString(profile.getMergedRanges()))));
+        profile.setSeed(Long.parseLong(properties.getProperty("profile.seed", Long.toString(profile.getSeed()))));
+        return profile;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Output stream writing into a channel through a direct buffer. The ZIP stream produces many small chunks; they are collected in the buffer and written with one system call per full buffer.<br>
+ * Closing the stream flushes the buffer but does not close the channel. The channel is owned by the caller
+ * @author Raphael Stoeckli
+ */
+class ChannelOutputStream extends OutputStream {
+
+    // ### P R I V A T E  F I E L D S ###
+    private final ByteBuffer buffer;
+    private final WritableByteChannel channel;
+    private boolean closed;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with channel and buffer size
+     *
+     * @param channel    Channel to write into
+     * @param bufferSize Size of the direct buffer in bytes
+     */
+    ChannelOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Writes one byte into the buffer
+     *
+     * @param b Byte to write
+     * @throws IOException Thrown if the buffer could not be written into the channel
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!this.buffer.hasRemaining()) {
+            drain();
+        }
+        this.buffer.put((byte) b);
+    }
+
+    /**
+     * Writes a range of a byte array into the buffer. The buffer is written into the channel whenever it is full
+     *
+     * @param b   Source array
+     * @param off Start offset in the array
+     * @param len Number of bytes to write
+     * @throws IOException Thrown if the buffer could not be written into the channel
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (b.length - (off + len))) < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (!this.buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(len, this.buffer.remaining());
+            this.buffer.put(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes into the channel
+     *
+     * @throws IOException Thrown if the channel could not be written
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drain();
+    }
+
+    /**
+     * Writes the buffered bytes into the channel and closes the stream. The channel remains open
+     *
+     * @throws IOException Thrown if the channel could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            this.closed = true;
+        }
+    }
+
+    /**
+     * Writes the whole content of the buffer into the channel and clears the buffer
+     *
+     * @throws IOException Thrown if the channel could not be written
+     */
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    /**
+     * Checks whether the stream is still open
+     *
+     * @throws IOException Thrown if the stream was already closed
+     */
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
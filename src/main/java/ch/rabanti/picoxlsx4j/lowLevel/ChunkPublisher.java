@@ -0,0 +1,182 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the XLSX data as byte buffer chunks. Each subscription generates its own copy of the workbook, since the preparation of the parts modifies the workbook
+ * (e.g. resolved merged cells). The parts are created on the first request; afterwards, the ZIP container is compressed chunk by chunk as long as the subscriber has outstanding demand.
+ * If the demand is exhausted, no thread is occupied until the next request. The completion is signaled without demand, as soon as the last chunk was emitted
+ * @author Raphael Stoeckli
+ */
+class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+
+    // ### P R I V A T E  F I E L D S ###
+    private final int chunkSize;
+    private final Executor executor;
+    private final Workbook workbook;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with all values
+     *
+     * @param workbook  Workbook to publish. The workbook is not modified, but copied by each subscription
+     * @param executor  Executor to generate and compress the workbook
+     * @param chunkSize Size of the chunks in bytes
+     */
+    ChunkPublisher(Workbook workbook, Executor executor, int chunkSize) {
+        this.workbook = workbook;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Subscribes a subscriber. The subscriber receives the whole XLSX file
+     *
+     * @param subscriber Subscriber to receive the chunks
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("The subscriber must not be null");
+        }
+        ChunkSubscription subscription = new ChunkSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Subscription emitting the chunks. All signals to the subscriber are serialized by a work-in-progress counter: only one drain task runs at a time
+     */
+    private class ChunkSubscription implements Flow.Subscription, Runnable {
+        private final AtomicLong demand;
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicInteger wip;
+        private volatile boolean cancelled;
+        private boolean done;
+        private volatile Throwable invalidRequest;
+        private ZipChunkSource source;
+
+        /**
+         * Constructor with subscriber
+         *
+         * @param subscriber Subscriber to receive the chunks
+         */
+        ChunkSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+            this.demand = new AtomicLong();
+            this.wip = new AtomicInteger();
+        }
+
+        /**
+         * Adds demand of chunks and schedules the emission
+         *
+         * @param n Number of requested chunks (must be positive)
+         */
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.invalidRequest = new IllegalArgumentException("The number of requested chunks must be positive, but was " + n);
+            } else {
+                this.demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        /**
+         * Cancels the subscription. The generation stops after the current chunk and the source is released by the drain task
+         */
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Schedules a drain task, if none is running
+         */
+        private void schedule() {
+            if (this.wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    this.done = true;
+                    this.subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Drains as long as new requests arrive while draining
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                drain();
+                missed = this.wip.addAndGet(-missed);
+                if (missed == 0) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Emits chunks as long as there is demand, the subscription is not cancelled and the file is not complete. The completion is signaled right after the last chunk
+         */
+        private void drain() {
+            if (this.done || this.cancelled) {
+                this.source = null;
+                return;
+            }
+            if (this.invalidRequest != null) {
+                this.done = true;
+                this.subscriber.onError(this.invalidRequest);
+                return;
+            }
+            try {
+                if (this.source == null && this.demand.get() > 0) {
+                    Workbook copy;
+                    synchronized (workbook) { // Subscriptions may copy the workbook concurrently on different threads
+                        copy = workbook.copy();
+                    }
+                    this.source = new LowLevel(copy).createChunkSource(chunkSize);
+                }
+                while (this.demand.get() > 0 && !this.cancelled) {
+                    ByteBuffer chunk = this.source.next();
+                    if (chunk != null) {
+                        this.demand.decrementAndGet();
+                        this.subscriber.onNext(chunk);
+                    }
+                    if (chunk == null || (this.source.isComplete() && !this.cancelled)) {
+                        this.done = true;
+                        this.source = null;
+                        this.subscriber.onComplete();
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                this.done = true;
+                this.source = null;
+                this.subscriber.onError(e);
+            }
+        }
+    }
+
+}
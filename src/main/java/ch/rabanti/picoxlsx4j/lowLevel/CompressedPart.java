@@ -0,0 +1,93 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing a pre-compressed part (raw deflate data with CRC and size), which is copied into the ZIP container without compressing it again.
+ * Used by workbook templates and the part cache of incremental saves
+ * @author Raphael Stoeckli
+ */
+class CompressedPart {
+
+    // ### P R I V A T E  F I E L D S ###
+    private final byte[] compressed;
+    private final long crc;
+    private final byte[] data;
+    private final long size;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the compressed data (raw deflate)
+     *
+     * @return Compressed data
+     */
+    byte[] getCompressed() {
+        return this.compressed;
+    }
+
+    /**
+     * Gets the CRC-32 of the uncompressed data
+     *
+     * @return CRC-32
+     */
+    long getCrc() {
+        return this.crc;
+    }
+
+    /**
+     * Gets the uncompressed data (serialized XML document)
+     *
+     * @return Uncompressed data or null if the uncompressed data is not kept
+     */
+    byte[] getData() {
+        return this.data;
+    }
+
+    /**
+     * Gets the uncompressed size
+     *
+     * @return Size in bytes
+     */
+    long getSize() {
+        return this.size;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the uncompressed data, which is compressed immediately
+     *
+     * @param data     Serialized XML document
+     * @param deflater Deflater to compress the data (raw deflate). The deflater is reset afterwards
+     * @param keepData If true, the uncompressed data is kept (getData), otherwise only the compressed data
+     */
+    CompressedPart(byte[] data, Deflater deflater, boolean keepData) {
+        this.data = keepData ? data : null;
+        this.size = data.length;
+        CRC32 checksum = new CRC32();
+        checksum.update(data, 0, data.length);
+        this.crc = checksum.getValue();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[data.length / 2 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        deflater.reset();
+        this.compressed = Arrays.copyOf(buffer, length);
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+/**
+ * Enum representing the Excel error values, used as result of an evaluated formula
+ * @author Raphael Stoeckli
+ */
+enum FormulaError {
+    /**
+     * Division by zero
+     */
+    DIV0("#DIV/0!"),
+    /**
+     * Value not available (e.g. no match of a lookup)
+     */
+    NA("#N/A"),
+    /**
+     * Invalid numeric value
+     */
+    NUM("#NUM!"),
+    /**
+     * Invalid reference
+     */
+    REF("#REF!"),
+    /**
+     * Wrong type of an argument or operand
+     */
+    VALUE("#VALUE!");
+
+    private final String literal;
+
+    FormulaError(String literal) {
+        this.literal = literal;
+    }
+
+    /**
+     * Gets the literal of the error, as written into the cell (e.g. #N/A)
+     *
+     * @return Error literal
+     */
+    public String getLiteral() {
+        return this.literal;
+    }
+}
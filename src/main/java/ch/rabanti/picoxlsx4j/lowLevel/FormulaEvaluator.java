@@ -0,0 +1,718 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Helper;
+import ch.rabanti.picoxlsx4j.SharedFormula;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class representing an evaluator of the formulas of a workbook. The results are written as cached values, so that the file can be read without a calculation engine<br>
+ * The formula cells are ordered in a dependency graph. Cells in a circular reference (and cells depending on them) are not evaluated. Formulas with unsupported functions or names are not evaluated as well.
+ * Independent formulas (same level in the graph) are evaluated in parallel
+ * @author Raphael Stoeckli
+ */
+class FormulaEvaluator {
+
+// ### C O N S T A N T S ###
+    /**
+     * Minimum number of formulas of one dependency level to evaluate them in parallel
+     */
+    private static final int PARALLEL_THRESHOLD = 512;
+    private static final int ROW_BITS = 20; // 1048576 rows
+
+// ### P R I V A T E  F I E L D S ###
+    private final Map<Worksheet, TreeMap<Long, Node>> formulaNodes;
+    private final Workbook workbook;
+    private final Map<String, Worksheet> worksheetsByName;
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with workbook
+     *
+     * @param workbook Workbook to evaluate
+     */
+    FormulaEvaluator(Workbook workbook) {
+        this.workbook = workbook;
+        this.formulaNodes = new IdentityHashMap<>();
+        this.worksheetsByName = new HashMap<>();
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Evaluates all formulas of the workbook
+     *
+     * @return Map with the formula cell as key and the result (Double, Boolean, String or FormulaError) as value. Cells that could not be evaluated are not contained
+     */
+    Map<Cell, Object> evaluate() {
+        List<Node> nodes = this.collectNodes();
+        this.linkNodes(nodes);
+        List<Node> level = new ArrayList<>();
+        for (Node node : nodes) {
+            if (node.pending == 0) {
+                level.add(node);
+            }
+        }
+        List<Node> nextLevel;
+        while (!level.isEmpty()) {
+            if (level.size() >= PARALLEL_THRESHOLD) {
+                level.parallelStream().forEach(this::evaluateNode); // The join of the stream publishes the values to the next level
+            } else {
+                for (Node node : level) {
+                    this.evaluateNode(node);
+                }
+            }
+            nextLevel = new ArrayList<>();
+            for (Node node : level) {
+                for (Node dependent : node.dependents) {
+                    if (!node.supported) {
+                        dependent.supported = false;
+                    }
+                    dependent.pending--;
+                    if (dependent.pending == 0) {
+                        nextLevel.add(dependent);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        // Nodes with pending dependencies are in (or depend on) a circular reference and remain without a value
+        Map<Cell, Object> results = new IdentityHashMap<>();
+        for (Node node : nodes) {
+            if (node.supported && node.evaluated) {
+                results.put(node.cell, node.value);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Collects and parses all formula cells of the workbook
+     *
+     * @return List of formula nodes
+     */
+    private List<Node> collectNodes() {
+        List<Node> nodes = new ArrayList<>();
+        Map<SharedFormula, FormulaExpression> sharedExpressions = new IdentityHashMap<>();
+        FormulaExpression expression;
+        Node node;
+        for (Worksheet worksheet : this.workbook.getWorksheets()) {
+            this.worksheetsByName.put(worksheet.getSheetName().toUpperCase(), worksheet);
+            TreeMap<Long, Node> sheetNodes = new TreeMap<>();
+            this.formulaNodes.put(worksheet, sheetNodes);
+            if (worksheet.getMappedCellStore() != null) {
+                continue; // Cells of a mapped cell store are detached copies; their formulas (and formulas referencing them) are written without cached results
+            }
+            for (Cell cell : worksheet.getCells().values()) {
+                if (cell.getDataType() != Cell.CellType.FORMULA) {
+                    continue;
+                }
+                SharedFormula sharedFormula = cell.getSharedFormula();
+                if (sharedFormula != null) {
+                    // The template is parsed once and the references are shifted for each cell
+                    if (!sharedExpressions.containsKey(sharedFormula)) {
+                        sharedExpressions.put(sharedFormula, FormulaParser.parse(sharedFormula.getFormula()));
+                    }
+                    expression = sharedExpressions.get(sharedFormula);
+                    if (expression != null) {
+                        expression = expression.shift(cell.getColumnNumber() - sharedFormula.getRange().StartAddress.Column,
+                                cell.getRowNumber() - sharedFormula.getRange().StartAddress.Row);
+                    }
+                } else {
+                    expression = FormulaParser.parse(cell.getValue() == null ? null : cell.getValue().toString());
+                }
+                node = new Node(worksheet, cell, expression);
+                sheetNodes.put(getKey(cell.getColumnNumber(), cell.getRowNumber()), node);
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Determines the dependencies between the formula nodes
+     *
+     * @param nodes List of all formula nodes
+     */
+    private void linkNodes(List<Node> nodes) {
+        List<FormulaExpression.Reference> references = new ArrayList<>();
+        int stamp = 0;
+        for (Node node : nodes) {
+            if (node.expression == null) {
+                continue;
+            }
+            references.clear();
+            stamp++; // A dependency is linked only once per node (e.g. if several references overlap)
+            node.expression.collectReferences(references);
+            for (FormulaExpression.Reference reference : references) {
+                Worksheet target = this.resolveWorksheet(reference.sheetName, node.worksheet);
+                if (target == null) {
+                    continue;
+                }
+                TreeMap<Long, Node> sheetNodes = this.formulaNodes.get(target);
+                for (int column = reference.startColumn; column <= reference.endColumn; column++) {
+                    for (Node dependency : sheetNodes.subMap(getKey(column, reference.startRow), true, getKey(column, reference.endRow), true).values()) {
+                        if (dependency.stamp != stamp) {
+                            dependency.stamp = stamp;
+                            dependency.dependents.add(node);
+                            node.pending++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates one formula node. All dependencies are already evaluated
+     *
+     * @param node Node to evaluate
+     */
+    private void evaluateNode(Node node) {
+        if (!node.supported) {
+            return;
+        }
+        Object value;
+        try {
+            value = this.dereference(node.expression.evaluate(this, node.worksheet));
+        } catch (RuntimeException e) {
+            node.supported = false; // e.g. invalid date values in referenced cells
+            return;
+        }
+        if (value == null) {
+            value = 0d; // A formula referencing a blank cell results in 0
+        } else if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+            value = FormulaError.NUM;
+        }
+        node.value = value;
+        node.evaluated = true;
+    }
+
+    /**
+     * Resolves the worksheet of a reference
+     *
+     * @param sheetName Name of the worksheet or null for the current worksheet
+     * @param current   Worksheet of the formula cell
+     * @return Worksheet or null if not existing
+     */
+    Worksheet resolveWorksheet(String sheetName, Worksheet current) {
+        if (sheetName == null) {
+            return current;
+        }
+        return this.worksheetsByName.get(sheetName.toUpperCase());
+    }
+
+    /**
+     * Resolves an area to the value of its cell, if the area is a single cell (implicit dereferencing of a reference)
+     *
+     * @param value Evaluated value
+     * @return Scalar value. A multi-cell area results in #VALUE!
+     */
+    Object dereference(Object value) {
+        if (!(value instanceof FormulaExpression.Area)) {
+            return value;
+        }
+        FormulaExpression.Area area = (FormulaExpression.Area) value;
+        if (!area.isSingleCell()) {
+            return FormulaError.VALUE;
+        }
+        return this.getCellValue(area.worksheet, area.startColumn, area.startRow);
+    }
+
+    /**
+     * Gets the value of a cell
+     *
+     * @param worksheet Worksheet of the cell
+     * @param column    Column number (zero-based)
+     * @param row       Row number (zero-based)
+     * @return Value of the cell (Double, Boolean, String, FormulaError) or null if blank
+     */
+    private Object getCellValue(Worksheet worksheet, int column, int row) {
+        Cell cell = worksheet.getCells().get(Cell.resolveCellAddress(column, row));
+        if (cell == null) {
+            return null;
+        }
+        return this.getCellValue(worksheet, cell);
+    }
+
+    /**
+     * Gets the value of a cell
+     *
+     * @param worksheet Worksheet of the cell
+     * @param cell      Cell
+     * @return Value of the cell (Double, Boolean, String, FormulaError) or null if blank
+     * @throws UnsupportedOperationException Thrown if the cell is a formula that is not evaluated (mapped cell store). The referencing formula is not evaluated as well
+     */
+    private Object getCellValue(Worksheet worksheet, Cell cell) {
+        if (cell.getDataType() == Cell.CellType.FORMULA) {
+            Node node = this.formulaNodes.get(worksheet).get(getKey(cell.getColumnNumber(), cell.getRowNumber()));
+            if (node == null) {
+                throw new UnsupportedOperationException("The formula of the cell " + cell.getCellAddress() + " in the worksheet " + worksheet.getSheetName() + " is not evaluated");
+            }
+            return node.value;
+        }
+        if (cell.getDataType() == Cell.CellType.EMPTY) {
+            return null;
+        }
+        Object value = cell.getValue();
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean || value == null) {
+            return value;
+        } else if (value instanceof Date) {
+            return Double.parseDouble(Helper.getOADateTimeString((Date) value));
+        } else if (value instanceof LocalTime) {
+            return Double.parseDouble(Helper.getOATimeString((LocalTime) value));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Calls a function
+     *
+     * @param name      Name of the function (upper case)
+     * @param arguments Arguments of the function
+     * @param worksheet Worksheet of the formula cell
+     * @return Result of the function
+     */
+    Object callFunction(String name, FormulaExpression[] arguments, Worksheet worksheet) {
+        switch (name) {
+            case "SUM":
+            case "AVERAGE":
+            case "MIN":
+            case "MAX":
+            case "MEDIAN":
+                return this.aggregate(name, arguments, worksheet);
+            case "ROUND":
+                return this.round(arguments, worksheet, RoundingMode.HALF_UP);
+            case "ROUNDUP":
+                return this.round(arguments, worksheet, RoundingMode.UP);
+            case "ROUNDDOWN":
+                return this.round(arguments, worksheet, RoundingMode.DOWN);
+            case "VLOOKUP":
+                return this.vLookup(arguments, worksheet);
+            default:
+                return FormulaError.VALUE; // Not reachable, validated by the parser
+        }
+    }
+
+    /**
+     * Evaluates an aggregate function (SUM, AVERAGE, MIN, MAX or MEDIAN). Text, booleans and blank cells in ranges are ignored
+     *
+     * @param name      Name of the function
+     * @param arguments Arguments of the function
+     * @param worksheet Worksheet of the formula cell
+     * @return Result of the function
+     */
+    private Object aggregate(String name, FormulaExpression[] arguments, Worksheet worksheet) {
+        Accumulator accumulator = new Accumulator(name.equals("MEDIAN"));
+        Object value;
+        FormulaError error;
+        for (FormulaExpression argument : arguments) {
+            value = argument.evaluate(this, worksheet);
+            if (value instanceof FormulaExpression.Area) {
+                error = this.accumulate((FormulaExpression.Area) value, accumulator);
+                if (error != null) {
+                    return error;
+                }
+                continue;
+            }
+            if (value == null) {
+                continue;
+            }
+            value = toNumber(value);
+            if (value instanceof FormulaError) {
+                return value;
+            }
+            accumulator.add((Double) value);
+        }
+        switch (name) {
+            case "SUM":
+                return accumulator.sum;
+            case "AVERAGE":
+                return accumulator.count == 0 ? FormulaError.DIV0 : accumulator.sum / accumulator.count;
+            case "MIN":
+                return accumulator.count == 0 ? 0d : accumulator.min;
+            case "MAX":
+                return accumulator.count == 0 ? 0d : accumulator.max;
+            default:
+                return accumulator.count == 0 ? FormulaError.NUM : accumulator.median();
+        }
+    }
+
+    /**
+     * Adds all numeric cell values of an area to an accumulator
+     *
+     * @param area        Area to process
+     * @param accumulator Accumulator
+     * @return Error, if a cell of the area contains an error, otherwise null
+     */
+    private FormulaError accumulate(FormulaExpression.Area area, Accumulator accumulator) {
+        Object value;
+        if (area.size() <= area.worksheet.getCells().size()) {
+            for (int row = area.startRow; row <= area.endRow; row++) {
+                for (int column = area.startColumn; column <= area.endColumn; column++) {
+                    value = this.getCellValue(area.worksheet, column, row);
+                    if (value instanceof Double) {
+                        accumulator.add((Double) value);
+                    } else if (value instanceof FormulaError) {
+                        return (FormulaError) value;
+                    }
+                }
+            }
+        } else {
+            // Sparse area (e.g. whole columns): only the existing cells are visited
+            for (Cell cell : area.worksheet.getCells().values()) {
+                if (cell.getColumnNumber() < area.startColumn || cell.getColumnNumber() > area.endColumn
+                        || cell.getRowNumber() < area.startRow || cell.getRowNumber() > area.endRow) {
+                    continue;
+                }
+                value = this.getCellValue(area.worksheet, cell);
+                if (value instanceof Double) {
+                    accumulator.add((Double) value);
+                } else if (value instanceof FormulaError) {
+                    return (FormulaError) value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates ROUND, ROUNDUP or ROUNDDOWN
+     *
+     * @param arguments Arguments of the function (number and digits)
+     * @param worksheet Worksheet of the formula cell
+     * @param mode      Rounding mode (HALF_UP, UP and DOWN are away from / towards zero, like in Excel)
+     * @return Result of the function
+     */
+    private Object round(FormulaExpression[] arguments, Worksheet worksheet, RoundingMode mode) {
+        Object number = toNumber(this.dereference(arguments[0].evaluate(this, worksheet)));
+        if (number instanceof FormulaError) {
+            return number;
+        }
+        Object digits = toNumber(this.dereference(arguments[1].evaluate(this, worksheet)));
+        if (digits instanceof FormulaError) {
+            return digits;
+        }
+        double value = (Double) number;
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return FormulaError.NUM;
+        }
+        return BigDecimal.valueOf(value).setScale((int) (double) (Double) digits, mode).doubleValue();
+    }
+
+    /**
+     * Evaluates VLOOKUP. The optional fourth argument defines, like in Excel, an approximate match if true or omitted (sorted first column) and an exact match if false
+     *
+     * @param arguments Arguments of the function (lookup value, table, column index and optional range lookup)
+     * @param worksheet Worksheet of the formula cell
+     * @return Result of the function
+     */
+    private Object vLookup(FormulaExpression[] arguments, Worksheet worksheet) {
+        Object lookup = this.dereference(arguments[0].evaluate(this, worksheet));
+        if (lookup instanceof FormulaError) {
+            return lookup;
+        }
+        if (lookup == null) {
+            return FormulaError.NA;
+        }
+        Object table = arguments[1].evaluate(this, worksheet);
+        if (table instanceof FormulaError) {
+            return table;
+        }
+        if (!(table instanceof FormulaExpression.Area)) {
+            return FormulaError.VALUE;
+        }
+        Object index = toNumber(this.dereference(arguments[2].evaluate(this, worksheet)));
+        if (index instanceof FormulaError) {
+            return index;
+        }
+        boolean approximate = true;
+        if (arguments.length > 3) {
+            Object rangeLookup = toNumber(this.dereference(arguments[3].evaluate(this, worksheet)));
+            if (rangeLookup instanceof FormulaError) {
+                return rangeLookup;
+            }
+            approximate = (Double) rangeLookup != 0d;
+        }
+        FormulaExpression.Area area = (FormulaExpression.Area) table;
+        int column = (int) (double) (Double) index;
+        if (column < 1) {
+            return FormulaError.VALUE;
+        }
+        if (column > area.endColumn - area.startColumn + 1) {
+            return FormulaError.REF;
+        }
+        int match = -1;
+        Object value;
+        int comparison;
+        for (int row = area.startRow; row <= area.endRow; row++) {
+            value = this.getCellValue(area.worksheet, area.startColumn, row);
+            if (value == null || value.getClass() != lookup.getClass()) {
+                continue;
+            }
+            comparison = compareSameType(value, lookup);
+            if (comparison == 0 && !approximate) {
+                match = row;
+                break;
+            }
+            if (approximate) {
+                if (comparison > 0) {
+                    break;
+                }
+                match = row;
+            }
+        }
+        if (match < 0) {
+            return FormulaError.NA;
+        }
+        value = this.getCellValue(area.worksheet, area.startColumn + column - 1, match);
+        return value == null ? 0d : value;
+    }
+
+    /**
+     * Applies a binary operator on two scalar values
+     *
+     * @param operator Operator
+     * @param left     Left operand
+     * @param right    Right operand
+     * @return Result of the operation
+     */
+    static Object operate(String operator, Object left, Object right) {
+        if (left instanceof FormulaError) {
+            return left;
+        }
+        if (right instanceof FormulaError) {
+            return right;
+        }
+        switch (operator) {
+            case "&":
+                return toText(left) + toText(right);
+            case "=":
+                return compare(left, right) == 0;
+            case "<>":
+                return compare(left, right) != 0;
+            case "<":
+                return compare(left, right) < 0;
+            case ">":
+                return compare(left, right) > 0;
+            case "<=":
+                return compare(left, right) <= 0;
+            case ">=":
+                return compare(left, right) >= 0;
+            default:
+                break;
+        }
+        Object l = toNumber(left);
+        if (l instanceof FormulaError) {
+            return l;
+        }
+        Object r = toNumber(right);
+        if (r instanceof FormulaError) {
+            return r;
+        }
+        double a = (Double) l;
+        double b = (Double) r;
+        switch (operator) {
+            case "+":
+                return a + b;
+            case "-":
+                return a - b;
+            case "*":
+                return a * b;
+            case "/":
+                return b == 0d ? FormulaError.DIV0 : a / b;
+            default: // ^
+                double result = Math.pow(a, b);
+                return Double.isNaN(result) || Double.isInfinite(result) ? FormulaError.NUM : result;
+        }
+    }
+
+    /**
+     * Converts a scalar value into a number (blank = 0, TRUE = 1, FALSE = 0, numeric text is parsed)
+     *
+     * @param value Value to convert
+     * @return Double or FormulaError
+     */
+    static Object toNumber(Object value) {
+        if (value == null) {
+            return 0d;
+        } else if (value instanceof Double || value instanceof FormulaError) {
+            return value;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1d : 0d;
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return FormulaError.VALUE;
+        }
+    }
+
+    /**
+     * Converts a scalar value into text, like Excel with the general number format (15 significant digits)
+     *
+     * @param value Value to convert
+     * @return Text
+     */
+    static String toText(Object value) {
+        if (value == null) {
+            return "";
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? "TRUE" : "FALSE";
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == Math.rint(d) && Math.abs(d) < 1e15) {
+                return Long.toString((long) d);
+            }
+            return new BigDecimal(d).round(new MathContext(15)).stripTrailingZeros().toPlainString();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Compares two scalar values like Excel (numbers &lt; text &lt; booleans, text is compared case-insensitive, blank is 0 or empty text)
+     *
+     * @param left  Left value
+     * @param right Right value
+     * @return Comparison result
+     */
+    private static int compare(Object left, Object right) {
+        if (left == null) {
+            left = right instanceof String ? "" : right instanceof Boolean ? Boolean.FALSE : (Object) 0d;
+        }
+        if (right == null) {
+            right = left instanceof String ? "" : left instanceof Boolean ? Boolean.FALSE : (Object) 0d;
+        }
+        int l = getTypeRank(left);
+        int r = getTypeRank(right);
+        if (l != r) {
+            return Integer.compare(l, r);
+        }
+        return compareSameType(left, right);
+    }
+
+    /**
+     * Compares two values of the same type (Double, String or Boolean)
+     *
+     * @param left  Left value
+     * @param right Right value
+     * @return Comparison result
+     */
+    private static int compareSameType(Object left, Object right) {
+        if (left instanceof Double) {
+            return Double.compare((Double) left, (Double) right);
+        } else if (left instanceof String) {
+            return ((String) left).compareToIgnoreCase((String) right);
+        }
+        return Boolean.compare((Boolean) left, (Boolean) right);
+    }
+
+    private static int getTypeRank(Object value) {
+        if (value instanceof Double) {
+            return 0;
+        } else if (value instanceof String) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * Gets the key of a cell in the ordered map of formula nodes (column-major order)
+     *
+     * @param column Column number (zero-based)
+     * @param row    Row number (zero-based)
+     * @return Key
+     */
+    private static long getKey(int column, int row) {
+        return ((long) column << ROW_BITS) | row;
+    }
+
+// ### S U B C L A S S E S ###
+
+    /**
+     * Class representing a formula cell in the dependency graph
+     */
+    private static class Node {
+        private final Cell cell;
+        private final List<Node> dependents;
+        private final FormulaExpression expression;
+        private boolean evaluated;
+        private int pending;
+        private int stamp;
+        private boolean supported;
+        private Object value;
+        private final Worksheet worksheet;
+
+        Node(Worksheet worksheet, Cell cell, FormulaExpression expression) {
+            this.worksheet = worksheet;
+            this.cell = cell;
+            this.expression = expression;
+            this.dependents = new ArrayList<>();
+            this.supported = expression != null;
+        }
+    }
+
+    /**
+     * Class representing an accumulator of numbers for the aggregate functions
+     */
+    private static class Accumulator {
+        private int count;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double min = Double.POSITIVE_INFINITY;
+        private double sum;
+        private double[] values;
+
+        Accumulator(boolean keepValues) {
+            if (keepValues) {
+                this.values = new double[16];
+            }
+        }
+
+        void add(double value) {
+            if (this.values != null) {
+                if (this.count == this.values.length) {
+                    this.values = Arrays.copyOf(this.values, this.count << 1);
+                }
+                this.values[this.count] = value;
+            }
+            this.count++;
+            this.sum += value;
+            this.min = Math.min(this.min, value);
+            this.max = Math.max(this.max, value);
+        }
+
+        double median() {
+            double[] sorted = Arrays.copyOf(this.values, this.count);
+            Arrays.sort(sorted);
+            int middle = this.count / 2;
+            if (this.count % 2 == 1) {
+                return sorted[middle];
+            }
+            return (sorted[middle - 1] + sorted[middle]) / 2d;
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Worksheet;
+
+import java.util.List;
+
+/**
+ * Class representing a node of a parsed formula (expression tree). The results of an evaluation are Double, Boolean, String,
+ * FormulaError, null (blank cell) or Area (unresolved range reference)
+ * @author Raphael Stoeckli
+ */
+abstract class FormulaExpression {
+
+// ### M E T H O D S ###
+
+    /**
+     * Evaluates the expression
+     *
+     * @param evaluator Evaluator, providing cell values and functions
+     * @param worksheet Worksheet of the formula cell
+     * @return Result of the expression
+     */
+    abstract Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet);
+
+    /**
+     * Creates a copy of the expression with shifted relative references (used for shared formulas)
+     *
+     * @param columnOffset Number of columns to shift
+     * @param rowOffset    Number of rows to shift
+     * @return Shifted expression. Expressions without references may return themselves
+     */
+    abstract FormulaExpression shift(int columnOffset, int rowOffset);
+
+    /**
+     * Adds all references of the expression to the passed list
+     *
+     * @param references List to fill
+     */
+    abstract void collectReferences(List<Reference> references);
+
+// ### S U B C L A S S E S ###
+
+    /**
+     * Class representing a constant (number, string, boolean or error)
+     */
+    static class Constant extends FormulaExpression {
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet) {
+            return this.value;
+        }
+
+        @Override
+        FormulaExpression shift(int columnOffset, int rowOffset) {
+            return this;
+        }
+
+        @Override
+        void collectReferences(List<Reference> references) {
+            // No references
+        }
+    }
+
+    /**
+     * Class representing a cell or range reference with an optional worksheet name
+     */
+    static class Reference extends FormulaExpression {
+        final String sheetName;
+        final int startColumn;
+        final int startRow;
+        final int endColumn;
+        final int endRow;
+        private final boolean[] fixed; // startColumn, startRow, endColumn, endRow
+
+        Reference(String sheetName, int startColumn, int startRow, int endColumn, int endRow, boolean[] fixed) {
+            this.sheetName = sheetName;
+            this.startColumn = Math.min(startColumn, endColumn);
+            this.startRow = Math.min(startRow, endRow);
+            this.endColumn = Math.max(startColumn, endColumn);
+            this.endRow = Math.max(startRow, endRow);
+            this.fixed = fixed;
+        }
+
+        @Override
+        Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet) {
+            Worksheet target = evaluator.resolveWorksheet(this.sheetName, worksheet);
+            if (target == null) {
+                return FormulaError.REF;
+            }
+            return new Area(target, this.startColumn, this.startRow, this.endColumn, this.endRow);
+        }
+
+        @Override
+        FormulaExpression shift(int columnOffset, int rowOffset) {
+            int c1 = this.fixed[0] ? this.startColumn : this.startColumn + columnOffset;
+            int r1 = this.fixed[1] ? this.startRow : this.startRow + rowOffset;
+            int c2 = this.fixed[2] ? this.endColumn : this.endColumn + columnOffset;
+            int r2 = this.fixed[3] ? this.endRow : this.endRow + rowOffset;
+            if (Math.min(c1, c2) < Worksheet.MIN_COLUMN_NUMBER || Math.max(c1, c2) > Worksheet.MAX_COLUMN_NUMBER
+                    || Math.min(r1, r2) < Worksheet.MIN_ROW_NUMBER || Math.max(r1, r2) > Worksheet.MAX_ROW_NUMBER) {
+                return new Constant(FormulaError.REF);
+            }
+            return new Reference(this.sheetName, c1, r1, c2, r2, this.fixed);
+        }
+
+        @Override
+        void collectReferences(List<Reference> references) {
+            references.add(this);
+        }
+    }
+
+    /**
+     * Class representing a unary minus or plus
+     */
+    static class Unary extends FormulaExpression {
+        private final boolean negate;
+        private final FormulaExpression operand;
+
+        Unary(boolean negate, FormulaExpression operand) {
+            this.negate = negate;
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet) {
+            Object value = FormulaEvaluator.toNumber(evaluator.dereference(this.operand.evaluate(evaluator, worksheet)));
+            if (value instanceof FormulaError || !this.negate) {
+                return value;
+            }
+            return -((Double) value);
+        }
+
+        @Override
+        FormulaExpression shift(int columnOffset, int rowOffset) {
+            return new Unary(this.negate, this.operand.shift(columnOffset, rowOffset));
+        }
+
+        @Override
+        void collectReferences(List<Reference> references) {
+            this.operand.collectReferences(references);
+        }
+    }
+
+    /**
+     * Class representing a binary operation (arithmetic, concatenation or comparison)
+     */
+    static class Binary extends FormulaExpression {
+        private final String operator;
+        private final FormulaExpression left;
+        private final FormulaExpression right;
+
+        Binary(String operator, FormulaExpression left, FormulaExpression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet) {
+            Object l = evaluator.dereference(this.left.evaluate(evaluator, worksheet));
+            Object r = evaluator.dereference(this.right.evaluate(evaluator, worksheet));
+            return FormulaEvaluator.operate(this.operator, l, r);
+        }
+
+        @Override
+        FormulaExpression shift(int columnOffset, int rowOffset) {
+            return new Binary(this.operator, this.left.shift(columnOffset, rowOffset), this.right.shift(columnOffset, rowOffset));
+        }
+
+        @Override
+        void collectReferences(List<Reference> references) {
+            this.left.collectReferences(references);
+            this.right.collectReferences(references);
+        }
+    }
+
+    /**
+     * Class representing a function call
+     */
+    static class Function extends FormulaExpression {
+        private final String name;
+        private final FormulaExpression[] arguments;
+
+        Function(String name, FormulaExpression[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Object evaluate(FormulaEvaluator evaluator, Worksheet worksheet) {
+            return evaluator.callFunction(this.name, this.arguments, worksheet);
+        }
+
+        @Override
+        FormulaExpression shift(int columnOffset, int rowOffset) {
+            FormulaExpression[] shifted = new FormulaExpression[this.arguments.length];
+            for (int i = 0; i < shifted.length; i++) {
+                shifted[i] = this.arguments[i].shift(columnOffset, rowOffset);
+            }
+            return new Function(this.name, shifted);
+        }
+
+        @Override
+        void collectReferences(List<Reference> references) {
+            for (FormulaExpression argument : this.arguments) {
+                argument.collectReferences(references);
+            }
+        }
+    }
+
+    /**
+     * Class representing a resolved range of cells on a worksheet (result of a reference)
+     */
+    static class Area {
+        final Worksheet worksheet;
+        final int startColumn;
+        final int startRow;
+        final int endColumn;
+        final int endRow;
+
+        Area(Worksheet worksheet, int startColumn, int startRow, int endColumn, int endRow) {
+            this.worksheet = worksheet;
+            this.startColumn = startColumn;
+            this.startRow = startRow;
+            this.endColumn = endColumn;
+            this.endRow = endRow;
+        }
+
+        /**
+         * Gets whether the area is a single cell
+         *
+         * @return True if one cell
+         */
+        boolean isSingleCell() {
+            return this.startColumn == this.endColumn && this.startRow == this.endRow;
+        }
+
+        /**
+         * Gets the number of cells of the area
+         *
+         * @return Number of cells
+         */
+        long size() {
+            return (long) (this.endColumn - this.startColumn + 1) * (long) (this.endRow - this.startRow + 1);
+        }
+    }
+
+}
@@ -0,0 +1,386 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Worksheet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class representing a recursive descent parser for the formula subset that can be evaluated (arithmetic, comparison, concatenation,
+ * cell and range references and the functions of BasicFormulas). Formulas with other functions or names are not supported
+ * @author Raphael Stoeckli
+ */
+class FormulaParser {
+
+// ### C O N S T A N T S ###
+    /**
+     * Names of the supported functions
+     */
+    static final Set<String> FUNCTIONS = new HashSet<>(Arrays.asList("SUM", "AVERAGE", "MIN", "MAX", "MEDIAN", "ROUND", "ROUNDUP", "ROUNDDOWN", "VLOOKUP"));
+
+// ### P R I V A T E  F I E L D S ###
+    private final String formula;
+    private int position;
+
+// ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with formula
+     *
+     * @param formula Formula to parse (with or without leading equal sign)
+     */
+    private FormulaParser(String formula) {
+        this.formula = formula;
+        this.position = 0;
+    }
+
+// ### M E T H O D S ###
+
+    /**
+     * Parses a formula
+     *
+     * @param formula Formula to parse
+     * @return Expression tree or null if the formula is malformed or contains unsupported elements
+     */
+    static FormulaExpression parse(String formula) {
+        if (formula == null) {
+            return null;
+        }
+        FormulaParser parser = new FormulaParser(formula);
+        try {
+            parser.skipWhitespace();
+            if (parser.peek() == '=') {
+                parser.position++;
+            }
+            FormulaExpression expression = parser.parseComparison();
+            parser.skipWhitespace();
+            if (parser.position != formula.length()) {
+                return null;
+            }
+            return expression;
+        } catch (UnsupportedFormulaException e) {
+            return null;
+        }
+    }
+
+    private FormulaExpression parseComparison() {
+        FormulaExpression left = this.parseConcatenation();
+        String operator;
+        while (true) {
+            this.skipWhitespace();
+            char c = this.peek();
+            if (c == '=') {
+                operator = "=";
+            } else if (c == '<' && this.peek(1) == '>') {
+                operator = "<>";
+            } else if (c == '<' && this.peek(1) == '=') {
+                operator = "<=";
+            } else if (c == '>' && this.peek(1) == '=') {
+                operator = ">=";
+            } else if (c == '<' || c == '>') {
+                operator = Character.toString(c);
+            } else {
+                return left;
+            }
+            this.position += operator.length();
+            left = new FormulaExpression.Binary(operator, left, this.parseConcatenation());
+        }
+    }
+
+    private FormulaExpression parseConcatenation() {
+        FormulaExpression left = this.parseAdditive();
+        while (this.accept('&')) {
+            left = new FormulaExpression.Binary("&", left, this.parseAdditive());
+        }
+        return left;
+    }
+
+    private FormulaExpression parseAdditive() {
+        FormulaExpression left = this.parseMultiplicative();
+        while (true) {
+            if (this.accept('+')) {
+                left = new FormulaExpression.Binary("+", left, this.parseMultiplicative());
+            } else if (this.accept('-')) {
+                left = new FormulaExpression.Binary("-", left, this.parseMultiplicative());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private FormulaExpression parseMultiplicative() {
+        FormulaExpression left = this.parsePower();
+        while (true) {
+            if (this.accept('*')) {
+                left = new FormulaExpression.Binary("*", left, this.parsePower());
+            } else if (this.accept('/')) {
+                left = new FormulaExpression.Binary("/", left, this.parsePower());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private FormulaExpression parsePower() {
+        FormulaExpression left = this.parseUnary(); // Like in Excel, the unary minus has precedence over the power operator
+        while (this.accept('^')) {
+            left = new FormulaExpression.Binary("^", left, this.parseUnary());
+        }
+        return left;
+    }
+
+    private FormulaExpression parseUnary() {
+        if (this.accept('-')) {
+            return new FormulaExpression.Unary(true, this.parseUnary());
+        }
+        if (this.accept('+')) {
+            return new FormulaExpression.Unary(false, this.parseUnary());
+        }
+        return this.parsePrimary();
+    }
+
+    private FormulaExpression parsePrimary() {
+        this.skipWhitespace();
+        char c = this.peek();
+        if (c == '(') {
+            this.position++;
+            FormulaExpression expression = this.parseComparison();
+            this.expect(')');
+            return expression;
+        }
+        if (c == '"') {
+            return new FormulaExpression.Constant(this.readString());
+        }
+        if (Character.isDigit(c) || c == '.') {
+            return new FormulaExpression.Constant(this.readNumber());
+        }
+        if (c == '\'') {
+            String sheetName = this.readQuotedSheetName();
+            this.expect('!');
+            return this.parseReference(sheetName);
+        }
+        if (c == '$') {
+            return this.parseReference(null);
+        }
+        if (isNameStart(c)) {
+            int start = this.position;
+            while (this.position < this.formula.length() && isNamePart(this.formula.charAt(this.position))) {
+                this.position++;
+            }
+            String name = this.formula.substring(start, this.position);
+            if (this.peek() == '!') {
+                this.position++;
+                return this.parseReference(name);
+            }
+            this.skipWhitespace();
+            if (this.peek() == '(') {
+                this.position++;
+                return this.parseFunction(name.toUpperCase());
+            }
+            if (name.equalsIgnoreCase("TRUE")) {
+                return new FormulaExpression.Constant(Boolean.TRUE);
+            }
+            if (name.equalsIgnoreCase("FALSE")) {
+                return new FormulaExpression.Constant(Boolean.FALSE);
+            }
+            this.position = start;
+            return this.parseReference(null);
+        }
+        throw new UnsupportedFormulaException();
+    }
+
+    private FormulaExpression parseFunction(String name) {
+        if (!FUNCTIONS.contains(name)) {
+            throw new UnsupportedFormulaException();
+        }
+        List<FormulaExpression> arguments = new ArrayList<>();
+        this.skipWhitespace();
+        if (!this.accept(')')) {
+            do {
+                arguments.add(this.parseComparison());
+            } while (this.accept(','));
+            this.expect(')');
+        }
+        int count = arguments.size();
+        boolean valid;
+        switch (name) {
+            case "ROUND":
+            case "ROUNDUP":
+            case "ROUNDDOWN":
+                valid = count == 2;
+                break;
+            case "VLOOKUP":
+                valid = count == 3 || count == 4;
+                break;
+            default:
+                valid = count > 0;
+        }
+        if (!valid) {
+            throw new UnsupportedFormulaException();
+        }
+        return new FormulaExpression.Function(name, arguments.toArray(new FormulaExpression[0]));
+    }
+
+    private FormulaExpression parseReference(String sheetName) {
+        boolean[] fixed = new boolean[4];
+        int[] start = this.readCellAddress(fixed, 0);
+        int[] end = start;
+        if (this.peek() == ':') {
+            this.position++;
+            end = this.readCellAddress(fixed, 2);
+        } else {
+            fixed[2] = fixed[0];
+            fixed[3] = fixed[1];
+        }
+        return new FormulaExpression.Reference(sheetName, start[0], start[1], end[0], end[1], fixed);
+    }
+
+    private int[] readCellAddress(boolean[] fixed, int fixedIndex) {
+        if (this.accept('$')) {
+            fixed[fixedIndex] = true;
+        }
+        int column = 0;
+        int letters = 0;
+        char c;
+        while (this.position < this.formula.length() && Character.isLetter(c = this.formula.charAt(this.position)) && letters < 3) {
+            column = column * 26 + (Character.toUpperCase(c) - 'A' + 1);
+            letters++;
+            this.position++;
+        }
+        if (this.peek() == '$') {
+            fixed[fixedIndex + 1] = true;
+            this.position++;
+        }
+        int row = 0;
+        int digits = 0;
+        while (this.position < this.formula.length() && Character.isDigit(c = this.formula.charAt(this.position)) && digits < 7) {
+            row = row * 10 + (c - '0');
+            digits++;
+            this.position++;
+        }
+        if (letters == 0 || digits == 0 || isNamePart(this.peek()) || column - 1 > Worksheet.MAX_COLUMN_NUMBER || row < 1 || row - 1 > Worksheet.MAX_ROW_NUMBER) {
+            throw new UnsupportedFormulaException(); // Defined names, whole columns / rows and invalid addresses
+        }
+        return new int[]{column - 1, row - 1};
+    }
+
+    private String readString() {
+        StringBuilder sb = new StringBuilder();
+        this.position++;
+        while (this.position < this.formula.length()) {
+            char c = this.formula.charAt(this.position);
+            this.position++;
+            if (c == '"') {
+                if (this.peek() == '"') {
+                    sb.append('"');
+                    this.position++;
+                    continue;
+                }
+                return sb.toString();
+            }
+            sb.append(c);
+        }
+        throw new UnsupportedFormulaException();
+    }
+
+    private String readQuotedSheetName() {
+        StringBuilder sb = new StringBuilder();
+        this.position++;
+        while (this.position < this.formula.length()) {
+            char c = this.formula.charAt(this.position);
+            this.position++;
+            if (c == '\'') {
+                if (this.peek() == '\'') {
+                    sb.append('\'');
+                    this.position++;
+                    continue;
+                }
+                return sb.toString();
+            }
+            sb.append(c);
+        }
+        throw new UnsupportedFormulaException();
+    }
+
+    private Double readNumber() {
+        int start = this.position;
+        while (Character.isDigit(this.peek()) || this.peek() == '.') {
+            this.position++;
+        }
+        if (this.peek() == 'E' || this.peek() == 'e') {
+            this.position++;
+            if (this.peek() == '+' || this.peek() == '-') {
+                this.position++;
+            }
+            while (Character.isDigit(this.peek())) {
+                this.position++;
+            }
+        }
+        try {
+            return Double.valueOf(this.formula.substring(start, this.position));
+        } catch (NumberFormatException e) {
+            throw new UnsupportedFormulaException();
+        }
+    }
+
+    private boolean accept(char c) {
+        this.skipWhitespace();
+        if (this.peek() == c) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!this.accept(c)) {
+            throw new UnsupportedFormulaException();
+        }
+    }
+
+    private char peek() {
+        return this.peek(0);
+    }
+
+    private char peek(int offset) {
+        int index = this.position + offset;
+        return index < this.formula.length() ? this.formula.charAt(index) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.formula.length() && Character.isWhitespace(this.formula.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+// ### S U B C L A S S E S ###
+
+    /**
+     * Exception to abort the parsing of a malformed or unsupported formula
+     */
+    private static class UnsupportedFormulaException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedFormulaException() {
+            super(null, null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing a reusable context for the generation of many (small) workbooks. The context keeps the XML parser, the XML transformer, the deflater and the buffers
+ * of a save process for the next one, and caches the serialized documents of static parts (e.g. relationships, content types or the style sheet of the default styles).<br>
+ * A context is not thread-safe and can only be used by one save process at a time. Use {@link #current()} for a context that is bound to the current (platform) thread.
+ * Virtual threads are usually not reused, so their contexts should be taken from a pool (e.g. a blocking queue) and passed explicitly
+ * @author Raphael Stoeckli
+ */
+public class GenerationContext {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Maximum number of cached parts. The least recently used part is removed if the limit is exceeded
+     */
+    public static final int MAX_CACHED_PARTS = 64;
+    /**
+     * Maximum length (characters of the raw XML string) of a cached part
+     */
+    public static final int MAX_CACHED_PART_LENGTH = 65536;
+    /**
+     * Maximum capacity (characters or bytes) of a buffer that is kept for the next save process. Larger buffers are discarded to release the memory
+     */
+    private static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+    private static final int INITIAL_CAPACITY = 16384;
+    private static final ThreadLocal<GenerationContext> CURRENT = ThreadLocal.withInitial(GenerationContext::new);
+
+    // ### P R I V A T E  F I E L D S ###
+    private final Map<String, byte[]> cachedParts;
+    private final AtomicBoolean inUse;
+    private DocumentBuilder documentBuilder;
+    private Transformer transformer;
+    private Deflater deflater;
+    private StringBuilder builder;
+    private ReusableByteStream byteStream;
+    private long cacheHits;
+    private long cacheMisses;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the number of parts that were taken from the cache
+     *
+     * @return Number of cache hits
+     */
+    public long getCacheHits() {
+        return this.cacheHits;
+    }
+
+    /**
+     * Gets the number of cacheable parts that had to be parsed and serialized
+     *
+     * @return Number of cache misses
+     */
+    public long getCacheMisses() {
+        return this.cacheMisses;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Default constructor. The parser, transformer and deflater are created on first use
+     */
+    public GenerationContext() {
+        this.inUse = new AtomicBoolean();
+        this.cachedParts = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return this.size() > MAX_CACHED_PARTS;
+            }
+        };
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Gets the context of the current thread. The context is created on first use and kept as long as the thread exists
+     *
+     * @return Generation context of the current thread
+     */
+    public static GenerationContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Releases the deflater and the buffers and clears the cache. The context can still be used afterwards
+     */
+    public void clear() {
+        if (this.deflater != null) {
+            this.deflater.end();
+            this.deflater = null;
+        }
+        this.builder = null;
+        this.byteStream = null;
+        this.cachedParts.clear();
+    }
+
+    /**
+     * Marks the context as used by a save process
+     *
+     * @return True if the context was free, false if it is already used by another save process
+     */
+    boolean acquire() {
+        return this.inUse.compareAndSet(false, true);
+    }
+
+    /**
+     * Marks the context as free after a save process
+     */
+    void release() {
+        this.inUse.set(false);
+    }
+
+    /**
+     * Gets the reusable document builder (reset)
+     *
+     * @return Document builder
+     * @throws Exception Thrown if the document builder could not be created
+     */
+    DocumentBuilder getDocumentBuilder() throws Exception {
+        if (this.documentBuilder == null) {
+            this.documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } else {
+            this.documentBuilder.reset();
+        }
+        return this.documentBuilder;
+    }
+
+    /**
+     * Gets the reusable deflater (reset, raw deflate data as used in ZIP entries)
+     *
+     * @return Deflater
+     */
+    Deflater getDeflater() {
+        if (this.deflater == null) {
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        } else {
+            this.deflater.reset();
+        }
+        return this.deflater;
+    }
+
+    /**
+     * Gets the reusable string builder (emptied)
+     *
+     * @return String builder
+     */
+    StringBuilder getBuilder() {
+        if (this.builder == null || this.builder.capacity() > MAX_RETAINED_CAPACITY) {
+            this.builder = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            this.builder.setLength(0);
+        }
+        return this.builder;
+    }
+
+    /**
+     * Serializes an XML document into bytes (UTF-8), using the reusable transformer and byte buffer. The result is the same as of LowLevel.createBytesFromDocument
+     *
+     * @param document Document to process
+     * @return array of bytes (UTF-8)
+     * @throws IOException Thrown if the document could not be converted to a byte array
+     */
+    byte[] serialize(Document document) throws IOException {
+        try {
+            if (this.transformer == null) {
+                this.transformer = TransformerFactory.newInstance().newTransformer();
+            } else {
+                this.transformer.reset();
+            }
+            this.transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            if (this.byteStream == null || this.byteStream.capacity() > MAX_RETAINED_CAPACITY) {
+                this.byteStream = new ReusableByteStream();
+            } else {
+                this.byteStream.reset();
+            }
+            this.transformer.transform(new DOMSource(document), new StreamResult(this.byteStream));
+            return this.byteStream.toByteArray();
+        } catch (Exception e) {
+            this.transformer = null; // The state of the transformer is unknown after an error
+            throw new IOException(
+                    "ByteSteamException",
+                    "There was an error while creating the byte array. Please see the inner exception.",
+                    e);
+        }
+    }
+
+    /**
+     * Gets a cached part
+     *
+     * @param rawInput Raw XML string of the part
+     * @return Serialized document or null if the part is not cached
+     */
+    byte[] getCachedPart(String rawInput) {
+        if (rawInput.length() > MAX_CACHED_PART_LENGTH) {
+            return null;
+        }
+        byte[] data = this.cachedParts.get(rawInput);
+        if (data == null) {
+            this.cacheMisses++;
+        } else {
+            this.cacheHits++;
+        }
+        return data;
+    }
+
+    /**
+     * Adds a part to the cache. The data must not be modified afterwards
+     *
+     * @param rawInput Raw XML string of the part
+     * @param data     Serialized document
+     */
+    void cachePart(String rawInput, byte[] data) {
+        if (rawInput.length() <= MAX_CACHED_PART_LENGTH) {
+            this.cachedParts.put(rawInput, data);
+        }
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Byte array stream that exposes the size of its internal buffer
+     */
+    private static class ReusableByteStream extends ByteArrayOutputStream {
+
+        /**
+         * Default constructor
+         */
+        ReusableByteStream() {
+            super(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Gets the size of the internal buffer
+         *
+         * @return Capacity in bytes
+         */
+        int capacity() {
+            return this.buf.length;
+        }
+    }
+
+}
@@ -20,14 +20,31 @@ import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
 
 /**
  * Class for low level handling (XML, formatting, preparing of packing)<br>This class is only for internal use. Use the high level API (e.g. class Workbook) to manipulate data and create Excel files.
@@ -37,12 +54,36 @@ import java.util.*;
 public class LowLevel {
 
 
+  // ### C O N S T A N T S ###
+  /**
+   * XML declaration of parts that are written directly as bytes (without XML document)
+   */
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+  private static final String APP_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.extended-properties+xml";
+  private static final String CORE_CONTENT_TYPE = "application/vnd.openxmlformats-package.core-properties+xml";
+  private static final String SHARED_STRINGS_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml";
+  private static final String STYLES_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml";
+  private static final String WORKBOOK_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml";
+  private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+
   // ### P R I V A T E  F I E L D S ###
-  private final SortedMap sharedStrings;
+  private Map<Cell, Object> formulaResults;
+  private StringDictionary sharedStrings;
   private int sharedStringsTotalCount;
   private final Workbook workbook;
   private boolean interceptDocuments;
   private HashMap<String, Document> interceptedDocuments;
+  private SaveRecorder recorder;
+  private ExecutorService executor;
+  private SaveOptions options;
+  private boolean sharedStringsResolved;
+  private GenerationContext context;
+  private WorkbookTemplate template;
+  private Map<byte[], CompressedPart> compressedParts;
+  private Map<String, byte[]> staticParts;
+  private PartCache partCache;
+  private boolean inlineStrings;
+  private int[] styleIndices;
 
   // ### G E T T E R S   &   S E T T E R S ###
 
@@ -78,6 +119,52 @@ public class LowLevel {
     return this.interceptedDocuments;
   }
 
+  /**
+   * Gets the recorder of the current save process
+   *
+   * @return Recorder or null if no metrics are collected
+   */
+  SaveRecorder getRecorder() {
+    return this.recorder;
+  }
+
+  /**
+   * Gets the executor of the current save process
+   *
+   * @return Executor or null if the workbook is saved sequentially
+   */
+  ExecutorService getExecutor() {
+    return this.executor;
+  }
+
+  /**
+   * Gets the generation context of the current save process
+   *
+   * @return Generation context or null if no context is used
+   */
+  GenerationContext getContext() {
+    return this.context;
+  }
+
+  /**
+   * Gets whether pre-compressed parts (of a workbook template or the part cache of an incremental save) are used in the current save process
+   *
+   * @return True if compressed parts are used
+   */
+  boolean isCompressedPartsUsed() {
+    return this.compressedParts != null;
+  }
+
+  /**
+   * Gets the pre-compressed part (of a template or the part cache) that was used for the passed data
+   *
+   * @param data Uncompressed data of a part or the placeholder of a cached worksheet
+   * @return Compressed part or null if the data has to be compressed
+   */
+  CompressedPart getCompressedPart(byte[] data) {
+    return this.compressedParts == null ? null : this.compressedParts.get(data);
+  }
+
   // ### C O N S T R U C T O R S ###
 
   /**
@@ -126,18 +213,18 @@ public class LowLevel {
   }
 
   /**
-   * Method to create the app-properties (part of meta data) as XML document
+   * Method to create the app-properties (part of meta data) as serialized XML document
    *
-   * @return Formatted XML document
+   * @return Serialized XML document (UTF-8)
    * @throws IOException Thrown in case of an error while creating the XML document
    */
-  private Document createAppPropertiesDocument() throws IOException {
+  private byte[] createAppPropertiesPart() throws IOException {
     StringBuilder sb = new StringBuilder();
     sb.append(
         "<Properties xmlns=\"http://schemas.openxmlformats.org/officeDocument/2006/extended-properties\" xmlns:vt=\"http://schemas.openxmlformats.org/officeDocument/2006/docPropsVTypes\">");
     sb.append(this.createAppString());
     sb.append("</Properties>");
-    return this.createXMLDocument(sb.toString(), "APPPROPERTIES");
+    return this.createPartBytes("docProps/app.xml", sb.toString(), "APPPROPERTIES", true);
   }
 
   /**
@@ -172,48 +259,70 @@ public class LowLevel {
    * @return String with formatted XML data
    */
   private String createColsString(Worksheet worksheet) {
-    if (worksheet.getColumns().size() > 0) {
-      String col;
-      String hidden = "";
+    ColumnAttributeStore columns = worksheet.getColumnAttributes();
+    if (columns.size() > 0) {
       StringBuilder sb = new StringBuilder();
-
-      for (Map.Entry<Integer, Column> column : worksheet.getColumns().entrySet()) {
-        if (column.getValue().getWidth() == worksheet.getDefaultColumnWidth() && !column.getValue().isHidden()) {
+      int length = columns.getLength();
+      int i = 0;
+      int end;
+      while (i < length) {
+        if (!isWrittenColumn(columns, i, worksheet.getDefaultColumnWidth())) {
+          i++;
           continue;
         }
-        if (worksheet.getColumns().containsKey(column.getKey())) {
-          if (worksheet.getColumns().get(column.getKey()).isHidden()) {
-            hidden = " hidden=\"1\"";
-          }
+        end = i;
+        while (end + 1 < length && columns.isEqual(i, end + 1)) { // Coalesce adjacent, equal columns into one span
+          end++;
         }
-        col = Integer.toString(column.getKey() + 1); // Add 1 for Address
-        sb.append("<col customWidth=\"1\" width=\"").append(column.getValue().getWidth()).append("\" max=\"")
-            .append(col).append("\" min=\"").append(col).append("\"").append(hidden).append("/>");
-      }
-      String value = sb.toString();
-      if (value.length() > 0) {
-        return value;
-      } else {
-        return "";
+        sb.append("<col");
+        if (columns.getWidth(i) != worksheet.getDefaultColumnWidth()) { // Columns with only a style or hidden state keep the default width
+          sb.append(" customWidth=\"1\"");
+        }
+        sb.append(" width=\"").append(columns.getWidth(i)).append("\" max=\"")
+            .append(end + 1).append("\" min=\"").append(i + 1).append("\""); // Add 1 for Address
+        if (columns.isHidden(i)) {
+          sb.append(" hidden=\"1\"");
+        }
+        if (columns.getStyle(i) != null) {
+          sb.append(" style=\"").append(this.styleIndex(columns.getStyle(i))).append("\"");
+        }
+        sb.append("/>");
+        i = end + 1;
       }
+      return sb.toString();
     } else {
       return "";
     }
   }
 
   /**
-   * Method to create the core-properties (part of meta data) as XML document
+   * Method to determine whether a column has to be written as &lt;col&gt; element
    *
-   * @return Formatted XML document
+   * @param columns            Column attributes of the worksheet
+   * @param columnNumber       Column number (zero-based)
+   * @param defaultColumnWidth Default column width of the worksheet
+   * @return True if the column is defined and has a custom width, is hidden or has a style
+   */
+  private static boolean isWrittenColumn(ColumnAttributeStore columns, int columnNumber, float defaultColumnWidth) {
+    if (!columns.contains(columnNumber)) {
+      return false;
+    }
+    return columns.getWidth(columnNumber) != defaultColumnWidth || columns.isHidden(columnNumber) || columns.getStyle(columnNumber) != null;
+  }
+
+  /**
+   * Method to create the core-properties (part of meta data) as serialized XML document
+   *
+   * @return Serialized XML document (UTF-8)
    * @throws IOException Thrown in case of an error while creating the XML document
    */
-  private Document createCorePropertiesDocument() throws IOException {
+  private byte[] createCorePropertiesPart() throws IOException {
     StringBuilder sb = new StringBuilder();
     sb.append(
         "<cp:coreProperties xmlns:cp=\"http://schemas.openxmlformats.org/package/2006/metadata/core-properties\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:dcterms=\"http://purl.org/dc/terms/\" xmlns:dcmitype=\"http://purl.org/dc/dcmitype/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
     sb.append(this.createCorePropertiesString());
     sb.append("</cp:coreProperties>");
-    return this.createXMLDocument(sb.toString(), "COREPROPERTIES");
+    return this.createPartBytes("docProps/core.xml", sb.toString(), "COREPROPERTIES", false); // Contains the current time
   }
 
   /**
@@ -324,47 +433,44 @@ public class LowLevel {
   /**
    * Method to create a row string
    *
-   * @param columnFields List of cells
+   * @param rowNumber    Row number (zero-based)
+   * @param columnFields List of cells. May be empty if only the row attributes are written
    * @param worksheet    Worksheet to process
+   * @param sharedFormulas Indices (si) of the shared formulas of the worksheet that were already written
    * @return Formatted row string
    */
-  private String createRowString(List<Cell> columnFields, Worksheet worksheet) {
-    int rowNumber = columnFields.get(0).getRowNumber();
-    String height = "";
-    String hidden = "";
-    if (worksheet.getRowHeights().containsKey(rowNumber)) {
-      if (worksheet.getRowHeights().get(rowNumber) != worksheet.getDefaultRowHeight()) {
-        height = " x14ac:dyDescent=\"0.25\" customHeight=\"1\" ht=\"" + worksheet.getRowHeights().get(rowNumber) + "\"";
-      }
-    }
-    if (worksheet.getHiddenRows().containsKey(rowNumber)) {
-      if (worksheet.getHiddenRows().get(rowNumber)) {
-        hidden = " hidden=\"1\"";
-      }
-    }
+  String createRowString(int rowNumber, List<Cell> columnFields, Worksheet worksheet, Map<SharedFormula, Integer> sharedFormulas) {
+    ColumnAttributeStore columnAttributes = worksheet.getColumnAttributes();
     int colNum = columnFields.size();
     StringBuilder sb = new StringBuilder(
-        43 * colNum); // A row string size is according to statistics (random value) 43 times the column number
+        43 * colNum + 16); // A row string size is according to statistics (random value) 43 times the column number
     //StringBuilder sb = new StringBuilder();
-    if (colNum > 0) {
-      sb.append("<row r=\"");
-      sb.append((rowNumber + 1));
-      sb.append("\"").append(height).append(hidden).append(">");
-    } else {
-      sb.append("<row").append(height).append(">");
-    }
+    int rowStyle = this.appendRowStart(sb, rowNumber, worksheet);
+    Style columnStyle;
+    int styleID;
     String typeAttribute;
     String sValue, tValue;
     String value = "";
     boolean bVal;
+    Object formulaResult = null;
 
     int col = 0;
     Cell item;
     for (Cell columnField : columnFields) {
       item = columnField;
       tValue = " ";
+      // A cell without s attribute gets the style 0 in Excel, not the row or column style. Therefore, cells without
+      // an own style inherit the row style (precedence) or column style and only the attribute s="0" is omitted
       if (item.getCellStyle() != null) {
-        sValue = " s=\"" + item.getCellStyle().getInternalID() + "\" ";
+        styleID = this.styleIndex(item.getCellStyle());
+      } else if (rowStyle >= 0) {
+        styleID = rowStyle;
+      } else {
+        columnStyle = columnAttributes.getStyle(item.getColumnNumber());
+        styleID = columnStyle == null ? 0 : this.styleIndex(columnStyle);
+      }
+      if (styleID != 0) {
+        sValue = " s=\"" + styleID + "\" ";
       } else {
         sValue = "";
       }
@@ -422,12 +528,26 @@ public class LowLevel {
         } else // handle shared Strings
         {
           if (item.getDataType().equals(Cell.CellType.FORMULA)) {
-            typeAttribute = "str";
+            formulaResult = this.formulaResults == null ? null : this.formulaResults.get(item);
+            if (formulaResult instanceof Double) {
+              typeAttribute = "n";
+              value = Double.toString((double) formulaResult);
+            } else if (formulaResult instanceof Boolean) {
+              typeAttribute = "b";
+              value = (boolean) formulaResult ? "1" : "0";
+            } else if (formulaResult instanceof FormulaError) {
+              typeAttribute = "e";
+              value = ((FormulaError) formulaResult).getLiteral();
+            } else {
+              typeAttribute = "str";
+              value = formulaResult == null ? item.getValue().toString() : formulaResult.toString();
+            }
+          } else if (this.inlineStrings) {
+            typeAttribute = "inlineStr";
             value = item.getValue().toString();
           } else {
             typeAttribute = "s";
-            value = sharedStrings.add(item.getValue().toString(), Integer.toString(sharedStrings.size()));
-            sharedStringsTotalCount++;
+            value = Integer.toString(this.resolveSharedString(item.getValue().toString()));
           }
         }
         tValue = " t=\"" + typeAttribute + "\" ";
@@ -436,7 +556,16 @@ public class LowLevel {
         sb.append("<c").append(tValue).append("r=\"").append(item.getCellAddress()).append("\"").append(sValue)
             .append(">");
         if (item.getDataType() == Cell.CellType.FORMULA) {
-          sb.append("<f>").append(LowLevel.escapeXMLChars(item.getValue().toString())).append("</f>");
+          if (item.getSharedFormula() != null) {
+            appendSharedFormula(sb, item, sharedFormulas);
+          } else {
+            sb.append("<f>").append(LowLevel.escapeXMLChars(item.getValue().toString())).append("</f>");
+          }
+          if (formulaResult != null) { // Cached result of the formula evaluation
+            sb.append("<v>").append(LowLevel.escapeXMLChars(value)).append("</v>");
+          }
+        } else if (this.inlineStrings && "inlineStr".equals(typeAttribute)) {
+          sb.append("<is><t>").append(LowLevel.escapeXMLChars(value)).append("</t></is>");
         } else {
           sb.append("<v>").append(LowLevel.escapeXMLChars(value)).append("</v>");
         }
@@ -453,26 +582,414 @@ public class LowLevel {
   }
 
   /**
-   * Method to create shared strings as XML document
+   * Method to append the start tag of a row with its attributes (height, hidden state and style)
    *
-   * @return Formatted XML document
+   * @param sb        StringBuilder to append the tag
+   * @param rowNumber Row number (zero-based)
+   * @param worksheet Worksheet of the row
+   * @return Style ID of the row or -1 if the row has no style
+   */
+  private int appendRowStart(StringBuilder sb, int rowNumber, Worksheet worksheet) {
+    RowAttributeStore rowAttributes = worksheet.getRowAttributes();
+    int slot = rowAttributes.indexOf(rowNumber); // One lookup for all row attributes
+    byte flags = slot < 0 ? 0 : rowAttributes.getFlagsAt(slot);
+    int rowStyle = (flags & RowAttributeStore.FLAG_STYLE) != 0 ? this.styleIndex(rowAttributes.getStyleAt(slot)) : -1;
+    sb.append("<row r=\"");
+    sb.append((rowNumber + 1));
+    sb.append("\"");
+    if ((flags & RowAttributeStore.FLAG_CUSTOM_HEIGHT) != 0 && rowAttributes.getHeightAt(slot) != worksheet.getDefaultRowHeight()) {
+      sb.append(" x14ac:dyDescent=\"0.25\" customHeight=\"1\" ht=\"").append(rowAttributes.getHeightAt(slot)).append("\"");
+    }
+    if ((flags & RowAttributeStore.FLAG_HIDDEN) != 0) {
+      sb.append(" hidden=\"1\"");
+    }
+    if (rowStyle >= 0) {
+      sb.append(" customFormat=\"1\" s=\"").append(rowStyle).append("\"");
+    }
+    sb.append(">");
+    return rowStyle;
+  }
+
+  /**
+   * Method to append a range of rows of a worksheet that contains Cell objects, including the styled rows without cells that precede the rows of the range
+   *
+   * @param sb             StringBuilder of the worksheet
+   * @param worksheet      Worksheet to process
+   * @param celldata       Sorted cells of the worksheet, one list per row
+   * @param from           Index of the first row in celldata (inclusive)
+   * @param to             Index of the last row in celldata (exclusive)
+   * @param styledRows     Ordered row numbers with a row style (written as empty rows if they contain no cells)
+   * @param styledFrom     Index of the first styled row of the range (inclusive)
+   * @param styledTo       Index of the last styled row of the range (exclusive). Remaining styled rows after the last row of the range are appended at the end
+   * @param sharedFormulas Indices (si) of the shared formulas of the worksheet that were already written
+   * @return Number of written rows and cells
+   */
+  private long[] appendCellRows(StringBuilder sb, Worksheet worksheet, List<List<Cell>> celldata, int from, int to, int[] styledRows, int styledFrom, int styledTo, Map<SharedFormula, Integer> sharedFormulas) {
+    int styledRowIndex = styledFrom;
+    long rowCount = 0;
+    long cellCount = 0;
+    int rowNumber;
+    List<Cell> item;
+    for (int i = from; i < to; i++) {
+      item = celldata.get(i);
+      cellCount += item.size();
+      rowNumber = item.get(0).getRowNumber();
+      // Styled rows without cells are written as empty rows
+      while (styledRowIndex < styledTo && styledRows[styledRowIndex] <= rowNumber) {
+        if (styledRows[styledRowIndex] < rowNumber) {
+          sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+          rowCount++;
+        }
+        styledRowIndex++;
+      }
+      sb.append(this.createRowString(rowNumber, item, worksheet, sharedFormulas));
+      rowCount++;
+    }
+    while (styledRowIndex < styledTo) {
+      sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+      rowCount++;
+      styledRowIndex++;
+    }
+    return new long[]{rowCount, cellCount};
+  }
+
+  /**
+   * Method to append a range of rows of a worksheet that only contains buffered values of row writers. The cells are written directly from the buffer, in the same format as createRowString
+   *
+   * @param sb             StringBuilder of the worksheet
+   * @param worksheet      Worksheet to process
+   * @param buffer         Cell buffer of the worksheet
+   * @param order          Ordered indices of the buffer entries
+   * @param from           Index of the first entry in order (inclusive, start of a row)
+   * @param to             Index of the last entry in order (exclusive, end of a row)
+   * @param styledRows     Ordered row numbers with a row style (written as empty rows if they contain no values)
+   * @param styledFrom     Index of the first styled row of the range (inclusive)
+   * @param styledTo       Index of the last styled row of the range (exclusive). Remaining styled rows after the last row of the range are appended at the end
+   * @param sharedFormulas Indices of the shared formulas (only used for empty styled rows)
+   * @return Number of written rows and cells
+   */
+  private long[] appendBufferedRows(StringBuilder sb, Worksheet worksheet, CellBuffer buffer, int[] order, int from, int to, int[] styledRows, int styledFrom, int styledTo, Map<SharedFormula, Integer> sharedFormulas) {
+    ColumnAttributeStore columnAttributes = worksheet.getColumnAttributes();
+    int styledRowIndex = styledFrom;
+    long rowCount = 0;
+    int i = from;
+    int rowNumber;
+    int rowStyle;
+    while (i < to) {
+      rowNumber = buffer.getRow(order[i]);
+      // Styled rows without cells are written as empty rows
+      while (styledRowIndex < styledTo && styledRows[styledRowIndex] <= rowNumber) {
+        if (styledRows[styledRowIndex] < rowNumber) {
+          sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+          rowCount++;
+        }
+        styledRowIndex++;
+      }
+      rowStyle = this.appendRowStart(sb, rowNumber, worksheet);
+      while (i < to && buffer.getRow(order[i]) == rowNumber) {
+        this.appendBufferedCell(sb, buffer, order[i], rowStyle, columnAttributes);
+        i++;
+      }
+      sb.append("</row>");
+      rowCount++;
+    }
+    while (styledRowIndex < styledTo) {
+      sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+      rowCount++;
+      styledRowIndex++;
+    }
+    return new long[]{rowCount, to - from};
+  }
+
+  /**
+   * Method to append the rows of a range of blocks of a worksheet that uses a mapped cell store. The slots of the blocks are read in row order and written in the same format as createRowString
+   *
+   * @param sb             StringBuilder of the worksheet
+   * @param worksheet      Worksheet to process
+   * @param store          Mapped cell store of the worksheet
+   * @param blocks         Allocated blocks of the store (see MappedCellStore.getBlocks)
+   * @param from           Index of the first block in blocks (inclusive)
+   * @param to             Index of the last block in blocks (exclusive)
+   * @param styledRows     Ordered row numbers with a row style (written as empty rows if they contain no cells)
+   * @param styledFrom     Index of the first styled row of the range (inclusive)
+   * @param styledTo       Index of the last styled row of the range (exclusive). Remaining styled rows after the last row of the range are appended at the end
+   * @param sharedFormulas Indices of the shared formulas (only used for empty styled rows)
+   * @return Number of written rows and cells
+   */
+  private long[] appendMappedRows(StringBuilder sb, Worksheet worksheet, MappedCellStore store, int[] blocks, int from, int to, int[] styledRows, int styledFrom, int styledTo, Map<SharedFormula, Integer> sharedFormulas) {
+    ColumnAttributeStore columnAttributes = worksheet.getColumnAttributes();
+    int styledRowIndex = styledFrom;
+    long rowCount = 0;
+    long cellCount = 0;
+    int columnCount;
+    int rowNumber;
+    int rowStyle;
+    byte type;
+    for (int i = from; i < to; i++) {
+      columnCount = store.getColumnCount(blocks[i]);
+      for (int row = 0; row < MappedCellStore.ROWS_PER_BLOCK; row++) {
+        rowNumber = blocks[i] * MappedCellStore.ROWS_PER_BLOCK + row;
+        rowStyle = -2; // Row not started
+        for (int column = 0; column < columnCount; column++) {
+          type = store.getType(column, rowNumber);
+          if (type < 0) {
+            continue;
+          }
+          if (rowStyle == -2) {
+            // Styled rows without cells are written as empty rows
+            while (styledRowIndex < styledTo && styledRows[styledRowIndex] <= rowNumber) {
+              if (styledRows[styledRowIndex] < rowNumber) {
+                sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+                rowCount++;
+              }
+              styledRowIndex++;
+            }
+            rowStyle = this.appendRowStart(sb, rowNumber, worksheet);
+          }
+          this.appendValueCell(sb, column, rowNumber, type, store.getLong(column, rowNumber), store.getObject(column, rowNumber), store.getStyle(column, rowNumber), rowStyle, columnAttributes);
+          cellCount++;
+        }
+        if (rowStyle != -2) {
+          sb.append("</row>");
+          rowCount++;
+        }
+      }
+    }
+    while (styledRowIndex < styledTo) {
+      sb.append(this.createRowString(styledRows[styledRowIndex], Collections.<Cell>emptyList(), worksheet, sharedFormulas));
+      rowCount++;
+      styledRowIndex++;
+    }
+    return new long[]{rowCount, cellCount};
+  }
+
+  /**
+   * Method to append one buffered value as cell. The style precedence and the value formats are the same as in createRowString
+   *
+   * @param sb               StringBuilder of the worksheet
+   * @param buffer           Cell buffer
+   * @param index            Index of the entry in the buffer
+   * @param rowStyle         Style ID of the row or -1
+   * @param columnAttributes Column attributes of the worksheet
+   */
+  private void appendBufferedCell(StringBuilder sb, CellBuffer buffer, int index, int rowStyle, ColumnAttributeStore columnAttributes) {
+    this.appendValueCell(sb, buffer.getColumn(index), buffer.getRow(index), buffer.getType(index), buffer.getLong(index), buffer.getObject(index), buffer.getStyle(index), rowStyle, columnAttributes);
+  }
+
+  /**
+   * Method to append a cell of a primitive value or object (buffered value or value of a mapped cell store). The style precedence and the value formats are the same as in createRowString.
+   * A formula is written without cached result
+   *
+   * @param sb               StringBuilder of the worksheet
+   * @param column           Column number (zero-based)
+   * @param row              Row number (zero-based)
+   * @param type             Type of the value (one of the TYPE constants of CellBuffer)
+   * @param value            Primitive value (TYPE_DOUBLE as raw bits, TYPE_LONG and TYPE_BOOL)
+   * @param object           Object of the value (TYPE_STRING, TYPE_FORMULA, TYPE_DATE, TYPE_TIME and TYPE_NUMBER)
+   * @param style            Style of the cell or null
+   * @param rowStyle         Style ID of the row or -1
+   * @param columnAttributes Column attributes of the worksheet
+   */
+  private void appendValueCell(StringBuilder sb, int column, int row, byte type, long value, Object object, Style style, int rowStyle, ColumnAttributeStore columnAttributes) {
+    int styleID;
+    if (style != null) {
+      styleID = this.styleIndex(style);
+    } else if (rowStyle >= 0) {
+      styleID = rowStyle;
+    } else {
+      Style columnStyle = columnAttributes.getStyle(column);
+      styleID = columnStyle == null ? 0 : this.styleIndex(columnStyle);
+    }
+    sb.append("<c");
+    switch (type) {
+      case CellBuffer.TYPE_DOUBLE:
+      case CellBuffer.TYPE_LONG:
+      case CellBuffer.TYPE_NUMBER:
+        sb.append(" t=\"n\" ");
+        break;
+      case CellBuffer.TYPE_BOOL:
+        sb.append(" t=\"b\" ");
+        break;
+      case CellBuffer.TYPE_STRING:
+      case CellBuffer.TYPE_EMPTY:
+        sb.append(this.inlineStrings ? " t=\"inlineStr\" " : " t=\"s\" ");
+        break;
+      case CellBuffer.TYPE_FORMULA:
+        sb.append(" t=\"str\" ");
+        break;
+      default:
+        sb.append(" ");
+    }
+    sb.append("r=\"");
+    appendCellAddress(sb, column, row);
+    sb.append("\"");
+    if (styleID != 0) {
+      sb.append(" s=\"").append(styleID).append("\" ");
+    }
+    if (type == CellBuffer.TYPE_EMPTY) {
+      // Like empty Cell objects, which are resolved to an empty string
+      if (this.inlineStrings) {
+        sb.append("><is><t></t></is></c>");
+      } else {
+        this.resolveSharedString("");
+        sb.append("/>");
+      }
+      return;
+    }
+    if (type == CellBuffer.TYPE_STRING && this.inlineStrings) {
+      sb.append("><is><t>").append(LowLevel.escapeXMLChars(object.toString())).append("</t></is></c>");
+      return;
+    }
+    if (type == CellBuffer.TYPE_FORMULA) {
+      sb.append("><f>").append(LowLevel.escapeXMLChars(object.toString())).append("</f></c>");
+      return;
+    }
+    sb.append("><v>");
+    switch (type) {
+      case CellBuffer.TYPE_DOUBLE:
+        sb.append(Double.longBitsToDouble(value));
+        break;
+      case CellBuffer.TYPE_LONG:
+        sb.append(value);
+        break;
+      case CellBuffer.TYPE_NUMBER:
+        sb.append(object.toString());
+        break;
+      case CellBuffer.TYPE_BOOL:
+        sb.append(value != 0 ? '1' : '0');
+        break;
+      case CellBuffer.TYPE_STRING:
+        sb.append(this.resolveSharedString(object.toString()));
+        break;
+      case CellBuffer.TYPE_DATE:
+        sb.append(Helper.getOADateTimeString((Date) object));
+        break;
+      default:
+        sb.append(Helper.getOATimeString((LocalTime) object));
+    }
+    sb.append("</v></c>");
+  }
+
+  /**
+   * Method to append a cell address (e.g. AB12) without creating intermediate strings
+   *
+   * @param sb     StringBuilder to append the address
+   * @param column Column number (zero-based)
+   * @param row    Row number (zero-based)
+   */
+  static void appendCellAddress(StringBuilder sb, int column, int row) {
+    if (column < 26) {
+      sb.append((char) ('A' + column));
+    } else if (column < 702) {
+      sb.append((char) ('A' + column / 26 - 1)).append((char) ('A' + column % 26));
+    } else {
+      int c = column - 702;
+      sb.append((char) ('A' + c / 676)).append((char) ('A' + (c / 26) % 26)).append((char) ('A' + c % 26));
+    }
+    sb.append(row + 1);
+  }
+
+  /**
+   * Method to append the formula of a cell that is part of a shared formula. The first written cell of the formula range is
+   * the master cell and holds the formula and the range. All following cells only reference the index (si) of the master
+   *
+   * @param sb             StringBuilder of the row
+   * @param cell           Cell to process
+   * @param sharedFormulas Indices (si) of the shared formulas of the worksheet that were already written
+   */
+  private static void appendSharedFormula(StringBuilder sb, Cell cell, Map<SharedFormula, Integer> sharedFormulas) {
+    SharedFormula sharedFormula = cell.getSharedFormula();
+    Integer index = sharedFormulas.get(sharedFormula);
+    if (index != null) {
+      sb.append("<f t=\"shared\" si=\"").append(index).append("\"/>");
+      return;
+    }
+    index = sharedFormulas.size();
+    sharedFormulas.put(sharedFormula, index);
+    sb.append("<f t=\"shared\" ref=\"").append(sharedFormula.getRange().toString()).append("\" si=\"").append(index).append("\">")
+        .append(LowLevel.escapeXMLChars(sharedFormula.getFormula(cell.getColumnNumber(), cell.getRowNumber()))).append("</f>");
+  }
+
+  /**
+   * Gets the index of a style in the style sheet. If the styles are merged into the style sheet of an edited file, the index is mapped to the index in this style sheet.
+   * The default style (0) remains the default style of the file
+   *
+   * @param style Style to process
+   * @return Index of the style (cellXfs)
+   */
+  private int styleIndex(Style style) {
+    int id = style.getInternalID();
+    return this.styleIndices == null ? id : this.styleIndices[id];
+  }
+
+  /**
+   * Resolves the index of a shared string. If the shared strings were already resolved (parallel serialization of row blocks), the index is only looked up
+   *
+   * @param value String value of the cell
+   * @return Index of the shared string
+   */
+  private int resolveSharedString(String value) {
+    if (this.sharedStringsResolved) {
+      return this.sharedStrings.get(value);
+    }
+    int index = this.sharedStrings.add(value);
+    this.sharedStringsTotalCount++;
+    return index;
+  }
+
+  /**
+   * Method to create shared strings as serialized XML document
+   *
+   * @return Serialized XML document (UTF-8)
    * @throws IOException Thrown in case of an error while creating the XML document
    */
-  private Document createSharedStringsDocument() throws IOException {
+  private byte[] createSharedStringsPart() throws IOException {
     StringBuilder sb = new StringBuilder();
-    sb.append("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"");
-    sb.append(this.sharedStringsTotalCount);
-    sb.append("\" uniqueCount=\"");
-    sb.append(this.sharedStrings.size());
-    sb.append("\">");
-    List<String> keys = this.sharedStrings.getKeys();
-    for (String key : keys) {
+    this.appendSharedStringsStart(sb);
+    for (String key : this.sharedStrings) {
       sb.append("<si><t>");
       sb.append(escapeXMLChars(key));
       sb.append("</t></si>");
     }
     sb.append("</sst>");
-    return this.createXMLDocument(sb.toString(), "SHAREDSTRINGS");
+    return this.createPartBytes("xl/sharedStrings.xml", sb.toString(), "SHAREDSTRINGS", false);
+  }
+
+  /**
+   * Method to write the shared strings part as stream (UTF-8), without XML document. The strings are passed to the writer in chunks, so that the
+   * serialized part is never held in memory as a whole
+   *
+   * @param writer Writer of the part. The writer is flushed but not closed
+   * @throws java.io.IOException Thrown in case of an error while writing
+   */
+  private void writeSharedStrings(Writer writer) throws java.io.IOException {
+    StringBuilder sb = new StringBuilder(XML_DECLARATION);
+    this.appendSharedStringsStart(sb);
+    for (String key : this.sharedStrings) {
+      sb.append("<si><t>");
+      sb.append(escapeXMLChars(key));
+      sb.append("</t></si>");
+      if (sb.length() >= 65536) {
+        writer.append(sb);
+        sb.setLength(0);
+      }
+    }
+    sb.append("</sst>");
+    writer.append(sb);
+    writer.flush();
+  }
+
+  /**
+   * Method to append the root element of the shared strings part with the total and unique number of strings
+   *
+   * @param sb StringBuilder of the shared strings
+   */
+  private void appendSharedStringsStart(StringBuilder sb) {
+    sb.append("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"");
+    sb.append(this.sharedStringsTotalCount);
+    sb.append("\" uniqueCount=\"");
+    sb.append(this.sharedStrings.size());
+    sb.append("\">");
   }
 
   /**
@@ -750,14 +1267,25 @@ public class LowLevel {
   }
 
   /**
-   * Method to create a style sheet as XML document
+   * Method to create a style sheet as serialized XML document
    *
-   * @return Formatted XML document
+   * @return Serialized XML document (UTF-8)
    * @throws StyleException Thrown if a style was not referenced in the style sheet
    * @throws RangeException Thrown if a referenced cell was out of range
    * @throws IOException    Thrown in case of an error while creating the XML document
    */
-  private Document createStyleSheetDocument() throws IOException {
+  private byte[] createStyleSheetPart() throws IOException {
+    return this.createPartBytes("xl/styles.xml", this.createStyleSheetString(), "STYLESHEET", true);
+  }
+
+  /**
+   * Method to create the XML string of the style sheet document
+   *
+   * @return String with formatted XML data
+   * @throws StyleException Thrown if a style was not referenced in the style sheet
+   * @throws RangeException Thrown if a referenced cell was out of range
+   */
+  String createStyleSheetString() {
     String bordersString = this.createStyleBorderString();
     String fillsString = this.createStyleFillString();
     String fontsString = this.createStyleFontString();
@@ -799,7 +1327,7 @@ public class LowLevel {
       }
     }
     sb.append("</styleSheet>");
-    return this.createXMLDocument(sb.toString(), "STYLESHEET");
+    return sb.toString();
   }
 
   /**
@@ -931,13 +1459,13 @@ public class LowLevel {
   }
 
   /**
-   * Method to create a workbook as XML document
+   * Method to create a workbook as serialized XML document
    *
-   * @return Formatted XML document
+   * @return Serialized XML document (UTF-8)
    * @throws RangeException Thrown if a referenced cell was out of range
    * @throws IOException    Thrown in case of an error while creating the XML document
    */
-  private Document createWorkbookDocument() throws IOException {
+  private byte[] createWorkbookPart() throws IOException {
     if (this.workbook.getWorksheets().isEmpty()) {
       throw new RangeException(
           "UnknownRangeException",
@@ -979,7 +1507,7 @@ public class LowLevel {
     }
     sb.append("</sheets>");
     sb.append("</workbook>");
-    return this.createXMLDocument(sb.toString(), "WORKBOOK");
+    return this.createPartBytes("xl/workbook.xml", sb.toString(), "WORKBOOK", true);
   }
 
   /**
@@ -990,11 +1518,150 @@ public class LowLevel {
    * @throws IOException Thrown in case of an error while creating the XML document
    */
   private Document createWorksheetPart(Worksheet worksheet) throws IOException {
+    StringBuilder sb = this.context == null ? new StringBuilder() : this.context.getBuilder();
+    this.appendWorksheetStart(sb, worksheet);
+    int[] styledRows = worksheet.getRowAttributes().getRows(RowAttributeStore.FLAG_STYLE);
+    Map<SharedFormula, Integer> sharedFormulas = new IdentityHashMap<>();
+    CellBuffer buffer = worksheet.getCellBuffer();
+    MappedCellStore store = worksheet.getMappedCellStore();
+    long[] counts;
+    if (buffer != null && buffer.size() > 0) { // The worksheet contains only buffered values of row writers
+      int[] order = buffer.getOrderedIndices();
+      counts = this.appendBufferedRows(sb, worksheet, buffer, order, 0, order.length, styledRows, 0, styledRows.length, sharedFormulas);
+    } else if (store != null && store.size() > 0) {
+      int[] blocks = store.getBlocks();
+      counts = this.appendMappedRows(sb, worksheet, store, blocks, 0, blocks.length, styledRows, 0, styledRows.length, sharedFormulas);
+    } else {
+      List<List<Cell>> celldata = this.getSortedSheetData(worksheet);
+      counts = this.appendCellRows(sb, worksheet, celldata, 0, celldata.size(), styledRows, 0, styledRows.length, sharedFormulas);
+    }
+    this.appendWorksheetEnd(sb, worksheet, counts);
+
+    //testing.Performance.SaveLoggedValues("LineLength.xlsx");
+    return this.createXMLDocument(sb.toString(), "WORKSHEET: " + worksheet.getSheetName());
+  }
+
+  /**
+   * Method to create a worksheet part of an edited file (see {@link XlsxEditor}) as serialized XML document. Strings are written inline, so that the shared string part
+   * of the file remains unchanged. The style indices are mapped to the style sheet of the file, since the styles of the workbook are merged into it
+   *
+   * @param worksheet    worksheet object to process
+   * @param styleIndices Indices of the cell styles (cellXfs) in the style sheet of the file, by the internal ID of the style
+   * @return Serialized XML document (UTF-8)
+   * @throws IOException Thrown in case of an error while creating the XML document
+   */
+  byte[] createEditedWorksheetPart(Worksheet worksheet, int[] styleIndices) throws IOException {
+    this.inlineStrings = true;
+    this.styleIndices = styleIndices;
+    return this.serializeDocument(this.createWorksheetPart(worksheet));
+  }
+
+  /**
+   * Method to create a worksheet part directly as bytes (UTF-8), without XML document. The rows are split into blocks of the row block size, which are serialized concurrently and
+   * concatenated in row order. The shared strings are resolved beforehand in row order, so that the indices are the same as in a sequential serialization.<br>
+   * A worksheet with shared formulas is serialized sequentially, since the master cell of a shared formula depends on the serialization order
+   *
+   * @param worksheet worksheet object to process
+   * @return Serialized worksheet part
+   * @throws IOException Thrown in case of an error while serializing a block
+   */
+  private byte[] createWorksheetBytes(Worksheet worksheet) throws IOException {
+    StringBuilder sb = new StringBuilder(XML_DECLARATION);
+    this.appendWorksheetStart(sb, worksheet);
+    RowBlocks rowBlocks = new RowBlocks(worksheet, this.options.getRowBlockSize(), false);
+    int blockCount = rowBlocks.size();
+    List<Future<long[]>> futures = new ArrayList<>(blockCount);
+    StringBuilder[] blockData = new StringBuilder[blockCount];
+    if (blockCount > 1) {
+      rowBlocks.resolveSharedStrings();
+      this.sharedStringsResolved = true;
+    }
+    try {
+      for (int i = 0; i < blockCount; i++) {
+        final int block = i;
+        final StringBuilder blockBuilder = new StringBuilder();
+        blockData[i] = blockBuilder;
+        Callable<long[]> task = () -> rowBlocks.append(blockBuilder, block, new IdentityHashMap<>());
+        if (blockCount == 1) {
+          futures.add(CompletableFuture.completedFuture(task.call()));
+        } else {
+          futures.add(this.executor.submit(task));
+        }
+      }
+      long[] counts = new long[2];
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      bytes.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+      long[] blockCounts;
+      for (int i = 0; i < blockCount; i++) {
+        blockCounts = futures.get(i).get();
+        counts[0] += blockCounts[0];
+        counts[1] += blockCounts[1];
+        bytes.write(blockData[i].toString().getBytes(StandardCharsets.UTF_8));
+        blockData[i] = null;
+      }
+      sb.setLength(0);
+      this.appendWorksheetEnd(sb, worksheet, counts);
+      bytes.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+      if (this.recorder != null) {
+        long time = System.nanoTime();
+        this.recorder.parsed(time, time); // Generated without parsing
+      }
+      return bytes.toByteArray();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("SaveException", "The serialization of the worksheet " + worksheet.getSheetName() + " was interrupted.", e);
+    } catch (ExecutionException e) {
+      throw new IOException("SaveException", "There was an error while serializing the rows of the worksheet " + worksheet.getSheetName() + ". Please see the inner exception:" + e.getCause().getMessage(), e);
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("SaveException", "There was an error while serializing the rows of the worksheet " + worksheet.getSheetName() + ". Please see the inner exception:" + e.getMessage(), e);
+    } finally {
+      this.sharedStringsResolved = false;
+      for (Future<long[]> future : futures) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Method to write a worksheet part as stream (UTF-8), without XML document. The rows are generated block by block and passed to the writer, so that the
+   * serialized part is never held in memory as a whole
+   *
+   * @param worksheet worksheet object to process
+   * @param writer    Writer of the part. The writer is flushed but not closed
+   * @return Number of written rows and cells
+   * @throws java.io.IOException Thrown in case of an error while writing
+   */
+  private long[] writeWorksheet(Worksheet worksheet, Writer writer) throws java.io.IOException {
+    StringBuilder sb = new StringBuilder(XML_DECLARATION);
+    this.appendWorksheetStart(sb, worksheet);
+    RowBlocks rowBlocks = new RowBlocks(worksheet, this.options.getRowBlockSize(), true);
+    Map<SharedFormula, Integer> sharedFormulas = new IdentityHashMap<>(); // Shared by all blocks, since they are generated in order
+    long[] counts = new long[2];
+    long[] blockCounts;
+    for (int i = 0; i < rowBlocks.size(); i++) {
+      blockCounts = rowBlocks.append(sb, i, sharedFormulas);
+      counts[0] += blockCounts[0];
+      counts[1] += blockCounts[1];
+      writer.append(sb);
+      sb.setLength(0);
+    }
+    this.appendWorksheetEnd(sb, worksheet, counts);
+    writer.append(sb);
+    writer.flush();
+    return counts;
+  }
+
+  /**
+   * Method to append the start of a worksheet part (root element, sheet view, format, columns) up to the start tag of the sheet data. The auto filter and the columns are recalculated
+   *
+   * @param sb        StringBuilder of the worksheet
+   * @param worksheet worksheet object to process
+   */
+  private void appendWorksheetStart(StringBuilder sb, Worksheet worksheet) {
     worksheet.recalculateAutoFilter();
     worksheet.recalculateColumns();
-    List<List<Cell>> celldata = this.getSortedSheetData(worksheet);
-    StringBuilder sb = new StringBuilder();
-    String line;
     sb.append(
         "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:mc=\"http://schemas.openxmlformats.org/markup-compatibility/2006\" mc:Ignorable=\"x14ac\" xmlns:x14ac=\"http://schemas.microsoft.com/office/spreadsheetml/2009/9/ac\">");
 
@@ -1022,11 +1689,20 @@ public class LowLevel {
       sb.append("</cols>");
     }
     sb.append("<sheetData>");
-    for (List<Cell> item : celldata) {
-      line = this.createRowString(item, worksheet);
-      sb.append(line);
-    }
+  }
+
+  /**
+   * Method to append the end of a worksheet part (end tag of the sheet data, merged cells, protection, auto filter). The numbers of rows and cells are recorded (if metrics are collected)
+   *
+   * @param sb        StringBuilder of the worksheet
+   * @param worksheet worksheet object to process
+   * @param counts    Number of written rows and cells
+   */
+  private void appendWorksheetEnd(StringBuilder sb, Worksheet worksheet, long[] counts) {
     sb.append("</sheetData>");
+    if (this.recorder != null) {
+      this.recorder.addRows(counts[0], counts[1]);
+    }
 
     sb.append(this.createMergedCellsString(worksheet));
     sb.append(this.createSheetProtectionString(worksheet));
@@ -1034,9 +1710,117 @@ public class LowLevel {
       sb.append("<autoFilter ref=\"").append(worksheet.getAutoFilterRange().toString()).append("\"/>");
     }
     sb.append("</worksheet>");
+  }
 
-    //testing.Performance.SaveLoggedValues("LineLength.xlsx");
-    return this.createXMLDocument(sb.toString(), "WORKSHEET: " + worksheet.getSheetName());
+  /**
+   * Checks whether a cell of the worksheet is part of a shared formula
+   *
+   * @param celldata Sorted cells of the worksheet, one list per row
+   * @return True if at least one cell has a shared formula
+   */
+  private static boolean hasSharedFormulas(List<List<Cell>> celldata) {
+    for (List<Cell> row : celldata) {
+      for (Cell cell : row) {
+        if (cell.getSharedFormula() != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits a number of rows into blocks
+   *
+   * @param rowCount  Number of rows
+   * @param blockSize Number of rows per block
+   * @return Boundaries of the blocks (first index of each block, followed by the row count)
+   */
+  private static int[] getRowBlocks(int rowCount, int blockSize) {
+    int blockCount = Math.max(1, (rowCount + blockSize - 1) / blockSize);
+    int[] blocks = new int[blockCount + 1];
+    for (int i = 0; i < blockCount; i++) {
+      blocks[i] = i * blockSize;
+    }
+    blocks[blockCount] = rowCount;
+    return blocks;
+  }
+
+  /**
+   * Splits the ordered entries of a cell buffer into blocks of rows. A block never ends within a row
+   *
+   * @param buffer    Cell buffer of the worksheet
+   * @param order     Ordered indices of the buffer entries
+   * @param blockSize Number of rows per block
+   * @return Boundaries of the blocks (first index in order of each block, followed by the number of entries)
+   */
+  private static int[] getBufferedRowBlocks(CellBuffer buffer, int[] order, int blockSize) {
+    List<Integer> blocks = new ArrayList<>();
+    blocks.add(0);
+    int rows = 0;
+    for (int i = 1; i < order.length; i++) {
+      if (buffer.getRow(order[i]) != buffer.getRow(order[i - 1])) {
+        rows++;
+        if (rows == blockSize) {
+          blocks.add(i);
+          rows = 0;
+        }
+      }
+    }
+    blocks.add(order.length);
+    int[] result = new int[blocks.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = blocks.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * Method to create a worksheet of an incremental save. An unchanged worksheet is taken from the part cache; a placeholder is returned for its compressed part.
+   * A modified worksheet is generated, compressed and stored in the cache. The shared string references of reused worksheets are added to the total count
+   *
+   * @param name      Path of the part
+   * @param worksheet worksheet object to process
+   * @return Serialized XML document (UTF-8) or the placeholder of the cached part
+   * @throws IOException Thrown in case of an error while creating the XML document
+   */
+  private byte[] createCachedWorksheetPart(String name, Worksheet worksheet) throws IOException {
+    long styleCount = this.workbook.getStyleManager().getModificationCount();
+    boolean selected = this.workbook.getSelectedWorksheet() == worksheet.getSheetID() - 1;
+    PartCache.WorksheetEntry entry = this.partCache.getWorksheet(worksheet, styleCount, selected);
+    if (entry != null) {
+      this.sharedStringsTotalCount += entry.getSharedStringCount();
+      byte[] placeholder = new byte[0];
+      this.compressedParts.put(placeholder, entry.getPart());
+      return placeholder;
+    }
+    int sharedStringCount = this.sharedStringsTotalCount;
+    Document doc = this.createWorksheetPart(worksheet);
+    long time = this.recorder == null ? 0 : System.nanoTime();
+    byte[] data = this.serializeDocument(doc);
+    if (this.recorder != null) {
+      this.recorder.serialized(name, System.nanoTime() - time, data.length);
+      time = System.nanoTime();
+    }
+    CompressedPart part = new CompressedPart(data, this.partCache.getDeflater(), false);
+    if (this.recorder != null) {
+      this.recorder.compressed(name, System.nanoTime() - time, part.getCompressed().length);
+    }
+    this.partCache.putWorksheet(worksheet, styleCount, selected, part, this.sharedStringsTotalCount - sharedStringCount);
+    this.compressedParts.put(data, part);
+    return data;
+  }
+
+  /**
+   * Gets the index of the first styled row after the passed row number
+   *
+   * @param styledRows Ordered row numbers with a row style
+   * @param rowNumber  Row number
+   * @return Index in styledRows
+   */
+  private static int firstRowAfter(int[] styledRows, int rowNumber) {
+    int index = Arrays.binarySearch(styledRows, rowNumber);
+    return index >= 0 ? index + 1 : -(index + 1);
   }
 
   /**
@@ -1049,11 +1833,14 @@ public class LowLevel {
    */
   public Document createXMLDocument(String rawInput, String title) throws IOException {
     try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder docBuilder = factory.newDocumentBuilder();
+      DocumentBuilder docBuilder = this.context == null ? DocumentBuilderFactory.newInstance().newDocumentBuilder() : this.context.getDocumentBuilder();
       InputSource input = new InputSource(new StringReader(rawInput));
       input.setEncoding("UTF-8");
+      long parseStart = this.recorder == null ? 0 : System.nanoTime();
       Document doc = docBuilder.parse(input);
+      if (this.recorder != null) {
+        this.recorder.parsed(parseStart, System.nanoTime());
+      }
       doc.setXmlVersion("1.0");
       doc.setXmlStandalone(true);
       if (this.interceptDocuments) {
@@ -1069,6 +1856,78 @@ public class LowLevel {
     }
   }
 
+  /**
+   * Creates the serialized XML document of a part from a string. If a workbook template is used and the part is static (cacheable), the compiled part of an equal string
+   * is taken from the template. Otherwise, the part of an equal string is taken from the part cache of an incremental save or, if a generation context is used,
+   * from the cache of the context, without parsing. Templates and caches are not used while documents are intercepted
+   *
+   * @param name      Path of the part (for metrics)
+   * @param rawInput  String to process
+   * @param title     Title for interception / debugging purpose
+   * @param cacheable If true, the part only depends on the string (e.g. no time stamps) and is static for a template
+   * @return Serialized XML document (UTF-8)
+   * @throws IOException Thrown in case of an error while creating the XML document
+   */
+  byte[] createPartBytes(String name, String rawInput, String title, boolean cacheable) throws IOException {
+    boolean cached = cacheable && this.context != null && !this.interceptDocuments;
+    byte[] data = null;
+    if (cacheable && this.compressedParts != null && !this.interceptDocuments) {
+      CompressedPart part = this.template == null ? null : this.template.getPart(rawInput);
+      if (part == null && this.partCache != null) {
+        part = this.partCache.getPart(rawInput);
+      }
+      if (part != null) {
+        data = part.getData();
+        this.compressedParts.put(data, part);
+      }
+    }
+    if (data == null && cached) {
+      data = this.context.getCachedPart(rawInput);
+    }
+    if (data != null) {
+      if (this.recorder != null) {
+        long time = System.nanoTime();
+        this.recorder.parsed(time, time); // Taken from the template or cache without parsing
+        if (name != null) {
+          this.recorder.serialized(name, 0, data.length);
+        }
+      }
+      return data;
+    }
+    Document doc = this.createXMLDocument(rawInput, title);
+    long time = this.recorder == null ? 0 : System.nanoTime();
+    data = this.serializeDocument(doc);
+    if (this.recorder != null && name != null) {
+      this.recorder.serialized(name, System.nanoTime() - time, data.length);
+    }
+    if (cached) {
+      this.context.cachePart(rawInput, data);
+    }
+    if (cacheable && this.partCache != null) {
+      CompressedPart part = new CompressedPart(data, this.partCache.getDeflater(), true);
+      this.partCache.putPart(rawInput, part);
+      this.compressedParts.put(data, part);
+    }
+    if (cacheable && this.staticParts != null) {
+      this.staticParts.put(rawInput, data);
+    }
+    return data;
+  }
+
+  /**
+   * Converts an XML document to a byte array, using the transformer of the generation context (if defined)
+   *
+   * @param document Document to process
+   * @return array of bytes (UTF-8)
+   * @throws IOException Thrown if the document could not be converted to a byte array
+   */
+  byte[] serializeDocument(Document document) throws IOException {
+    if (this.context == null) {
+      return createBytesFromDocument(document);
+    }
+    return this.context.serialize(document);
+  }
+
   /**
    * Gets the number of custom number formats
    *
@@ -1125,8 +1984,40 @@ public class LowLevel {
    */
   public void save() throws IOException {
     try {
-      FileOutputStream dest = new FileOutputStream(this.workbook.getFilename());
-      this.saveAsStream(dest);
+      this.save(Paths.get(this.workbook.getFilename()), new SaveOptions());
+    } catch (InvalidPathException e) {
+      throw new IOException(
+          "SaveException",
+          "There was an error while creating the workbook document during saving to a file. Please see the inner exception:"
+              + e.getMessage(),
+          e);
+    }
+  }
+
+  /**
+   * Method to save the workbook into a file, using a file channel. The file is created or overwritten. The channel is always closed, also in case of an error
+   *
+   * @param path    Path of the file
+   * @param options Options of the buffer size, preallocation, sync policy and parallelism
+   * @throws IOException Thrown in case of an error
+   */
+  public void save(Path path, SaveOptions options) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      if (options.getPreallocationSize() > 0) {
+        channel.write(ByteBuffer.allocate(1), options.getPreallocationSize() - 1);
+      }
+      this.saveAsStream(new ChannelOutputStream(channel, options.getBufferSize()), options);
+      if (channel.size() > channel.position()) {
+        channel.truncate(channel.position());
+      }
+      forceChannel(channel, options);
+    } catch (IOException e) {
+      throw e;
     } catch (Exception e) {
       throw new IOException(
           "SaveException",
@@ -1136,63 +2027,437 @@ public class LowLevel {
     }
   }
 
+  /**
+   * Method to save the workbook into a (blocking) channel. The data is collected in a direct buffer of the defined size before it is written into the channel.
+   * The channel is not closed. The sync policy of the options is applied if the channel is a file channel
+   *
+   * @param channel Channel to write into
+   * @param options Options of the buffer size and sync policy. The preallocation is ignored
+   * @throws IOException Thrown in case of an error
+   */
+  public void saveTo(WritableByteChannel channel, SaveOptions options) throws IOException {
+    this.saveAsStream(new ChannelOutputStream(channel, options.getBufferSize()), options);
+    if (channel instanceof FileChannel) {
+      try {
+        forceChannel((FileChannel) channel, options);
+      } catch (Exception e) {
+        throw new IOException(
+            "SaveException",
+            "There was an error while forcing the written workbook to the storage device. Please see the inner exception:"
+                + e.getMessage(),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Forces the content (and the meta data) of a file channel to the storage device, according to the sync policy
+   *
+   * @param channel File channel to force
+   * @param options Options with the sync policy
+   * @throws java.io.IOException Thrown if the channel could not be forced
+   */
+  private static void forceChannel(FileChannel channel, SaveOptions options) throws java.io.IOException {
+    if (options.getSyncPolicy() != SaveOptions.SyncPolicy.NONE) {
+      channel.force(options.getSyncPolicy() == SaveOptions.SyncPolicy.ALL);
+    }
+  }
+
   public void saveAsStream(OutputStream stream) throws IOException {
+    this.saveAsStream(stream, new SaveOptions());
+  }
+
+  /**
+   * Method to save the workbook as stream, using a generation context. The parser, transformer, deflater and buffers of the context are reused, and the serialized static parts
+   * are taken from its cache. The context can only be used by one save process at a time
+   *
+   * @param stream  Stream to write into
+   * @param context Generation context, e.g. GenerationContext.current()
+   * @throws IOException Thrown in case of an error or if the context is already used by another save process
+   */
+  public void saveAsStream(OutputStream stream, GenerationContext context) throws IOException {
+    this.saveAsStream(stream, null, context);
+  }
+
+  /**
+   * Method to save the workbook as stream, using a compiled template and (optional) a generation context. Static parts that are equal to the compiled parts of the template
+   * are copied as pre-compressed data into the stream
+   *
+   * @param stream   Stream to write into
+   * @param template Compiled template or null
+   * @param context  Generation context or null
+   * @throws IOException Thrown in case of an error or if the context is already used by another save process
+   */
+  public void saveAsStream(OutputStream stream, WorkbookTemplate template, GenerationContext context) throws IOException {
+    if (context != null && !context.acquire()) {
+      throw new IOException("SaveException", "The generation context is already used by another save process");
+    }
+    this.context = context;
+    this.template = template;
+    this.compressedParts = template == null ? null : new IdentityHashMap<>();
     try {
-      this.workbook.resolveMergedCells();
-      Document doc;
-      Document app = this.createAppPropertiesDocument();
-      Document core = this.createCorePropertiesDocument();
-      Document styles = this.createStyleSheetDocument();
-      Document book = this.createWorkbookDocument();
-      String file;
-      Worksheet sheet;
-      Packer p = new Packer(this);
-      Packer.Relationship rel = p.createRelationship("_rels/.rels");
-      rel.addRelationshipEntry(
-          "/xl/workbook.xml",
-          "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument");
-      rel.addRelationshipEntry(
-          "/docProps/core.xml",
-          "http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties");
-      rel.addRelationshipEntry(
-          "/docProps/app.xml",
-          "http://schemas.openxmlformats.org/officeDocument/2006/relationships/extended-properties");
-      rel = p.createRelationship("xl/_rels/workbook.xml.rels");
-      for (int i = 0; i < this.workbook.getWorksheets().size(); i++) {
-        sheet = this.workbook.getWorksheets().get(i);
-        doc = this.createWorksheetPart(sheet);
-        file = "sheet" + sheet.getSheetID() + ".xml";
-        rel.addRelationshipEntry(
-            "/xl/worksheets/" + file,
-            "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet");
-        p.addPart(
-            "xl/worksheets/" + file,
-            "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml",
-            doc);
+      this.saveAsStream(stream, new SaveOptions());
+    } finally {
+      this.context = null;
+      this.template = null;
+      this.compressedParts = null;
+      if (context != null) {
+        context.release();
+      }
+    }
+  }
+
+  /**
+   * Creates the static parts of the workbook (style sheet, workbook part, content types, relationships and app properties) for the compilation of a template
+   *
+   * @return Serialized static parts by their raw XML string
+   * @throws IOException Thrown if a part could not be created
+   */
+  Map<String, byte[]> createStaticParts() throws IOException {
+    this.staticParts = new HashMap<>();
+    try {
+      this.prepare();
+      this.createPacker().collectHeaderEntries(new ArrayList<>(), new ArrayList<>(), null);
+      return this.staticParts;
+    } finally {
+      this.staticParts = null;
+    }
+  }
+
+  /**
+   * Method to save the workbook as stream. If the parallelism of the options is greater than 1, the worksheets are serialized in concurrent row blocks and
+   * the parts are compressed in concurrent blocks, using a thread pool that only exists during the save process. If a pipeline depth is defined, generation, compression
+   * and output overlap in a pipeline instead. Worksheet parts are not intercepted in both cases.<br>
+   * If the workbook is saved incrementally (see Workbook.setIncrementalSave), unchanged worksheets and static parts are taken from the part cache of the workbook.
+   * The cache is only used for sequential saves without formula evaluation and document interception
+   *
+   * @param stream  Stream to write into
+   * @param options Options with the parallelism, pipeline depth and row block size. The buffer size, preallocation and sync policy are ignored
+   * @throws IOException Thrown in case of an error
+   */
+  public void saveAsStream(OutputStream stream, SaveOptions options) throws IOException {
+    this.options = options;
+    boolean incremental = this.workbook.getPartCache() != null && options.getParallelism() <= 1 && options.getPipelineDepth() == 0
+        && !this.interceptDocuments && !this.workbook.isEvaluateFormulas();
+    if (incremental) {
+      this.partCache = this.workbook.getPartCache();
+      this.partCache.retainWorksheets(this.workbook.getWorksheets());
+      this.sharedStrings = this.partCache.getSharedStrings(); // Indices are stable across the save processes
+      if (this.compressedParts == null) {
+        this.compressedParts = new IdentityHashMap<>();
+      }
+    }
+    StringDictionary heapStrings = null;
+    if (!incremental && options.isOffHeapSharedStrings()) {
+      heapStrings = this.sharedStrings;
+      this.sharedStrings = new OffHeapStringDictionary(options.getSharedStringMemoryLimit(), null);
+    }
+    if (options.getParallelism() > 1 && options.getPipelineDepth() == 0) {
+      this.executor = Executors.newFixedThreadPool(options.getParallelism(), runnable -> {
+        Thread thread = new Thread(runnable, "PicoXLSX4j-save");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    try {
+      SaveEvent event = new SaveEvent();
+      if (event.isEnabled() || !this.workbook.getSaveListeners().isEmpty()) {
+        this.recorder = new SaveRecorder();
+        event.begin();
+      }
+      this.prepare();
+      if (options.getPipelineDepth() > 0) {
+        this.savePipelined(stream, options.getPipelineDepth());
+      } else {
+        Packer p = this.createPacker();
+        long time = this.recorder == null ? 0 : System.nanoTime();
+        p.pack(stream);
+        if (this.recorder != null) {
+          this.recorder.setPackNanos(System.nanoTime() - time);
+        }
+      }
+      if (this.recorder != null) {
+        this.publishMetrics(event);
       }
-      rel.addRelationshipEntry(
-          "/xl/styles.xml",
-          "http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles");
-      rel.addRelationshipEntry(
-          "/xl/sharedStrings.xml",
-          "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings");
-      p.addPart("docProps/core.xml", "application/vnd.openxmlformats-package.core-properties+xml", core);
-      p.addPart("docProps/app.xml", "application/vnd.openxmlformats-officedocument.extended-properties+xml", app);
-      p.addPart("xl/sharedStrings.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml",
-          this.createSharedStringsDocument());
-      p.addPart(
-          "xl/workbook.xml",
-          "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml",
-          book,
-          false);
-      p.addPart("xl/styles.xml", "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml", styles);
-      p.pack(stream);
     } catch (Exception e) {
       throw new IOException(
           "SaveException",
           "There was an error while creating the workbook document during writing to a stream. Please see the inner exception:"
               + e.getMessage(),
           e);
+    } finally {
+      this.recorder = null;
+      if (incremental) {
+        this.partCache = null;
+        if (this.template == null) {
+          this.compressedParts = null;
+        }
+      }
+      if (this.executor != null) {
+        this.executor.shutdownNow();
+        this.executor = null;
+      }
+      if (heapStrings != null) {
+        this.sharedStrings.close(); // Releases the direct memory and deletes the temporary file
+        this.sharedStrings = heapStrings;
+      }
+    }
+  }
+
+  /**
+   * Creates the XLSX data as a publisher of byte buffer chunks. The workbook is compressed on demand of the subscriber (pulled), in the thread of the executor.
+   * Each subscriber receives the complete workbook. Save listeners and flight recorder events are not supported in this mode
+   *
+   * @param executor  Executor to generate and compress the workbook
+   * @param chunkSize Size of the chunks in bytes (the last chunk may be smaller)
+   * @return Publisher of the XLSX data
+   */
+  public Flow.Publisher<ByteBuffer> createPublisher(Executor executor, int chunkSize) {
+    return new ChunkPublisher(this.workbook, executor, chunkSize);
+  }
+
+  /**
+   * Prepares the workbook and creates all parts as source of compressed chunks. Used by the chunk publisher
+   *
+   * @param chunkSize Size of the chunks in bytes
+   * @return Chunk source of the XLSX data
+   * @throws IOException Thrown if a part could not be created
+   */
+  ZipChunkSource createChunkSource(int chunkSize) throws IOException {
+    this.prepare();
+    return this.createPacker().createChunkSource(chunkSize);
+  }
+
+  /**
+   * Resolves the merged cells and evaluates the formulas (if enabled) before the parts are created
+   */
+  private void prepare() {
+    long time = this.recorder == null ? 0 : System.nanoTime();
+    this.workbook.resolveMergedCells();
+    if (this.recorder != null) {
+      this.recorder.setPrepareNanos(System.nanoTime() - time);
+      time = System.nanoTime();
+    }
+    if (this.workbook.isEvaluateFormulas()) {
+      this.formulaResults = new FormulaEvaluator(this.workbook).evaluate();
+      if (this.recorder != null) {
+        this.recorder.setEvaluateNanos(System.nanoTime() - time);
+      }
+    }
+  }
+
+  /**
+   * Creates all parts of the workbook and adds them to a new packer
+   *
+   * @return Packer with all parts
+   * @throws IOException Thrown if a part could not be created
+   */
+  private Packer createPacker() throws IOException {
+    Document doc;
+    beginPart("docProps/app.xml");
+    byte[] app = this.createAppPropertiesPart();
+    beginPart("docProps/core.xml");
+    byte[] core = this.createCorePropertiesPart();
+    beginPart("xl/styles.xml");
+    byte[] styles = this.createStyleSheetPart();
+    beginPart("xl/workbook.xml");
+    byte[] book = this.createWorkbookPart();
+    String file;
+    Packer p = new Packer(this);
+    this.addRelationships(p);
+    for (Worksheet sheet : this.workbook.getWorksheets()) {
+      file = "xl/worksheets/sheet" + sheet.getSheetID() + ".xml";
+      beginPart(file);
+      if (this.partCache != null) {
+        p.addPart(file, WORKSHEET_CONTENT_TYPE, this.createCachedWorksheetPart(file, sheet));
+      } else if (this.executor == null) {
+        doc = this.createWorksheetPart(sheet);
+        p.addPart(file, WORKSHEET_CONTENT_TYPE, doc);
+      } else {
+        p.addPart(file, WORKSHEET_CONTENT_TYPE, this.createWorksheetBytes(sheet));
+      }
+    }
+    p.addPart("docProps/core.xml", CORE_CONTENT_TYPE, core);
+    p.addPart("docProps/app.xml", APP_CONTENT_TYPE, app);
+    beginPart("xl/sharedStrings.xml");
+    p.addPart("xl/sharedStrings.xml", SHARED_STRINGS_CONTENT_TYPE, this.createSharedStringsPart());
+    p.addPart("xl/workbook.xml", WORKBOOK_CONTENT_TYPE, book, false);
+    p.addPart("xl/styles.xml", STYLES_CONTENT_TYPE, styles);
+    return p;
+  }
+
+  /**
+   * Saves the workbook in a pipeline: the parts are generated in the calling thread, compressed and written in two further threads. The parts are declared first,
+   * so that the content types and relationships are written before the worksheets. The worksheets are generated block by block into the pipeline
+   *
+   * @param stream Stream to write into
+   * @param depth  Maximum number of chunks per queue of the pipeline
+   * @throws Exception Thrown in case of an error in any stage
+   */
+  private void savePipelined(OutputStream stream, int depth) throws Exception {
+    beginPart("docProps/app.xml");
+    byte[] app = this.createAppPropertiesPart();
+    beginPart("docProps/core.xml");
+    byte[] core = this.createCorePropertiesPart();
+    beginPart("xl/styles.xml");
+    byte[] styles = this.createStyleSheetPart();
+    beginPart("xl/workbook.xml");
+    byte[] book = this.createWorkbookPart();
+    Packer p = new Packer(this);
+    this.addRelationships(p);
+    for (Worksheet sheet : this.workbook.getWorksheets()) {
+      p.declarePart("xl/worksheets/sheet" + sheet.getSheetID() + ".xml", WORKSHEET_CONTENT_TYPE, true);
+    }
+    p.declarePart("docProps/core.xml", CORE_CONTENT_TYPE, true);
+    p.declarePart("docProps/app.xml", APP_CONTENT_TYPE, true);
+    p.declarePart("xl/sharedStrings.xml", SHARED_STRINGS_CONTENT_TYPE, true);
+    p.declarePart("xl/workbook.xml", WORKBOOK_CONTENT_TYPE, false);
+    p.declarePart("xl/styles.xml", STYLES_CONTENT_TYPE, true);
+    List<String> names = new ArrayList<>();
+    List<byte[]> entries = new ArrayList<>();
+    p.collectHeaderEntries(names, entries, this.recorder);
+
+    SavePipeline pipeline = new SavePipeline(stream, depth);
+    pipeline.start();
+    try {
+      for (int i = 0; i < names.size(); i++) {
+        pipeline.writeEntry(names.get(i), entries.get(i));
+      }
+      String file;
+      long size;
+      for (Worksheet sheet : this.workbook.getWorksheets()) {
+        file = "xl/worksheets/sheet" + sheet.getSheetID() + ".xml";
+        beginPart(file);
+        this.writeWorksheet(sheet, new OutputStreamWriter(pipeline.beginEntry(file), StandardCharsets.UTF_8));
+        size = pipeline.endEntry();
+        if (this.recorder != null) {
+          long time = System.nanoTime();
+          this.recorder.parsed(time, time); // Generated without parsing
+          this.recorder.serialized(file, 0, size);
+        }
+      }
+      this.writePipelinedPart(pipeline, "docProps/core.xml", core);
+      this.writePipelinedPart(pipeline, "docProps/app.xml", app);
+      beginPart("xl/sharedStrings.xml");
+      if (this.interceptDocuments) {
+        this.writePipelinedPart(pipeline, "xl/sharedStrings.xml", this.createSharedStringsPart());
+      } else {
+        this.writeSharedStrings(new OutputStreamWriter(pipeline.beginEntry("xl/sharedStrings.xml"), StandardCharsets.UTF_8));
+        size = pipeline.endEntry();
+        if (this.recorder != null) {
+          long time = System.nanoTime();
+          this.recorder.parsed(time, time); // Generated without parsing
+          this.recorder.serialized("xl/sharedStrings.xml", 0, size);
+        }
+      }
+      this.writePipelinedPart(pipeline, "xl/workbook.xml", book);
+      this.writePipelinedPart(pipeline, "xl/styles.xml", styles);
+      long time = this.recorder == null ? 0 : System.nanoTime();
+      pipeline.finish();
+      if (this.recorder != null) {
+        this.recorder.setPackNanos(System.nanoTime() - time); // Time until the last stages are completed
+      }
+    } catch (Exception e) {
+      pipeline.cancel(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Passes a serialized part to the pipeline and records its size (if metrics are collected)
+   *
+   * @param pipeline Save pipeline
+   * @param name     Path of the part
+   * @param data     Serialized part
+   * @throws java.io.IOException Thrown if a stage of the pipeline failed
+   */
+  private void writePipelinedPart(SavePipeline pipeline, String name, byte[] data) throws java.io.IOException {
+    if (this.recorder != null) {
+      this.recorder.serialized(name, 0, data.length);
+    }
+    pipeline.writeEntry(name, data);
+  }
+
+  /**
+   * Adds the relationships of the package and the workbook to the packer
+   *
+   * @param p Packer of the workbook
+   */
+  private void addRelationships(Packer p) {
+    Packer.Relationship rel = p.createRelationship("_rels/.rels");
+    rel.addRelationshipEntry(
+        "/xl/workbook.xml",
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument");
+    rel.addRelationshipEntry(
+        "/docProps/core.xml",
+        "http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties");
+    rel.addRelationshipEntry(
+        "/docProps/app.xml",
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/extended-properties");
+    rel = p.createRelationship("xl/_rels/workbook.xml.rels");
+    for (Worksheet sheet : this.workbook.getWorksheets()) {
+      rel.addRelationshipEntry(
+          "/xl/worksheets/sheet" + sheet.getSheetID() + ".xml",
+          "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet");
+    }
+    rel.addRelationshipEntry(
+        "/xl/styles.xml",
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles");
+    rel.addRelationshipEntry(
+        "/xl/sharedStrings.xml",
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings");
+  }
+
+  /**
+   * Marks the start of the generation of a part, if metrics are collected
+   *
+   * @param name Path of the part
+   */
+  private void beginPart(String name) {
+    if (this.recorder != null) {
+      this.recorder.beginPart(name);
+    }
+  }
+
+  /**
+   * Passes the recorded metrics to the save listeners of the workbook and commits the flight recorder events (if enabled)
+   *
+   * @param event Event of the save process (begun at the start of the save process)
+   */
+  private void publishMetrics(SaveEvent event) {
+    SaveMetrics metrics = this.recorder.toMetrics(this.workbook.getWorksheets().size(), this.sharedStringsTotalCount,
+        this.sharedStrings.size(), this.workbook.getStyleManager().getStyles().length);
+    if (event.shouldCommit()) {
+      event.fileName = this.workbook.getFilename();
+      event.worksheets = metrics.getWorksheetCount();
+      event.rows = metrics.getRowCount();
+      event.cells = metrics.getCellCount();
+      event.sharedStrings = metrics.getSharedStringCount();
+      event.uniqueSharedStrings = metrics.getUniqueSharedStringCount();
+      event.styles = metrics.getStyleCount();
+      event.bytes = metrics.getBytes();
+      event.compressedBytes = metrics.getCompressedBytes();
+      event.prepareTime = metrics.getPrepareNanos();
+      event.evaluateTime = metrics.getEvaluateNanos();
+      event.packTime = metrics.getPackNanos();
+      event.commit();
+    }
+    SavePartEvent partEvent = new SavePartEvent();
+    if (partEvent.isEnabled()) {
+      for (SaveMetrics.PartMetrics part : metrics.getParts()) {
+        partEvent = new SavePartEvent();
+        partEvent.part = part.getName();
+        partEvent.generateTime = part.getGenerateNanos();
+        partEvent.parseTime = part.getParseNanos();
+        partEvent.serializeTime = part.getSerializeNanos();
+        partEvent.compressTime = part.getCompressNanos();
+        partEvent.bytes = part.getBytes();
+        partEvent.compressedBytes = part.getCompressedBytes();
+        partEvent.commit();
+      }
+    }
+    for (SaveListener listener : this.workbook.getSaveListeners()) {
+      listener.saveCompleted(metrics);
     }
   }
 
@@ -1244,7 +2509,7 @@ public class LowLevel {
    * @param input Input string to process
    * @return Escaped string
    */
-  private static String escapeXMLChars(String input) {
+  static String escapeXMLChars(String input) {
     int len = input.length();
     List<Integer> illegalCharacters = new ArrayList<>(len);
     List<Integer> characterTypes = new ArrayList<>(len);
@@ -1326,4 +2591,147 @@ public class LowLevel {
     return Integer.toHexString(passwordHash).toUpperCase();
   }
 
+  // ### S U B  C L A S S E S ###
+
+  /**
+   * Class representing the rows of a worksheet, split into blocks of rows. A block can be serialized independently of the other blocks, if the shared strings are resolved beforehand
+   */
+  private class RowBlocks {
+    private final int[] blocks;
+    private final CellBuffer buffer;
+    private final List<List<Cell>> celldata;
+    private final int[] order;
+    private final MappedCellStore store;
+    private final int[] storeBlocks;
+    private final int[] styledRows;
+    private final Worksheet worksheet;
+
+    /**
+     * Constructor with the worksheet. The cells are sorted (or the buffered values ordered) and split into blocks. The blocks of a mapped cell store are grouped, so that a block has at least the passed number of rows
+     *
+     * @param worksheet            Worksheet to process
+     * @param blockSize            Number of rows per block
+     * @param splitSharedFormulas  If false, a worksheet with shared formulas is not split (one block), since the master cell of a shared formula depends on the serialization order
+     */
+    RowBlocks(Worksheet worksheet, int blockSize, boolean splitSharedFormulas) {
+      this.worksheet = worksheet;
+      this.styledRows = worksheet.getRowAttributes().getRows(RowAttributeStore.FLAG_STYLE);
+      CellBuffer cellBuffer = worksheet.getCellBuffer();
+      MappedCellStore mappedCellStore = worksheet.getMappedCellStore();
+      if (cellBuffer != null && cellBuffer.size() > 0) { // The worksheet contains only buffered values of row writers
+        this.buffer = cellBuffer;
+        this.order = cellBuffer.getOrderedIndices();
+        this.celldata = null;
+        this.store = null;
+        this.storeBlocks = null;
+        this.blocks = getBufferedRowBlocks(cellBuffer, this.order, blockSize);
+      } else if (mappedCellStore != null && mappedCellStore.size() > 0) { // Rows are read block by block from the mapped files
+        this.buffer = null;
+        this.order = null;
+        this.celldata = null;
+        this.store = mappedCellStore;
+        this.storeBlocks = mappedCellStore.getBlocks();
+        this.blocks = getRowBlocks(this.storeBlocks.length, Math.max(1, blockSize / MappedCellStore.ROWS_PER_BLOCK));
+      } else {
+        this.buffer = null;
+        this.order = null;
+        this.store = null;
+        this.storeBlocks = null;
+        this.celldata = LowLevel.this.getSortedSheetData(worksheet);
+        this.blocks = !splitSharedFormulas && hasSharedFormulas(this.celldata)
+            ? new int[]{0, this.celldata.size()}
+            : getRowBlocks(this.celldata.size(), blockSize);
+      }
+    }
+
+    /**
+     * Gets the number of blocks
+     *
+     * @return Number of blocks (at least 1)
+     */
+    int size() {
+      return this.blocks.length - 1;
+    }
+
+    /**
+     * Appends the rows of a block, including the styled rows without cells between the previous block and the last row of the block. The last block also appends all remaining styled rows
+     *
+     * @param sb             StringBuilder to append the rows
+     * @param block          Index of the block
+     * @param sharedFormulas Indices (si) of the shared formulas that were already written
+     * @return Number of written rows and cells
+     */
+    long[] append(StringBuilder sb, int block, Map<SharedFormula, Integer> sharedFormulas) {
+      int from = this.blocks[block];
+      int to = this.blocks[block + 1];
+      int styledFrom = block == 0 ? 0 : firstRowAfter(this.styledRows, this.getRow(from - 1));
+      int styledTo = block == this.size() - 1 ? this.styledRows.length : firstRowAfter(this.styledRows, this.getRow(to - 1));
+      if (this.order != null) {
+        return LowLevel.this.appendBufferedRows(sb, this.worksheet, this.buffer, this.order, from, to, this.styledRows, styledFrom, styledTo, sharedFormulas);
+      }
+      if (this.store != null) {
+        return LowLevel.this.appendMappedRows(sb, this.worksheet, this.store, this.storeBlocks, from, to, this.styledRows, styledFrom, styledTo, sharedFormulas);
+      }
+      return LowLevel.this.appendCellRows(sb, this.worksheet, this.celldata, from, to, this.styledRows, styledFrom, styledTo, sharedFormulas);
+    }
+
+    /**
+     * Adds the shared strings of all rows in row order, like createRowString and appendBufferedCell do. Used before the blocks are serialized concurrently
+     */
+    void resolveSharedStrings() {
+      if (this.order != null) {
+        for (int index : this.order) {
+          if (this.buffer.getType(index) == CellBuffer.TYPE_STRING) {
+            LowLevel.this.resolveSharedString(this.buffer.getObject(index).toString());
+          } else if (this.buffer.getType(index) == CellBuffer.TYPE_EMPTY) {
+            LowLevel.this.resolveSharedString("");
+          }
+        }
+        return;
+      }
+      if (this.store != null) {
+        byte type;
+        int rowNumber;
+        for (int block : this.storeBlocks) {
+          for (int row = 0; row < MappedCellStore.ROWS_PER_BLOCK; row++) {
+            rowNumber = block * MappedCellStore.ROWS_PER_BLOCK + row;
+            for (int column = 0; column < this.store.getColumnCount(block); column++) {
+              type = this.store.getType(column, rowNumber);
+              if (type == CellBuffer.TYPE_STRING) {
+                LowLevel.this.resolveSharedString(this.store.getObject(column, rowNumber).toString());
+              } else if (type == CellBuffer.TYPE_EMPTY) {
+                LowLevel.this.resolveSharedString("");
+              }
+            }
+          }
+        }
+        return;
+      }
+      Cell.CellType type;
+      for (List<Cell> row : this.celldata) {
+        for (Cell cell : row) {
+          cell.resolveCellType();
+          type = cell.getDataType();
+          if (cell.getValue() != null && type != Cell.CellType.BOOL && type != Cell.CellType.NUMBER && type != Cell.CellType.DATE
+              && type != Cell.CellType.TIME && type != Cell.CellType.FORMULA) {
+            LowLevel.this.resolveSharedString(cell.getValue().toString());
+          }
+        }
+      }
+    }
+
+    /**
+     * Gets the row number of an entry
+     *
+     * @param index Index of the entry in the ordered buffer indices, the blocks of the mapped cell store (last row of the block) or the sorted cell data
+     * @return Row number (zero-based)
+     */
+    private int getRow(int index) {
+      if (this.store != null) {
+        return (this.storeBlocks[index] + 1) * MappedCellStore.ROWS_PER_BLOCK - 1;
+      }
+      return this.order != null ? this.buffer.getRow(this.order[index]) : this.celldata.get(index).get(0).getRowNumber();
+    }
+  }
+
 }
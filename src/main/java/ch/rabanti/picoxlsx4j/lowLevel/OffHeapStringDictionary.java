@@ -0,0 +1,422 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class representing a dictionary of shared strings outside of the heap (see SaveOptions.setOffHeapSharedStrings). No object is held per string, so the garbage collector
+ * is not affected by the number of strings.<br>
+ * The strings are stored as UTF-8 records (length, index, hash and bytes) in segments of 4 MB, in the order of their indices. An open-addressing hash index (linear probing)
+ * holds the positions of the records, together with 24 bits of the hash to skip most records of other strings without reading them. Direct memory is used up to the memory limit,
+ * all further segments are mapped from a temporary file. The file is deleted when the dictionary is closed.<br>
+ * Several threads can look up strings concurrently, as long as no string is added
+ * @author Raphael Stoeckli
+ */
+class OffHeapStringDictionary implements StringDictionary {
+
+    // ### C O N S T A N T S ###
+    private static final int SEGMENT_BITS = 22;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int SLOT_BITS = SEGMENT_BITS - 3; // 8 bytes per slot
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int POSITION_BITS = 40;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // ### P R I V A T E  F I E L D S ###
+    private FileChannel channel;
+    private int count;
+    private final List<ByteBuffer> dataSegments;
+    private long dataSize;
+    private long directSize;
+    private final Path directory;
+    private long fileSize;
+    private final Deque<ByteBuffer> freeSegments;
+    private ByteBuffer[] indexSegments;
+    private int mask;
+    private final long memoryLimit;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the number of strings
+     *
+     * @return Number of strings
+     */
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Gets whether segments were mapped from the temporary file, since the memory limit was reached
+     *
+     * @return True if the dictionary was spilled to the temporary file
+     */
+    boolean isSpilled() {
+        return this.channel != null;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the memory limit and the directory of the temporary file
+     *
+     * @param memoryLimit Maximum size of the direct memory in bytes (strings and hash index). All further segments are mapped from the temporary file
+     * @param directory   Directory of the temporary file. If null, the default temporary directory is used
+     */
+    OffHeapStringDictionary(long memoryLimit, Path directory) {
+        this.memoryLimit = memoryLimit;
+        this.directory = directory;
+        this.dataSegments = new ArrayList<>();
+        this.freeSegments = new ArrayDeque<>();
+        this.allocateIndex(1 << SLOT_BITS);
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Adds a string if it does not exist yet
+     *
+     * @param value String to add
+     * @return Index of the added or existing string
+     * @throws UncheckedIOException Thrown if a segment could not be mapped from the temporary file
+     */
+    @Override
+    public int add(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = value.hashCode();
+        int slot = this.findSlot(bytes, hash);
+        long entry = this.getSlot(slot);
+        if (entry != 0) {
+            return this.getInt((entry & POSITION_MASK) - 1 + 4);
+        }
+        if (this.count == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The dictionary of the shared strings is full");
+        }
+        long position = this.appendRecord(bytes, hash, this.count);
+        this.setSlot(slot, createEntry(position, hash));
+        this.count++;
+        if (this.count > (this.mask + 1L) * 3 / 4 && this.mask + 1 < MAX_CAPACITY) {
+            this.rehash((this.mask + 1) * 2);
+        }
+        return this.count - 1;
+    }
+
+    /**
+     * Gets the index of a string without adding it
+     *
+     * @param value String to look up
+     * @return Index of the string or -1 if the string does not exist
+     */
+    @Override
+    public int get(String value) {
+        long entry = this.getSlot(this.findSlot(value.getBytes(StandardCharsets.UTF_8), value.hashCode()));
+        return entry == 0 ? -1 : this.getInt((entry & POSITION_MASK) - 1 + 4);
+    }
+
+    /**
+     * Gets an iterator over the strings in the order of their indices. The records are read sequentially
+     *
+     * @return Iterator of the strings
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int index;
+            private long position;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < count;
+            }
+
+            @Override
+            public String next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException("No further string exists");
+                }
+                this.position = alignRecord(this.position);
+                byte[] bytes = new byte[getInt(this.position)];
+                readBytes(this.position + HEADER_SIZE, bytes);
+                this.position += HEADER_SIZE + bytes.length;
+                this.index++;
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Releases the segments and deletes the temporary file. The direct memory is released by the garbage collector
+     */
+    @Override
+    public void close() {
+        this.dataSegments.clear();
+        this.freeSegments.clear();
+        this.indexSegments = new ByteBuffer[0];
+        this.count = 0;
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Finds the slot of a string in the hash index
+     *
+     * @param bytes UTF-8 bytes of the string
+     * @param hash  Hash of the string
+     * @return Slot of the string or the empty slot where the string would be inserted
+     */
+    private int findSlot(byte[] bytes, int hash) {
+        long tag = createEntry(0, hash) & ~POSITION_MASK;
+        int slot = spread(hash) & this.mask;
+        long entry;
+        while (true) {
+            entry = this.getSlot(slot);
+            if (entry == 0 || ((entry & ~POSITION_MASK) == tag && this.matches((entry & POSITION_MASK) - 1, bytes))) {
+                return slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    /**
+     * Compares a record with the bytes of a string
+     *
+     * @param position Position of the record
+     * @param bytes    UTF-8 bytes of the string
+     * @return True if the record contains the string
+     */
+    private boolean matches(long position, byte[] bytes) {
+        if (this.getInt(position) != bytes.length) {
+            return false;
+        }
+        long offset = position + HEADER_SIZE;
+        ByteBuffer segment = null;
+        for (int i = 0; i < bytes.length; i++, offset++) {
+            if (segment == null || (offset & SEGMENT_MASK) == 0) {
+                segment = this.dataSegments.get((int) (offset >>> SEGMENT_BITS));
+            }
+            if (segment.get((int) (offset & SEGMENT_MASK)) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a record at the end of the data segments. The header of a record never spans two segments, the bytes may
+     *
+     * @param bytes UTF-8 bytes of the string
+     * @param hash  Hash of the string
+     * @param index Index of the string
+     * @return Position of the record
+     */
+    private long appendRecord(byte[] bytes, int hash, int index) {
+        long position = alignRecord(this.dataSize);
+        long end = position + HEADER_SIZE + bytes.length;
+        while (((long) this.dataSegments.size() << SEGMENT_BITS) < end) {
+            this.dataSegments.add(this.allocateSegment());
+        }
+        ByteBuffer segment = this.dataSegments.get((int) (position >>> SEGMENT_BITS));
+        int offset = (int) (position & SEGMENT_MASK);
+        segment.putInt(offset, bytes.length);
+        segment.putInt(offset + 4, index);
+        segment.putInt(offset + 8, hash);
+        long target = position + HEADER_SIZE;
+        int written = 0;
+        int length;
+        ByteBuffer buffer;
+        while (written < bytes.length) {
+            buffer = this.dataSegments.get((int) (target >>> SEGMENT_BITS)).duplicate();
+            buffer.position((int) (target & SEGMENT_MASK));
+            length = Math.min(bytes.length - written, buffer.remaining());
+            buffer.put(bytes, written, length);
+            written += length;
+            target += length;
+        }
+        this.dataSize = end;
+        return position;
+    }
+
+    /**
+     * Reads the bytes of a record
+     *
+     * @param position Position of the bytes
+     * @param bytes    Array to fill
+     */
+    private void readBytes(long position, byte[] bytes) {
+        int read = 0;
+        int length;
+        ByteBuffer buffer;
+        while (read < bytes.length) {
+            buffer = this.dataSegments.get((int) (position >>> SEGMENT_BITS)).duplicate();
+            buffer.position((int) (position & SEGMENT_MASK));
+            length = Math.min(bytes.length - read, buffer.remaining());
+            buffer.get(bytes, read, length);
+            read += length;
+            position += length;
+        }
+    }
+
+    /**
+     * Rebuilds the hash index with a new capacity. The records are read sequentially, so the old index is released first
+     *
+     * @param capacity Number of slots (power of two)
+     */
+    private void rehash(int capacity) {
+        for (ByteBuffer segment : this.indexSegments) {
+            this.freeSegments.push(segment);
+        }
+        this.allocateIndex(capacity);
+        long position = 0;
+        int slot;
+        int hash;
+        for (int i = 0; i < this.count; i++) {
+            position = alignRecord(position);
+            hash = this.getInt(position + 8);
+            slot = spread(hash) & this.mask;
+            while (this.getSlot(slot) != 0) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.setSlot(slot, createEntry(position, hash));
+            position += HEADER_SIZE + this.getInt(position);
+        }
+    }
+
+    /**
+     * Allocates an empty hash index
+     *
+     * @param capacity Number of slots (power of two, at least one segment)
+     */
+    private void allocateIndex(int capacity) {
+        ByteBuffer[] segments = new ByteBuffer[capacity >>> SLOT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = this.allocateSegment();
+            for (int j = 0; j < SEGMENT_SIZE; j += 8) { // Released segments are reused
+                segments[i].putLong(j, 0);
+            }
+        }
+        this.indexSegments = segments;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Allocates a segment. Released segments are reused, new segments are allocated in direct memory up to the memory limit and mapped from the temporary file beyond
+     *
+     * @return Segment of 4 MB
+     * @throws UncheckedIOException Thrown if the segment could not be mapped from the temporary file
+     */
+    private ByteBuffer allocateSegment() {
+        ByteBuffer segment = this.freeSegments.poll();
+        if (segment != null) {
+            return segment;
+        }
+        if (this.directSize + SEGMENT_SIZE <= this.memoryLimit) {
+            this.directSize += SEGMENT_SIZE;
+            return ByteBuffer.allocateDirect(SEGMENT_SIZE);
+        }
+        try {
+            if (this.channel == null) {
+                Path file = this.directory == null ? Files.createTempFile("picoxlsx4j-sst", ".dat") : Files.createTempFile(this.directory, "picoxlsx4j-sst", ".dat");
+                this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            segment = this.channel.map(FileChannel.MapMode.READ_WRITE, this.fileSize, SEGMENT_SIZE);
+            this.fileSize += SEGMENT_SIZE;
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("The shared strings could not be spilled to a temporary file", e);
+        }
+    }
+
+    /**
+     * Gets an int of the data segments
+     *
+     * @param position Position of the int (within one segment)
+     * @return Value
+     */
+    private int getInt(long position) {
+        return this.dataSegments.get((int) (position >>> SEGMENT_BITS)).getInt((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Gets an entry of the hash index
+     *
+     * @param slot Slot of the entry
+     * @return Entry (24 bits of the hash and the position of the record + 1) or 0 if the slot is empty
+     */
+    private long getSlot(int slot) {
+        return this.indexSegments[slot >>> SLOT_BITS].getLong((slot & SLOT_MASK) << 3);
+    }
+
+    /**
+     * Sets an entry of the hash index
+     *
+     * @param slot  Slot of the entry
+     * @param entry Entry
+     */
+    private void setSlot(int slot, long entry) {
+        this.indexSegments[slot >>> SLOT_BITS].putLong((slot & SLOT_MASK) << 3, entry);
+    }
+
+    /**
+     * Moves a position to the start of the next segment if the header of a record would not fit into the current segment
+     *
+     * @param position Position of the record
+     * @return Aligned position
+     */
+    private static long alignRecord(long position) {
+        if (SEGMENT_SIZE - (position & SEGMENT_MASK) < HEADER_SIZE) {
+            return (position | SEGMENT_MASK) + 1;
+        }
+        return position;
+    }
+
+    /**
+     * Creates an entry of the hash index
+     *
+     * @param position Position of the record
+     * @param hash     Hash of the string
+     * @return Entry with the upper 24 bits of the hash and the position + 1 (never 0)
+     */
+    private static long createEntry(long position, int hash) {
+        return ((long) (hash >>> 8) << POSITION_BITS) | (position + 1);
+    }
+
+    /**
+     * Spreads the bits of a hash, so that similar strings do not end in neighbouring slots
+     *
+     * @param hash Hash of the string
+     * @return Spread hash
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
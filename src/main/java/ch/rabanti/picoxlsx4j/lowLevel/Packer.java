@@ -14,6 +14,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -63,10 +64,7 @@ public class Packer {
      */
     public void addPart(String name, String contentType, Document document) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
-        this.dataList.add(LowLevel.createBytesFromDocument(document));
-        this.pathList.add(name);
-        this.contentTypeList.add(contentType);
-        this.includeContentType.add(true);
+        this.addPart(name, contentType, document, true);
     }
     
     /**
@@ -79,7 +77,66 @@ public class Packer {
      */
     public void addPart(String name, String contentType, Document document, boolean includeInContentType) throws ch.rabanti.picoxlsx4j.exception.IOException
     {
-        this.dataList.add(LowLevel.createBytesFromDocument(document));
+        SaveRecorder recorder = this.lowLevelReference.getRecorder();
+        long time = recorder == null ? 0 : System.nanoTime();
+        byte[] data = this.lowLevelReference.serializeDocument(document);
+        if (recorder != null)
+        {
+            recorder.serialized(name, System.nanoTime() - time, data.length);
+        }
+        this.addData(name, contentType, data, includeInContentType);
+    }
+
+    /**
+     * Adds a Part to the file that is already serialized (UTF-8 bytes of the XML document, including the declaration)
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param data Serialized XML document
+     */
+    public void addPart(String name, String contentType, byte[] data)
+    {
+        this.addPart(name, contentType, data, true);
+    }
+
+    /**
+     * Adds a Part to the file that is already serialized (UTF-8 bytes of the XML document, including the declaration)
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML).<br>This information is used in the main content type file
+     * @param data Serialized XML document
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    public void addPart(String name, String contentType, byte[] data, boolean includeInContentType)
+    {
+        SaveRecorder recorder = this.lowLevelReference.getRecorder();
+        if (recorder != null)
+        {
+            CompressedPart part = this.lowLevelReference.getCompressedPart(data);
+            recorder.serialized(name, 0, part == null ? data.length : part.getSize()); // Cached worksheets are only placeholders
+        }
+        this.addData(name, contentType, data, includeInContentType);
+    }
+
+    /**
+     * Declares a part whose data is not held by the packer, but written directly into a save pipeline. The part is only listed in the main content type file
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML)
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    void declarePart(String name, String contentType, boolean includeInContentType)
+    {
+        this.addData(name, contentType, null, includeInContentType);
+    }
+
+    /**
+     * Adds the data of a part
+     * @param name Filename with relative path
+     * @param contentType URL with information about the content type (MSXML)
+     * @param data Serialized XML document
+     * @param includeInContentType If true, the content type will be added in the main content type file, otherwise not
+     */
+    private void addData(String name, String contentType, byte[] data, boolean includeInContentType)
+    {
+        this.dataList.add(data);
         this.pathList.add(name);
         this.contentTypeList.add(contentType);
         this.includeContentType.add(includeInContentType);
@@ -108,8 +165,7 @@ public class Packer {
             sb.append("\" />\r\n");
         }
         sb.append("</Types>");
-        Document d = this.lowLevelReference.createXMLDocument(sb.toString(), "CONTENTTYPE");
-        return LowLevel.createBytesFromDocument(d);
+        return this.lowLevelReference.createPartBytes(null, sb.toString(), "CONTENTTYPE", true);
     }
     /**
      * Creates a relationship. This will be used to generate a .rels file in the compilation (MSXML)
@@ -144,8 +200,7 @@ public class Packer {
             sb.append("\"/>\r\n");
         }
         sb.append("</Relationships>");
-        Document d = this.lowLevelReference.createXMLDocument(sb.toString(), "REL: " + rel.currentId);
-        return LowLevel.createBytesFromDocument(d);
+        return this.lowLevelReference.createPartBytes(null, sb.toString(), "REL: " + rel.currentId, true);
     }    
     /**
      * Method to pack the data into a XLSX file. This is the actual compiling and writing method (to a OutputStream)
@@ -156,26 +211,25 @@ public class Packer {
     {
         try
         {
-            byte[] contentTypes = this.createContentTypeDocument();
-            
-            ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(stream), StandardCharsets.UTF_8);
-            out.setMethod(ZipOutputStream.DEFLATED);
-            ZipEntry entry = new ZipEntry(CONTENT_TYPE_DOCUMENT);
-            out.putNextEntry(entry);
-            out.write(contentTypes, 0, contentTypes.length);
-            byte[] data;
-            for (Relationship relationship : this.relationships) {
-                data = this.createRelationshipDocument(relationship);
-                entry = new ZipEntry(relationship.getRootFolder());
-                out.putNextEntry(entry);
-                out.write(data, 0, data.length);
+            SaveRecorder recorder = this.lowLevelReference.getRecorder();
+            List<String> names = new ArrayList<>();
+            List<byte[]> entries = new ArrayList<>();
+            this.collectEntries(names, entries, recorder);
+            // A channel stream is already buffered (direct buffer); wrapping it would only add a copy
+            OutputStream buffered = stream instanceof ChannelOutputStream ? stream : new BufferedOutputStream(stream);
+            ExecutorService executor = this.lowLevelReference.getExecutor();
+            GenerationContext context = this.lowLevelReference.getContext();
+            if (executor != null || context != null || this.lowLevelReference.isCompressedPartsUsed())
+            {
+                // A ZIP output stream always creates a new deflater and cannot take pre-compressed data; the own ZIP writer can do both
+                this.packDirect(buffered, names, entries, new ParallelZipWriter(buffered, executor, context == null ? null : context.getDeflater()), recorder);
+                return;
             }
-            for (int i = 0; i < this.dataList.size(); i++)
+            ZipOutputStream out = new ZipOutputStream(buffered, StandardCharsets.UTF_8);
+            out.setMethod(ZipOutputStream.DEFLATED);
+            for (int i = 0; i < names.size(); i++)
             {
-                data = this.dataList.get(i);
-                entry = new ZipEntry(this.pathList.get(i));
-                out.putNextEntry(entry);
-                out.write(data, 0, data.length);
+                writeEntry(out, names.get(i), entries.get(i), recorder);
             }
             out.flush();
             out.close();
@@ -185,6 +239,126 @@ public class Packer {
             throw new ch.rabanti.picoxlsx4j.exception.IOException("PackingException","There was an error while packing the file. Please see the inner exception.", e);
         }
     }
+
+    /**
+     * Packs the entries with the own ZIP writer, which compresses large entries in concurrent blocks (if an executor is defined) or reuses a deflater.
+     * Entries of compiled template parts or cached parts are copied as pre-compressed data. The stream is closed afterwards (like in pack)
+     * @param stream Buffered stream to write into
+     * @param names Paths of the entries
+     * @param entries Uncompressed data of the entries
+     * @param out ZIP writer on the buffered stream
+     * @param recorder Recorder of the save process or null
+     * @throws java.io.IOException Thrown in case of an error while compressing or writing
+     */
+    private void packDirect(OutputStream stream, List<String> names, List<byte[]> entries, ParallelZipWriter out, SaveRecorder recorder) throws java.io.IOException
+    {
+        long time;
+        long compressedSize;
+        CompressedPart part;
+        for (int i = 0; i < names.size(); i++)
+        {
+            time = recorder == null ? 0 : System.nanoTime();
+            part = this.lowLevelReference.getCompressedPart(entries.get(i));
+            if (part != null)
+            {
+                compressedSize = out.writeCompressedEntry(names.get(i), part.getCompressed(), part.getCrc(), part.getSize());
+            }
+            else
+            {
+                compressedSize = out.writeEntry(names.get(i), entries.get(i));
+            }
+            if (recorder != null)
+            {
+                recorder.compressed(names.get(i), System.nanoTime() - time, compressedSize);
+            }
+        }
+        out.finish();
+        stream.close();
+    }
+
+    /**
+     * Creates a source of compressed chunks of the XLSX file. In contrast to pack, the data is compressed on demand, whenever the next chunk is requested
+     * @param chunkSize Size of the chunks in bytes
+     * @return Chunk source
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the content type or relationship documents could not be created
+     */
+    ZipChunkSource createChunkSource(int chunkSize) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        List<String> names = new ArrayList<>();
+        List<byte[]> entries = new ArrayList<>();
+        this.collectEntries(names, entries, null);
+        return new ZipChunkSource(names, entries, chunkSize);
+    }
+
+    /**
+     * Collects all entries of the XLSX file in the order of the ZIP container: content types, relationships and the added parts
+     * @param names List to add the paths of the entries
+     * @param entries List to add the uncompressed data of the entries
+     * @param recorder Recorder of the save process or null
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the content type or relationship documents could not be created
+     */
+    private void collectEntries(List<String> names, List<byte[]> entries, SaveRecorder recorder) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        this.collectHeaderEntries(names, entries, recorder);
+        names.addAll(this.pathList);
+        entries.addAll(this.dataList);
+    }
+
+    /**
+     * Collects the entries that precede the parts: the main content type file and the relationships. All parts must be added or declared before
+     * @param names List to add the paths of the entries
+     * @param entries List to add the uncompressed data of the entries
+     * @param recorder Recorder of the save process or null
+     * @throws ch.rabanti.picoxlsx4j.exception.IOException Thrown if the content type or relationship documents could not be created
+     */
+    void collectHeaderEntries(List<String> names, List<byte[]> entries, SaveRecorder recorder) throws ch.rabanti.picoxlsx4j.exception.IOException
+    {
+        if (recorder != null)
+        {
+            recorder.beginPart(CONTENT_TYPE_DOCUMENT);
+        }
+        byte[] data = this.createContentTypeDocument();
+        if (recorder != null)
+        {
+            recorder.endPart(data.length);
+        }
+        names.add(CONTENT_TYPE_DOCUMENT);
+        entries.add(data);
+        for (Relationship relationship : this.relationships) {
+            if (recorder != null)
+            {
+                recorder.beginPart(relationship.getRootFolder());
+            }
+            data = this.createRelationshipDocument(relationship);
+            if (recorder != null)
+            {
+                recorder.endPart(data.length);
+            }
+            names.add(relationship.getRootFolder());
+            entries.add(data);
+        }
+    }
+    
+    /**
+     * Writes one entry into the ZIP stream. If metrics are collected, the compression time and the compressed size are recorded
+     * @param out ZIP stream
+     * @param name Path of the entry
+     * @param data Uncompressed data
+     * @param recorder Recorder of the save process or null
+     * @throws java.io.IOException Thrown in case of an error while writing
+     */
+    private static void writeEntry(ZipOutputStream out, String name, byte[] data, SaveRecorder recorder) throws java.io.IOException
+    {
+        long time = recorder == null ? 0 : System.nanoTime();
+        ZipEntry entry = new ZipEntry(name);
+        out.putNextEntry(entry);
+        out.write(data, 0, data.length);
+        out.closeEntry();
+        if (recorder != null)
+        {
+            recorder.compressed(name, System.nanoTime() - time, entry.getCompressedSize());
+        }
+    }
     
 // ### S U B  C L A S S E S ###    
     /**
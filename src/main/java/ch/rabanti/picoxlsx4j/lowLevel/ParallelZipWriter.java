@@ -0,0 +1,420 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Class to write a ZIP container whose entries are compressed in concurrent blocks. Each block is deflated independently (with the preceding 32 KB of the entry as dictionary)
+ * and ends on a byte boundary (sync flush), so the compressed blocks are concatenated to one valid deflate stream per entry.<br>
+ * The sizes and the CRC of an entry are known before its header is written, so no data descriptors are used. ZIP64 records are written if the container exceeds 4 GB.<br>
+ * Without executor, each entry is compressed in one block by a single deflater, which can be reused across ZIP containers. Entries of another ZIP file can be copied without recompression
+ * @author Raphael Stoeckli
+ */
+class ParallelZipWriter {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Number of uncompressed bytes per block
+     */
+    private static final int BLOCK_SIZE = 128 * 1024;
+    /**
+     * Size of the deflate window, used as dictionary of the following block
+     */
+    private static final int DICTIONARY_SIZE = 32768;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final Deflater deflater;
+    private final List<EntryInfo> entries;
+    private final int dosTime;
+    private final ExecutorService executor;
+    private final OutputStream out;
+    private long position;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the target stream, the executor to compress the blocks and a reusable deflater
+     *
+     * @param out      Stream to write the ZIP container into. The stream is not closed
+     * @param executor Executor to compress the blocks, or null to compress each entry in one block in the calling thread
+     * @param deflater Reusable deflater (raw deflate data) for entries that are compressed in one block in the calling thread, or null to create a new deflater per entry.
+     *                 The deflater is reset before use, but not ended
+     */
+    ParallelZipWriter(OutputStream out, ExecutorService executor, Deflater deflater) {
+        this(out, executor, deflater, 0);
+    }
+
+    /**
+     * Constructor with the target stream, the executor to compress the blocks, a reusable deflater and the start position of the stream in the ZIP container
+     *
+     * @param out      Stream to write the ZIP container into. The stream is not closed
+     * @param executor Executor to compress the blocks, or null to compress each entry in one block in the calling thread
+     * @param deflater Reusable deflater (raw deflate data) or null to create a new deflater per entry
+     * @param position Position of the first written byte in the ZIP container, if entries are appended to an existing container (otherwise 0)
+     */
+    ParallelZipWriter(OutputStream out, ExecutorService executor, Deflater deflater, long position) {
+        this.out = out;
+        this.position = position;
+        this.executor = executor;
+        this.deflater = deflater;
+        this.entries = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = ((now.getYear() - 1980) << 25) | (now.getMonthValue() << 21) | (now.getDayOfMonth() << 16)
+                | (now.getHour() << 11) | (now.getMinute() << 5) | (now.getSecond() >> 1);
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Compresses and writes one entry. Entries that consist of more than one block are compressed concurrently, while the CRC is calculated in the calling thread
+     *
+     * @param name Path of the entry
+     * @param data Uncompressed data
+     * @return Compressed size of the entry
+     * @throws IOException Thrown in case of an error while compressing or writing
+     */
+    long writeEntry(String name, byte[] data) throws IOException {
+        int blockCount = this.executor == null ? 1 : Math.max(1, (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        byte[][] blocks = new byte[blockCount][];
+        List<Future<byte[]>> futures = new ArrayList<>(blockCount);
+        if (blockCount > 1) {
+            for (int i = 0; i < blockCount; i++) {
+                final int offset = i * BLOCK_SIZE;
+                final int length = Math.min(BLOCK_SIZE, data.length - offset);
+                final boolean last = i == blockCount - 1;
+                futures.add(this.executor.submit(() -> deflate(data, offset, length, last, null)));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (blockCount == 1) {
+            blocks[0] = deflate(data, 0, data.length, true, this.deflater);
+        } else {
+            for (int i = 0; i < blockCount; i++) {
+                blocks[i] = await(futures.get(i));
+            }
+        }
+        return this.writeBlocks(name, blocks, crc.getValue(), data.length);
+    }
+
+    /**
+     * Writes one entry that is already compressed (raw deflate data)
+     *
+     * @param name       Path of the entry
+     * @param compressed Compressed data
+     * @param crc        CRC-32 of the uncompressed data
+     * @param size       Uncompressed size
+     * @return Compressed size of the entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    long writeCompressedEntry(String name, byte[] compressed, long crc, long size) throws IOException {
+        return this.writeBlocks(name, new byte[][]{compressed}, crc, size);
+    }
+
+    /**
+     * Copies one entry of another ZIP file without decompression (e.g. an unmodified part of an edited file). The data is streamed from the file in chunks
+     *
+     * @param name           Path of the entry
+     * @param method         Compression method of the entry (e.g. 8 for deflate or 0 for stored)
+     * @param crc            CRC-32 of the uncompressed data
+     * @param compressedSize Compressed size
+     * @param size           Uncompressed size
+     * @param source         Channel of the source file
+     * @param dataOffset     Position of the compressed data in the source file
+     * @throws IOException Thrown if the entry exceeds 4 GB or in case of an error while reading or writing
+     */
+    void writeRawEntry(String name, int method, long crc, long compressedSize, long size, FileChannel source, long dataOffset) throws IOException {
+        if (compressedSize >= ZIP64_LIMIT || size >= ZIP64_LIMIT) {
+            throw new IOException("The entry " + name + " exceeds 4 GB and cannot be copied");
+        }
+        EntryInfo entry = new EntryInfo(name.getBytes(StandardCharsets.UTF_8), method, crc, compressedSize, size, this.position);
+        this.writeLocalHeader(entry);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, Math.max(compressedSize, 1)));
+        long remaining = compressedSize;
+        long position = dataOffset;
+        int read;
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), remaining));
+            read = source.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the source file while copying the entry " + name);
+            }
+            this.out.write(buffer.array(), 0, read);
+            this.position += read;
+            position += read;
+            remaining -= read;
+        }
+        this.entries.add(entry);
+    }
+
+    /**
+     * Adds an entry that already exists in the ZIP container (in front of the start position) to the central directory, without writing it
+     *
+     * @param name           Path of the entry
+     * @param method         Compression method of the entry
+     * @param crc            CRC-32 of the uncompressed data
+     * @param compressedSize Compressed size
+     * @param size           Uncompressed size
+     * @param offset         Position of the local header of the entry
+     * @throws IOException Thrown if the entry exceeds 4 GB
+     */
+    void addExistingEntry(String name, int method, long crc, long compressedSize, long size, long offset) throws IOException {
+        if (compressedSize >= ZIP64_LIMIT || size >= ZIP64_LIMIT) {
+            throw new IOException("The entry " + name + " exceeds 4 GB and cannot be added");
+        }
+        this.entries.add(new EntryInfo(name.getBytes(StandardCharsets.UTF_8), method, crc, compressedSize, size, offset));
+    }
+
+    /**
+     * Writes the local header and the compressed blocks of an entry
+     *
+     * @param name   Path of the entry
+     * @param blocks Compressed blocks, forming one deflate stream
+     * @param crc    CRC-32 of the uncompressed data
+     * @param size   Uncompressed size
+     * @return Compressed size of the entry
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private long writeBlocks(String name, byte[][] blocks, long crc, long size) throws IOException {
+        long compressedSize = 0;
+        for (byte[] block : blocks) {
+            compressedSize += block.length;
+        }
+        EntryInfo entry = new EntryInfo(name.getBytes(StandardCharsets.UTF_8), METHOD_DEFLATED, crc, compressedSize, size, this.position);
+        this.writeLocalHeader(entry);
+        for (byte[] block : blocks) {
+            this.write(block);
+        }
+        this.entries.add(entry);
+        return compressedSize;
+    }
+
+    /**
+     * Writes the local header of an entry
+     *
+     * @param entry Entry to write
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void writeLocalHeader(EntryInfo entry) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x04034b50);
+        header.putShort((short) VERSION);
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.method);
+        header.putInt(this.dosTime);
+        header.putInt((int) entry.crc);
+        header.putInt((int) entry.compressedSize);
+        header.putInt((int) entry.size);
+        header.putShort((short) entry.name.length);
+        header.putShort((short) 0);
+        this.write(header.array());
+        this.write(entry.name);
+    }
+
+    /**
+     * Writes the central directory and the end records. The stream is flushed but not closed
+     *
+     * @throws IOException Thrown in case of an error while writing
+     */
+    void finish() throws IOException {
+        long directoryOffset = this.position;
+        for (EntryInfo entry : this.entries) {
+            boolean zip64 = entry.offset >= ZIP64_LIMIT;
+            ByteBuffer header = ByteBuffer.allocate(46 + (zip64 ? 12 : 0)).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0x02014b50);
+            header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION));
+            header.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION));
+            header.putShort((short) FLAG_UTF8);
+            header.putShort((short) entry.method);
+            header.putInt(this.dosTime);
+            header.putInt((int) entry.crc);
+            header.putInt((int) entry.compressedSize);
+            header.putInt((int) entry.size);
+            header.putShort((short) entry.name.length);
+            header.putShort((short) (zip64 ? 12 : 0));
+            header.putShort((short) 0); // Comment
+            header.putShort((short) 0); // Disk
+            header.putShort((short) 0); // Internal attributes
+            header.putInt(0); // External attributes
+            header.putInt((int) (zip64 ? ZIP64_LIMIT : entry.offset));
+            if (zip64) {
+                header.putShort((short) 0x0001);
+                header.putShort((short) 8);
+                header.putLong(entry.offset);
+            }
+            this.write(Arrays.copyOf(header.array(), 46));
+            this.write(entry.name);
+            if (zip64) {
+                this.write(Arrays.copyOfRange(header.array(), 46, 58));
+            }
+        }
+        long directorySize = this.position - directoryOffset;
+        int count = this.entries.size();
+        if (count > ZIP64_ENTRY_LIMIT || directoryOffset >= ZIP64_LIMIT || directorySize >= ZIP64_LIMIT) {
+            long recordOffset = this.position;
+            ByteBuffer record = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+            record.putInt(0x06064b50);
+            record.putLong(44); // Size of the remaining record
+            record.putShort((short) VERSION_ZIP64);
+            record.putShort((short) VERSION_ZIP64);
+            record.putInt(0); // Disk
+            record.putInt(0); // Disk of the central directory
+            record.putLong(count);
+            record.putLong(count);
+            record.putLong(directorySize);
+            record.putLong(directoryOffset);
+            record.putInt(0x07064b50); // Locator
+            record.putInt(0);
+            record.putLong(recordOffset);
+            record.putInt(1); // Number of disks
+            this.write(record.array());
+        }
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(0x06054b50);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) Math.min(count, ZIP64_ENTRY_LIMIT));
+        end.putShort((short) Math.min(count, ZIP64_ENTRY_LIMIT));
+        end.putInt((int) Math.min(directorySize, ZIP64_LIMIT));
+        end.putInt((int) Math.min(directoryOffset, ZIP64_LIMIT));
+        end.putShort((short) 0); // Comment
+        this.write(end.array());
+        this.out.flush();
+    }
+
+    /**
+     * Writes bytes into the stream and advances the position
+     *
+     * @param data Bytes to write
+     * @throws IOException Thrown in case of an error while writing
+     */
+    private void write(byte[] data) throws IOException {
+        this.out.write(data);
+        this.position += data.length;
+    }
+
+    /**
+     * Deflates one block of an entry. A block that is not the last one ends with a sync flush, the last block finishes the deflate stream
+     *
+     * @param data     Uncompressed data of the entry
+     * @param offset   Start of the block
+     * @param length   Length of the block
+     * @param last     If true, the block is the last one of the entry
+     * @param reusable Reusable deflater or null to create a new one
+     * @return Compressed block
+     */
+    private static byte[] deflate(byte[] data, int offset, int length, boolean last, Deflater reusable) {
+        Deflater deflater = reusable == null ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : reusable;
+        try {
+            if (offset > 0) {
+                int start = Math.max(0, offset - DICTIONARY_SIZE);
+                deflater.setDictionary(data, start, offset - start);
+            }
+            deflater.setInput(data, offset, length);
+            byte[] buffer = new byte[length / 2 + 64];
+            int size = 0;
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    size += deflater.deflate(buffer, size, buffer.length - size);
+                }
+            } else {
+                // The flush is complete if the buffer was not filled up
+                do {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    size += deflater.deflate(buffer, size, buffer.length - size, Deflater.SYNC_FLUSH);
+                } while (size == buffer.length);
+            }
+            return Arrays.copyOf(buffer, size);
+        } finally {
+            if (reusable == null) {
+                deflater.end();
+            } else {
+                deflater.reset();
+            }
+        }
+    }
+
+    /**
+     * Waits for the result of a compressed block
+     *
+     * @param future Future of the block
+     * @return Compressed block
+     * @throws IOException Thrown if the compression failed or the thread was interrupted
+     */
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The compression was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("A block could not be compressed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Class representing the central directory information of a written entry
+     */
+    private static class EntryInfo {
+        private final long compressedSize;
+        private final long crc;
+        private final int method;
+        private final byte[] name;
+        private final long offset;
+        private final long size;
+
+        /**
+         * Constructor with all values
+         *
+         * @param name           Path of the entry (UTF-8)
+         * @param method         Compression method
+         * @param crc            CRC-32 of the uncompressed data
+         * @param compressedSize Compressed size
+         * @param size           Uncompressed size
+         * @param offset         Position of the local header
+         */
+        EntryInfo(byte[] name, int method, long crc, long compressedSize, long size, long offset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Worksheet;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing the cache of an incrementally saved workbook (see Workbook.setIncrementalSave). The cache keeps the compressed worksheet parts and static parts
+ * of the last save process, so a repeated save only generates the worksheets that were modified since. The shared strings are kept across the save processes:
+ * the index of a string never changes, so the cached worksheets stay valid. Strings that are not used anymore remain in the shared string table until the cache is cleared.<br>
+ * A worksheet is reused as long as its modification count, the modification count of the style manager, its sheet ID and its selection state are unchanged
+ * @author Raphael Stoeckli
+ */
+public class PartCache {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Maximum number of cached static parts. The least recently used part is removed if the limit is exceeded
+     */
+    public static final int MAX_CACHED_PARTS = 16;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final Map<String, CompressedPart> parts;
+    private final Map<Worksheet, WorksheetEntry> worksheets;
+    private SortedMap sharedStrings;
+    private Deflater deflater;
+    private long generatedWorksheets;
+    private long reusedWorksheets;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the number of worksheets that were generated by the save processes since the cache was created or cleared
+     *
+     * @return Number of generated worksheets
+     */
+    public long getGeneratedWorksheets() {
+        return this.generatedWorksheets;
+    }
+
+    /**
+     * Gets the number of worksheets that were taken from the cache by the save processes since the cache was created or cleared
+     *
+     * @return Number of reused worksheets
+     */
+    public long getReusedWorksheets() {
+        return this.reusedWorksheets;
+    }
+
+    /**
+     * Gets the number of cached worksheets
+     *
+     * @return Number of worksheets
+     */
+    public int getCachedWorksheetCount() {
+        return this.worksheets.size();
+    }
+
+    /**
+     * Gets the number of (unique) shared strings, including the strings that are not used anymore
+     *
+     * @return Number of shared strings
+     */
+    public int getSharedStringCount() {
+        return this.sharedStrings.size();
+    }
+
+    /**
+     * Gets the persistent shared strings
+     *
+     * @return Shared strings of all save processes
+     */
+    SortedMap getSharedStrings() {
+        return this.sharedStrings;
+    }
+
+    /**
+     * Gets the deflater to compress the cached parts (reset, raw deflate data as used in ZIP entries)
+     *
+     * @return Deflater
+     */
+    Deflater getDeflater() {
+        if (this.deflater == null) {
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        return this.deflater;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Default constructor
+     */
+    public PartCache() {
+        this.sharedStrings = new SortedMap();
+        this.worksheets = new IdentityHashMap<>();
+        this.parts = new LinkedHashMap<String, CompressedPart>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompressedPart> eldest) {
+                return this.size() > MAX_CACHED_PARTS;
+            }
+        };
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Removes all cached parts and resets the shared strings. The next save process generates all parts. Use this method to remove unused strings from the shared string table
+     */
+    public void clear() {
+        this.parts.clear();
+        this.worksheets.clear();
+        this.sharedStrings = new SortedMap();
+        if (this.deflater != null) {
+            this.deflater.end();
+            this.deflater = null;
+        }
+        this.generatedWorksheets = 0;
+        this.reusedWorksheets = 0;
+    }
+
+    /**
+     * Gets a cached static part
+     *
+     * @param rawInput Raw XML string of the part
+     * @return Compressed part (with uncompressed data) or null if the part is not cached
+     */
+    CompressedPart getPart(String rawInput) {
+        return this.parts.get(rawInput);
+    }
+
+    /**
+     * Adds a static part to the cache
+     *
+     * @param rawInput Raw XML string of the part
+     * @param part     Compressed part with uncompressed data
+     */
+    void putPart(String rawInput, CompressedPart part) {
+        this.parts.put(rawInput, part);
+    }
+
+    /**
+     * Gets the cached part of an unchanged worksheet
+     *
+     * @param worksheet  Worksheet to look up
+     * @param styleCount Current modification count of the style manager
+     * @param selected   True if the worksheet is the selected worksheet of the workbook
+     * @return Entry of the worksheet or null if the worksheet is not cached or was modified
+     */
+    WorksheetEntry getWorksheet(Worksheet worksheet, long styleCount, boolean selected) {
+        WorksheetEntry entry = this.worksheets.get(worksheet);
+        if (entry == null || entry.modificationCount != worksheet.getModificationCount() || entry.styleCount != styleCount
+                || entry.sheetID != worksheet.getSheetID() || entry.selected != selected) {
+            this.generatedWorksheets++;
+            return null;
+        }
+        this.reusedWorksheets++;
+        return entry;
+    }
+
+    /**
+     * Adds the part of a generated worksheet to the cache. The modification count must be taken after the generation (cell types are resolved while generating)
+     *
+     * @param worksheet         Generated worksheet
+     * @param styleCount        Modification count of the style manager
+     * @param selected          True if the worksheet is the selected worksheet of the workbook
+     * @param part              Compressed part (without uncompressed data)
+     * @param sharedStringCount Number of shared string references of the worksheet
+     */
+    void putWorksheet(Worksheet worksheet, long styleCount, boolean selected, CompressedPart part, int sharedStringCount) {
+        this.worksheets.put(worksheet, new WorksheetEntry(worksheet.getModificationCount(), styleCount, worksheet.getSheetID(), selected, part, sharedStringCount));
+    }
+
+    /**
+     * Removes the entries of worksheets that are not part of the workbook anymore
+     *
+     * @param current Current worksheets of the workbook
+     */
+    void retainWorksheets(Collection<Worksheet> current) {
+        if (this.worksheets.size() > current.size() || !current.containsAll(this.worksheets.keySet())) {
+            Map<Worksheet, WorksheetEntry> retained = new IdentityHashMap<>();
+            WorksheetEntry entry;
+            for (Worksheet worksheet : current) {
+                entry = this.worksheets.get(worksheet);
+                if (entry != null) {
+                    retained.put(worksheet, entry);
+                }
+            }
+            this.worksheets.clear();
+            this.worksheets.putAll(retained);
+        }
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Class representing the cached part of a worksheet and the state it was generated for
+     */
+    static class WorksheetEntry {
+        private final long modificationCount;
+        private final CompressedPart part;
+        private final boolean selected;
+        private final int sharedStringCount;
+        private final int sheetID;
+        private final long styleCount;
+
+        /**
+         * Constructor with all values
+         *
+         * @param modificationCount Modification count of the worksheet after the generation
+         * @param styleCount        Modification count of the style manager
+         * @param sheetID           Sheet ID (part name) of the worksheet
+         * @param selected          Selection state of the worksheet
+         * @param part              Compressed part
+         * @param sharedStringCount Number of shared string references
+         */
+        WorksheetEntry(long modificationCount, long styleCount, int sheetID, boolean selected, CompressedPart part, int sharedStringCount) {
+            this.modificationCount = modificationCount;
+            this.styleCount = styleCount;
+            this.sheetID = sheetID;
+            this.selected = selected;
+            this.part = part;
+            this.sharedStringCount = sharedStringCount;
+        }
+
+        /**
+         * Gets the compressed part of the worksheet
+         *
+         * @return Compressed part without uncompressed data
+         */
+        CompressedPart getPart() {
+            return this.part;
+        }
+
+        /**
+         * Gets the number of shared string references of the worksheet
+         *
+         * @return Number of references (count attribute of the shared string table)
+         */
+        int getSharedStringCount() {
+            return this.sharedStringCount;
+        }
+    }
+
+}
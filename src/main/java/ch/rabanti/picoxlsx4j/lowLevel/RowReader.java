@@ -0,0 +1,285 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Helper;
+import ch.rabanti.picoxlsx4j.exception.FormatException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Class representing a streaming reader of the rows of a worksheet (see {@link XlsxReader#rows(String)}). Only the current row is held in memory.
+ * Each row is a list of cells, ordered by column, with the (zero-based) column and row numbers of the cells. Rows without cells are skipped.<br>
+ * The reader is closed automatically after the last row; it must be closed explicitly if the reading is stopped before
+ * @author Raphael Stoeckli
+ */
+public class RowReader implements Iterator<List<Cell>>, AutoCloseable {
+
+    // ### P R I V A T E  F I E L D S ###
+    private final InputStream stream;
+    private final XMLStreamReader xml;
+    private final XlsxReader reader;
+    private boolean finished;
+    private int lastRow;
+    private List<Cell> nextRow;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the reader of the file and the opened worksheet part
+     *
+     * @param reader Reader of the XLSX file (shared strings and styles)
+     * @param stream Input stream of the worksheet part
+     * @param xml    StAX reader on the stream
+     */
+    RowReader(XlsxReader reader, InputStream stream, XMLStreamReader xml) {
+        this.reader = reader;
+        this.stream = stream;
+        this.xml = xml;
+        this.lastRow = -1;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Checks whether another row exists. The next row is read if necessary
+     *
+     * @return True if another row exists
+     * @throws FormatException Thrown if the worksheet part is malformed or could not be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (this.nextRow == null && !this.finished) {
+            try {
+                this.nextRow = this.readRow();
+            } catch (Exception e) {
+                this.close();
+                throw new FormatException("ReadException", "The worksheet could not be read. Please see the inner exception.", e);
+            }
+        }
+        return this.nextRow != null;
+    }
+
+    /**
+     * Gets the next row
+     *
+     * @return Cells of the row, ordered by column
+     * @throws NoSuchElementException Thrown if no further row exists
+     * @throws FormatException Thrown if the worksheet part is malformed or could not be read
+     */
+    @Override
+    public List<Cell> next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException("No further row exists");
+        }
+        List<Cell> row = this.nextRow;
+        this.nextRow = null;
+        return row;
+    }
+
+    /**
+     * Closes the worksheet part. Errors while closing are ignored
+     */
+    @Override
+    public void close() {
+        this.finished = true;
+        this.nextRow = null;
+        XlsxReader.closeQuietly(this.xml::close);
+        XlsxReader.closeQuietly(this.stream);
+    }
+
+    /**
+     * Reads the next row with cells
+     *
+     * @return Cells of the row or null if the end of the worksheet is reached
+     * @throws Exception Thrown if the worksheet part is malformed or a shared string could not be read
+     */
+    private List<Cell> readRow() throws Exception {
+        int event;
+        String reference;
+        List<Cell> cells;
+        Cell cell;
+        while (this.xml.hasNext()) {
+            event = this.xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "row".equals(this.xml.getLocalName())) {
+                reference = this.xml.getAttributeValue(null, "r");
+                this.lastRow = reference == null ? this.lastRow + 1 : Integer.parseInt(reference) - 1;
+                cells = new ArrayList<>();
+                while (true) {
+                    event = this.xml.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && "c".equals(this.xml.getLocalName())) {
+                        cell = this.readCell(cells.isEmpty() ? 0 : cells.get(cells.size() - 1).getColumnNumber() + 1);
+                        cells.add(cell);
+                    } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(this.xml.getLocalName())) {
+                        break;
+                    }
+                }
+                if (!cells.isEmpty()) {
+                    return cells;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(this.xml.getLocalName())) {
+                break; // Merged cells, protection etc. are not read
+            }
+        }
+        this.close();
+        return null;
+    }
+
+    /**
+     * Reads a cell (c element) and resolves its value and type
+     *
+     * @param defaultColumn Column number if the cell has no address
+     * @return Cell without worksheet reference
+     * @throws Exception Thrown if the cell is malformed or a shared string could not be read
+     */
+    private Cell readCell(int defaultColumn) throws Exception {
+        String reference = this.xml.getAttributeValue(null, "r");
+        String type = this.xml.getAttributeValue(null, "t");
+        String style = this.xml.getAttributeValue(null, "s");
+        int column = reference == null ? defaultColumn : resolveColumn(reference);
+        String value = null;
+        String formula = null;
+        StringBuilder inline = null;
+        boolean phonetic = false;
+        int event;
+        while (true) {
+            event = this.xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (this.xml.getLocalName()) {
+                    case "v":
+                        value = this.xml.getElementText();
+                        break;
+                    case "f":
+                        formula = this.xml.getElementText();
+                        break;
+                    case "is":
+                        inline = new StringBuilder();
+                        break;
+                    case "rPh":
+                        phonetic = true;
+                        break;
+                    case "t":
+                        if (inline != null && !phonetic) {
+                            inline.append(this.xml.getElementText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if ("c".equals(this.xml.getLocalName())) {
+                    break;
+                } else if ("rPh".equals(this.xml.getLocalName())) {
+                    phonetic = false;
+                }
+            }
+        }
+        if (formula != null && !formula.isEmpty()) { // Dependent cells of shared formulas have no formula text and are read by their cached value
+            return new Cell(formula, Cell.CellType.FORMULA, column, this.lastRow, null);
+        }
+        if (type == null) {
+            type = "n";
+        }
+        if (value == null && !"inlineStr".equals(type)) { // e.g. empty cells of merged ranges (t="s" without value)
+            return new Cell(null, Cell.CellType.EMPTY, column, this.lastRow, null);
+        }
+        switch (type) {
+            case "s":
+                return new Cell(this.reader.getSharedString(Integer.parseInt(value)), Cell.CellType.STRING, column, this.lastRow, null);
+            case "inlineStr":
+                return new Cell(inline == null ? "" : inline.toString(), Cell.CellType.STRING, column, this.lastRow, null);
+            case "str":
+            case "e":
+                return new Cell(value == null ? "" : value, Cell.CellType.STRING, column, this.lastRow, null);
+            case "b":
+                return new Cell("1".equals(value) || "true".equals(value), Cell.CellType.BOOL, column, this.lastRow, null);
+            default:
+                if (value.isEmpty()) {
+                    return new Cell(null, Cell.CellType.EMPTY, column, this.lastRow, null);
+                }
+                return this.createNumberCell(value, style == null ? XlsxReader.STYLE_NUMBER : this.reader.getStyleType(Integer.parseInt(style)), column);
+        }
+    }
+
+    /**
+     * Creates a cell of a numeric value. Values with a date or time style are converted into a date or time
+     *
+     * @param value     Numeric value as string
+     * @param styleType Value type of the cell style
+     * @param column    Column number
+     * @return Cell of the type NUMBER, DATE or TIME
+     */
+    private Cell createNumberCell(String value, byte styleType, int column) {
+        if (styleType != XlsxReader.STYLE_NUMBER) {
+            double number = Double.parseDouble(value);
+            if (styleType == XlsxReader.STYLE_TIME && number >= 0 && number < 1) {
+                return new Cell(Helper.getTimeFromOA(number), Cell.CellType.TIME, column, this.lastRow, null);
+            }
+            if (number >= Helper.MIN_OADATE_VALUE && number <= Helper.MAX_OADATE_VALUE) {
+                return new Cell(Helper.getDateFromOA(number), Cell.CellType.DATE, column, this.lastRow, null);
+            }
+        }
+        return new Cell(parseNumber(value), Cell.CellType.NUMBER, column, this.lastRow, null);
+    }
+
+    /**
+     * Parses a numeric value. Integral values are returned as Integer or Long, all other values as Double
+     *
+     * @param value Numeric value as string
+     * @return Number
+     * @throws NumberFormatException Thrown if the value is not a number
+     */
+    static Number parseNumber(String value) {
+        if (value.indexOf('.') < 0 && value.indexOf('E') < 0 && value.indexOf('e') < 0) {
+            try {
+                long number = Long.parseLong(value);
+                if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+                    return (int) number;
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                // Out of the range of long
+            }
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Resolves the column number of a cell address (e.g. AB12), without validation of the row part
+     *
+     * @param reference Cell address
+     * @return Column number (zero-based)
+     * @throws XMLStreamException Thrown if the address contains no column
+     */
+    private static int resolveColumn(String reference) throws XMLStreamException {
+        int column = 0;
+        char c;
+        for (int i = 0; i < reference.length(); i++) {
+            c = reference.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                column = column * 26 + (c - 'A' + 1);
+            } else if (c >= 'a' && c <= 'z') {
+                column = column * 26 + (c - 'a' + 1);
+            } else if (c != '$') {
+                break;
+            }
+        }
+        if (column == 0) {
+            throw new XMLStreamException("The cell address '" + reference + "' is malformed");
+        }
+        return column - 1;
+    }
+
+}
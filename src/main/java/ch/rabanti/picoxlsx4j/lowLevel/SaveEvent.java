@@ -0,0 +1,69 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of a whole save process. The duration of the event is the duration of the save process
+ * @author Raphael Stoeckli
+ */
+@Name("ch.rabanti.picoxlsx4j.Save")
+@Label("Workbook Save")
+@Category("PicoXLSX4j")
+@Description("Save process of a workbook")
+class SaveEvent extends Event {
+
+    @Label("File Name")
+    String fileName;
+
+    @Label("Worksheets")
+    int worksheets;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Shared Strings")
+    @Description("Number of references to shared strings")
+    int sharedStrings;
+
+    @Label("Unique Shared Strings")
+    int uniqueSharedStrings;
+
+    @Label("Styles")
+    int styles;
+
+    @Label("Uncompressed Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Compressed Size")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Preparation Time")
+    @Timespan
+    long prepareTime;
+
+    @Label("Evaluation Time")
+    @Timespan
+    long evaluateTime;
+
+    @Label("Packing Time")
+    @Timespan
+    long packTime;
+
+}
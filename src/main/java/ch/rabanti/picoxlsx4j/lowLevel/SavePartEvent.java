@@ -0,0 +1,54 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event of one part (XML file) of a save process. The events are committed at the end of the save process
+ * @author Raphael Stoeckli
+ */
+@Name("ch.rabanti.picoxlsx4j.SavePart")
+@Label("Workbook Save Part")
+@Category("PicoXLSX4j")
+@Description("Timings and sizes of one part of a saved workbook")
+class SavePartEvent extends Event {
+
+    @Label("Part")
+    String part;
+
+    @Label("Generation Time")
+    @Timespan
+    long generateTime;
+
+    @Label("Parsing Time")
+    @Timespan
+    long parseTime;
+
+    @Label("Serialization Time")
+    @Timespan
+    long serializeTime;
+
+    @Label("Compression Time")
+    @Timespan
+    long compressTime;
+
+    @Label("Uncompressed Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Compressed Size")
+    @DataAmount
+    long compressedBytes;
+
+}
@@ -0,0 +1,428 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Class representing a pipeline to save a XLSX file in three stages: the parts are generated in the calling thread, compressed in a second thread and written into the stream in a third thread.
+ * The stages are connected by bounded queues of chunks. The chunks are taken from a pool of reusable buffers, so the memory of the pipeline is limited by the queue depth.<br>
+ * If a stage fails, the other stages are stopped and the error is thrown by the calling thread
+ * @author Raphael Stoeckli
+ */
+class SavePipeline {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Size of a chunk in bytes
+     */
+    static final int CHUNK_SIZE = 65536;
+    /**
+     * Time in milliseconds after which a waiting stage checks whether another stage failed
+     */
+    private static final long POLL_MILLIS = 100;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final AtomicInteger allocated;
+    private final BlockingQueue<Item> compressQueue;
+    private final Thread compressor;
+    private final EntryStream entryStream;
+    private final AtomicReference<Throwable> failure;
+    private final BlockingQueue<byte[]> pool;
+    private final int poolSize;
+    private final OutputStream target;
+    private final BlockingQueue<Item> writeQueue;
+    private final Thread writer;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the target stream and the queue depth
+     *
+     * @param target Stream to write the XLSX file into. The stream is closed when the pipeline is finished (like in Packer.pack)
+     * @param depth  Maximum number of chunks per queue
+     */
+    SavePipeline(OutputStream target, int depth) {
+        this.target = target;
+        this.compressQueue = new ArrayBlockingQueue<>(depth);
+        this.writeQueue = new ArrayBlockingQueue<>(depth);
+        // Each queue is full in the worst case; each stage holds up to two more buffers
+        this.poolSize = 2 * depth + 4;
+        this.pool = new ArrayBlockingQueue<>(this.poolSize);
+        this.allocated = new AtomicInteger();
+        this.failure = new AtomicReference<>();
+        this.entryStream = new EntryStream();
+        this.compressor = new Thread(this::compress, "PicoXLSX4j-compress");
+        this.compressor.setDaemon(true);
+        this.writer = new Thread(this::write, "PicoXLSX4j-write");
+        this.writer.setDaemon(true);
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Starts the compression and the output stage
+     */
+    void start() {
+        this.compressor.start();
+        this.writer.start();
+    }
+
+    /**
+     * Passes a complete entry to the compression stage
+     *
+     * @param name Path of the entry
+     * @param data Uncompressed data
+     * @throws IOException Thrown if another stage failed
+     */
+    void writeEntry(String name, byte[] data) throws IOException {
+        this.beginEntry(name).write(data, 0, data.length);
+        this.endEntry();
+    }
+
+    /**
+     * Starts a new entry. The data of the entry is written into the returned stream
+     *
+     * @param name Path of the entry
+     * @return Stream of the entry. The stream must not be closed; the entry is completed with endEntry
+     * @throws IOException Thrown if another stage failed
+     */
+    OutputStream beginEntry(String name) throws IOException {
+        this.put(this.compressQueue, new Item(Item.BEGIN, name, null, 0));
+        this.entryStream.size = 0;
+        return this.entryStream;
+    }
+
+    /**
+     * Completes the current entry. The last (partially filled) chunk is passed to the compression stage
+     *
+     * @return Uncompressed size of the entry
+     * @throws IOException Thrown if another stage failed
+     */
+    long endEntry() throws IOException {
+        this.entryStream.pass();
+        this.put(this.compressQueue, new Item(Item.END_ENTRY, null, null, 0));
+        return this.entryStream.size;
+    }
+
+    /**
+     * Completes the XLSX file and waits until all data is written into the stream
+     *
+     * @throws IOException Thrown if a stage failed or the calling thread was interrupted
+     */
+    void finish() throws IOException {
+        this.put(this.compressQueue, new Item(Item.FINISH, null, null, 0));
+        try {
+            this.compressor.join();
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.abort(e);
+        }
+        this.checkFailure();
+    }
+
+    /**
+     * Stops the compression and the output stage after the generation of a part failed, and waits until they are terminated. The stream is not closed
+     *
+     * @param cause Error of the generation
+     */
+    void cancel(Throwable cause) {
+        this.abort(cause);
+        try {
+            this.compressor.join();
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops all stages. The first error is kept as cause
+     *
+     * @param cause Error of a stage
+     */
+    private void abort(Throwable cause) {
+        this.failure.compareAndSet(null, cause);
+        this.compressor.interrupt();
+        this.writer.interrupt();
+    }
+
+    /**
+     * Compression stage: compresses the chunks of the entries into chunks of the ZIP file
+     */
+    private void compress() {
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new CompressedStream(), StandardCharsets.UTF_8);
+            zip.setMethod(ZipOutputStream.DEFLATED);
+            Item item;
+            while (true) {
+                item = this.take(this.compressQueue);
+                switch (item.kind) {
+                    case Item.BEGIN:
+                        zip.putNextEntry(new ZipEntry(item.name));
+                        break;
+                    case Item.DATA:
+                        zip.write(item.data, 0, item.length);
+                        this.release(item.data);
+                        break;
+                    case Item.END_ENTRY:
+                        zip.closeEntry();
+                        break;
+                    default:
+                        zip.finish(); // Does not close the compressed stream
+                        zip.flush();
+                        this.put(this.writeQueue, item);
+                        return;
+                }
+            }
+        } catch (Throwable t) {
+            this.abort(t);
+        }
+    }
+
+    /**
+     * Output stage: writes the compressed chunks into the stream
+     */
+    private void write() {
+        try {
+            Item item;
+            while (true) {
+                item = this.take(this.writeQueue);
+                if (item.kind == Item.FINISH) {
+                    this.target.flush();
+                    this.target.close();
+                    return;
+                }
+                this.target.write(item.data, 0, item.length);
+                this.release(item.data);
+            }
+        } catch (Throwable t) {
+            this.abort(t);
+        }
+    }
+
+    /**
+     * Puts an item into a queue. Waits while the queue is full, unless another stage failed
+     *
+     * @param queue Queue of the next stage
+     * @param item  Item to put
+     * @throws IOException Thrown if another stage failed or the thread was interrupted
+     */
+    private void put(BlockingQueue<Item> queue, Item item) throws IOException {
+        try {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                this.checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.checkFailure();
+            throw new IOException("The save pipeline was interrupted", e);
+        }
+    }
+
+    /**
+     * Takes the next item of a queue. Waits while the queue is empty, unless another stage failed
+     *
+     * @param queue Queue of the stage
+     * @return Next item
+     * @throws IOException Thrown if another stage failed or the thread was interrupted
+     */
+    private Item take(BlockingQueue<Item> queue) throws IOException {
+        Item item;
+        try {
+            while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                this.checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.checkFailure();
+            throw new IOException("The save pipeline was interrupted", e);
+        }
+        return item;
+    }
+
+    /**
+     * Takes a buffer of the pool. A new buffer is allocated as long as the pool size is not reached, otherwise the method waits until a buffer is released
+     *
+     * @return Buffer with the size of a chunk
+     * @throws IOException Thrown if another stage failed or the thread was interrupted
+     */
+    private byte[] acquire() throws IOException {
+        byte[] buffer = this.pool.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (this.allocated.incrementAndGet() <= this.poolSize) {
+            return new byte[CHUNK_SIZE];
+        }
+        this.allocated.decrementAndGet();
+        try {
+            while ((buffer = this.pool.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                this.checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.checkFailure();
+            throw new IOException("The save pipeline was interrupted", e);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool
+     *
+     * @param buffer Buffer that is not used anymore
+     */
+    private void release(byte[] buffer) {
+        this.pool.offer(buffer);
+    }
+
+    /**
+     * Checks whether a stage failed
+     *
+     * @throws IOException Thrown with the error of the failed stage as cause
+     */
+    private void checkFailure() throws IOException {
+        Throwable t = this.failure.get();
+        if (t != null) {
+            throw new IOException("The save pipeline was stopped: " + t.getMessage(), t);
+        }
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Class representing an item of a queue
+     */
+    private static class Item {
+        private static final int BEGIN = 0;
+        private static final int DATA = 1;
+        private static final int END_ENTRY = 2;
+        private static final int FINISH = 3;
+
+        private final byte[] data;
+        private final int kind;
+        private final int length;
+        private final String name;
+
+        /**
+         * Constructor with all values
+         *
+         * @param kind   Kind of the item
+         * @param name   Path of the entry (BEGIN) or null
+         * @param data   Chunk (DATA) or null
+         * @param length Number of used bytes of the chunk
+         */
+        Item(int kind, String name, byte[] data, int length) {
+            this.kind = kind;
+            this.name = name;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Base class of the streams that collect bytes in chunks and pass full chunks to the next stage
+     */
+    private abstract class ChunkStream extends OutputStream {
+        private byte[] chunk;
+        private int position;
+
+        /**
+         * Passes a chunk to the next stage
+         *
+         * @param data   Chunk
+         * @param length Number of used bytes
+         * @throws IOException Thrown if another stage failed
+         */
+        abstract void next(byte[] data, int length) throws IOException;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.chunk == null) {
+                this.chunk = acquire();
+            }
+            this.chunk[this.position++] = (byte) b;
+            if (this.position == CHUNK_SIZE) {
+                this.pass();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int length;
+            while (len > 0) {
+                if (this.chunk == null) {
+                    this.chunk = acquire();
+                }
+                length = Math.min(len, CHUNK_SIZE - this.position);
+                System.arraycopy(b, off, this.chunk, this.position, length);
+                this.position += length;
+                off += length;
+                len -= length;
+                if (this.position == CHUNK_SIZE) {
+                    this.pass();
+                }
+            }
+        }
+
+        /**
+         * Passes the current chunk to the next stage, if it contains data
+         *
+         * @throws IOException Thrown if another stage failed
+         */
+        void pass() throws IOException {
+            if (this.chunk != null && this.position > 0) {
+                byte[] data = this.chunk;
+                int length = this.position;
+                this.chunk = null;
+                this.position = 0;
+                this.next(data, length);
+            }
+        }
+    }
+
+    /**
+     * Class representing the stream of an entry (generation stage)
+     */
+    private class EntryStream extends ChunkStream {
+        private long size;
+
+        @Override
+        void next(byte[] data, int length) throws IOException {
+            this.size += length;
+            put(compressQueue, new Item(Item.DATA, null, data, length));
+        }
+    }
+
+    /**
+     * Class representing the stream of the compressed data (compression stage)
+     */
+    private class CompressedStream extends ChunkStream {
+
+        @Override
+        void next(byte[] data, int length) throws IOException {
+            put(writeQueue, new Item(Item.DATA, null, data, length));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.pass();
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.SaveMetrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class collecting the timings and sizes of one save process. An instance only exists if metrics are requested, otherwise the recorder of LowLevel is null
+ * @author Raphael Stoeckli
+ */
+class SaveRecorder {
+
+    // ### C O N S T A N T S ###
+    private static final int GENERATE = 0;
+    private static final int PARSE = 1;
+    private static final int SERIALIZE = 2;
+    private static final int COMPRESS = 3;
+    private static final int BYTES = 4;
+    private static final int COMPRESSED_BYTES = 5;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final Map<String, long[]> parts;
+    private final long start;
+    private String currentPart;
+    private long currentPartStart;
+    private long lastParseEnd;
+    private long prepareNanos;
+    private long evaluateNanos;
+    private long packNanos;
+    private long rowCount;
+    private long cellCount;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Default constructor. The start of the save process is the time of the construction
+     */
+    SaveRecorder() {
+        this.parts = new LinkedHashMap<>();
+        this.start = System.nanoTime();
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Marks the start of the generation of a part. The time until the parsing of the XML string is recorded as generation time
+     *
+     * @param name Path of the part
+     */
+    void beginPart(String name) {
+        this.currentPart = name;
+        this.currentPartStart = System.nanoTime();
+    }
+
+    /**
+     * Records the parsing of the current part (called by LowLevel.createXMLDocument)
+     *
+     * @param parseStart Start time of the parsing
+     * @param parseEnd   End time of the parsing
+     */
+    void parsed(long parseStart, long parseEnd) {
+        if (this.currentPart == null) {
+            return;
+        }
+        long[] values = getPart(this.currentPart);
+        values[GENERATE] += parseStart - this.currentPartStart;
+        values[PARSE] += parseEnd - parseStart;
+        this.lastParseEnd = parseEnd;
+    }
+
+    /**
+     * Ends the current part. The time since the parsing is recorded as serialization time (used for parts that are generated and serialized in one step)
+     *
+     * @param bytes Uncompressed size of the part
+     */
+    void endPart(long bytes) {
+        if (this.currentPart == null) {
+            return;
+        }
+        long[] values = getPart(this.currentPart);
+        values[SERIALIZE] += System.nanoTime() - this.lastParseEnd;
+        values[BYTES] = bytes;
+        this.currentPart = null;
+    }
+
+    /**
+     * Records the serialization of a part
+     *
+     * @param name  Path of the part
+     * @param nanos Time of the serialization
+     * @param bytes Uncompressed size of the part
+     */
+    void serialized(String name, long nanos, long bytes) {
+        long[] values = getPart(name);
+        values[SERIALIZE] += nanos;
+        values[BYTES] = bytes;
+    }
+
+    /**
+     * Records the compression of a part
+     *
+     * @param name            Path of the part
+     * @param nanos           Time of the compression
+     * @param compressedBytes Compressed size of the part
+     */
+    void compressed(String name, long nanos, long compressedBytes) {
+        long[] values = getPart(name);
+        values[COMPRESS] += nanos;
+        values[COMPRESSED_BYTES] = compressedBytes;
+    }
+
+    /**
+     * Adds the number of written rows and cells of a worksheet
+     *
+     * @param rows  Number of rows
+     * @param cells Number of cells
+     */
+    void addRows(long rows, long cells) {
+        this.rowCount += rows;
+        this.cellCount += cells;
+    }
+
+    /**
+     * Sets the time of the preparation
+     *
+     * @param prepareNanos Time in nanoseconds
+     */
+    void setPrepareNanos(long prepareNanos) {
+        this.prepareNanos = prepareNanos;
+    }
+
+    /**
+     * Sets the time of the formula evaluation
+     *
+     * @param evaluateNanos Time in nanoseconds
+     */
+    void setEvaluateNanos(long evaluateNanos) {
+        this.evaluateNanos = evaluateNanos;
+    }
+
+    /**
+     * Sets the time of the packing
+     *
+     * @param packNanos Time in nanoseconds
+     */
+    void setPackNanos(long packNanos) {
+        this.packNanos = packNanos;
+    }
+
+    /**
+     * Creates the metrics object of the recorded values
+     *
+     * @param worksheetCount          Number of worksheets
+     * @param sharedStringCount       Number of shared string references
+     * @param uniqueSharedStringCount Number of distinct shared strings
+     * @param styleCount              Number of styles
+     * @return Metrics
+     */
+    SaveMetrics toMetrics(int worksheetCount, int sharedStringCount, int uniqueSharedStringCount, int styleCount) {
+        List<SaveMetrics.PartMetrics> partMetrics = new ArrayList<>(this.parts.size());
+        long[] values;
+        for (Map.Entry<String, long[]> entry : this.parts.entrySet()) {
+            values = entry.getValue();
+            partMetrics.add(new SaveMetrics.PartMetrics(entry.getKey(), values[GENERATE], values[PARSE], values[SERIALIZE], values[COMPRESS], values[BYTES], values[COMPRESSED_BYTES]));
+        }
+        return new SaveMetrics(partMetrics, this.prepareNanos, this.evaluateNanos, this.packNanos, System.nanoTime() - this.start, worksheetCount,
+                this.rowCount, this.cellCount, sharedStringCount, uniqueSharedStringCount, styleCount);
+    }
+
+    /**
+     * Gets the values of a part, or creates them if not existing
+     *
+     * @param name Path of the part
+     * @return Array of values
+     */
+    private long[] getPart(String name) {
+        return this.parts.computeIfAbsent(name, k -> new long[6]);
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class representing the shared string table of a read XLSX file. The strings are kept in memory up to a defined number. If the table is larger,
+ * all strings are moved into a temporary data file with an index file of their offsets, and read on demand (with a small cache of recently used strings).
+ * The temporary files are deleted when the table is closed
+ * @author Raphael Stoeckli
+ */
+class SharedStringTable implements AutoCloseable {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Number of recently used strings that are cached if the table is stored on disk
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final int maxInMemory;
+    private final List<String> strings;
+    private Map<Integer, String> cache;
+    private FileChannel dataChannel;
+    private Path dataFile;
+    private DataOutputStream dataOutput;
+    private FileChannel indexChannel;
+    private Path indexFile;
+    private DataOutputStream indexOutput;
+    private long offset;
+    private int size;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the number of strings
+     *
+     * @return Number of strings
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets whether the table is stored in temporary files
+     *
+     * @return True if the strings are read from disk
+     */
+    boolean isDiskBacked() {
+        return this.dataFile != null;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the maximum number of strings in memory
+     *
+     * @param maxInMemory Maximum number of strings that are kept in memory. If the table is larger, it is stored in temporary files
+     */
+    SharedStringTable(int maxInMemory) {
+        this.maxInMemory = maxInMemory;
+        this.strings = new ArrayList<>();
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Adds the next string of the table
+     *
+     * @param value String to add
+     * @throws IOException Thrown if the string could not be written into the temporary file
+     */
+    void add(String value) throws IOException {
+        if (this.dataFile == null && this.size >= this.maxInMemory) {
+            this.spill();
+        }
+        if (this.dataFile == null) {
+            this.strings.add(value);
+        } else {
+            this.write(value);
+        }
+        this.size++;
+    }
+
+    /**
+     * Completes the table after the last string was added. The temporary files are opened for reading
+     *
+     * @throws IOException Thrown if the temporary files could not be opened
+     */
+    void complete() throws IOException {
+        if (this.dataFile == null) {
+            return;
+        }
+        this.indexOutput.writeLong(this.offset); // End of the last string
+        this.dataOutput.close();
+        this.indexOutput.close();
+        this.dataOutput = null;
+        this.indexOutput = null;
+        this.dataChannel = FileChannel.open(this.dataFile, StandardOpenOption.READ);
+        this.indexChannel = FileChannel.open(this.indexFile, StandardOpenOption.READ);
+        this.cache = new LinkedHashMap<Integer, String>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return this.size() > CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Gets a string by its index
+     *
+     * @param index Index of the string (zero-based)
+     * @return String
+     * @throws IOException Thrown if the string could not be read from the temporary file
+     * @throws IndexOutOfBoundsException Thrown if the index is out of range
+     */
+    String get(int index) throws IOException {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("The shared string index " + index + " is out of range (" + this.size + " strings)");
+        }
+        if (this.dataFile == null) {
+            return this.strings.get(index);
+        }
+        String value = this.cache.get(index);
+        if (value == null) {
+            ByteBuffer bounds = ByteBuffer.allocate(16);
+            readFully(this.indexChannel, bounds, (long) index * 8);
+            bounds.flip();
+            long start = bounds.getLong();
+            ByteBuffer data = ByteBuffer.allocate((int) (bounds.getLong() - start));
+            readFully(this.dataChannel, data, start);
+            value = new String(data.array(), StandardCharsets.UTF_8);
+            this.cache.put(index, value);
+        }
+        return value;
+    }
+
+    /**
+     * Closes the temporary files and deletes them
+     *
+     * @throws IOException Thrown if a file could not be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+        this.strings.clear();
+        if (this.dataFile == null) {
+            return;
+        }
+        try {
+            if (this.dataOutput != null) {
+                this.dataOutput.close();
+                this.indexOutput.close();
+            }
+            if (this.dataChannel != null) {
+                this.dataChannel.close();
+                this.indexChannel.close();
+            }
+        } finally {
+            Files.deleteIfExists(this.dataFile);
+            Files.deleteIfExists(this.indexFile);
+        }
+    }
+
+    /**
+     * Moves the strings in memory into the temporary files
+     *
+     * @throws IOException Thrown if the temporary files could not be created
+     */
+    private void spill() throws IOException {
+        this.dataFile = Files.createTempFile("picoxlsx4j-sst", ".dat");
+        this.indexFile = Files.createTempFile("picoxlsx4j-sst", ".idx");
+        this.dataOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.dataFile)));
+        this.indexOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.indexFile)));
+        for (String value : this.strings) {
+            this.write(value);
+        }
+        this.strings.clear();
+    }
+
+    /**
+     * Writes a string into the data file and its offset into the index file
+     *
+     * @param value String to write
+     * @throws IOException Thrown if the string could not be written
+     */
+    private void write(String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        this.indexOutput.writeLong(this.offset);
+        this.dataOutput.write(data);
+        this.offset += data.length;
+    }
+
+    /**
+     * Reads bytes from a position of a channel until the buffer is full
+     *
+     * @param channel  Channel to read
+     * @param buffer   Buffer to fill
+     * @param position Position in the channel
+     * @throws IOException Thrown if the end of the channel was reached before the buffer is full
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read;
+        while (buffer.hasRemaining()) {
+            read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the shared string file");
+            }
+            position += read;
+        }
+    }
+
+}
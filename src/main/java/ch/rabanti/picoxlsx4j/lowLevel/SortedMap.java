@@ -8,19 +8,18 @@ package ch.rabanti.picoxlsx4j.lowLevel;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- * Class representing a reduced sorted map (key / value). This class is not compatible with the Map interface
+ * Class representing a reduced sorted map of strings and their indices, used as dictionary of the shared strings on the heap. This class is not compatible with the Map interface
  * @author Raphael Stoeckli
  */
-class SortedMap {
+class SortedMap implements StringDictionary {
 
     // ### P R I V A T E  F I E L D S ###
-    private int count;
     private final HashMap<String, Integer> index;
     private final List<String> keyEntries;
-    private final List<String> valueEntries;
 
 // ### C O N S T R U C T O R S ###
 
@@ -29,29 +28,37 @@ class SortedMap {
      */
     public SortedMap() {
         this.keyEntries = new ArrayList<>();
-        this.valueEntries = new ArrayList<>();
         this.index = new HashMap<>();
-        this.count = 0;
     }
 
 // ### M E T H O D S ###
 
     /**
-     * Method to add a key value pair
+     * Method to add a key. The index of the key is the number of keys before
      *
-     * @param key   key as string
-     * @param value value as string
-     * @return returns the resolved string (either added or returned from an existing entry)
+     * @param key key as string
+     * @return returns the index of the key (either added or returned from an existing entry)
      */
-    public String add(String key, String value) {
-        if (index.containsKey(key)) {
-            return valueEntries.get(index.get(key));
+    @Override
+    public int add(String key) {
+        Integer position = index.putIfAbsent(key, keyEntries.size());
+        if (position != null) {
+            return position;
         }
-        index.put(key, count);
-        count++;
         keyEntries.add(key);
-        valueEntries.add(value);
-        return value;
+        return keyEntries.size() - 1;
+    }
+
+    /**
+     * Gets the index of a key without adding it. The map is not modified, so several threads can read concurrently as long as no entry is added
+     *
+     * @param key key as string
+     * @return index of the key or -1 if the key does not exist
+     */
+    @Override
+    public int get(String key) {
+        Integer position = index.get(key);
+        return position == null ? -1 : position;
     }
 
     /**
@@ -63,13 +70,24 @@ class SortedMap {
         return this.keyEntries;
     }
 
+    /**
+     * Gets an iterator over the keys in the order of their indices
+     *
+     * @return Iterator of the keys
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return this.keyEntries.iterator();
+    }
+
     /**
      * Gets the size of the map
      *
      * @return Number of entries in the map
      */
+    @Override
     public int size() {
-        return this.count;
+        return this.keyEntries.size();
     }
     
 }
@@ -0,0 +1,45 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+/**
+ * Interface of the dictionary of shared strings of a save process. Each string is added once and keeps its (zero-based) index. The strings are iterated in the order of their indices.<br>
+ * The dictionary is held on the heap ({@link SortedMap}) or outside of the heap ({@link OffHeapStringDictionary})
+ * @author Raphael Stoeckli
+ */
+interface StringDictionary extends Iterable<String> {
+
+    /**
+     * Adds a string if it does not exist yet
+     *
+     * @param value String to add
+     * @return Index of the added or existing string
+     */
+    int add(String value);
+
+    /**
+     * Gets the index of a string without adding it. The dictionary is not modified, so several threads can read concurrently as long as no string is added
+     *
+     * @param value String to look up
+     * @return Index of the string or -1 if the string does not exist
+     */
+    int get(String value);
+
+    /**
+     * Gets the number of strings
+     *
+     * @return Number of strings
+     */
+    int size();
+
+    /**
+     * Releases the memory and files of the dictionary. The dictionary must not be used afterwards
+     */
+    default void close() {
+        // Nothing to release by default
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Class representing a compiled workbook template. The configuration of a prototype workbook (worksheets, styles, meta data and protection) is compiled once into
+ * pre-compressed static parts: the style sheet, the workbook part, the content types, the relationships and the app properties.<br>
+ * Workbooks created by {@link #newWorkbook()} and saved with the template copy these parts as raw deflated data (with known CRC and sizes) into the XLSX file,
+ * so only the worksheets, the shared strings and the core properties (time stamps) are generated per file. A static part of the saved workbook that differs
+ * from the template (e.g. because of an additional style or worksheet) is generated as usual. Therefore, all styles should be added to the prototype.<br>
+ * A template is immutable and can be used by many threads concurrently
+ * @author Raphael Stoeckli
+ */
+public class WorkbookTemplate {
+
+    // ### P R I V A T E  F I E L D S ###
+    private final Map<String, CompressedPart> parts;
+    private final Workbook prototype;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the prototype and the compiled parts
+     *
+     * @param prototype Copy of the prototype workbook
+     * @param parts     Compiled parts by their raw XML string
+     */
+    private WorkbookTemplate(Workbook prototype, Map<String, CompressedPart> parts) {
+        this.prototype = prototype;
+        this.parts = parts;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Compiles a prototype workbook into a template. The prototype is copied and can be modified afterwards without affecting the template.
+     * Cells of the prototype (e.g. header rows) are part of every new workbook of the template
+     *
+     * @param prototype Workbook with the worksheets, styles and meta data of the template
+     * @return Compiled template
+     * @throws IOException Thrown if a static part could not be created
+     * @throws ch.rabanti.picoxlsx4j.exception.WorksheetException Thrown if a worksheet of the prototype uses a mapped cell store, which cannot be copied
+     */
+    public static WorkbookTemplate compile(Workbook prototype) throws IOException {
+        Workbook copy = prototype.copy();
+        Map<String, byte[]> staticParts = new LowLevel(copy.copy()).createStaticParts();
+        Map<String, CompressedPart> parts = new HashMap<>();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            for (Map.Entry<String, byte[]> entry : staticParts.entrySet()) {
+                parts.put(entry.getKey(), new CompressedPart(entry.getValue(), deflater, true));
+            }
+        } finally {
+            deflater.end();
+        }
+        return new WorkbookTemplate(copy, parts);
+    }
+
+    /**
+     * Creates a new workbook with the worksheets, styles, meta data and cells of the prototype
+     *
+     * @return New workbook
+     */
+    public Workbook newWorkbook() {
+        return this.prototype.copy();
+    }
+
+    /**
+     * Gets the number of compiled parts
+     *
+     * @return Number of parts
+     */
+    public int getPartCount() {
+        return this.parts.size();
+    }
+
+    /**
+     * Gets the compiled part of a raw XML string
+     *
+     * @param rawInput Raw XML string of the part, as generated for the saved workbook
+     * @return Compiled part or null if the template contains no equal part
+     */
+    CompressedPart getPart(String rawInput) {
+        return this.parts.get(rawInput);
+    }
+
+}
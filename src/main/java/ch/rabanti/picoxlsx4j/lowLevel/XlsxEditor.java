@@ -0,0 +1,736 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class to edit an existing XLSX file. Worksheets of the file are loaded on demand into {@link Worksheet} objects; new worksheets can be added.
+ * On save, only the modified (loaded) and added worksheets are generated, as well as the style sheet, the workbook part, its relationships and the content types.
+ * All other entries (e.g. worksheets that were not loaded or loaded but not modified, shared strings, images) are copied as compressed bytes, without decompression, so the costs of a save depend on the changes, not on the file size.<br>
+ * Limitations: Loaded worksheets contain the values, formulas and date or time formats of the cells; if such a worksheet is modified, other styles, column widths, row heights, merged cells and hyperlinks of the original worksheet are not preserved.
+ * Strings of generated worksheets are written inline, so that the shared string part remains unchanged. The calculation chain is removed if a worksheet is generated (Excel rebuilds it).
+ * The edited file cannot be overwritten while the editor is open, except by {@link #saveInPlace()}, which appends the generated parts to the file<br>
+ * The editor must be closed to release the file
+ * @author Raphael Stoeckli
+ */
+public class XlsxEditor implements AutoCloseable {
+
+    // ### C O N S T A N T S ###
+    private static final String CONTENT_TYPES = "[Content_Types].xml";
+    private static final String CONTENT_TYPES_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/content-types";
+    private static final String PACKAGE_RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String RELATIONSHIPS = "xl/_rels/workbook.xml.rels";
+    private static final String STYLES = "xl/styles.xml";
+    private static final String WORKBOOK = "xl/workbook.xml";
+    private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+    private static final String WORKSHEET_RELATIONSHIP = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet";
+
+    // ### P R I V A T E  F I E L D S ###
+    private final List<Worksheet> addedWorksheets;
+    private final FileChannel channel;
+    private final ZipDirectory directory;
+    private final Map<String, Long> loadedModificationCounts;
+    private final Map<String, Worksheet> loadedWorksheets;
+    private final Path path;
+    private final Document relationships;
+    private final Workbook workbook;
+    private final Document workbookDocument;
+    private final List<String> worksheetNames;
+    private final List<String> worksheetPaths;
+    private final ZipFile zipFile;
+    private XlsxReader reader;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the names of the worksheets of the file in the order of the workbook, followed by the names of the added worksheets
+     *
+     * @return List of worksheet names
+     */
+    public List<String> getWorksheetNames() {
+        List<String> names = new ArrayList<>(this.worksheetNames);
+        for (Worksheet worksheet : this.addedWorksheets) {
+            names.add(worksheet.getSheetName());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Gets the workbook that contains the loaded and added worksheets (e.g. to add styles). The workbook must not be saved directly
+     *
+     * @return Workbook of the editor
+     */
+    public Workbook getWorkbook() {
+        return this.workbook;
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the opened file
+     *
+     * @param path    Path of the file
+     * @param channel Channel of the file (raw entries)
+     * @param zipFile ZIP file (decompressed parts)
+     * @throws Exception Thrown if the ZIP directory, the workbook part or its relationships could not be read
+     */
+    private XlsxEditor(Path path, FileChannel channel, ZipFile zipFile) throws Exception {
+        this.path = path;
+        this.channel = channel;
+        this.zipFile = zipFile;
+        this.directory = ZipDirectory.read(channel);
+        this.workbook = new Workbook(false);
+        this.loadedModificationCounts = new HashMap<>();
+        this.loadedWorksheets = new LinkedHashMap<>();
+        this.addedWorksheets = new ArrayList<>();
+        this.worksheetNames = new ArrayList<>();
+        this.worksheetPaths = new ArrayList<>();
+        this.workbookDocument = this.readDocument(WORKBOOK);
+        if (this.workbookDocument == null) {
+            throw new java.io.IOException("The workbook part " + WORKBOOK + " does not exist");
+        }
+        Document rels = this.readDocument(RELATIONSHIPS);
+        this.relationships = rels == null ? createDocument("<Relationships xmlns=\"" + PACKAGE_RELATIONSHIP_NAMESPACE + "\"/>") : rels;
+        Map<String, String> targets = new HashMap<>();
+        for (Element relationship : getChildren(this.relationships.getDocumentElement(), "Relationship")) {
+            targets.put(relationship.getAttribute("Id"), relationship.getAttribute("Target"));
+        }
+        String target;
+        for (Element sheet : getChildren(getChild(this.workbookDocument.getDocumentElement(), "sheets"), "sheet")) {
+            this.worksheetNames.add(sheet.getAttribute("name"));
+            target = targets.get(sheet.getAttributeNS(RELATIONSHIP_NAMESPACE, "id"));
+            if (target == null) {
+                target = "worksheets/sheet" + this.worksheetNames.size() + ".xml"; // Part name of this library
+            }
+            this.worksheetPaths.add(resolvePath(target));
+        }
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Opens a XLSX file for editing. Only the ZIP directory and the workbook part are read
+     *
+     * @param path Path of the file
+     * @return Editor of the file
+     * @throws IOException Thrown if the file could not be opened or is not a (supported) XLSX file
+     */
+    public static XlsxEditor open(Path path) throws IOException {
+        FileChannel channel = null;
+        ZipFile zipFile = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            zipFile = new ZipFile(path.toFile());
+            return new XlsxEditor(path, channel, zipFile);
+        } catch (Exception e) {
+            XlsxReader.closeQuietly(zipFile);
+            XlsxReader.closeQuietly(channel);
+            throw new IOException("ReadException", "The XLSX file could not be opened for editing. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Gets a worksheet for editing. A worksheet of the file is loaded on the first call (values, formulas and date or time formats). It is only generated again on save, if it was modified;
+     * otherwise, the original worksheet is copied
+     *
+     * @param name Name of the worksheet
+     * @return Worksheet
+     * @throws IOException Thrown if the worksheet could not be read
+     * @throws WorksheetException Thrown if the worksheet does not exist
+     */
+    public Worksheet getWorksheet(String name) throws IOException {
+        for (Worksheet worksheet : this.addedWorksheets) {
+            if (worksheet.getSheetName().equals(name)) {
+                return worksheet;
+            }
+        }
+        Worksheet worksheet = this.loadedWorksheets.get(name);
+        if (worksheet != null) {
+            return worksheet;
+        }
+        if (!this.worksheetNames.contains(name)) {
+            throw new WorksheetException("MissingReferenceException", "The worksheet with the name '" + name + "' does not exist.");
+        }
+        if (this.reader == null) {
+            this.reader = XlsxReader.open(this.path);
+        }
+        this.workbook.addWorksheet(name);
+        worksheet = this.workbook.getCurrentWorksheet();
+        try (RowReader rows = this.reader.rows(name)) {
+            while (rows.hasNext()) {
+                for (Cell cell : rows.next()) {
+                    if (cell.getDataType() == Cell.CellType.FORMULA) {
+                        worksheet.addCellFormula(cell.getValue().toString(), cell.getColumnNumber(), cell.getRowNumber());
+                    } else if (cell.getDataType() != Cell.CellType.EMPTY) {
+                        worksheet.addCell(cell.getValue(), cell.getColumnNumber(), cell.getRowNumber());
+                    }
+                }
+            }
+        }
+        this.loadedWorksheets.put(name, worksheet);
+        this.loadedModificationCounts.put(name, worksheet.getModificationCount());
+        return worksheet;
+    }
+
+    /**
+     * Adds a new worksheet, which is appended to the worksheets of the file on save
+     *
+     * @param name Name of the new worksheet
+     * @return New worksheet
+     * @throws WorksheetException Thrown if the name of the worksheet already exists
+     * @throws ch.rabanti.picoxlsx4j.exception.FormatException Thrown if the worksheet name contains illegal characters or is out of range (length between 1 an 31)
+     */
+    public Worksheet addWorksheet(String name) {
+        if (this.worksheetNames.contains(name)) {
+            throw new WorksheetException("WorksheetNameAlreadyExistsException", "The worksheet with the name '" + name + "' already exists.");
+        }
+        this.workbook.addWorksheet(name);
+        Worksheet worksheet = this.workbook.getCurrentWorksheet();
+        this.addedWorksheets.add(worksheet);
+        return worksheet;
+    }
+
+    /**
+     * Saves the edited file to a new path
+     *
+     * @param target Path of the saved file. It must not be the path of the edited file
+     * @throws IOException Thrown if the target is the edited file or in case of an error while saving
+     */
+    public void save(Path target) throws IOException {
+        try {
+            if (Files.exists(target) && Files.isSameFile(target, this.path)) {
+                throw new IOException("SaveException", "The edited file cannot be overwritten while it is open. Please save it to another path.");
+            }
+            try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(target))) {
+                this.saveAsStream(stream);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("SaveException", "There was an error while saving the edited file. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Saves the edited file into a stream. The stream is flushed but not closed
+     *
+     * @param stream Stream to write the file into
+     * @throws IOException Thrown in case of an error while saving
+     */
+    public void saveAsStream(OutputStream stream) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            ParallelZipWriter writer = new ParallelZipWriter(stream, null, deflater);
+            Map<String, byte[]> parts = new HashMap<>();
+            Map<String, byte[]> newParts = new LinkedHashMap<>();
+            String calcChain = null;
+            if (this.isModified()) {
+                calcChain = this.createParts(parts, newParts);
+            }
+            byte[] data;
+            for (ZipDirectory.Entry entry : this.directory.getEntries()) {
+                if (entry.getName().equals(calcChain)) {
+                    continue;
+                }
+                data = parts.get(entry.getName());
+                if (data != null) {
+                    writer.writeEntry(entry.getName(), data);
+                } else {
+                    writer.writeRawEntry(entry.getName(), entry.getMethod(), entry.getCrc(), entry.getCompressedSize(), entry.getSize(),
+                            this.channel, this.directory.getDataOffset(entry));
+                }
+            }
+            for (Map.Entry<String, byte[]> part : newParts.entrySet()) {
+                writer.writeEntry(part.getKey(), part.getValue());
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("SaveException", "There was an error while saving the edited file. Please see the inner exception.", e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Saves the changes into the edited file itself (e.g. to add a worksheet to a file of the same day, every hour). The generated parts are appended behind the end of the file,
+     * followed by a new central directory, which supersedes the previous one. The existing data of the file is neither read nor written again; the replaced versions of the workbook part,
+     * its relationships, the content types and the style sheet as well as the previous central directory remain as unreferenced data in the file (use {@link #save(Path)} to write a compact copy).<br>
+     * The file is synchronized with the storage device before this method returns. If an error occurs, the file is truncated to its previous length.<br>
+     * The save is not atomic: readers find the central directory by its end record in the last 64 KB of the file, so the previous central directory is not found anymore as soon as more data is appended.
+     * If the process is terminated during the save, the file may be unreadable. Use {@link #save(Path)} and replace the file afterwards, if the file must survive a crash. The editor is closed afterwards
+     *
+     * @throws IOException Thrown in case of an error while saving
+     */
+    public void saveInPlace() throws IOException {
+        if (!this.isModified()) {
+            this.close();
+            return;
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        FileChannel output = null;
+        long previousSize = -1;
+        try {
+            Map<String, byte[]> parts = new LinkedHashMap<>();
+            String calcChain = this.createParts(parts, parts);
+            this.close(); // The read handles are not valid anymore, as soon as the central directory is replaced
+            output = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            previousSize = output.size();
+            output.position(previousSize);
+            ParallelZipWriter writer = new ParallelZipWriter(new BufferedOutputStream(Channels.newOutputStream(output)), null, deflater, previousSize);
+            for (ZipDirectory.Entry entry : this.directory.getEntries()) {
+                if (!entry.getName().equals(calcChain) && !parts.containsKey(entry.getName())) {
+                    writer.addExistingEntry(entry.getName(), entry.getMethod(), entry.getCrc(), entry.getCompressedSize(), entry.getSize(), entry.getHeaderOffset());
+                }
+            }
+            for (Map.Entry<String, byte[]> part : parts.entrySet()) {
+                writer.writeEntry(part.getKey(), part.getValue());
+            }
+            writer.finish();
+            output.force(true);
+        } catch (Exception e) {
+            if (previousSize >= 0) {
+                truncateFile(output, previousSize);
+            }
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException("SaveException", "There was an error while saving the edited file in place. Please see the inner exception.", e);
+        } finally {
+            deflater.end();
+            XlsxReader.closeQuietly(output);
+        }
+    }
+
+    /**
+     * Closes the file
+     *
+     * @throws IOException Thrown if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.reader != null) {
+                this.reader.close();
+            }
+            this.zipFile.close();
+            this.channel.close();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("ReadException", "The XLSX file could not be closed. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Checks whether a loaded worksheet was modified or a worksheet was added
+     *
+     * @return True if parts must be generated
+     */
+    private boolean isModified() {
+        if (!this.addedWorksheets.isEmpty()) {
+            return true;
+        }
+        for (Map.Entry<String, Worksheet> loaded : this.loadedWorksheets.entrySet()) {
+            if (this.isModified(loaded.getKey(), loaded.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a loaded worksheet was modified since it was loaded (including a renaming)
+     *
+     * @param name      Name of the worksheet in the file
+     * @param worksheet Loaded worksheet
+     * @return True if the worksheet must be generated
+     */
+    private boolean isModified(String name, Worksheet worksheet) {
+        return worksheet.getModificationCount() != this.loadedModificationCounts.get(name);
+    }
+
+    /**
+     * Creates the modified and new parts: the modified loaded and the added worksheets, the style sheet with the appended styles of the editor, the workbook part, its relationships and the content types
+     *
+     * @param parts    Map to put the modified parts into, by path
+     * @param newParts Map to put the new parts into, by path
+     * @return Path of the calculation chain that is removed, or null if the file has none
+     * @throws Exception Thrown if a part could not be read or created
+     */
+    private String createParts(Map<String, byte[]> parts, Map<String, byte[]> newParts) throws Exception {
+        Document styles = this.readDocument(STYLES);
+        Document contentTypes = this.readDocument(CONTENT_TYPES);
+        if (styles == null || contentTypes == null) {
+            throw new java.io.IOException("The file contains no style sheet or content types");
+        }
+        this.workbook.resolveMergedCells();
+        LowLevel lowLevel = new LowLevel(this.workbook);
+        int[] styleIndices = appendStyles(styles, createDocument(lowLevel.createStyleSheetString()));
+        Element sheets = getChild(this.workbookDocument.getDocumentElement(), "sheets");
+        List<Element> sheetElements = getChildren(sheets, "sheet");
+        for (Map.Entry<String, Worksheet> loaded : this.loadedWorksheets.entrySet()) {
+            if (!this.isModified(loaded.getKey(), loaded.getValue())) {
+                continue; // Copied from the file
+            }
+            int index = this.worksheetNames.indexOf(loaded.getKey());
+            sheetElements.get(index).setAttribute("name", loaded.getValue().getSheetName()); // The worksheet may be renamed
+            parts.put(this.worksheetPaths.get(index), lowLevel.createEditedWorksheetPart(loaded.getValue(), styleIndices));
+        }
+        Element relationshipRoot = this.relationships.getDocumentElement();
+        Element typesRoot = contentTypes.getDocumentElement();
+        String calcChain = null;
+        for (Element relationship : getChildren(relationshipRoot, "Relationship")) {
+            if (relationship.getAttribute("Type").endsWith("/calcChain")) {
+                calcChain = resolvePath(relationship.getAttribute("Target"));
+                relationshipRoot.removeChild(relationship);
+            }
+        }
+        for (Element override : getChildren(typesRoot, "Override")) {
+            if (calcChain != null && override.getAttribute("PartName").equals("/" + calcChain)) {
+                typesRoot.removeChild(override);
+            }
+        }
+        Set<String> entryNames = new HashSet<>();
+        for (ZipDirectory.Entry entry : this.directory.getEntries()) {
+            entryNames.add(entry.getName());
+        }
+        Set<String> relationshipIds = new HashSet<>();
+        for (Element relationship : getChildren(relationshipRoot, "Relationship")) {
+            relationshipIds.add(relationship.getAttribute("Id"));
+        }
+        int sheetId = 0;
+        for (Element sheet : sheetElements) {
+            sheetId = Math.max(sheetId, Integer.parseInt(sheet.getAttribute("sheetId")));
+        }
+        String prefix = this.workbookDocument.getDocumentElement().lookupPrefix(RELATIONSHIP_NAMESPACE);
+        int partNumber = this.worksheetNames.size();
+        int relationshipNumber = relationshipIds.size();
+        String file, id;
+        Element element;
+        for (Worksheet worksheet : this.addedWorksheets) {
+            do {
+                partNumber++;
+                file = "xl/worksheets/sheet" + partNumber + ".xml";
+            } while (entryNames.contains(file));
+            do {
+                relationshipNumber++;
+                id = "rId" + relationshipNumber;
+            } while (relationshipIds.contains(id));
+            sheetId++;
+            newParts.put(file, lowLevel.createEditedWorksheetPart(worksheet, styleIndices));
+            element = this.workbookDocument.createElementNS(sheets.getNamespaceURI(), "sheet");
+            element.setAttribute("name", worksheet.getSheetName());
+            element.setAttribute("sheetId", Integer.toString(sheetId));
+            element.setAttributeNS(RELATIONSHIP_NAMESPACE, (prefix == null ? "r" : prefix) + ":id", id);
+            sheets.appendChild(element);
+            element = this.relationships.createElementNS(PACKAGE_RELATIONSHIP_NAMESPACE, "Relationship");
+            element.setAttribute("Target", "/" + file);
+            element.setAttribute("Type", WORKSHEET_RELATIONSHIP);
+            element.setAttribute("Id", id);
+            relationshipRoot.appendChild(element);
+            element = contentTypes.createElementNS(CONTENT_TYPES_NAMESPACE, "Override");
+            element.setAttribute("ContentType", WORKSHEET_CONTENT_TYPE);
+            element.setAttribute("PartName", "/" + file);
+            typesRoot.appendChild(element);
+        }
+        parts.put(STYLES, LowLevel.createBytesFromDocument(styles));
+        parts.put(WORKBOOK, LowLevel.createBytesFromDocument(this.workbookDocument));
+        parts.put(CONTENT_TYPES, LowLevel.createBytesFromDocument(contentTypes));
+        if (entryNames.contains(RELATIONSHIPS)) {
+            parts.put(RELATIONSHIPS, LowLevel.createBytesFromDocument(this.relationships));
+        } else {
+            newParts.put(RELATIONSHIPS, LowLevel.createBytesFromDocument(this.relationships));
+        }
+        return calcChain;
+    }
+
+    /**
+     * Truncates the file to its length before a failed save in place, which removes the appended data. Errors are ignored
+     *
+     * @param output Channel of the file
+     * @param size   Previous length of the file
+     */
+    private static void truncateFile(FileChannel output, long size) {
+        try {
+            output.truncate(size);
+            output.force(true);
+        } catch (Exception e) {
+            // The appended data remains behind the previous central directory
+        }
+    }
+
+    /**
+     * Merges the fonts, fills, borders, custom number formats and cell styles of a generated style sheet into the style sheet of the file. An entry is only appended if the style sheet
+     * contains no equal entry, so that repeated saves (e.g. with {@link #saveInPlace()}) do not let the style sheet grow. The references of the appended cell styles and the IDs of the number formats are adjusted
+     *
+     * @param target Style sheet of the file
+     * @param source Generated style sheet of the editor
+     * @return Indices of the cell styles (cellXfs) in the style sheet of the file, by the index in the generated style sheet. The default style (0) remains the default style of the file
+     * @throws java.io.IOException Thrown if the style sheet of the file contains no fonts, fills, borders or cell styles
+     */
+    private static int[] appendStyles(Document target, Document source) throws java.io.IOException {
+        Element targetRoot = target.getDocumentElement();
+        Element sourceRoot = source.getDocumentElement();
+        Element fonts = getChild(targetRoot, "fonts");
+        Element fills = getChild(targetRoot, "fills");
+        Element borders = getChild(targetRoot, "borders");
+        Element cellXfs = getChild(targetRoot, "cellXfs");
+        if (fonts == null || fills == null || borders == null || cellXfs == null) {
+            throw new java.io.IOException("The style sheet of the file is not supported");
+        }
+        Map<String, String> formatIds = new HashMap<>();
+        Element sourceFormats = getChild(sourceRoot, "numFmts");
+        if (sourceFormats != null) {
+            Element formats = getChild(targetRoot, "numFmts");
+            if (formats == null) {
+                formats = target.createElementNS(targetRoot.getNamespaceURI(), "numFmts");
+                targetRoot.insertBefore(formats, fonts);
+            }
+            int formatId = 163; // Custom number formats start at 164
+            Map<String, String> formatCodes = new HashMap<>();
+            for (Element format : getChildren(formats, "numFmt")) {
+                formatId = Math.max(formatId, Integer.parseInt(format.getAttribute("numFmtId")));
+                formatCodes.put(format.getAttribute("formatCode"), format.getAttribute("numFmtId"));
+            }
+            Element imported;
+            String existing;
+            for (Element format : getChildren(sourceFormats, "numFmt")) {
+                existing = formatCodes.get(format.getAttribute("formatCode"));
+                if (existing == null) {
+                    formatId++;
+                    existing = Integer.toString(formatId);
+                    imported = (Element) target.importNode(format, true);
+                    imported.setAttribute("numFmtId", existing);
+                    formats.appendChild(imported);
+                    formatCodes.put(format.getAttribute("formatCode"), existing);
+                }
+                formatIds.put(format.getAttribute("numFmtId"), existing);
+            }
+            formats.setAttribute("count", Integer.toString(getChildren(formats, "numFmt").size()));
+        }
+        int[] fontIds = mergeChildren(target, getChild(sourceRoot, "fonts"), fonts, "font");
+        int[] fillIds = mergeChildren(target, getChild(sourceRoot, "fills"), fills, "fill");
+        int[] borderIds = mergeChildren(target, getChild(sourceRoot, "borders"), borders, "border");
+        List<Element> sourceStyles = getChildren(getChild(sourceRoot, "cellXfs"), "xf");
+        int[] styleIndices = new int[sourceStyles.size()];
+        Element xf, imported;
+        String formatId;
+        for (int i = 1; i < sourceStyles.size(); i++) { // The default style is not merged
+            xf = sourceStyles.get(i);
+            imported = (Element) target.importNode(xf, true);
+            imported.setAttribute("fontId", Integer.toString(fontIds[Integer.parseInt(xf.getAttribute("fontId"))]));
+            imported.setAttribute("fillId", Integer.toString(fillIds[Integer.parseInt(xf.getAttribute("fillId"))]));
+            imported.setAttribute("borderId", Integer.toString(borderIds[Integer.parseInt(xf.getAttribute("borderId"))]));
+            formatId = formatIds.get(xf.getAttribute("numFmtId"));
+            if (formatId != null) {
+                imported.setAttribute("numFmtId", formatId);
+            }
+            styleIndices[i] = indexOfOrAppend(cellXfs, "xf", imported);
+        }
+        cellXfs.setAttribute("count", Integer.toString(getChildren(cellXfs, "xf").size()));
+        return styleIndices;
+    }
+
+    /**
+     * Merges the child elements of a section of the generated style sheet into the section of the style sheet of the file and updates the count attribute
+     *
+     * @param target    Style sheet of the file
+     * @param source    Section of the generated style sheet
+     * @param section   Section of the style sheet of the file
+     * @param localName Name of the child elements
+     * @return Indices of the child elements in the section of the file, by the index in the generated section
+     */
+    private static int[] mergeChildren(Document target, Element source, Element section, String localName) {
+        List<Element> children = getChildren(source, localName);
+        int[] indices = new int[children.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexOfOrAppend(section, localName, (Element) target.importNode(children.get(i), true));
+        }
+        section.setAttribute("count", Integer.toString(getChildren(section, localName).size()));
+        return indices;
+    }
+
+    /**
+     * Gets the index of an equal child element of a section, or appends the element if the section contains no equal one
+     *
+     * @param section   Section of the style sheet of the file
+     * @param localName Name of the child elements
+     * @param element   Element to look up (imported into the style sheet of the file)
+     * @return Index of the equal or appended element
+     */
+    private static int indexOfOrAppend(Element section, String localName, Element element) {
+        List<Element> children = getChildren(section, localName);
+        for (int i = 0; i < children.size(); i++) {
+            if (isEqualElement(children.get(i), element)) {
+                return i;
+            }
+        }
+        section.appendChild(element);
+        return children.size();
+    }
+
+    /**
+     * Compares two elements by name, attributes (in any order) and child elements. Whitespace between the elements is ignored
+     *
+     * @param a First element
+     * @param b Second element
+     * @return True if the elements are equal
+     */
+    private static boolean isEqualElement(Element a, Element b) {
+        NamedNodeMap attributes = a.getAttributes();
+        if (!a.getLocalName().equals(b.getLocalName()) || attributes.getLength() != b.getAttributes().getLength()) {
+            return false;
+        }
+        Node attribute;
+        for (int i = 0; i < attributes.getLength(); i++) {
+            attribute = attributes.item(i);
+            if (!b.hasAttribute(attribute.getNodeName()) || !b.getAttribute(attribute.getNodeName()).equals(attribute.getNodeValue())) {
+                return false;
+            }
+        }
+        List<Element> childrenA = getChildren(a, null);
+        List<Element> childrenB = getChildren(b, null);
+        if (childrenA.size() != childrenB.size()) {
+            return false;
+        }
+        if (childrenA.isEmpty()) {
+            return a.getTextContent().trim().equals(b.getTextContent().trim());
+        }
+        for (int i = 0; i < childrenA.size(); i++) {
+            if (!isEqualElement(childrenA.get(i), childrenB.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a part of the file as XML document
+     *
+     * @param name Path of the part
+     * @return XML document or null if the part does not exist
+     * @throws Exception Thrown if the part could not be read or parsed
+     */
+    private Document readDocument(String name) throws Exception {
+        ZipEntry entry = this.zipFile.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream stream = this.zipFile.getInputStream(entry)) {
+            Document document = createDocumentBuilder().parse(stream);
+            document.setXmlStandalone(true);
+            return document;
+        }
+    }
+
+    /**
+     * Creates a XML document from a string
+     *
+     * @param rawInput String to process
+     * @return XML document
+     * @throws Exception Thrown if the string could not be parsed
+     */
+    private static Document createDocument(String rawInput) throws Exception {
+        Document document = createDocumentBuilder().parse(new ByteArrayInputStream(rawInput.getBytes(StandardCharsets.UTF_8)));
+        document.setXmlStandalone(true);
+        return document;
+    }
+
+    /**
+     * Creates a namespace aware document builder without support of DTDs and external entities
+     *
+     * @return Document builder
+     * @throws Exception Thrown if the builder could not be created
+     */
+    private static DocumentBuilder createDocumentBuilder() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        return factory.newDocumentBuilder();
+    }
+
+    /**
+     * Gets the first child element with a local name
+     *
+     * @param parent    Parent element (can be null)
+     * @param localName Local name of the child
+     * @return Element or null if no child with the name exists
+     */
+    private static Element getChild(Element parent, String localName) {
+        List<Element> children = getChildren(parent, localName);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    /**
+     * Gets all child elements with a local name
+     *
+     * @param parent    Parent element (can be null)
+     * @param localName Local name of the children or null for all child elements
+     * @return List of elements
+     */
+    private static List<Element> getChildren(Element parent, String localName) {
+        List<Element> children = new ArrayList<>();
+        if (parent == null) {
+            return children;
+        }
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && (localName == null || localName.equals(node.getLocalName()))) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Resolves the path of a part by a target of the workbook relationships
+     *
+     * @param target Target (relative to the folder xl or absolute)
+     * @return Path of the part
+     */
+    private static String resolvePath(String target) {
+        return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+    }
+
+}
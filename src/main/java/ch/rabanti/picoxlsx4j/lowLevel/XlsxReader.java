@@ -0,0 +1,537 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.exception.IOException;
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Class representing a streaming reader of XLSX files (e.g. to post-process or validate files written by this library). The XML parts are read with StAX, directly from the ZIP file,
+ * so the memory usage does not depend on the number of rows. The rows of a worksheet are provided by a {@link RowReader} (iterator) or passed to a callback, one row at a time.<br>
+ * Shared strings are resolved (large tables are stored in temporary files, see {@link #DEFAULT_MAX_IN_MEMORY_STRINGS}). Numbers with a date or time format are read as
+ * DATE (java.util.Date) or TIME (java.time.LocalTime), formulas as FORMULA with the formula as value. Styles are only used to determine the cell types; cells have no style.<br>
+ * The reader must be closed to release the file and the temporary files
+ * @author Raphael Stoeckli
+ */
+public class XlsxReader implements AutoCloseable {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Default maximum number of shared strings that are kept in memory. Larger shared string tables are stored in temporary files
+     */
+    public static final int DEFAULT_MAX_IN_MEMORY_STRINGS = 100000;
+    private static final String RELATIONSHIP_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    static final byte STYLE_NUMBER = 0;
+    static final byte STYLE_DATE = 1;
+    static final byte STYLE_TIME = 2;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final XMLInputFactory factory;
+    private final SharedStringTable sharedStrings;
+    private final Path temporaryFile;
+    private final List<String> worksheetNames;
+    private final List<String> worksheetPaths;
+    private final ZipFile zipFile;
+    private byte[] styleTypes;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the names of the worksheets in the order of the workbook
+     *
+     * @return Unmodifiable list of worksheet names
+     */
+    public List<String> getWorksheetNames() {
+        return Collections.unmodifiableList(this.worksheetNames);
+    }
+
+    /**
+     * Gets the number of (unique) shared strings
+     *
+     * @return Number of shared strings
+     */
+    public int getSharedStringCount() {
+        return this.sharedStrings.size();
+    }
+
+    /**
+     * Gets whether the shared string table is stored in temporary files, because it exceeds the maximum number of strings in memory
+     *
+     * @return True if the shared strings are read from disk
+     */
+    public boolean isSharedStringTableOnDisk() {
+        return this.sharedStrings.isDiskBacked();
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the opened ZIP file
+     *
+     * @param zipFile       ZIP file (XLSX)
+     * @param temporaryFile Temporary copy of a read stream that is deleted on close, or null
+     * @param maxInMemory   Maximum number of shared strings in memory
+     */
+    private XlsxReader(ZipFile zipFile, Path temporaryFile, int maxInMemory) {
+        this.zipFile = zipFile;
+        this.temporaryFile = temporaryFile;
+        this.sharedStrings = new SharedStringTable(maxInMemory);
+        this.worksheetNames = new ArrayList<>();
+        this.worksheetPaths = new ArrayList<>();
+        this.styleTypes = new byte[0];
+        this.factory = XMLInputFactory.newInstance();
+        this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Opens a XLSX file with the default maximum number of shared strings in memory
+     *
+     * @param path Path of the file
+     * @return Reader of the file
+     * @throws IOException Thrown if the file could not be opened or its workbook, style or shared string part could not be read
+     */
+    public static XlsxReader open(Path path) throws IOException {
+        return open(path, DEFAULT_MAX_IN_MEMORY_STRINGS);
+    }
+
+    /**
+     * Opens a XLSX file
+     *
+     * @param path        Path of the file
+     * @param maxInMemory Maximum number of shared strings that are kept in memory. Larger tables are stored in temporary files
+     * @return Reader of the file
+     * @throws IOException Thrown if the file could not be opened or its workbook, style or shared string part could not be read
+     * @throws RangeException Thrown if the maximum number of shared strings is negative
+     */
+    public static XlsxReader open(Path path, int maxInMemory) throws IOException {
+        return open(path, null, maxInMemory);
+    }
+
+    /**
+     * Opens a XLSX file from a stream with the default maximum number of shared strings in memory. The stream is copied into a temporary file (the parts of a XLSX file
+     * are not ordered, so the shared strings may be located after the worksheets), which is deleted when the reader is closed. The stream is not closed
+     *
+     * @param stream Stream of the XLSX file
+     * @return Reader of the file
+     * @throws IOException Thrown if the stream could not be copied or the file could not be read
+     */
+    public static XlsxReader open(InputStream stream) throws IOException {
+        return open(stream, DEFAULT_MAX_IN_MEMORY_STRINGS);
+    }
+
+    /**
+     * Opens a XLSX file from a stream. The stream is copied into a temporary file, which is deleted when the reader is closed. The stream is not closed
+     *
+     * @param stream      Stream of the XLSX file
+     * @param maxInMemory Maximum number of shared strings that are kept in memory. Larger tables are stored in temporary files
+     * @return Reader of the file
+     * @throws IOException Thrown if the stream could not be copied or the file could not be read
+     * @throws RangeException Thrown if the maximum number of shared strings is negative
+     */
+    public static XlsxReader open(InputStream stream, int maxInMemory) throws IOException {
+        Path temporaryFile = null;
+        try {
+            temporaryFile = Files.createTempFile("picoxlsx4j", ".xlsx");
+            Files.copy(stream, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            deleteQuietly(temporaryFile);
+            throw new IOException("ReadException", "The stream could not be copied into a temporary file. Please see the inner exception.", e);
+        }
+        return open(temporaryFile, temporaryFile, maxInMemory);
+    }
+
+    /**
+     * Opens a XLSX file and reads the workbook, style and shared string parts
+     *
+     * @param path          Path of the file
+     * @param temporaryFile Temporary file to delete on close (or in case of an error) or null
+     * @param maxInMemory   Maximum number of shared strings in memory
+     * @return Reader of the file
+     * @throws IOException Thrown if the file could not be read
+     */
+    private static XlsxReader open(Path path, Path temporaryFile, int maxInMemory) throws IOException {
+        if (maxInMemory < 0) {
+            deleteQuietly(temporaryFile);
+            throw new RangeException("OutOfRangeException", "The maximum number of shared strings in memory (" + maxInMemory + ") must not be negative.");
+        }
+        XlsxReader reader = null;
+        try {
+            reader = new XlsxReader(new ZipFile(path.toFile()), temporaryFile, maxInMemory);
+            reader.readWorkbook();
+            reader.readStyles();
+            reader.readSharedStrings();
+            return reader;
+        } catch (Exception e) {
+            if (reader != null) {
+                closeQuietly(reader);
+            } else {
+                deleteQuietly(temporaryFile);
+            }
+            throw new IOException("ReadException", "The XLSX file could not be read. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Creates a reader of the rows of a worksheet. The reader must be closed if not all rows are read
+     *
+     * @param name Name of the worksheet
+     * @return Row reader
+     * @throws IOException Thrown if the worksheet part could not be opened
+     * @throws WorksheetException Thrown if the worksheet does not exist
+     */
+    public RowReader rows(String name) throws IOException {
+        int index = this.worksheetNames.indexOf(name);
+        if (index < 0) {
+            throw new WorksheetException("MissingReferenceException", "The worksheet with the name '" + name + "' does not exist.");
+        }
+        return this.rows(index);
+    }
+
+    /**
+     * Creates a reader of the rows of a worksheet. The reader must be closed if not all rows are read
+     *
+     * @param index Zero-based index of the worksheet
+     * @return Row reader
+     * @throws IOException Thrown if the worksheet part could not be opened
+     * @throws RangeException Thrown if the index is out of range
+     */
+    public RowReader rows(int index) throws IOException {
+        if (index < 0 || index >= this.worksheetPaths.size()) {
+            throw new RangeException("OutOfRangeException", "The worksheet index " + index + " is out of range");
+        }
+        InputStream stream = null;
+        try {
+            stream = this.openPart(this.worksheetPaths.get(index));
+            if (stream == null) {
+                throw new java.io.IOException("The part " + this.worksheetPaths.get(index) + " does not exist");
+            }
+            return new RowReader(this, stream, this.factory.createXMLStreamReader(stream));
+        } catch (Exception e) {
+            closeQuietly(stream);
+            throw new IOException("ReadException", "The worksheet could not be opened. Please see the inner exception.", e);
+        }
+    }
+
+    /**
+     * Reads all rows of a worksheet and passes them to a callback, one row at a time. Rows without cells are skipped
+     *
+     * @param name    Name of the worksheet
+     * @param handler Callback of the rows (cells ordered by column)
+     * @throws IOException Thrown if the worksheet part could not be opened
+     * @throws WorksheetException Thrown if the worksheet does not exist
+     * @throws ch.rabanti.picoxlsx4j.exception.FormatException Thrown if the worksheet part is malformed
+     */
+    public void forEachRow(String name, Consumer<List<Cell>> handler) throws IOException {
+        try (RowReader rows = this.rows(name)) {
+            while (rows.hasNext()) {
+                handler.accept(rows.next());
+            }
+        }
+    }
+
+    /**
+     * Closes the ZIP file and deletes the temporary files
+     *
+     * @throws IOException Thrown if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.sharedStrings.close();
+            this.zipFile.close();
+        } catch (Exception e) {
+            throw new IOException("ReadException", "The XLSX file could not be closed. Please see the inner exception.", e);
+        } finally {
+            deleteQuietly(this.temporaryFile);
+        }
+    }
+
+    /**
+     * Gets a shared string
+     *
+     * @param index Index of the string
+     * @return String
+     * @throws java.io.IOException Thrown if the string could not be read from the temporary file
+     */
+    String getSharedString(int index) throws java.io.IOException {
+        return this.sharedStrings.get(index);
+    }
+
+    /**
+     * Gets the value type of a cell style (cellXfs index)
+     *
+     * @param styleIndex Index of the style
+     * @return STYLE_NUMBER, STYLE_DATE or STYLE_TIME
+     */
+    byte getStyleType(int styleIndex) {
+        return styleIndex >= 0 && styleIndex < this.styleTypes.length ? this.styleTypes[styleIndex] : STYLE_NUMBER;
+    }
+
+    /**
+     * Reads the worksheet names of the workbook part and resolves the paths of the worksheet parts by the relationships of the workbook
+     *
+     * @throws Exception Thrown if the workbook part is missing or malformed
+     */
+    private void readWorkbook() throws Exception {
+        Map<String, String> targets = new HashMap<>();
+        InputStream stream = this.openPart("xl/_rels/workbook.xml.rels");
+        XMLStreamReader xml;
+        if (stream != null) {
+            xml = this.factory.createXMLStreamReader(stream);
+            try {
+                while (xml.hasNext()) {
+                    if (xml.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(xml.getLocalName())) {
+                        targets.put(xml.getAttributeValue(null, "Id"), xml.getAttributeValue(null, "Target"));
+                    }
+                }
+            } finally {
+                xml.close();
+                stream.close();
+            }
+        }
+        stream = this.openPart("xl/workbook.xml");
+        if (stream == null) {
+            throw new java.io.IOException("The workbook part xl/workbook.xml does not exist");
+        }
+        xml = this.factory.createXMLStreamReader(stream);
+        String target;
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(xml.getLocalName())) {
+                    this.worksheetNames.add(xml.getAttributeValue(null, "name"));
+                    target = targets.get(xml.getAttributeValue(RELATIONSHIP_NAMESPACE, "id"));
+                    if (target == null) {
+                        target = "worksheets/sheet" + this.worksheetNames.size() + ".xml"; // Part name of this library
+                    }
+                    this.worksheetPaths.add(target.startsWith("/") ? target.substring(1) : "xl/" + target);
+                }
+            }
+        } finally {
+            xml.close();
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the number formats of the cell styles (cellXfs) to determine the styles of dates and times
+     *
+     * @throws Exception Thrown if the style part is malformed
+     */
+    private void readStyles() throws Exception {
+        InputStream stream = this.openPart("xl/styles.xml");
+        if (stream == null) {
+            return;
+        }
+        XMLStreamReader xml = this.factory.createXMLStreamReader(stream);
+        Map<Integer, String> formatCodes = new HashMap<>();
+        List<Byte> types = new ArrayList<>();
+        boolean inCellXfs = false;
+        String numberFormat;
+        int event;
+        try {
+            while (xml.hasNext()) {
+                event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "numFmt":
+                            formatCodes.put(Integer.parseInt(xml.getAttributeValue(null, "numFmtId")), xml.getAttributeValue(null, "formatCode"));
+                            break;
+                        case "cellXfs":
+                            inCellXfs = true;
+                            break;
+                        case "xf":
+                            if (inCellXfs) {
+                                numberFormat = xml.getAttributeValue(null, "numFmtId");
+                                types.add(numberFormat == null ? STYLE_NUMBER : getFormatType(Integer.parseInt(numberFormat), formatCodes));
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(xml.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+        } finally {
+            xml.close();
+            stream.close();
+        }
+        this.styleTypes = new byte[types.size()];
+        for (int i = 0; i < this.styleTypes.length; i++) {
+            this.styleTypes[i] = types.get(i);
+        }
+    }
+
+    /**
+     * Reads the shared string table. Rich text runs of a string are concatenated; phonetic runs are ignored
+     *
+     * @throws Exception Thrown if the shared string part is malformed or the temporary files could not be written
+     */
+    private void readSharedStrings() throws Exception {
+        InputStream stream = this.openPart("xl/sharedStrings.xml");
+        if (stream == null) {
+            return;
+        }
+        XMLStreamReader xml = this.factory.createXMLStreamReader(stream);
+        StringBuilder sb = new StringBuilder();
+        boolean phonetic = false;
+        int event;
+        try {
+            while (xml.hasNext()) {
+                event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "si":
+                            sb.setLength(0);
+                            break;
+                        case "rPh":
+                            phonetic = true;
+                            break;
+                        case "t":
+                            if (!phonetic) {
+                                sb.append(xml.getElementText());
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if ("si".equals(xml.getLocalName())) {
+                        this.sharedStrings.add(sb.toString());
+                    } else if ("rPh".equals(xml.getLocalName())) {
+                        phonetic = false;
+                    }
+                }
+            }
+        } finally {
+            xml.close();
+            stream.close();
+        }
+        this.sharedStrings.complete();
+    }
+
+    /**
+     * Opens the (inflating) input stream of a part of the ZIP file
+     *
+     * @param name Path of the part
+     * @return Input stream or null if the part does not exist
+     * @throws java.io.IOException Thrown if the part could not be opened
+     */
+    private InputStream openPart(String name) throws java.io.IOException {
+        ZipEntry entry = this.zipFile.getEntry(name);
+        return entry == null ? null : this.zipFile.getInputStream(entry);
+    }
+
+    /**
+     * Determines whether a number format is a date or time format
+     *
+     * @param id          ID of the number format
+     * @param formatCodes Custom format codes by their ID
+     * @return STYLE_NUMBER, STYLE_DATE or STYLE_TIME
+     */
+    static byte getFormatType(int id, Map<Integer, String> formatCodes) {
+        if ((id >= 14 && id <= 17) || id == 22 || (id >= 27 && id <= 36) || (id >= 50 && id <= 58)) {
+            return STYLE_DATE;
+        }
+        if ((id >= 18 && id <= 21) || (id >= 45 && id <= 47)) {
+            return STYLE_TIME;
+        }
+        String code = formatCodes.get(id);
+        if (id < 164 || code == null) {
+            return STYLE_NUMBER;
+        }
+        boolean date = false;
+        boolean time = false;
+        boolean quoted = false;
+        char c;
+        for (int i = 0; i < code.length(); i++) {
+            c = Character.toLowerCase(code.charAt(i));
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (quoted) {
+                continue;
+            } else if (c == '\\' || c == '_' || c == '*') {
+                i++; // Escaped or padding character
+            } else if (c == '[') {
+                int end = code.indexOf(']', i);
+                if (end < 0) {
+                    break;
+                }
+                String section = code.substring(i + 1, end).toLowerCase();
+                if (section.startsWith("h") || section.startsWith("m") || section.startsWith("s")) {
+                    time = true; // Elapsed time, e.g. [h]
+                }
+                i = end;
+            } else if (c == ';') {
+                break; // Only the first section is relevant
+            } else if (c == 'y' || c == 'd') {
+                date = true;
+            } else if (c == 'h' || c == 's') {
+                time = true;
+            }
+        }
+        if (date) {
+            return STYLE_DATE;
+        }
+        return time ? STYLE_TIME : STYLE_NUMBER;
+    }
+
+    /**
+     * Closes a stream and ignores errors
+     *
+     * @param stream Stream to close or null
+     */
+    static void closeQuietly(AutoCloseable stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (Exception e) {
+            // Nothing to do; the data was already read or the original error is thrown
+        }
+    }
+
+    /**
+     * Deletes a (temporary) file and ignores errors
+     *
+     * @param file File to delete or null
+     */
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Class to compress the entries of a XLSX file step by step into chunks. The ZIP stream is only advanced if the next chunk is requested, so the consumer controls the pace of the compression
+ * @author Raphael Stoeckli
+ */
+class ZipChunkSource {
+
+    // ### C O N S T A N T S ###
+    /**
+     * Number of uncompressed bytes passed to the ZIP stream per step
+     */
+    private static final int SLICE_SIZE = 16384;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final List<byte[]> entries;
+    private final List<String> names;
+    private final ChunkStream sink;
+    private final ZipOutputStream zip;
+    private int entryIndex;
+    private boolean finished;
+    private int offset;
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the entries of the ZIP container
+     *
+     * @param names     Paths of the entries
+     * @param entries   Uncompressed data of the entries
+     * @param chunkSize Size of the chunks in bytes
+     */
+    ZipChunkSource(List<String> names, List<byte[]> entries, int chunkSize) {
+        this.names = names;
+        this.entries = entries;
+        this.sink = new ChunkStream(chunkSize);
+        this.zip = new ZipOutputStream(this.sink, StandardCharsets.UTF_8);
+        this.zip.setMethod(ZipOutputStream.DEFLATED);
+        this.entryIndex = -1;
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Gets the next chunk of the XLSX file. The data is compressed until a chunk is full or the file is complete
+     *
+     * @return Chunk (ready to read) or null if the file is complete
+     * @throws IOException Thrown in case of an error while compressing
+     */
+    ByteBuffer next() throws IOException {
+        while (this.sink.chunks.isEmpty() && !this.finished) {
+            step();
+        }
+        return this.sink.chunks.poll();
+    }
+
+    /**
+     * Gets whether the file is complete and all chunks were returned
+     *
+     * @return True if no further chunk will be returned
+     */
+    boolean isComplete() {
+        return this.finished && this.sink.chunks.isEmpty();
+    }
+
+    /**
+     * Compresses the next slice of the current entry, or starts the next entry, or finishes the ZIP container
+     *
+     * @throws IOException Thrown in case of an error while compressing
+     */
+    private void step() throws IOException {
+        if (this.entryIndex >= 0 && this.offset < this.entries.get(this.entryIndex).length) {
+            byte[] data = this.entries.get(this.entryIndex);
+            int length = Math.min(SLICE_SIZE, data.length - this.offset);
+            this.zip.write(data, this.offset, length);
+            this.offset += length;
+            return;
+        }
+        if (this.entryIndex >= 0) {
+            this.zip.closeEntry();
+        }
+        this.entryIndex++;
+        if (this.entryIndex < this.names.size()) {
+            this.zip.putNextEntry(new ZipEntry(this.names.get(this.entryIndex)));
+            this.offset = 0;
+        } else {
+            this.zip.close();
+            this.sink.emit();
+            this.finished = true;
+        }
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Output stream collecting the compressed bytes into chunks of a fixed size. A new buffer is allocated for each chunk, since the chunks are handed over to the consumer
+     */
+    private static class ChunkStream extends OutputStream {
+        private final ArrayDeque<ByteBuffer> chunks;
+        private final int chunkSize;
+        private ByteBuffer current;
+
+        /**
+         * Constructor with chunk size
+         *
+         * @param chunkSize Size of the chunks in bytes
+         */
+        ChunkStream(int chunkSize) {
+            this.chunks = new ArrayDeque<>();
+            this.chunkSize = chunkSize;
+            this.current = ByteBuffer.allocate(chunkSize);
+        }
+
+        @Override
+        public void write(int b) {
+            if (!this.current.hasRemaining()) {
+                emit();
+            }
+            this.current.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (!this.current.hasRemaining()) {
+                    emit();
+                }
+                int length = Math.min(len, this.current.remaining());
+                this.current.put(b, off, length);
+                off += length;
+                len -= length;
+            }
+        }
+
+        /**
+         * Passes the current chunk (if not empty) to the queue of completed chunks and starts a new one
+         */
+        void emit() {
+            if (this.current.position() == 0) {
+                return;
+            }
+            this.current.flip();
+            this.chunks.add(this.current);
+            this.current = ByteBuffer.allocate(this.chunkSize);
+        }
+    }
+
+}
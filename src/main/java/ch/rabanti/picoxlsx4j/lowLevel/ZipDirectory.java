@@ -0,0 +1,303 @@
+/*
+ * PicoXLSX4j is a small Java library to generate XLSX (Microsoft Excel 2007 or newer) files in an easy and native way
+ * Copyright Raphael Stoeckli © 2020
+ * This library is licensed under the MIT License.
+ * You find a copy of the license in project folder or on: http://opensource.org/licenses/MIT
+ */
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class representing the central directory of a ZIP file. Only the directory and the local headers are read, so that the compressed data of an entry can be copied
+ * into another ZIP file without decompression (see {@link ParallelZipWriter#writeRawEntry(String, int, long, long, long, FileChannel, long)}).
+ * ZIP64 records are supported, encrypted entries and split archives are not
+ * @author Raphael Stoeckli
+ */
+class ZipDirectory {
+
+    // ### C O N S T A N T S ###
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_MARKER = 0xFFFF;
+
+    // ### P R I V A T E  F I E L D S ###
+    private final FileChannel channel;
+    private final List<Entry> entries;
+
+    // ### G E T T E R S ###
+
+    /**
+     * Gets the entries in the order of the central directory
+     *
+     * @return Unmodifiable list of entries
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(this.entries);
+    }
+
+    // ### C O N S T R U C T O R S ###
+
+    /**
+     * Constructor with the channel of the file
+     *
+     * @param channel Channel of the ZIP file
+     */
+    private ZipDirectory(FileChannel channel) {
+        this.channel = channel;
+        this.entries = new ArrayList<>();
+    }
+
+    // ### M E T H O D S ###
+
+    /**
+     * Reads the central directory of a ZIP file
+     *
+     * @param channel Channel of the ZIP file. The channel is not closed
+     * @return Central directory
+     * @throws IOException Thrown if the file is not a (supported) ZIP file or could not be read
+     */
+    static ZipDirectory read(FileChannel channel) throws IOException {
+        ZipDirectory directory = new ZipDirectory(channel);
+        directory.readEntries();
+        return directory;
+    }
+
+    /**
+     * Gets the position of the compressed data of an entry, behind its local header
+     *
+     * @param entry Entry of the directory
+     * @return Position in the file
+     * @throws IOException Thrown if the local header is malformed or could not be read
+     */
+    long getDataOffset(Entry entry) throws IOException {
+        ByteBuffer header = this.read(entry.headerOffset, 30);
+        if (header.getInt(0) != 0x04034b50) {
+            throw new IOException("The local header of the entry " + entry.name + " is malformed");
+        }
+        return entry.headerOffset + 30 + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+    }
+
+    /**
+     * Reads the entries of the central directory
+     *
+     * @throws IOException Thrown if the file is not a (supported) ZIP file or could not be read
+     */
+    private void readEntries() throws IOException {
+        long fileSize = this.channel.size();
+        if (fileSize < END_SIZE) {
+            throw new IOException("The file is not a ZIP file");
+        }
+        int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = this.read(fileSize - tailSize, tailSize);
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == 0x06054b50) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("The end of the central directory was not found");
+        }
+        if ((tail.getShort(end + 4) & 0xFFFF) != 0 || (tail.getShort(end + 6) & 0xFFFF) != 0) {
+            throw new IOException("Split ZIP files are not supported");
+        }
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & ZIP64_MARKER;
+        long directoryOffset = tail.getInt(end + 16) & ZIP64_MARKER;
+        long endPosition = fileSize - tailSize + end;
+        if ((count == ZIP64_ENTRY_MARKER || directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER) && endPosition >= 20) {
+            ByteBuffer locator = this.read(endPosition - 20, 20);
+            if (locator.getInt(0) == 0x07064b50) {
+                ByteBuffer record = this.read(locator.getLong(8), 56);
+                if (record.getInt(0) != 0x06064b50) {
+                    throw new IOException("The ZIP64 end of the central directory is malformed");
+                }
+                count = record.getLong(32);
+                directorySize = record.getLong(40);
+                directoryOffset = record.getLong(48);
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE) {
+            throw new IOException("The central directory is too large");
+        }
+        ByteBuffer directory = this.read(directoryOffset, (int) directorySize);
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (directory.getInt(position) != 0x02014b50) {
+                throw new IOException("The central directory is malformed");
+            }
+            this.entries.add(readEntry(directory, position));
+            position += 46 + (directory.getShort(position + 28) & 0xFFFF) + (directory.getShort(position + 30) & 0xFFFF)
+                    + (directory.getShort(position + 32) & 0xFFFF);
+        }
+    }
+
+    /**
+     * Reads one entry of the central directory, including the values of a ZIP64 extra field
+     *
+     * @param directory Central directory
+     * @param position  Position of the entry in the directory
+     * @return Entry
+     * @throws IOException Thrown if the entry is encrypted
+     */
+    private static Entry readEntry(ByteBuffer directory, int position) throws IOException {
+        int flags = directory.getShort(position + 8) & 0xFFFF;
+        int method = directory.getShort(position + 10) & 0xFFFF;
+        long crc = directory.getInt(position + 16) & ZIP64_MARKER;
+        long compressedSize = directory.getInt(position + 20) & ZIP64_MARKER;
+        long size = directory.getInt(position + 24) & ZIP64_MARKER;
+        int nameLength = directory.getShort(position + 28) & 0xFFFF;
+        int extraLength = directory.getShort(position + 30) & 0xFFFF;
+        long headerOffset = directory.getInt(position + 42) & ZIP64_MARKER;
+        byte[] nameBytes = new byte[nameLength];
+        directory.position(position + 46);
+        directory.get(nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8); // Names of XLSX parts are ASCII
+        if ((flags & 0x0001) != 0) {
+            throw new IOException("The entry " + name + " is encrypted");
+        }
+        int extra = position + 46 + nameLength;
+        int extraEnd = extra + extraLength;
+        int field;
+        while (extra + 4 <= extraEnd) {
+            int id = directory.getShort(extra) & 0xFFFF;
+            int length = directory.getShort(extra + 2) & 0xFFFF;
+            if (id == 0x0001) { // ZIP64: Only the values with a marker are stored, in this order
+                field = extra + 4;
+                if (size == ZIP64_MARKER) {
+                    size = directory.getLong(field);
+                    field += 8;
+                }
+                if (compressedSize == ZIP64_MARKER) {
+                    compressedSize = directory.getLong(field);
+                    field += 8;
+                }
+                if (headerOffset == ZIP64_MARKER) {
+                    headerOffset = directory.getLong(field);
+                }
+            }
+            extra += 4 + length;
+        }
+        return new Entry(name, method, crc, compressedSize, size, headerOffset);
+    }
+
+    /**
+     * Reads a range of the file
+     *
+     * @param position Start of the range
+     * @param length   Length of the range
+     * @return Buffer (little endian) with the bytes of the range
+     * @throws IOException Thrown if the end of the file was reached before the range is read
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        int read;
+        while (buffer.hasRemaining()) {
+            read = this.channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the ZIP file");
+            }
+            position += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // ### S U B  C L A S S E S ###
+
+    /**
+     * Class representing an entry of the central directory
+     */
+    static class Entry {
+        private final long compressedSize;
+        private final long crc;
+        private final long headerOffset;
+        private final int method;
+        private final String name;
+        private final long size;
+
+        /**
+         * Gets the compressed size
+         *
+         * @return Compressed size in bytes
+         */
+        long getCompressedSize() {
+            return this.compressedSize;
+        }
+
+        /**
+         * Gets the CRC-32 of the uncompressed data
+         *
+         * @return CRC-32
+         */
+        long getCrc() {
+            return this.crc;
+        }
+
+        /**
+         * Gets the position of the local header
+         *
+         * @return Position in the file
+         */
+        long getHeaderOffset() {
+            return this.headerOffset;
+        }
+
+        /**
+         * Gets the compression method
+         *
+         * @return Compression method (e.g. 8 for deflate or 0 for stored)
+         */
+        int getMethod() {
+            return this.method;
+        }
+
+        /**
+         * Gets the path of the entry
+         *
+         * @return Path of the entry
+         */
+        String getName() {
+            return this.name;
+        }
+
+        /**
+         * Gets the uncompressed size
+         *
+         * @return Uncompressed size in bytes
+         */
+        long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Constructor with all values
+         *
+         * @param name           Path of the entry
+         * @param method         Compression method
+         * @param crc            CRC-32 of the uncompressed data
+         * @param compressedSize Compressed size
+         * @param size           Uncompressed size
+         * @param headerOffset   Position of the local header
+         */
+        Entry(String name, int method, long crc, long compressedSize, long size, long headerOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.headerOffset = headerOffset;
+        }
+    }
+
+}
@@ -10,6 +10,8 @@ import ch.rabanti.picoxlsx4j.exception.StyleException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class representing a style manager to maintain all styles and its components of a workbook
@@ -26,6 +28,8 @@ public class StyleManager {
     private final ArrayList<AbstractStyle> numberFormats;
     private final ArrayList<AbstractStyle> styles;
     private final ArrayList<String> styleNames;
+    private final ConcurrentHashMap<Integer, Style> styleCache;
+    private volatile long modificationCount;
     //private final Map<String, AbstractStyle> internalStyleCache;
 
 // ### C O N S T R U C T O R S ### 
@@ -41,11 +45,22 @@ public class StyleManager {
         this.numberFormats = new ArrayList<>();
         this.styles = new ArrayList<>();
         this.styleNames = new ArrayList<>();
+        this.styleCache = new ConcurrentHashMap<>();
         //this.internalStyleCache = new HashMap<>();
     }
 
 // ###  M E T H O D S ###
 
+    /**
+     * Gets the modification count of the style manager. The count is increased whenever a style is added or removed, since this may change the internal IDs
+     * of the styles that are referenced by the worksheets
+     *
+     * @return Modification count
+     */
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
     /**
      * Gets a component by its hash
      *
@@ -70,7 +85,7 @@ public class StyleManager {
      * @return Determined border
      * @throws StyleException Throws a StyleException if the border was not found in the style manager
      */
-    public Border getBorderByHash(int hash) {
+    public synchronized Border getBorderByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.borders, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
@@ -83,7 +98,7 @@ public class StyleManager {
      *
      * @return Array of borders
      */
-    public Border[] getBorders() {
+    public synchronized Border[] getBorders() {
         return this.borders.toArray(new Border[this.borders.size()]);
     }
 
@@ -92,7 +107,7 @@ public class StyleManager {
      *
      * @return Number of stored borders
      */
-    public int getBorderStyleNumber() {
+    public synchronized int getBorderStyleNumber() {
         return this.borders.size();
     }
 
@@ -103,7 +118,7 @@ public class StyleManager {
      * @return Determined cellXf
      * @throws StyleException Throws a StyleException if the cellXf was not found in the style manager
      */
-    public CellXf getCellXfByHash(int hash) {
+    public synchronized CellXf getCellXfByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.cellXfs, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
@@ -116,7 +131,7 @@ public class StyleManager {
      *
      * @return Array of cellXfs
      */
-    public CellXf[] getCellXfs() {
+    public synchronized CellXf[] getCellXfs() {
         return this.cellXfs.toArray(new CellXf[this.cellXfs.size()]);
     }
 
@@ -125,7 +140,7 @@ public class StyleManager {
      *
      * @return Number of stored cellXfs
      */
-    public int getCellXfStyleNumber() {
+    public synchronized int getCellXfStyleNumber() {
         return this.cellXfs.size();
     }
 
@@ -136,7 +151,7 @@ public class StyleManager {
      * @return Determined font
      * @throws StyleException Throws a StyleException if the font was not found in the style manager
      */
-    public Fill getFillByHash(int hash) {
+    public synchronized Fill getFillByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.fills, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
@@ -149,7 +164,7 @@ public class StyleManager {
      *
      * @return Array of fills
      */
-    public Fill[] getFills() {
+    public synchronized Fill[] getFills() {
         return this.fills.toArray(new Fill[this.fills.size()]);
     }
 
@@ -158,7 +173,7 @@ public class StyleManager {
      *
      * @return Number of stored fills
      */
-    public int getFillStyleNumber() {
+    public synchronized int getFillStyleNumber() {
         return this.fills.size();
     }
 
@@ -169,7 +184,7 @@ public class StyleManager {
      * @return Determined font
      * @throws StyleException Throws a StyleException if the font was not found in the style manager
      */
-    public Font getFontByHash(int hash) {
+    public synchronized Font getFontByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.fonts, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
@@ -182,7 +197,7 @@ public class StyleManager {
      *
      * @return Array of fonts
      */
-    public Font[] getFonts() {
+    public synchronized Font[] getFonts() {
         return this.fonts.toArray(new Font[this.fonts.size()]);
     }
 
@@ -191,7 +206,7 @@ public class StyleManager {
      *
      * @return Number of stored fonts
      */
-    public int getFontStyleNumber() {
+    public synchronized int getFontStyleNumber() {
         return this.fonts.size();
     }
 
@@ -202,7 +217,7 @@ public class StyleManager {
      * @return Determined number format
      * @throws StyleException Throws a StyleException if the number format was not found in the style manager
      */
-    public NumberFormat getNumberFormatByHash(int hash) {
+    public synchronized NumberFormat getNumberFormatByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.numberFormats, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style component with the hash '" + hash + "' was not found");
@@ -215,7 +230,7 @@ public class StyleManager {
      *
      * @return Array of number formats
      */
-    public NumberFormat[] getNumberFormats() {
+    public synchronized NumberFormat[] getNumberFormats() {
         return this.numberFormats.toArray(new NumberFormat[this.numberFormats.size()]);
     }
 
@@ -224,7 +239,7 @@ public class StyleManager {
      *
      * @return Number of stored number formats
      */
-    public int getNumberFormatStyleNumber() {
+    public synchronized int getNumberFormatStyleNumber() {
         return this.numberFormats.size();
     }
 
@@ -235,7 +250,7 @@ public class StyleManager {
      * @return Determined style
      * @throws StyleException Throws a StyleException if the style was not found in the style manager
      */
-    public Style getStyleByName(String name) {
+    public synchronized Style getStyleByName(String name) {
         int len = this.styles.size();
         for (int i = 0; i < len; i++) {
             if (((Style) this.styles.get(i)).getName().equals(name)) {
@@ -252,7 +267,7 @@ public class StyleManager {
      * @return Determined style
      * @throws StyleException Throws a StyleException if the style was not found in the style manager
      */
-    public Style getStyleByHash(int hash) {
+    public synchronized Style getStyleByHash(int hash) {
         AbstractStyle component = this.getComponentByHash(this.styles, hash);
         if (component == null) {
             throw new StyleException("MissingReferenceException", "The style with the hash '" + hash + "' was not found");
@@ -265,7 +280,7 @@ public class StyleManager {
      *
      * @return Array of styles
      */
-    public Style[] getStyles() {
+    public synchronized Style[] getStyles() {
         return this.styles.toArray(new Style[this.styles.size()]);
 
     }
@@ -275,19 +290,58 @@ public class StyleManager {
      *
      * @return Number of stored styles
      */
-    public int getStyleNumber() {
+    public synchronized int getStyleNumber() {
         return this.styles.size();
     }
 
     /**
-     * Adds a style component to the manager
+     * Creates an independent copy of the style manager with copies of all styles and components
+     *
+     * @param styleMapping Map that receives the mapping of each style of this manager to the style of the copy (should be an IdentityHashMap)
+     * @return Copy of the style manager
+     */
+    public synchronized StyleManager copy(Map<Style, Style> styleMapping) {
+        StyleManager copy = new StyleManager();
+        Style style;
+        Style styleCopy;
+        for (AbstractStyle item : this.styles) {
+            style = (Style) item;
+            if (style.isInternalStyle()) {
+                styleCopy = new Style(style.getName(), style.getInternalID(), true);
+                styleCopy.setBorder(style.getBorder().copy());
+                styleCopy.setCellXf(style.getCellXf().copy());
+                styleCopy.setFill(style.getFill().copy());
+                styleCopy.setFont(style.getFont().copy());
+                styleCopy.setNumberFormat(style.getNumberFormat().copy());
+            } else {
+                styleCopy = style.copyStyle();
+                styleCopy.setName(style.getName());
+                styleCopy.setInternalID(style.getInternalID());
+            }
+            styleMapping.put(style, copy.addStyle(styleCopy));
+        }
+        return copy;
+    }
+
+    /**
+     * Adds a style component to the manager. This method is thread-safe: already managed styles are resolved without locking (by hash), new styles are added under the lock of the manager
      *
      * @param style Style to add
      * @return Added or determined style in the manager
      */
     public Style addStyle(Style style) {
-        int hash = this.addStyleComponent(style);
-        return (Style) this.getComponentByHash(this.styles, hash);
+        int hash = style.hashCode();
+        Style managed = this.styleCache.get(hash);
+        // The hash of a managed style changes if the style is modified after adding
+        if (managed != null && managed.hashCode() == hash) {
+            return managed;
+        }
+        synchronized (this) {
+            hash = this.addStyleComponent(style);
+            managed = (Style) this.getComponentByHash(this.styles, hash);
+            this.styleCache.put(hash, managed);
+            return managed;
+        }
     }
 
     /**
@@ -359,6 +413,7 @@ public class StyleManager {
                 temp = this.addStyleComponent(s.getNumberFormat(), id);
                 s.setNumberFormat((NumberFormat) this.getComponentByHash(this.numberFormats, temp));
                 this.styles.add(s);
+                this.modificationCount++;
             }
             this.reorganize(this.styles);
             hash = s.hashCode();
@@ -372,7 +427,7 @@ public class StyleManager {
      * @param styleName Name of the style to remove
      * @throws StyleException Throws a StyleException if the style was not found in the style manager
      */
-    public void removeStyle(String styleName) {
+    public synchronized void removeStyle(String styleName) {
 //        String hash = null;
         boolean match = false;
         int len = this.styles.size();
@@ -389,6 +444,8 @@ public class StyleManager {
             throw new StyleException("MissingReferenceException", "The style with the name '" + styleName + "' was not found in the style manager");
         }
         this.styles.remove(index);
+        this.modificationCount++;
+        this.styleCache.clear();
         this.cleanupStyleComponents();
     }
 
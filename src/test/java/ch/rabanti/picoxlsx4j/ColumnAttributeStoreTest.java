@@ -0,0 +1,138 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ColumnAttributeStoreTest {
+
+    @DisplayName("Should define spans of columns with width, hidden state and style")
+    @Test
+    void setSpans() {
+        ColumnAttributeStore store = new ColumnAttributeStore();
+        Style style = BasicStyles.Bold();
+        store.setWidth(2, 5, 20f);
+        store.setHidden(4, 8, true);
+        store.setStyle(0, 1, style);
+
+        assertThat(store.size(), is(9));
+        assertThat(store.getLength(), is(9));
+        assertThat(store.getWidth(3), is(20f));
+        assertThat(store.getWidth(6), is(Worksheet.DEFAULT_COLUMN_WIDTH));
+        assertThat(store.getWidth(100), is(Worksheet.DEFAULT_COLUMN_WIDTH));
+        assertThat(store.isHidden(3), is(false));
+        assertThat(store.isHidden(8), is(true));
+        assertThat(store.getStyle(1), is(style));
+        assertThat(store.getStyle(2), is(nullValue()));
+
+        assertThat(store.isEqual(2, 3), is(true));
+        assertThat(store.isEqual(3, 4), is(false)); // Hidden
+        assertThat(store.isEqual(5, 6), is(false)); // Width
+        assertThat(store.isEqual(1, 2), is(false)); // Style
+        assertThat(store.isEqual(8, 9), is(false)); // Not defined
+
+        store.setStyle(0, 1, null);
+        assertThat(store.getFlags(0), is(ColumnAttributeStore.FLAG_DEFINED));
+    }
+
+    @DisplayName("Should shrink the length of the store when the last columns are removed")
+    @Test
+    void removeColumns() {
+        ColumnAttributeStore store = new ColumnAttributeStore();
+        store.setWidth(3, 15f);
+        store.setHidden(40, true);
+        long count = store.getModificationCount();
+        store.remove(40);
+        store.remove(41);
+
+        assertThat(store.size(), is(1));
+        assertThat(store.getLength(), is(4));
+        assertThat(store.contains(40), is(false));
+        assertThat(store.getModificationCount(), is(count + 1));
+        store.remove(3);
+        assertThat(store.getLength(), is(0));
+    }
+
+    @DisplayName("Should apply changes on the columns of the worksheet to the worksheet")
+    @Test
+    void changeLiveColumns() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        worksheet.setColumnWidth(1, 30f);
+        worksheet.addHiddenColumn(5);
+        Map<Integer, Column> columns = worksheet.getColumns();
+
+        columns.get(1).setWidth(12f);
+        columns.get(5).setHidden(false);
+        Column column = new Column(7);
+        column.setWidth(40f);
+        columns.put(7, column);
+
+        assertThat(worksheet.getColumns().get(1).getWidth(), is(12f));
+        assertThat(worksheet.getColumnAttributes().isHidden(5), is(false));
+        assertThat(worksheet.getColumnAttributes().getWidth(7), is(40f));
+        assertThat(columns.size(), is(3));
+
+        List<Integer> keys = new ArrayList<>();
+        Iterator<Map.Entry<Integer, Column>> iterator = columns.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Column> entry = iterator.next();
+            keys.add(entry.getKey());
+            if (entry.getKey() == 5) {
+                iterator.remove();
+            }
+        }
+        assertThat(keys, contains(1, 5, 7));
+        assertThat(columns.containsKey(5), is(false));
+        assertThat(columns.remove(7).getWidth(), is(40f));
+        assertThat(worksheet.getColumnAttributes().size(), is(1));
+    }
+
+    @DisplayName("Should write equal adjacent columns as one span and a custom width only if the width differs from the default")
+    @Test
+    void saveColumnSpans() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.setColumnWidth(0, 2, 20f);
+        worksheet.addHiddenColumn(3, 4);
+        worksheet.setColumnStyle(5, 6, BasicStyles.Bold());
+        worksheet.setColumnWidth(7, Worksheet.DEFAULT_COLUMN_WIDTH); // Not written
+        worksheet.setColumnWidth(8, 30f);
+        worksheet.addCell("text", 0, 0);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+
+        String cols = "<cols>"
+                + "<col customWidth=\"1\" max=\"3\" min=\"1\" width=\"20.0\"/>"
+                + "<col hidden=\"1\" max=\"5\" min=\"4\" width=\"10.0\"/>"
+                + "<col max=\"7\" min=\"6\" style=\"2\" width=\"10.0\"/>"
+                + "<col customWidth=\"1\" max=\"9\" min=\"9\" width=\"30.0\"/>"
+                + "</cols>";
+        assertThat(readWorksheet(stream.toByteArray()), containsString(cols));
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+
+}
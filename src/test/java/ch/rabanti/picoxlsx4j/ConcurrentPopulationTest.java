@@ -0,0 +1,165 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ConcurrentPopulationTest {
+
+    private static final int THREADS = 8;
+    private static final int ROWS_PER_THREAD = 2000;
+    private static final int COLUMNS = 10;
+    private static final int STYLES = 50;
+
+    @DisplayName("Should not lose cells if several threads write disjoint row blocks of one worksheet")
+    @Test
+    void populateRowBlocks() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        workbook.setConcurrentPopulation(true);
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        runConcurrently(thread -> {
+            WorksheetWriter writer = worksheet.createWriter(0, thread * ROWS_PER_THREAD);
+            for (int r = 0; r < ROWS_PER_THREAD; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    writer.value(thread * 1000000 + r * COLUMNS + c);
+                }
+                writer.down();
+            }
+        });
+        assertThat(worksheet.getCells().size(), is(THREADS * ROWS_PER_THREAD * COLUMNS));
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int r = 0; r < ROWS_PER_THREAD; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    Cell cell = worksheet.getCells().get(Cell.resolveCellAddress(c, thread * ROWS_PER_THREAD + r));
+                    assertThat(cell, is(notNullValue()));
+                    assertThat(cell.getValue(), is(thread * 1000000 + r * COLUMNS + c));
+                }
+            }
+        }
+        workbook.saveAsStream(OutputStream.nullOutputStream());
+    }
+
+    @DisplayName("Should count every stored cell as modification if several threads write one worksheet")
+    @Test
+    void countModifications() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        workbook.setConcurrentPopulation(true);
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        long count = worksheet.getModificationCount();
+        runConcurrently(thread -> {
+            WorksheetWriter writer = worksheet.createWriter(0, thread * ROWS_PER_THREAD);
+            for (int r = 0; r < ROWS_PER_THREAD; r++) {
+                writer.value(r);
+                writer.down();
+            }
+        });
+        assertThat(worksheet.getModificationCount(), is(count + THREADS * ROWS_PER_THREAD));
+        workbook.setConcurrentPopulation(false);
+        assertThat(worksheet.getModificationCount(), is(count + THREADS * ROWS_PER_THREAD));
+    }
+
+    @DisplayName("Should not lose cells if several threads populate different worksheets")
+    @Test
+    void populateWorksheets() throws Exception {
+        Workbook workbook = new Workbook(false);
+        workbook.setConcurrentPopulation(true);
+        for (int i = 0; i < THREADS; i++) {
+            workbook.addWorksheet("Sheet" + (i + 1));
+        }
+        runConcurrently(thread -> {
+            WorksheetWriter writer = workbook.getWorksheets().get(thread).createWriter(0, 0);
+            for (int r = 0; r < ROWS_PER_THREAD; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    writer.value("T" + thread + "R" + r + "C" + c);
+                }
+                writer.down();
+            }
+        });
+        for (int thread = 0; thread < THREADS; thread++) {
+            Worksheet worksheet = workbook.getWorksheets().get(thread);
+            assertThat(worksheet.getCells().size(), is(ROWS_PER_THREAD * COLUMNS));
+            assertThat(worksheet.getCells().get("J" + ROWS_PER_THREAD).getValue(), is("T" + thread + "R" + (ROWS_PER_THREAD - 1) + "C9"));
+        }
+        workbook.saveAsStream(OutputStream.nullOutputStream());
+    }
+
+    @DisplayName("Should register each distinct style once with a unique ID if several threads add the same styles concurrently")
+    @Test
+    void registerStylesConcurrently() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Sheet1");
+        workbook.setConcurrentPopulation(true);
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        int defaultStyles = workbook.getStyleManager().getStyleNumber();
+        runConcurrently(thread -> {
+            WorksheetWriter writer = worksheet.createWriter(0, thread * ROWS_PER_THREAD);
+            for (int r = 0; r < ROWS_PER_THREAD; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    writer.value(r, createStyle((r * COLUMNS + c + thread) % STYLES));
+                }
+                writer.down();
+            }
+        });
+        assertThat(worksheet.getCells().size(), is(THREADS * ROWS_PER_THREAD * COLUMNS));
+        Style[] styles = workbook.getStyleManager().getStyles();
+        assertThat(styles.length, is(defaultStyles + STYLES));
+        Set<Integer> ids = new HashSet<>();
+        for (Style style : styles) {
+            ids.add(style.getInternalID());
+        }
+        assertThat(ids.size(), is(styles.length));
+        Set<Style> managed = new HashSet<>(List.of(styles));
+        for (Cell cell : worksheet.getCells().values()) {
+            assertThat(managed.contains(cell.getCellStyle()), is(true));
+        }
+        workbook.saveAsStream(OutputStream.nullOutputStream());
+    }
+
+    private static Style createStyle(int number) {
+        Style style = new Style();
+        style.getFont().setSize(12 + number);
+        return style;
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                Callable<Void> callable = () -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                };
+                futures.add(executor.submit(callable));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
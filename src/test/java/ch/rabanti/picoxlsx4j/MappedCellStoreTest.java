@@ -0,0 +1,139 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedCellStoreTest {
+
+    @DisplayName("Should write the same worksheet from a mapped cell store as from cells on the heap")
+    @Test
+    void saveMappedWorksheet(@TempDir Path folder) throws Exception {
+        Workbook heap = createWorkbook();
+        Workbook mapped = new Workbook("test.xlsx", "Data");
+        try (MappedCellStore store = mapped.getCurrentWorksheet().useMappedCellStore(folder)) {
+            fill(mapped.getCurrentWorksheet());
+            assertThat(store.size(), is(heap.getCurrentWorksheet().getCells().size()));
+            assertThat(readWorksheet(save(mapped)), is(readWorksheet(save(heap))));
+        }
+        try (Stream<Path> files = Files.list(folder)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @DisplayName("Should get, update and remove cells of a mapped cell store in row order")
+    @Test
+    void accessMappedCells(@TempDir Path folder) throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("existing", 0, 0);
+        try (MappedCellStore store = worksheet.useMappedCellStore(folder)) {
+            worksheet.addCell(42, 200, 5000);
+            worksheet.addCell(1.5f, 1, 0);
+            assertThat(worksheet.getCell(0, 0).getValue(), is("existing"));
+            assertThat(worksheet.getCell(1, 0).getValue(), is(1.5f));
+            assertThat(worksheet.getCell(200, 5000).getValue(), is(42));
+
+            worksheet.getCell(200, 5000).setValue("changed");
+            assertThat(worksheet.getCell(200, 5000).getValue(), is("changed"));
+            assertThat(worksheet.removeCell(1, 0), is(true));
+            assertThat(worksheet.hasCell(1, 0), is(false));
+
+            StringBuilder order = new StringBuilder();
+            for (Map.Entry<String, Cell> entry : worksheet.getCells().entrySet()) {
+                order.append(entry.getKey()).append(' ');
+            }
+            assertThat(order.toString(), is("A1 GS5001 "));
+            assertThat(store.size(), is(2));
+        }
+    }
+
+    @DisplayName("Should keep the value of an empty cell that is set afterwards")
+    @Test
+    void setValueOfEmptyCell(@TempDir Path folder) throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        try (MappedCellStore store = worksheet.useMappedCellStore(folder)) {
+            worksheet.addCell(null, 0, 0);
+            worksheet.addCell(null, 1, 0);
+            assertThat(worksheet.getCell(0, 0).getDataType(), is(Cell.CellType.EMPTY));
+            worksheet.getCell(0, 0).setValue("hello");
+            worksheet.getCell(1, 0).setValue(2.5);
+
+            assertThat(worksheet.getCell(0, 0).getValue(), is("hello"));
+            assertThat(worksheet.getCell(1, 0).getValue(), is(2.5));
+            String sheet = readWorksheet(save(workbook));
+            assertThat(sheet, containsString("<c r=\"A1\" t=\"s\"><v>0</v></c>"));
+            assertThat(sheet, containsString("<c r=\"B1\" t=\"n\"><v>2.5</v></c>"));
+        }
+    }
+
+    @DisplayName("Should reject a snapshot of a worksheet with a mapped cell store instead of copying its cells onto the heap")
+    @Test
+    void rejectSnapshot(@TempDir Path folder) throws Exception {
+        Workbook workbook = createWorkbook();
+        try (MappedCellStore store = workbook.getCurrentWorksheet().useMappedCellStore(folder)) {
+            assertThrows(WorksheetException.class, workbook::copy);
+            assertThrows(WorksheetException.class, () -> workbook.saveAsStreamAsync(new ByteArrayOutputStream()));
+            assertThrows(WorksheetException.class, () -> workbook.saveAsPublisher());
+            assertThat(store.size(), is(5004)); // The cells remain in the store
+        }
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        fill(workbook.getCurrentWorksheet());
+        return workbook;
+    }
+
+    private static void fill(Worksheet worksheet) {
+        for (int row = 999; row >= 0; row--) {
+            worksheet.addCell("text " + row, 0, row);
+            worksheet.addCell(row * 1.5d, 1, row);
+            worksheet.addCell(row, 2, row, BasicStyles.Bold());
+            worksheet.addCell(new BigDecimal("1.50"), 3, row);
+            worksheet.addCell(row % 2 == 0, 40, row);
+        }
+        worksheet.addCell(new Date(1600000000000L), 0, 2000);
+        worksheet.addCell(LocalTime.of(12, 30), 1, 2000);
+        worksheet.addCellFormula("C1*2", 2, 2000);
+        worksheet.addCell(null, 3, 2000);
+        worksheet.setRowStyle(1500, BasicStyles.Italic());
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+}
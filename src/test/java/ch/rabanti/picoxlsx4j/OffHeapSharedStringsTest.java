@@ -0,0 +1,59 @@
+package ch.rabanti.picoxlsx4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class OffHeapSharedStringsTest {
+
+    @DisplayName("Should write the same shared strings and worksheets with off-heap shared strings as with shared strings on the heap")
+    @ParameterizedTest(name = "Given memory limit {0}")
+    @ValueSource(longs = {0, SaveOptions.DEFAULT_SHARED_STRING_MEMORY_LIMIT})
+    void saveOffHeapSharedStrings(long memoryLimit) throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        for (int row = 0; row < 10000; row++) {
+            workbook.getCurrentWorksheet().addCell("text <" + (row % 3000) + "> äöü €", 0, row);
+            workbook.getCurrentWorksheet().addCell(row, 1, row);
+            workbook.getCurrentWorksheet().addCell(null, 2, row);
+        }
+        workbook.addWorksheet("Other");
+        workbook.getCurrentWorksheet().addCell("text <0> äöü €", 0, 0);
+        Map<String, String> heap = readParts(save(workbook, new SaveOptions()));
+
+        SaveOptions options = new SaveOptions();
+        options.setOffHeapSharedStrings(true);
+        options.setSharedStringMemoryLimit(memoryLimit);
+        Map<String, String> offHeap = readParts(save(workbook, options));
+        assertThat(offHeap, is(heap));
+        assertThat(offHeap.get("xl/sharedStrings.xml"), containsString("uniqueCount=\"3001\""));
+    }
+
+    private static byte[] save(Workbook workbook, SaveOptions options) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream, options);
+        return stream.toByteArray();
+    }
+
+    private static Map<String, String> readParts(byte[] data) throws Exception {
+        Map<String, String> parts = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().startsWith("xl/worksheets/") || entry.getName().equals("xl/sharedStrings.xml")) {
+                    parts.put(entry.getName(), new String(zip.readAllBytes(), "UTF-8"));
+                }
+            }
+        }
+        return parts;
+    }
+}
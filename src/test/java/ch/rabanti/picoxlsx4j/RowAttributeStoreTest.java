@@ -0,0 +1,95 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class RowAttributeStoreTest {
+
+    @DisplayName("Should keep all remaining rows reachable after rows were deleted from the open-addressing table")
+    @Test
+    void deleteRows() {
+        RowAttributeStore store = new RowAttributeStore();
+        for (int row = 0; row < 5000; row++) {
+            store.setHidden(row, true);
+            if (row % 3 == 0) {
+                store.setHeight(row, row % 400);
+            }
+        }
+        for (int row = 0; row < 5000; row += 2) {
+            store.setHidden(row, false); // Releases the slot if the row has no height
+        }
+
+        int expected = 0;
+        for (int row = 0; row < 5000; row++) {
+            boolean hidden = row % 2 == 1;
+            boolean height = row % 3 == 0;
+            assertThat(store.isHidden(row), is(hidden));
+            assertThat(store.hasHeight(row), is(height));
+            assertThat(store.indexOf(row) >= 0, is(hidden || height));
+            if (hidden || height) {
+                expected++;
+            }
+        }
+        assertThat(store.size(), is(expected));
+        assertThat(store.indexOf(5000), is(-1));
+        assertThat(store.getRows(RowAttributeStore.FLAG_HIDDEN).length, is(2500));
+    }
+
+    @DisplayName("Should keep the other attributes of a row when one attribute is removed")
+    @Test
+    void removeAttribute() {
+        RowAttributeStore store = new RowAttributeStore();
+        Style style = BasicStyles.Italic();
+        store.setStyle(7, style);
+        store.setHidden(7, true);
+        store.setHidden(7, false);
+        int slot = store.indexOf(7);
+
+        assertThat(store.getFlagsAt(slot), is(RowAttributeStore.FLAG_STYLE));
+        assertThat(store.getStyle(7), is(style));
+        store.setStyle(7, null);
+        assertThat(store.indexOf(7), is(-1));
+        assertThat(store.size(), is(0));
+    }
+
+    @DisplayName("Should apply changes on the hidden rows and row heights of the worksheet to the worksheet")
+    @Test
+    void changeLiveRows() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        worksheet.setRowHeight(20, 30f);
+        worksheet.setRowHeight(3, 25f);
+        worksheet.addHiddenRow(3);
+        Map<Integer, Float> heights = worksheet.getRowHeights();
+        Map<Integer, Boolean> hidden = worksheet.getHiddenRows();
+
+        assertThat(new ArrayList<>(heights.keySet()), contains(3, 20));
+        assertThat(heights.remove(3), is(25f));
+        heights.put(9, 12.5f);
+        hidden.put(9, true);
+        hidden.put(3, false);
+
+        RowAttributeStore store = worksheet.getRowAttributes();
+        assertThat(store.hasHeight(3), is(false));
+        assertThat(store.indexOf(3), is(-1));
+        assertThat(store.getHeightAt(store.indexOf(9)), is(12.5f));
+        assertThat(store.isHidden(9), is(true));
+        assertThat(hidden.size(), is(1));
+        assertThat(hidden.get(20), is(nullValue()));
+
+        List<Integer> rows = new ArrayList<>();
+        for (Map.Entry<Integer, Float> entry : heights.entrySet()) {
+            rows.add(entry.getKey());
+        }
+        assertThat(rows, contains(9, 20));
+    }
+
+}
@@ -0,0 +1,85 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class RowColumnStyleTest {
+
+    @DisplayName("Should write the row style to the row and let cells without own style inherit the row style before the column style")
+    @Test
+    void inheritRowAndColumnStyles() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        Style columnStyle = BasicStyles.Bold();
+        Style rowStyle = BasicStyles.BorderFrame();
+        Style cellStyle = BasicStyles.RoundFormat();
+        worksheet.setColumnStyle(1, columnStyle);
+        worksheet.setRowStyle(2, rowStyle);
+        worksheet.addCell("A1", 0, 0);
+        worksheet.addCell("B1", 1, 0);
+        worksheet.addCell("A3", 0, 2);
+        worksheet.addCell("B3", 1, 2);
+        worksheet.addCell(1.5, 1, 3, cellStyle);
+        String sheet = readWorksheet(save(workbook));
+
+        String column = "2"; // Style 0 (default) and 1 (gray fill) are reserved
+        String row = "3";
+        String cell = "4";
+        assertThat(sheet, containsString("<col max=\"2\" min=\"2\" style=\"" + column + "\" width=\"10.0\"/>"));
+        assertThat(sheet, containsString("<c r=\"A1\" t=\"s\">"));
+        assertThat(sheet, containsString("<c r=\"B1\" s=\"" + column + "\" t=\"s\">"));
+        assertThat(sheet, containsString("<row customFormat=\"1\" r=\"3\" s=\"" + row + "\">"));
+        assertThat(sheet, containsString("<c r=\"A3\" s=\"" + row + "\" t=\"s\">"));
+        assertThat(sheet, containsString("<c r=\"B3\" s=\"" + row + "\" t=\"s\">"));
+        assertThat(sheet, containsString("<c r=\"B4\" s=\"" + cell + "\" t=\"n\">"));
+    }
+
+    @DisplayName("Should apply the same style inheritance to cells of a row writer as to cell objects")
+    @Test
+    void inheritStylesOfRowWriter() throws Exception {
+        Workbook cells = new Workbook("test.xlsx", "Data");
+        Workbook buffered = new Workbook("test.xlsx", "Data");
+        for (Workbook workbook : new Workbook[]{cells, buffered}) {
+            workbook.getCurrentWorksheet().setColumnStyle(0, 1, BasicStyles.Bold());
+            workbook.getCurrentWorksheet().setRowStyle(1, BasicStyles.BorderFrame());
+        }
+        for (int row = 0; row < 3; row++) {
+            cells.getCurrentWorksheet().addCell("text", 0, row);
+            cells.getCurrentWorksheet().addCell(row, 1, row);
+            cells.getCurrentWorksheet().addCell(true, 2, row);
+        }
+        RowWriter writer = buffered.getCurrentWorksheet().rowWriter();
+        for (int row = 0; row < 3; row++) {
+            writer.text("text").number(row).bool(true).endRow();
+        }
+        assertThat(readWorksheet(save(buffered)), is(readWorksheet(save(cells))));
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,130 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.WorksheetException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.NumberFormat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowMapperTest {
+
+    @DisplayName("Should map the getters of a bean in field order, overridden by the annotation ColumnMapping")
+    @Test
+    void mapBeanProperties() {
+        RowMapper<Person> mapper = RowMapper.of(Person.class);
+
+        assertThat(mapper.getHeaders(), contains("Name", "id", "active", "score", "amount", "birthday"));
+        assertThat(mapper.getType(), is(sameInstance(Person.class)));
+        assertThat(RowMapper.of(Person.class), is(sameInstance(mapper)));
+    }
+
+    @DisplayName("Should write the header and one row per bean with the styles and widths of the columns")
+    @Test
+    void writeBeans() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        worksheet.setCurrentCellAddress(1, 2);
+        LocalDate birthday = LocalDate.of(1990, 7, 15);
+        RowMapper.of(Person.class).write(worksheet, Arrays.asList(
+                new Person("Alice", 1, true, 0.5, new BigDecimal("12.50"), birthday),
+                null,
+                new Person(null, 3, false, 1.25, null, null)), BasicStyles.Bold());
+
+        assertThat(worksheet.getCell(1, 2).getValue(), is("Name"));
+        assertThat(worksheet.getCell(1, 2).getCellStyle().getFont().isBold(), is(true));
+        assertThat(worksheet.getCell(1, 3).getValue(), is("Alice"));
+        assertThat(worksheet.getCell(2, 3).getValue(), is(1L));
+        assertThat(worksheet.getCell(3, 3).getValue(), is(true));
+        assertThat(worksheet.getCell(4, 3).getValue(), is(0.5));
+        assertThat(worksheet.getCell(4, 3).getCellStyle().getNumberFormat().getCustomFormatCode(), is("0.000"));
+        assertThat(worksheet.getCell(5, 3).getValue(), is(new BigDecimal("12.50")));
+        assertThat(worksheet.getCell(5, 3).getCellStyle().getNumberFormat().getNumber(), is(NumberFormat.FormatNumber.format_4));
+        assertThat(worksheet.getCell(6, 3).getValue(), is(Date.from(birthday.atStartOfDay(ZoneId.systemDefault()).toInstant())));
+        assertThat(worksheet.getCell(6, 3).getCellStyle().getNumberFormat().getNumber(), is(NumberFormat.FormatNumber.format_14));
+        assertThat(worksheet.hasCell(1, 4), is(false)); // Null bean
+        assertThat(worksheet.getCell(1, 5).getDataType(), is(Cell.CellType.EMPTY));
+        assertThat(worksheet.getCell(6, 5).getDataType(), is(Cell.CellType.EMPTY));
+        assertThat(worksheet.getColumnAttributes().getWidth(1), is(25f));
+        assertThat(worksheet.getCurrentColumnNumber(), is(1));
+        assertThat(worksheet.getCurrentRowNumber(), is(6));
+    }
+
+    @DisplayName("Should reject classes without properties and wrap checked exceptions of accessors")
+    @Test
+    void rejectInvalidBeans() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+
+        assertThrows(WorksheetException.class, () -> RowMapper.of(Empty.class));
+        WorksheetException exception = assertThrows(WorksheetException.class,
+                () -> RowMapper.of(Failing.class).writeRows(worksheet, Arrays.asList(new Failing())));
+        assertThat(exception.getCause().getMessage(), is("Not readable"));
+    }
+
+    public static class Person {
+        @ColumnMapping(header = "Name", order = 0, width = 25f)
+        private final String name;
+        private final int id;
+        private final boolean active;
+        @ColumnMapping(numberFormat = "0.000")
+        private final double score;
+        private final BigDecimal amount;
+        private final LocalDate birthday;
+        @ColumnMapping(ignore = true)
+        private final String secret = "hidden";
+
+        public Person(String name, int id, boolean active, double score, BigDecimal amount, LocalDate birthday) {
+            this.name = name;
+            this.id = id;
+            this.active = active;
+            this.score = score;
+            this.amount = amount;
+            this.birthday = birthday;
+        }
+
+        public boolean isActive() {
+            return this.active;
+        }
+
+        public BigDecimal getAmount() {
+            return this.amount;
+        }
+
+        public LocalDate getBirthday() {
+            return this.birthday;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public double getScore() {
+            return this.score;
+        }
+
+        public String getSecret() {
+            return this.secret;
+        }
+    }
+
+    public static class Empty {
+    }
+
+    public static class Failing {
+        public String getValue() throws Exception {
+            throw new Exception("Not readable");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import ch.rabanti.picoxlsx4j.style.Style;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowWriterTest {
+
+    @DisplayName("Should buffer the values without cell objects and write the same worksheet as addNextCell")
+    @Test
+    void writeBufferedValues() throws Exception {
+        Date date = new GregorianCalendar(2020, GregorianCalendar.MAY, 1).getTime();
+        LocalTime time = LocalTime.of(13, 30);
+        Style style = BasicStyles.Bold();
+        Workbook buffered = new Workbook("test.xlsx", "Data");
+        RowWriter writer = buffered.getCurrentWorksheet().rowWriter();
+        writer.number(1.5).number(42L).bool(true).text("text").endRow();
+        writer.date(date).time(time).style(style).text("styled").skip().text(null).endRow();
+        writer.value(7).value(2.5f).value(new BigDecimal("1.25")).value(null).value(new StringBuilder("object")).endRow();
+
+        Workbook cells = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = cells.getCurrentWorksheet();
+        worksheet.addNextCell(1.5);
+        worksheet.addNextCell(42L);
+        worksheet.addNextCell(true);
+        worksheet.addNextCell("text");
+        worksheet.goToNextRow();
+        worksheet.addNextCell(date);
+        worksheet.addNextCell(time);
+        worksheet.addNextCell("styled", style);
+        worksheet.setCurrentColumnNumber(4); // Skipped cell
+        worksheet.addNextCell(null);
+        worksheet.goToNextRow();
+        worksheet.addNextCell(7);
+        worksheet.addNextCell(2.5f);
+        worksheet.addNextCell(new BigDecimal("1.25"));
+        worksheet.addNextCell(null);
+        worksheet.addNextCell(new StringBuilder("object"));
+
+        assertThat(buffered.getCurrentWorksheet().getCellBuffer().size(), is(13));
+        assertThat(readWorksheet(save(buffered)), is(readWorksheet(save(cells))));
+    }
+
+    @DisplayName("Should materialize the buffered values as cells as soon as the cells of the worksheet are accessed")
+    @Test
+    void materializeCells() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        Date date = new Date();
+        worksheet.rowWriter().number(2L).date(date).endRow().text("x");
+        long count = worksheet.getModificationCount();
+
+        assertThat(worksheet.getCells().size(), is(3));
+        assertThat(worksheet.getCellBuffer(), is(nullValue()));
+        assertThat(worksheet.getModificationCount(), is(greaterThan(count)));
+        assertThat(worksheet.getCell(0, 0).getValue(), is(2L));
+        assertThat(worksheet.getCell(0, 0).getDataType(), is(Cell.CellType.NUMBER));
+        assertThat(worksheet.getCell(1, 0).getDataType(), is(Cell.CellType.DATE));
+        assertThat(worksheet.getCell(1, 0).getCellStyle().getNumberFormat().getNumber(), is(BasicStyles.DateFormat().getNumberFormat().getNumber()));
+        assertThat(worksheet.getCell(0, 1).getValue(), is("x"));
+        assertThat(worksheet.getCurrentColumnNumber(), is(1));
+        assertThat(worksheet.getCurrentRowNumber(), is(1));
+    }
+
+    @DisplayName("Should keep the boxed type of integer numbers, like addCell")
+    @Test
+    void keepIntegerTypes() {
+        Worksheet buffered = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        buffered.rowWriter().value(1).value((short) 2).value((byte) 3).value(4L).number(5L);
+        Worksheet cells = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        cells.addCell("existing", 5, 5);
+        cells.setCurrentCellAddress(0, 0);
+        cells.rowWriter().value(1).value((short) 2).value((byte) 3).value(4L).number(5L);
+
+        for (Worksheet worksheet : new Worksheet[]{buffered, cells}) {
+            assertThat(worksheet.getCell(0, 0).getValue(), is(1));
+            assertThat(worksheet.getCell(1, 0).getValue(), is((short) 2));
+            assertThat(worksheet.getCell(2, 0).getValue(), is((byte) 3));
+            assertThat(worksheet.getCell(3, 0).getValue(), is(4L));
+            assertThat(worksheet.getCell(4, 0).getValue(), is(5L));
+        }
+    }
+
+    @DisplayName("Should store the values as cells if the worksheet already contains cells")
+    @Test
+    void writeIntoCells() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        worksheet.addCell("existing", 5, 5);
+        worksheet.setCurrentCellAddress(0, 0);
+        worksheet.rowWriter().text("a").number(1L);
+
+        assertThat(worksheet.getCellBuffer(), is(nullValue()));
+        assertThat(worksheet.getCells().size(), is(3));
+        assertThat(worksheet.getCell(1, 0).getValue(), is(1L));
+    }
+
+    @DisplayName("Should follow the cell direction of the worksheet and reject values out of range")
+    @Test
+    void followCellDirection() {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        worksheet.setCurrentCellDirection(Worksheet.CellDirection.RowToRow);
+        worksheet.rowWriter().text("A1").text("A2").endRow().text("B1");
+
+        assertThat(worksheet.getCell(0, 1).getValue(), is("A2"));
+        assertThat(worksheet.getCell(1, 0).getValue(), is("B1"));
+
+        worksheet.setCurrentRowNumber(Worksheet.MAX_ROW_NUMBER);
+        RowWriter writer = worksheet.rowWriter().text("last");
+        assertThrows(RangeException.class, () -> writer.text("out of range"));
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+}
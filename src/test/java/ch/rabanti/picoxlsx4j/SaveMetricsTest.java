@@ -0,0 +1,154 @@
+package ch.rabanti.picoxlsx4j;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SaveMetricsTest {
+
+    @DisplayName("Should report the parts with their sizes and the counts of the workbook to a registered listener")
+    @Test
+    void reportMetrics() throws Exception {
+        Workbook workbook = createWorkbook();
+        List<SaveMetrics> reports = new ArrayList<>();
+        workbook.addSaveListener(reports::add);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        Map<String, Long> entries = readEntrySizes(stream.toByteArray());
+
+        assertThat(reports.size(), is(1));
+        SaveMetrics metrics = reports.get(0);
+        assertThat(metrics.getWorksheetCount(), is(2));
+        assertThat(metrics.getRowCount(), is(11L));
+        assertThat(metrics.getCellCount(), is(21L));
+        assertThat(metrics.getSharedStringCount(), is(11));
+        assertThat(metrics.getUniqueSharedStringCount(), is(3));
+        assertThat(metrics.getSharedStringHitRate(), is(closeTo(8d / 11d, 0.0001)));
+        assertThat(metrics.getParts().size(), is(entries.size()));
+        long bytes = 0;
+        for (SaveMetrics.PartMetrics part : metrics.getParts()) {
+            assertThat(part.getName(), entries.get(part.getName()), is(part.getBytes()));
+            assertThat(part.getCompressedBytes(), is(greaterThan(0L)));
+            bytes += part.getBytes();
+        }
+        assertThat(metrics.getBytes(), is(bytes));
+        assertThat(metrics.getTotalNanos(), is(greaterThan(0L)));
+    }
+
+    @DisplayName("Should not call a removed listener and no listener of a publisher")
+    @Test
+    void skipListeners() throws Exception {
+        Workbook workbook = createWorkbook();
+        List<SaveMetrics> reports = new ArrayList<>();
+        SaveListener listener = reports::add;
+        workbook.addSaveListener(listener);
+        collect(workbook.saveAsPublisher());
+        assertThat(reports.size(), is(0));
+
+        workbook.removeSaveListener(listener);
+        workbook.saveAsStream(new ByteArrayOutputStream());
+        assertThat(reports.size(), is(0));
+    }
+
+    @DisplayName("Should record a flight recorder event of the save process and of each part")
+    @Test
+    void recordEvents(@TempDir Path folder) throws Exception {
+        Workbook workbook = createWorkbook();
+        Path file = folder.resolve("save.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("ch.rabanti.picoxlsx4j.Save");
+            recording.enable("ch.rabanti.picoxlsx4j.SavePart");
+            recording.start();
+            workbook.saveAsStream(new ByteArrayOutputStream());
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> saves = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("ch.rabanti.picoxlsx4j.Save")) {
+                saves.add(event);
+            } else {
+                parts.add(event.getString("part"));
+            }
+        }
+
+        assertThat(saves.size(), is(1));
+        assertThat(saves.get(0).getInt("worksheets"), is(2));
+        assertThat(saves.get(0).getLong("cells"), is(21L));
+        assertThat(parts, hasItems("xl/worksheets/sheet1.xml", "xl/worksheets/sheet2.xml", "xl/sharedStrings.xml"));
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int row = 0; row < 10; row++) {
+            worksheet.addCell("text " + row % 3, 0, row);
+            worksheet.addCell(row, 1, row);
+        }
+        workbook.addWorksheet("Other");
+        workbook.getCurrentWorksheet().addCell("text 0", 0, 0);
+        return workbook;
+    }
+
+    private static byte[] collect(Flow.Publisher<ByteBuffer> publisher) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                stream.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completion.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+        });
+        completion.get(60, TimeUnit.SECONDS);
+        return stream.toByteArray();
+    }
+
+    private static Map<String, Long> readEntrySizes(byte[] data) throws Exception {
+        Map<String, Long> sizes = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                sizes.put(entry.getName(), (long) zip.readAllBytes().length);
+            }
+        }
+        return sizes;
+    }
+}
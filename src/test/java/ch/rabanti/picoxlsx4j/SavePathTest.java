@@ -0,0 +1,283 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.lowLevel.GenerationContext;
+import ch.rabanti.picoxlsx4j.lowLevel.WorkbookTemplate;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SavePathTest {
+
+    private static final int ROWS = 300;
+
+    @DisplayName("Should write the same parts asynchronously as the sequential save, also if the workbook is modified after the call")
+    @Test
+    void saveAsStreamAsync() throws Exception {
+        Workbook workbook = createWorkbook();
+        Map<String, String> expected = readParts(save(workbook));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CompletableFuture<Void> future = workbook.saveAsStreamAsync(stream);
+        workbook.getCurrentWorksheet().addCell("changed", 0, 0); // Not part of the snapshot
+        future.get(60, TimeUnit.SECONDS);
+
+        assertSameParts(readParts(stream.toByteArray()), expected);
+    }
+
+    @DisplayName("Should write the same parts into a preallocated file as the sequential save")
+    @Test
+    void savePreallocatedPath(@TempDir Path directory) throws Exception {
+        Workbook workbook = createWorkbook();
+        Path path = directory.resolve("test.xlsx");
+        Files.write(path, new byte[1024 * 1024]); // Longer than the workbook
+        SaveOptions options = new SaveOptions();
+        options.setBufferSize(SaveOptions.MIN_BUFFER_SIZE);
+        options.setPreallocationSize(512 * 1024);
+        options.setSyncPolicy(SaveOptions.SyncPolicy.DATA);
+        workbook.save(path, options);
+
+        assertSameParts(readParts(path), readParts(save(workbook)));
+    }
+
+    @DisplayName("Should write the same parts into a file channel and a stream channel as the sequential save")
+    @Test
+    void saveToChannel(@TempDir Path directory) throws Exception {
+        Workbook workbook = createWorkbook();
+        Map<String, String> expected = readParts(save(workbook));
+        Path path = directory.resolve("test.xlsx");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            workbook.saveTo(channel);
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(stream);
+        workbook.saveTo(channel);
+
+        assertSameParts(readParts(path), expected);
+        assertSameParts(readParts(stream.toByteArray()), expected);
+    }
+
+    @DisplayName("Should publish the same parts in chunks as the sequential save")
+    @Test
+    void saveAsPublisher() throws Exception {
+        Workbook workbook = createWorkbook();
+        Map<String, String> expected = readParts(save(workbook));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Flow.Publisher<ByteBuffer> publisher = workbook.saveAsPublisher(executor, SaveOptions.MIN_BUFFER_SIZE);
+            workbook.getCurrentWorksheet().addCell("changed", 0, 0); // Not part of the snapshot
+            assertSameParts(readParts(collect(publisher)), expected);
+            assertSameParts(readParts(collect(publisher)), expected); // Each subscriber receives the whole file
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Should write the same parts with parallel row blocks as the sequential save")
+    @Test
+    void saveParallel() throws Exception {
+        Workbook workbook = createWorkbook();
+        SaveOptions options = new SaveOptions();
+        options.setParallelism(4);
+        options.setRowBlockSize(16);
+
+        assertSameParts(readParts(save(workbook, options)), readParts(save(workbook)));
+    }
+
+    @DisplayName("Should write the same parts with the pipelined save as the sequential save")
+    @Test
+    void savePipelined(@TempDir Path directory) throws Exception {
+        Workbook workbook = createWorkbook();
+        Map<String, String> expected = readParts(save(workbook));
+        SaveOptions options = new SaveOptions();
+        options.setPipelineDepth(2);
+        options.setRowBlockSize(16);
+        Path path = directory.resolve("test.xlsx");
+        workbook.save(path, options);
+
+        assertSameParts(readParts(save(workbook, options)), expected);
+        assertSameParts(readParts(path), expected);
+    }
+
+    @DisplayName("Should write the same parts with a reused generation context as the sequential save")
+    @Test
+    void saveWithGenerationContext() throws Exception {
+        GenerationContext context = new GenerationContext();
+        for (int i = 0; i < 3; i++) {
+            Workbook workbook = createWorkbook();
+            workbook.getCurrentWorksheet().addCell("workbook " + i, 0, ROWS);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            workbook.saveAsStream(stream, context);
+
+            assertSameParts(readParts(stream.toByteArray()), readParts(save(workbook)));
+        }
+        assertThat(context.getCacheHits(), is(greaterThan(0L)));
+    }
+
+    @DisplayName("Should write the same parts with a compiled template as the sequential save, also if the static parts of the workbook differ from the template")
+    @Test
+    void saveWithTemplate() throws Exception {
+        Workbook prototype = new Workbook("test.xlsx", "Data");
+        prototype.addWorksheet("Other");
+        WorkbookTemplate template = WorkbookTemplate.compile(prototype);
+        for (int i = 0; i < 2; i++) {
+            Workbook workbook = template.newWorkbook();
+            populate(workbook.getWorksheets().get(0));
+            populate(workbook.getWorksheets().get(1));
+            if (i == 1) {
+                workbook.addWorksheet("Added"); // Workbook part differs from the template
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            workbook.saveAsStream(stream, template);
+
+            assertSameParts(readParts(stream.toByteArray()), readParts(save(workbook)));
+        }
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        populate(workbook.getCurrentWorksheet());
+        workbook.addWorksheet("Other");
+        populate(workbook.getCurrentWorksheet());
+        workbook.getCurrentWorksheet().addCell("only on the second sheet", 5, 0);
+        workbook.setCurrentWorksheet("Data");
+        return workbook;
+    }
+
+    private static void populate(Worksheet worksheet) {
+        worksheet.setColumnWidth(0, 2, 20f);
+        worksheet.addHiddenRow(3);
+        worksheet.setRowHeight(4, 30f);
+        worksheet.setColumnStyle(4, BasicStyles.Bold());
+        Calendar date = new GregorianCalendar(2020, Calendar.MARCH, 14);
+        for (int row = 0; row < ROWS; row++) {
+            worksheet.addCell("text " + row % 20, 0, row);
+            worksheet.addCell(row * 1.5, 1, row, row % 7 == 0 ? BasicStyles.BorderFrame() : null);
+            worksheet.addCell(row % 2 == 0, 2, row);
+            worksheet.addCell(date.getTime(), 3, row);
+            worksheet.addCell("<&> " + row, 4, row);
+        }
+        worksheet.addFormulaRange("B1*2", "F1:F" + ROWS);
+        worksheet.addCellFormula("SUM(B1:B" + ROWS + ")", 6, 0);
+        worksheet.mergeCells("H1:I2");
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+
+    private static byte[] save(Workbook workbook, SaveOptions options) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream, options);
+        return stream.toByteArray();
+    }
+
+    private static byte[] collect(Flow.Publisher<ByteBuffer> publisher) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                stream.write(bytes, 0, bytes.length);
+                this.subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completion.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completion.complete(null);
+            }
+        });
+        completion.get(60, TimeUnit.SECONDS);
+        return stream.toByteArray();
+    }
+
+    private static void assertSameParts(Map<String, String> actual, Map<String, String> expected) {
+        assertThat(actual.keySet(), is(expected.keySet()));
+        for (Map.Entry<String, String> part : expected.entrySet()) {
+            assertThat(part.getKey(), actual.get(part.getKey()), is(part.getValue()));
+        }
+    }
+
+    private static Map<String, String> readParts(Path path) throws Exception {
+        Map<String, String> parts = new TreeMap<>();
+        try (ZipFile zip = new ZipFile(path.toFile())) { // Reads the central directory at the end of the file
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                parts.put(entry.getName(), normalize(entry.getName(), new String(zip.getInputStream(entry).readAllBytes(), "UTF-8")));
+            }
+        }
+        return parts;
+    }
+
+    private static Map<String, String> readParts(byte[] data) throws Exception {
+        Map<String, String> parts = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                parts.put(entry.getName(), normalize(entry.getName(), new String(zip.readAllBytes(), "UTF-8")));
+            }
+        }
+        return parts;
+    }
+
+    private static String normalize(String name, String xml) throws Exception {
+        if (name.equals("docProps/core.xml")) {
+            xml = xml.replaceAll("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z", ""); // Time of the save
+        }
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        StringWriter writer = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package ch.rabanti.picoxlsx4j;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class SharedFormulaTest {
+
+    @DisplayName("Should shift the relative references of a formula like Excel when filling it")
+    @ParameterizedTest(name = "Given formula {0} shifted by {1} columns and {2} rows")
+    @CsvSource({
+            "A1+$B$1*B1,0,3,A4+$B$1*B4",
+            "A1+$B$1+B$1+$A2,1,2,B3+$B$1+C$1+$A4",
+            "SUM(A1:B2),2,0,SUM(C1:D2)",
+            "A1&\"B1\",0,1,A2&\"B1\"",
+            "A2-B1,0,-1,A1-#REF!",
+    })
+    void shiftFormula(String formula, int columnOffset, int rowOffset, String expected) {
+        assertThat(SharedFormula.shiftFormula(formula, columnOffset, rowOffset), is(expected));
+    }
+
+    @DisplayName("Should write the top left cell of a formula range with the shared formula and all other cells with a reference to it")
+    @Test
+    void writeSharedFormula() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int row = 0; row < 4; row++) {
+            worksheet.addCell(row, 0, row);
+        }
+        SharedFormula fillDown = worksheet.addFormulaRange("A1*2", "B1:B4");
+        worksheet.addFormulaRange("SUM(A1:B1)", "C1:D2");
+        String sheet = readWorksheet(save(workbook, new SaveOptions()));
+
+        assertThat(fillDown.getFormula(1, 3), is("A4*2"));
+        assertThat(worksheet.getCell(1, 3).getSharedFormula(), is(sameInstance(fillDown)));
+        assertThat(sheet, containsString("<c r=\"B1\" t=\"str\"><f ref=\"B1:B4\" si=\"0\" t=\"shared\">A1*2</f></c>"));
+        assertThat(sheet, containsString("<c r=\"B4\" t=\"str\"><f si=\"0\" t=\"shared\"/></c>"));
+        assertThat(sheet, containsString("<c r=\"C1\" t=\"str\"><f ref=\"C1:D2\" si=\"1\" t=\"shared\">SUM(A1:B1)</f></c>"));
+        assertThat(sheet, containsString("<c r=\"D2\" t=\"str\"><f si=\"1\" t=\"shared\"/></c>"));
+    }
+
+    @DisplayName("Should number the shared formulas in the same way if the rows are serialized in parallel blocks")
+    @Test
+    void writeSharedFormulaInBlocks() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int row = 0; row < 100; row++) {
+            worksheet.addCell(row, 0, row);
+        }
+        worksheet.addFormulaRange("A1*2", "B1:B100");
+        worksheet.addFormulaRange("B50+1", "C50:C60");
+        SaveOptions options = new SaveOptions();
+        options.setParallelism(4);
+        options.setRowBlockSize(7);
+        String parallel = readWorksheet(save(workbook, options));
+
+        assertThat(parallel, containsString("ref=\"C50:C60\" si=\"1\">B50+1</f>"));
+        assertThat(normalize(parallel), is(normalize(readWorksheet(save(workbook, new SaveOptions())))));
+    }
+
+    private static byte[] save(Workbook workbook, SaveOptions options) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream, options);
+        return stream.toByteArray();
+    }
+
+    private static String normalize(String xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        StringWriter writer = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(writer));
+        return writer.toString();
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+}
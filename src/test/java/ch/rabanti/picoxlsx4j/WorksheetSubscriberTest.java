@@ -0,0 +1,114 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.exception.RangeException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorksheetSubscriberTest {
+
+    @DisplayName("Should request the next batch of rows only after the current batch is written")
+    @Test
+    void requestBatches(@TempDir Path folder) {
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        WorksheetSubscriber subscriber = new WorksheetSubscriber(worksheet, 1, 2, 3, folder.resolve("test.xlsx"));
+        CountingSubscription subscription = new CountingSubscription();
+        subscriber.onSubscribe(subscription);
+        CountingSubscription second = new CountingSubscription();
+        subscriber.onSubscribe(second);
+
+        assertThat(subscription.requests, contains(3L));
+        assertThat(second.cancelled, is(true));
+        for (int row = 0; row < 7; row++) {
+            subscriber.onNext(Arrays.asList("row " + row, row, null));
+        }
+        assertThat(subscription.requests, contains(3L, 3L, 3L));
+        assertThat(subscriber.getRowCount(), is(7L));
+        assertThat(worksheet.getCell(1, 2).getValue(), is("row 0"));
+        assertThat(worksheet.getCell(2, 8).getValue(), is(6));
+        assertThat(worksheet.getCell(3, 8).getDataType(), is(Cell.CellType.EMPTY));
+        assertThat(subscriber.getResult().isDone(), is(false));
+    }
+
+    @DisplayName("Should cancel the subscription and complete exceptionally if a row is out of range")
+    @Test
+    void cancelOutOfRange(@TempDir Path folder) {
+        Path path = folder.resolve("test.xlsx");
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        WorksheetSubscriber subscriber = new WorksheetSubscriber(worksheet, Worksheet.MAX_COLUMN_NUMBER - 1, 0, 10, path);
+        CountingSubscription subscription = new CountingSubscription();
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(Arrays.asList("a", "b"));
+        subscriber.onNext(Arrays.asList("a", "b", "out of range"));
+        subscriber.onNext(Arrays.asList("ignored"));
+        subscriber.onComplete();
+
+        assertThat(subscription.cancelled, is(true));
+        assertThat(subscriber.getRowCount(), is(1L));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> subscriber.getResult().get());
+        assertThat(exception.getCause(), is(instanceOf(RangeException.class)));
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @DisplayName("Should complete exceptionally without saving if the publisher fails")
+    @Test
+    void failWithoutSaving(@TempDir Path folder) {
+        Path path = folder.resolve("test.xlsx");
+        Worksheet worksheet = new Workbook("test.xlsx", "Data").getCurrentWorksheet();
+        WorksheetSubscriber subscriber = new WorksheetSubscriber(worksheet, 0, 0, 10, path);
+        subscriber.onSubscribe(new CountingSubscription());
+        subscriber.onNext(Arrays.asList("a"));
+        IllegalStateException error = new IllegalStateException("Publisher failed");
+        subscriber.onError(error);
+        subscriber.onComplete();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> subscriber.getResult().get());
+        assertThat(exception.getCause(), is(sameInstance(error)));
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @DisplayName("Should save the workbook into the given file when the publisher completes")
+    @Test
+    void saveOnComplete(@TempDir Path folder) throws Exception {
+        Path path = folder.resolve("test.xlsx");
+        Worksheet worksheet = new Workbook("other.xlsx", "Data").getCurrentWorksheet();
+        WorksheetSubscriber subscriber = new WorksheetSubscriber(worksheet, 0, 0, 2, path);
+        subscriber.onSubscribe(new CountingSubscription());
+        subscriber.onNext(Arrays.asList("a", 1.5));
+        subscriber.onComplete();
+
+        subscriber.getResult().get();
+        assertThat(Files.size(path), is(greaterThan(0L)));
+        assertThat(Files.exists(folder.resolve("other.xlsx")), is(false));
+    }
+
+    /**
+     * Subscription recording the requests and the cancellation
+     */
+    private static class CountingSubscription implements Flow.Subscription {
+        private final List<Long> requests = new ArrayList<>();
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            this.requests.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.lowLevel.XlsxEditor;
+import ch.rabanti.picoxlsx4j.lowLevel.XlsxReader;
+import ch.rabanti.picoxlsx4j.style.BasicStyles;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class XlsxEditorTest {
+
+    @DisplayName("Should copy unmodified worksheets and regenerate edited and added worksheets")
+    @Test
+    void editWorksheets(@TempDir Path folder) throws Exception {
+        Path original = folder.resolve("original.xlsx");
+        Path edited = folder.resolve("edited.xlsx");
+        Workbook workbook = new Workbook(original.toString(), "Data");
+        for (int i = 0; i < 100; i++) {
+            workbook.getCurrentWorksheet().addCell("value " + i, 0, i);
+        }
+        workbook.addWorksheet("Summary");
+        workbook.getCurrentWorksheet().addCell("total", 0, 0);
+        workbook.save();
+
+        try (XlsxEditor editor = XlsxEditor.open(original)) {
+            assertThat(editor.getWorksheetNames(), contains("Data", "Summary"));
+            editor.getWorksheet("Summary").addCell(42, 1, 0, BasicStyles.Bold());
+            editor.addWorksheet("Added").addCell("new", 0, 0);
+            assertThat(editor.getWorksheetNames(), contains("Data", "Summary", "Added"));
+            editor.save(edited);
+        }
+
+        try (ZipFile before = new ZipFile(original.toFile()); ZipFile after = new ZipFile(edited.toFile())) {
+            ZipEntry data = after.getEntry("xl/worksheets/sheet1.xml");
+            assertThat(data.getCrc(), is(before.getEntry("xl/worksheets/sheet1.xml").getCrc()));
+            assertThat(data.getCompressedSize(), is(before.getEntry("xl/worksheets/sheet1.xml").getCompressedSize()));
+        }
+        List<List<Cell>> rows = new ArrayList<>();
+        try (XlsxReader reader = XlsxReader.open(edited)) {
+            assertThat(reader.getWorksheetNames(), contains("Data", "Summary", "Added"));
+            reader.forEachRow("Summary", rows::add);
+            reader.forEachRow("Added", rows::add);
+        }
+        assertThat(rows.size(), is(2));
+        assertThat(rows.get(0).get(0).getValue(), is("total"));
+        assertThat(rows.get(0).get(1).getValue(), is(42));
+        assertThat(rows.get(1).get(0).getValue(), is("new"));
+    }
+
+    @DisplayName("Should copy loaded worksheets byte by byte, as long as they are not modified")
+    @Test
+    void copyLoadedWorksheets(@TempDir Path folder) throws Exception {
+        Path original = folder.resolve("original.xlsx");
+        Path unchanged = folder.resolve("unchanged.xlsx");
+        Path edited = folder.resolve("edited.xlsx");
+        Workbook workbook = new Workbook(original.toString(), "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("styled", 0, 0, BasicStyles.BoldItalic());
+        worksheet.addCell(1.5, 1, 0, BasicStyles.BorderFrame());
+        worksheet.setColumnWidth(0, 30f);
+        worksheet.setRowHeight(1, 40f);
+        worksheet.mergeCells("C1:D2");
+        workbook.addWorksheet("Other");
+        workbook.getCurrentWorksheet().addCell("other", 0, 0, BasicStyles.Bold());
+        workbook.save();
+
+        try (XlsxEditor editor = XlsxEditor.open(original)) {
+            assertThat(editor.getWorksheet("Data").getCell(0, 0).getValue(), is("styled"));
+            editor.getWorksheet("Other");
+            editor.save(unchanged);
+            editor.getWorksheet("Other").addCell("changed", 1, 0);
+            editor.save(edited);
+        }
+
+        try (ZipFile before = new ZipFile(original.toFile()); ZipFile after = new ZipFile(unchanged.toFile())) {
+            assertThat(after.size(), is(before.size()));
+            for (ZipEntry entry : Collections.list(before.entries())) {
+                assertThat(entry.getName(), readEntry(after, entry.getName()), is(readEntry(before, entry.getName())));
+            }
+        }
+        try (ZipFile before = new ZipFile(original.toFile()); ZipFile after = new ZipFile(edited.toFile())) {
+            assertThat(readEntry(after, "xl/worksheets/sheet1.xml"), is(readEntry(before, "xl/worksheets/sheet1.xml")));
+            assertThat(readEntry(after, "xl/worksheets/sheet2.xml"), is(not(readEntry(before, "xl/worksheets/sheet2.xml"))));
+        }
+    }
+
+    @DisplayName("Should append worksheets to the edited file itself")
+    @Test
+    void appendInPlace(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("daily.xlsx");
+        Workbook workbook = new Workbook(file.toString(), "Hour 0");
+        workbook.getCurrentWorksheet().addCell("first", 0, 0);
+        workbook.save();
+        for (int hour = 1; hour <= 3; hour++) {
+            try (XlsxEditor editor = XlsxEditor.open(file)) {
+                editor.addWorksheet("Hour " + hour).addCell(hour, 0, 0);
+                editor.saveInPlace();
+            }
+        }
+        List<List<Cell>> rows = new ArrayList<>();
+        try (XlsxReader reader = XlsxReader.open(file)) {
+            assertThat(reader.getWorksheetNames(), contains("Hour 0", "Hour 1", "Hour 2", "Hour 3"));
+            reader.forEachRow("Hour 0", rows::add);
+            reader.forEachRow("Hour 3", rows::add);
+        }
+        assertThat(rows.get(0).get(0).getValue(), is("first"));
+        assertThat(rows.get(1).get(0).getValue(), is(3));
+    }
+
+    @DisplayName("Should leave the previous data of the file unchanged when appending in place")
+    @Test
+    void keepPreviousDataInPlace(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("daily.xlsx");
+        Workbook workbook = new Workbook(file.toString(), "Hour 0");
+        workbook.getCurrentWorksheet().addCell("first", 0, 0);
+        workbook.save();
+        byte[] previous = Files.readAllBytes(file);
+        try (XlsxEditor editor = XlsxEditor.open(file)) {
+            editor.addWorksheet("Hour 1").addCell(1, 0, 0);
+            editor.saveInPlace();
+        }
+        byte[] appended = Files.readAllBytes(file);
+
+        assertThat(appended.length, is(greaterThan(previous.length)));
+        assertThat(Arrays.copyOf(appended, previous.length), is(previous)); // The previous central directory is still intact
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertThat(zip.getEntry("xl/worksheets/sheet2.xml"), is(notNullValue()));
+        }
+    }
+
+    @DisplayName("Should merge the styles into the style sheet without duplicates, when saving in place repeatedly")
+    @Test
+    void mergeStylesInPlace(@TempDir Path folder) throws Exception {
+        Path file = folder.resolve("daily.xlsx");
+        Workbook workbook = new Workbook(file.toString(), "Data");
+        workbook.getCurrentWorksheet().addCell("first", 0, 0, BasicStyles.Bold());
+        workbook.save();
+        List<String> styleSheets = new ArrayList<>();
+        for (int hour = 1; hour <= 3; hour++) {
+            try (XlsxEditor editor = XlsxEditor.open(file)) {
+                editor.getWorksheet("Data").addCell(hour, 0, hour, BasicStyles.Bold());
+                editor.getWorksheet("Data").addCell(hour * 1.5, 1, hour, BasicStyles.BorderFrame());
+                editor.saveInPlace();
+            }
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                styleSheets.add(new String(readEntry(zip, "xl/styles.xml"), "UTF-8"));
+            }
+        }
+
+        assertThat(styleSheets.get(1), is(styleSheets.get(0)));
+        assertThat(styleSheets.get(2), is(styleSheets.get(0)));
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            Document styles = parse(readEntry(zip, "xl/styles.xml"));
+            Document worksheet = parse(readEntry(zip, "xl/worksheets/sheet1.xml"));
+            NodeList cells = worksheet.getElementsByTagNameNS("*", "c");
+            NodeList cellXfs = ((Element) styles.getElementsByTagNameNS("*", "cellXfs").item(0)).getElementsByTagNameNS("*", "xf");
+            NodeList fonts = styles.getElementsByTagNameNS("*", "font");
+            Element cell, xf, font;
+            for (int i = cells.getLength() - 2; i < cells.getLength(); i++) { // The styles of loaded cells are not preserved, only those of the last row are checked
+                cell = (Element) cells.item(i);
+                xf = (Element) cellXfs.item(Integer.parseInt(cell.getAttribute("s")));
+                font = (Element) fonts.item(Integer.parseInt(xf.getAttribute("fontId")));
+                boolean bold = cell.getAttribute("r").startsWith("A");
+                assertThat(cell.getAttribute("r"), font.getElementsByTagNameNS("*", "b").getLength(), is(bold ? 1 : 0));
+                assertThat(cell.getAttribute("r"), xf.getAttribute("borderId"), bold ? is("0") : is(not("0")));
+            }
+            assertThat(cells.getLength(), is(7));
+        }
+    }
+
+    private static Document parse(byte[] data) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(data));
+    }
+
+    private static byte[] readEntry(ZipFile zip, String name) throws Exception {
+        return zip.getInputStream(zip.getEntry(name)).readAllBytes();
+    }
+}
@@ -0,0 +1,85 @@
+package ch.rabanti.picoxlsx4j;
+
+import ch.rabanti.picoxlsx4j.lowLevel.RowReader;
+import ch.rabanti.picoxlsx4j.lowLevel.XlsxReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class XlsxReaderTest {
+
+    @DisplayName("Should read the values and types of a saved workbook")
+    @Test
+    void readValues() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("text", 0, 0);
+        worksheet.addCell(42, 1, 0);
+        worksheet.addCell(3.5d, 2, 0);
+        worksheet.addCell(true, 3, 0);
+        worksheet.addCell(new Date(), 4, 0);
+        worksheet.addCell(LocalTime.of(13, 45, 10), 5, 0);
+        worksheet.addCellFormula("B1*2", 6, 0);
+        worksheet.addCell("a&b <c>", 1, 2);
+        workbook.addWorksheet("Empty");
+
+        List<List<Cell>> rows = new ArrayList<>();
+        try (XlsxReader reader = XlsxReader.open(new ByteArrayInputStream(save(workbook)))) {
+            assertThat(reader.getWorksheetNames(), contains("Data", "Empty"));
+            reader.forEachRow("Data", rows::add);
+            try (RowReader empty = reader.rows("Empty")) {
+                assertThat(empty.hasNext(), is(false));
+            }
+        }
+        assertThat(rows.size(), is(2));
+        List<Cell> first = rows.get(0);
+        assertThat(first.size(), is(7));
+        assertThat(first.get(0).getValue(), is("text"));
+        assertThat(first.get(1).getValue(), is(42));
+        assertThat(first.get(2).getValue(), is(3.5d));
+        assertThat(first.get(3).getValue(), is(true));
+        assertThat(first.get(4).getDataType(), is(Cell.CellType.DATE));
+        assertThat(first.get(5).getValue(), is(LocalTime.of(13, 45, 10)));
+        assertThat(first.get(6).getDataType(), is(Cell.CellType.FORMULA));
+        assertThat(first.get(6).getValue(), is("B1*2"));
+        Cell escaped = rows.get(1).get(0);
+        assertThat(escaped.getCellAddress(), is("B3"));
+        assertThat(escaped.getValue(), is("a&b <c>"));
+    }
+
+    @DisplayName("Should resolve shared strings from temporary files if the table exceeds the maximum number of strings in memory")
+    @Test
+    void readDiskBackedSharedStrings() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        for (int i = 0; i < 5000; i++) {
+            workbook.getCurrentWorksheet().addCell("value " + i, 0, i);
+        }
+        try (XlsxReader reader = XlsxReader.open(new ByteArrayInputStream(save(workbook)), 100)) {
+            assertThat(reader.isSharedStringTableOnDisk(), is(true));
+            int count = 0;
+            try (RowReader rows = reader.rows(0)) {
+                while (rows.hasNext()) {
+                    Cell cell = rows.next().get(0);
+                    assertThat(cell.getValue(), is("value " + cell.getRowNumber()));
+                    count++;
+                }
+            }
+            assertThat(count, is(5000));
+        }
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+}
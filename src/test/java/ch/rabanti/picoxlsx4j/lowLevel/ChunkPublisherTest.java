@@ -0,0 +1,155 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.SaveOptions;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ChunkPublisherTest {
+
+    @DisplayName("Should complete without further demand if the last chunk was requested exactly")
+    @Test
+    void completeWithoutDemand() throws Exception {
+        Flow.Publisher<ByteBuffer> publisher = createWorkbook().saveAsPublisher(Runnable::run, SaveOptions.MIN_BUFFER_SIZE);
+        int chunks = new Collector(Long.MAX_VALUE).subscribe(publisher).getChunks().size();
+        Collector collector = new Collector(chunks);
+        collector.subscribe(publisher);
+
+        assertThat(chunks, is(greaterThan(1)));
+        assertThat(collector.completion.isDone(), is(true));
+        assertThat(collector.getChunks().size(), is(chunks));
+        assertThat(collector.requests.get(), is(1));
+    }
+
+    @DisplayName("Should publish the same parts to concurrent subscribers, since each subscription prepares its own copy of the workbook")
+    @Test
+    void publishConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Flow.Publisher<ByteBuffer> publisher = createWorkbook().saveAsPublisher(executor, SaveOptions.MIN_BUFFER_SIZE);
+            List<Collector> collectors = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                collectors.add(new Collector(1).subscribe(publisher));
+            }
+            Map<String, String> expected = readWorksheets(collectors.get(0).get());
+
+            assertThat(expected.size(), is(2));
+            for (Collector collector : collectors) {
+                assertThat(readWorksheets(collector.get()), is(expected));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        populate(workbook.getCurrentWorksheet());
+        workbook.addWorksheet("Other");
+        populate(workbook.getCurrentWorksheet());
+        return workbook;
+    }
+
+    private static void populate(Worksheet worksheet) {
+        for (int row = 0; row < 500; row++) {
+            worksheet.addCell("text " + row, 0, row);
+            worksheet.addCell(row, 1, row);
+        }
+        worksheet.addCellFormula("SUM(B1:B500)", 2, 0);
+        worksheet.mergeCells("D1:E20"); // Resolved while preparing the parts
+    }
+
+    private static Map<String, String> readWorksheets(byte[] data) throws Exception {
+        Map<String, String> worksheets = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().startsWith("xl/worksheets/")) {
+                    worksheets.put(entry.getName(), new String(zip.readAllBytes(), "UTF-8"));
+                }
+            }
+        }
+        return worksheets;
+    }
+
+    /**
+     * Subscriber collecting the chunks. Requests the given number of chunks at once, and one chunk per received chunk if the number is 1
+     */
+    private static class Collector implements Flow.Subscriber<ByteBuffer> {
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final List<byte[]> chunks = new ArrayList<>();
+        private final long initialRequest;
+        private final AtomicInteger requests = new AtomicInteger();
+        private Flow.Subscription subscription;
+
+        Collector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        Collector subscribe(Flow.Publisher<ByteBuffer> publisher) {
+            publisher.subscribe(this);
+            return this;
+        }
+
+        List<byte[]> getChunks() throws Exception {
+            this.completion.get(60, TimeUnit.SECONDS);
+            return this.chunks;
+        }
+
+        byte[] get() throws Exception {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            for (byte[] chunk : getChunks()) {
+                stream.write(chunk, 0, chunk.length);
+            }
+            return stream.toByteArray();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            this.requests.incrementAndGet();
+            subscription.request(this.initialRequest);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            this.chunks.add(bytes);
+            if (this.initialRequest == 1) {
+                this.requests.incrementAndGet();
+                this.subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            this.completion.complete(null);
+        }
+    }
+}
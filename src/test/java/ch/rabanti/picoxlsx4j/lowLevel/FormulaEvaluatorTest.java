@@ -0,0 +1,197 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Cell;
+import ch.rabanti.picoxlsx4j.MappedCellStore;
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class FormulaEvaluatorTest {
+
+    @DisplayName("Should evaluate operators with the precedence and associativity of Excel")
+    @Test
+    void evaluatePrecedence() {
+        assertThat(evaluate("-2^2"), is(4d)); // Negation before exponentiation
+        assertThat(evaluate("2^3^2"), is(64d)); // Left-associative
+        assertThat(evaluate("1+2*3"), is(7d));
+        assertThat(evaluate("(1+2)*3"), is(9d));
+        assertThat(evaluate("\"x\"&1+1"), is("x2"));
+        assertThat(evaluate("1+1>1"), is(true));
+    }
+
+    @DisplayName("Should propagate errors to dependent formulas")
+    @Test
+    void propagateErrors() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell(1, 0, 0);
+        worksheet.addCell(2, 0, 1);
+        worksheet.addCellFormula("1/0", 1, 0);
+        worksheet.addCellFormula("B1+1", 1, 1);
+        worksheet.addCellFormula("\"a\"+1", 2, 0);
+        worksheet.addCellFormula("SUM(C1,1)", 2, 1);
+        worksheet.addCellFormula("VLOOKUP(9,A1:A2,1,FALSE)", 3, 0);
+        worksheet.addCellFormula("D1*2", 3, 1);
+        Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+        assertThat(results.get(worksheet.getCell(1, 0)), is(FormulaError.DIV0));
+        assertThat(results.get(worksheet.getCell(1, 1)), is(FormulaError.DIV0));
+        assertThat(results.get(worksheet.getCell(2, 0)), is(FormulaError.VALUE));
+        assertThat(results.get(worksheet.getCell(2, 1)), is(FormulaError.VALUE));
+        assertThat(results.get(worksheet.getCell(3, 0)), is(FormulaError.NA));
+        assertThat(results.get(worksheet.getCell(3, 1)), is(FormulaError.NA));
+        assertThat(FormulaError.DIV0.getLiteral(), is("#DIV/0!"));
+        assertThat(FormulaError.NA.getLiteral(), is("#N/A"));
+    }
+
+    @DisplayName("Should not evaluate formulas in a circular reference and formulas depending on them")
+    @Test
+    void skipCycles() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCellFormula("B1+1", 0, 0);
+        worksheet.addCellFormula("A1+1", 1, 0);
+        worksheet.addCellFormula("A1*2", 2, 0);
+        worksheet.addCellFormula("D1", 3, 0); // Self reference
+        worksheet.addCellFormula("1+1", 4, 0);
+        Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+        assertThat(results.containsKey(worksheet.getCell(0, 0)), is(false));
+        assertThat(results.containsKey(worksheet.getCell(1, 0)), is(false));
+        assertThat(results.containsKey(worksheet.getCell(2, 0)), is(false));
+        assertThat(results.containsKey(worksheet.getCell(3, 0)), is(false));
+        assertThat(results.get(worksheet.getCell(4, 0)), is(2d));
+    }
+
+    @DisplayName("Should resolve references and ranges on other worksheets")
+    @Test
+    void evaluateCrossSheetReferences() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet data = workbook.getCurrentWorksheet();
+        data.addCellFormula("'Other Sheet'!A2*2", 0, 0);
+        data.addCellFormula("SUM('Other Sheet'!A1:A3)", 1, 0);
+        data.addCellFormula("'Other Sheet'!B1+1", 2, 0); // Formula on the other worksheet
+        workbook.addWorksheet("Other Sheet");
+        Worksheet other = workbook.getCurrentWorksheet();
+        for (int row = 0; row < 3; row++) {
+            other.addCell(row + 1, 0, row);
+        }
+        other.addCellFormula("A3*10", 1, 0);
+        Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+        assertThat(results.get(data.getCell(0, 0)), is(4d));
+        assertThat(results.get(data.getCell(1, 0)), is(6d));
+        assertThat(results.get(data.getCell(2, 0)), is(31d));
+    }
+
+    @DisplayName("Should not evaluate formulas referencing a formula of a mapped cell store")
+    @Test
+    void skipMappedFormulas(@TempDir Path folder) throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet data = workbook.getCurrentWorksheet();
+        data.addCellFormula("Big!A1", 0, 0);
+        data.addCellFormula("SUM(Big!A1:B1)", 1, 0);
+        data.addCellFormula("Big!B1*2", 2, 0);
+        data.addCellFormula("A1+1", 3, 0);
+        workbook.addWorksheet("Big");
+        Worksheet big = workbook.getCurrentWorksheet();
+        try (MappedCellStore store = big.useMappedCellStore(folder)) {
+            big.addCellFormula("1+1", 0, 0);
+            big.addCell(5, 1, 0);
+            Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+            assertThat(results.containsKey(data.getCell(0, 0)), is(false)); // Not evaluated instead of blank (0)
+            assertThat(results.containsKey(data.getCell(1, 0)), is(false));
+            assertThat(results.get(data.getCell(2, 0)), is(10d));
+            assertThat(results.containsKey(data.getCell(3, 0)), is(false));
+        }
+    }
+
+    @DisplayName("Should look up values with VLOOKUP in exact and approximate mode")
+    @Test
+    void evaluateVLookup() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        for (int row = 0; row < 3; row++) {
+            worksheet.addCell((row + 1) * 10, 0, row);
+            worksheet.addCell("value " + (row + 1), 1, row);
+        }
+        worksheet.addCellFormula("VLOOKUP(20,A1:B3,2,FALSE)", 3, 0);
+        worksheet.addCellFormula("VLOOKUP(25,A1:B3,2,TRUE)", 3, 1);
+        worksheet.addCellFormula("VLOOKUP(25,A1:B3,2,FALSE)", 3, 2);
+        worksheet.addCellFormula("VLOOKUP(20,A1:B3,3,FALSE)", 3, 3);
+        Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+        assertThat(results.get(worksheet.getCell(3, 0)), is("value 2"));
+        assertThat(results.get(worksheet.getCell(3, 1)), is("value 2"));
+        assertThat(results.get(worksheet.getCell(3, 2)), is(FormulaError.NA));
+        assertThat(results.get(worksheet.getCell(3, 3)), is(FormulaError.REF));
+    }
+
+    @DisplayName("Should not evaluate formulas with unsupported functions, names or literals")
+    @ParameterizedTest(name = "Given formula {0}")
+    @ValueSource(strings = {"10%", "UNKNOWN(1)", "NA()", "IF(1,2,3)", "A1:A2", "SomeName+1", "1+", "{1,2}"})
+    void skipUnsupportedFormulas(String formula) {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCellFormula(formula, 0, 0);
+        worksheet.addCellFormula("A1+1", 1, 0);
+        Map<Cell, Object> results = new FormulaEvaluator(workbook).evaluate();
+
+        assertThat(results.containsKey(worksheet.getCell(0, 0)), is(false));
+        assertThat(results.containsKey(worksheet.getCell(1, 0)), is(false));
+    }
+
+    @DisplayName("Should write the evaluated results as cached values, but no value for formulas that were not evaluated")
+    @Test
+    void writeCachedValues() throws Exception {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        workbook.setEvaluateFormulas(true);
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell(5, 0, 0);
+        worksheet.addCellFormula("A1*2", 1, 0);
+        worksheet.addCellFormula("1/0", 2, 0);
+        worksheet.addCellFormula("10%", 3, 0);
+        worksheet.addCellFormula("A1>1", 4, 0);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        String sheet = readWorksheet(stream.toByteArray());
+
+        assertThat(sheet, containsString("<c r=\"B1\" t=\"n\"><f>A1*2</f><v>10.0</v></c>"));
+        assertThat(sheet, containsString("<c r=\"C1\" t=\"e\"><f>1/0</f><v>#DIV/0!</v></c>"));
+        assertThat(sheet, containsString("<c r=\"D1\" t=\"str\"><f>10%</f></c>"));
+        assertThat(sheet, containsString("<c r=\"E1\" t=\"b\"><f>A1&gt;1</f><v>1</v></c>"));
+    }
+
+    private static Object evaluate(String formula) {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        workbook.getCurrentWorksheet().addCellFormula(formula, 0, 0);
+        return new FormulaEvaluator(workbook).evaluate().get(workbook.getCurrentWorksheet().getCell(0, 0));
+    }
+
+    private static String readWorksheet(byte[] data) throws Exception {
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    return new String(zip.readAllBytes(), "UTF-8");
+                }
+            }
+        }
+        return null;
+    }
+}
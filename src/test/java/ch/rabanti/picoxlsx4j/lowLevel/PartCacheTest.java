@@ -0,0 +1,64 @@
+package ch.rabanti.picoxlsx4j.lowLevel;
+
+import ch.rabanti.picoxlsx4j.Workbook;
+import ch.rabanti.picoxlsx4j.Worksheet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Date;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class PartCacheTest {
+
+    @DisplayName("Should reuse every worksheet part if the workbook is saved twice without change")
+    @Test
+    void reuseUnchangedWorksheets() throws Exception {
+        Workbook workbook = createWorkbook();
+        PartCache cache = workbook.getPartCache();
+        byte[] first = save(workbook);
+        long generated = cache.getGeneratedWorksheets();
+        byte[] second = save(workbook);
+
+        assertThat(generated, is(2L));
+        assertThat(cache.getGeneratedWorksheets(), is(generated));
+        assertThat(cache.getReusedWorksheets(), is(2L));
+        assertThat(second.length, is(first.length));
+    }
+
+    @DisplayName("Should generate only the modified worksheet again")
+    @Test
+    void generateModifiedWorksheet() throws Exception {
+        Workbook workbook = createWorkbook();
+        PartCache cache = workbook.getPartCache();
+        save(workbook);
+        workbook.getWorksheets().get(1).getCell(0, 0).setValue("changed");
+        save(workbook);
+
+        assertThat(cache.getGeneratedWorksheets(), is(3L));
+        assertThat(cache.getReusedWorksheets(), is(1L));
+    }
+
+    private static Workbook createWorkbook() {
+        Workbook workbook = new Workbook("test.xlsx", "Data");
+        workbook.setIncrementalSave(true);
+        Worksheet worksheet = workbook.getCurrentWorksheet();
+        worksheet.addCell("text", 0, 0);
+        worksheet.addCell(null, 1, 0); // Empty cell, resolved while saving
+        worksheet.addCell(new Date(), 2, 0);
+        worksheet.addCellFormula("1+1", 3, 0);
+        worksheet.mergeCells("A2:B3");
+        workbook.addWorksheet("Other");
+        workbook.getCurrentWorksheet().addCell(1.5, 0, 0);
+        workbook.getCurrentWorksheet().addCell(null, 0, 1);
+        return workbook;
+    }
+
+    private static byte[] save(Workbook workbook) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        workbook.saveAsStream(stream);
+        return stream.toByteArray();
+    }
+}